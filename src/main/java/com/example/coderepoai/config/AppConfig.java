@@ -4,9 +4,14 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.PropertyNamingStrategies;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.client.RestClient;
 
@@ -14,8 +19,13 @@ import java.util.concurrent.Executor;
 
 @Configuration
 @EnableAsync
+@EnableScheduling
 public class AppConfig {
 
+    private static final Logger logger = LoggerFactory.getLogger(AppConfig.class);
+
+    private static final String EXECUTOR_MODE_VIRTUAL = "virtual";
+
     @Bean
     public ObjectMapper objectMapper() {
         ObjectMapper mapper = new ObjectMapper();
@@ -31,14 +41,102 @@ public class AppConfig {
                 .build();
     }
 
+    /**
+     * Runs the refresh jobs started by the RefreshScheduler. In virtual mode every refresh gets
+     * its own virtual thread and concurrency is bounded by the per-downstream limits (GitHub
+     * requests, embedding calls) instead of by the pool size.
+     * <p>
+     * The scheduler decides which job runs next, so the pool hands jobs straight to a thread
+     * and never queues them: a job it counts as running always has a thread. A finishing job
+     * starts the next one before its thread is back in the pool, hence the headroom above
+     * max-concurrent-jobs.
+     */
     @Bean(name = "taskExecutor")
-    public Executor taskExecutor() {
+    public Executor taskExecutor(@Value("${app.executor.mode:platform}") String executorMode,
+                                 @Value("${ingestion.scheduler.max-concurrent-jobs:4}") int maxConcurrentJobs) {
+        if (EXECUTOR_MODE_VIRTUAL.equalsIgnoreCase(executorMode)) {
+            Executor executor = virtualThreadExecutor("AsyncRefresh-");
+            if (executor != null) {
+                return executor;
+            }
+        }
+
+        int jobThreads = Math.max(1, maxConcurrentJobs);
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        executor.setCorePoolSize(2);
-        executor.setMaxPoolSize(4);
-        executor.setQueueCapacity(100);
+        executor.setCorePoolSize(jobThreads);
+        executor.setMaxPoolSize(2 * jobThreads);
+        executor.setQueueCapacity(0);
         executor.setThreadNamePrefix("AsyncRefresh-");
         executor.initialize();
         return executor;
     }
+
+    /**
+     * Runs blocking calls to GitHub and the AI APIs that are fanned out from a single
+     * request: blob downloads during a fetch and the parallel lookups of a review.
+     */
+    @Bean(name = "ioExecutor")
+    public Executor ioExecutor(@Value("${app.executor.mode:platform}") String executorMode,
+                               @Value("${app.executor.io-threads:32}") int ioThreads) {
+        if (EXECUTOR_MODE_VIRTUAL.equalsIgnoreCase(executorMode)) {
+            Executor executor = virtualThreadExecutor("IO-");
+            if (executor != null) {
+                return executor;
+            }
+        }
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(ioThreads);
+        executor.setMaxPoolSize(ioThreads);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setThreadNamePrefix("IO-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Runs the parse and store stages of ingestion pipelines. Each stage is a loop that
+     * lives as long as its pipeline run and blocks on the queues between stages, so the
+     * pool never queues a task: a stage that waited behind another run's stages would stall
+     * its own run. The number of threads is still bounded, by the running refresh jobs
+     * times the stages of a run. Idle threads are kept for the next run for a minute.
+     * <p>
+     * These are not the I/O executor's threads, because the blob downloads feeding a
+     * pipeline run there and would wait behind stages that wait for them.
+     */
+    @Bean(name = "pipelineExecutor")
+    public Executor pipelineExecutor(@Value("${app.executor.mode:platform}") String executorMode) {
+        if (EXECUTOR_MODE_VIRTUAL.equalsIgnoreCase(executorMode)) {
+            Executor executor = virtualThreadExecutor("Ingest-");
+            if (executor != null) {
+                return executor;
+            }
+        }
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(0);
+        executor.setMaxPoolSize(Integer.MAX_VALUE);
+        executor.setQueueCapacity(0);
+        executor.setDaemon(true);
+        executor.setThreadNamePrefix("Ingest-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * @return an executor that starts one virtual thread per task, or null when the
+     * runtime does not support virtual threads (JDK 20 and earlier)
+     */
+    private Executor virtualThreadExecutor(String threadNamePrefix) {
+        try {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadNamePrefix);
+            executor.setVirtualThreads(true);
+            logger.info("Using virtual threads for {} tasks", threadNamePrefix);
+            return executor;
+        } catch (UnsupportedOperationException e) {
+            logger.warn("Virtual threads are not supported on Java {}, falling back to a platform thread pool for {} tasks",
+                    Runtime.version().feature(), threadNamePrefix);
+            return null;
+        }
+    }
 }
\ No newline at end of file
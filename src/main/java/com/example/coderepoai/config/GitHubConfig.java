@@ -0,0 +1,68 @@
+package com.example.coderepoai.config;
+
+import com.example.coderepoai.exception.RepositoryFetchException;
+import com.example.coderepoai.service.github.GitHubResponseCache;
+import okhttp3.OkHttpClient;
+import org.kohsuke.github.GitHub;
+import org.kohsuke.github.GitHubAbuseLimitHandler;
+import org.kohsuke.github.GitHubBuilder;
+import org.kohsuke.github.GitHubRateLimitHandler;
+import org.kohsuke.github.extras.okhttp3.OkHttpGitHubConnector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+
+@Configuration
+public class GitHubConfig {
+    
+    private static final Logger logger = LoggerFactory.getLogger(GitHubConfig.class);
+    
+    /**
+     * Single GitHub client shared by ingestion and pull request services so that all
+     * calls see the same rate limit state. Rate limit errors are surfaced instead of
+     * handled inside the client, because GitHubRequestScheduler paces and retries them.
+     * Responses go through GitHubResponseCache so repeated calls are revalidated with ETags;
+     * blob and archive downloads bypass it.
+     */
+    @Bean
+    public GitHub gitHub(@Value("${github.token:}") String githubToken,
+                         @Value("${github.api-url:https://api.github.com}") String apiUrl,
+                         GitHubResponseCache responseCache) {
+        try {
+            // Try Spring property first, then environment variable
+            String token = githubToken;
+            if (token == null || token.trim().isEmpty()) {
+                token = System.getenv("GITHUB_TOKEN");
+            }
+            
+            // A custom endpoint lets the application run against a local stand-in for the GitHub API
+            GitHubBuilder builder = new GitHubBuilder()
+                    .withEndpoint(apiUrl)
+                    .withRateLimitHandler(GitHubRateLimitHandler.FAIL)
+                    .withAbuseLimitHandler(GitHubAbuseLimitHandler.FAIL);
+            
+            if (responseCache.isEnabled()) {
+                // The connector sends max-age=0, so every cached response is revalidated rather than served stale
+                OkHttpClient client = new OkHttpClient.Builder()
+                        .cache(responseCache.getCache())
+                        .addNetworkInterceptor(responseCache.skipDownloads())
+                        .build();
+                builder.withConnector(new OkHttpGitHubConnector(client));
+            }
+            
+            if (token == null || token.trim().isEmpty()) {
+                logger.warn("Using anonymous GitHub connection - rate limits will be stricter and comment posting is disabled");
+                return builder.build();
+            }
+            
+            logger.info("Connected to GitHub using OAuth token");
+            return builder.withOAuthToken(token).build();
+        } catch (IOException e) {
+            throw new RepositoryFetchException("Failed to connect to GitHub", e);
+        }
+    }
+}
\ No newline at end of file
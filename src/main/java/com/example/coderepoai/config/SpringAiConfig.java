@@ -1,5 +1,7 @@
 package com.example.coderepoai.config;
 
+import com.example.coderepoai.repository.CachingEmbeddingModel;
+import com.example.coderepoai.repository.EmbeddingCache;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.embedding.EmbeddingModel;
 import org.springframework.ai.openai.OpenAiChatModel;
@@ -40,7 +42,8 @@ public class SpringAiConfig {
 
     @Bean
     @ConditionalOnProperty(name = "spring.ai.openai.api-key")
-    public VectorStore vectorStore(EmbeddingModel embeddingModel) {
-        return new SimpleVectorStore(embeddingModel);
+    public VectorStore vectorStore(EmbeddingModel embeddingModel, EmbeddingCache embeddingCache,
+                                   @Value("${embedding.max-concurrent-requests:4}") int maxConcurrentRequests) {
+        return new SimpleVectorStore(new CachingEmbeddingModel(embeddingModel, embeddingCache, maxConcurrentRequests));
     }
 }
\ No newline at end of file
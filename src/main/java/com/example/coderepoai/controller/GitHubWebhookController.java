@@ -0,0 +1,77 @@
+package com.example.coderepoai.controller;
+
+import com.example.coderepoai.exception.WebhookSignatureException;
+import com.example.coderepoai.service.webhook.GitHubWebhookService;
+import com.example.coderepoai.service.webhook.PushEventDebouncer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/webhooks/github")
+public class GitHubWebhookController {
+    
+    private static final Logger logger = LoggerFactory.getLogger(GitHubWebhookController.class);
+    
+    private final GitHubWebhookService webhookService;
+    private final PushEventDebouncer debouncer;
+    
+    public GitHubWebhookController(GitHubWebhookService webhookService, PushEventDebouncer debouncer) {
+        this.webhookService = webhookService;
+        this.debouncer = debouncer;
+    }
+    
+    /**
+     * Receives GitHub webhook deliveries. Only push events trigger indexing.
+     */
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> receive(
+            @RequestHeader(value = "X-GitHub-Event", required = false) String event,
+            @RequestHeader(value = "X-GitHub-Delivery", required = false) String deliveryId,
+            @RequestHeader(value = "X-Hub-Signature-256", required = false) String signature,
+            @RequestBody byte[] body) {
+        
+        try {
+            webhookService.verifySignature(body, signature);
+        } catch (WebhookSignatureException e) {
+            logger.warn("Rejected webhook delivery {}: {}", deliveryId, e.getMessage());
+            return ResponseEntity.status(401).body(Map.of(
+                "error", e.getMessage(),
+                "status", "error"
+            ));
+        }
+        
+        if ("ping".equals(event)) {
+            return ResponseEntity.ok(Map.of("status", "pong"));
+        }
+        if (!"push".equals(event)) {
+            return ResponseEntity.accepted().body(Map.of(
+                "status", "ignored: unsupported event " + event
+            ));
+        }
+        
+        try {
+            String outcome = webhookService.handlePush(body);
+            logger.info("Webhook delivery {}: {}", deliveryId, outcome);
+            return ResponseEntity.accepted().body(Map.of(
+                "delivery_id", deliveryId != null ? deliveryId : "",
+                "status", outcome
+            ));
+            
+        } catch (Exception e) {
+            logger.error("Invalid push payload in delivery {}", deliveryId, e);
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "Invalid push payload: " + e.getMessage(),
+                "status", "error"
+            ));
+        }
+    }
+    
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getStatistics() {
+        return ResponseEntity.ok(debouncer.getStatistics());
+    }
+}
\ No newline at end of file
@@ -1,11 +1,16 @@
 package com.example.coderepoai.controller;
 
+import com.example.coderepoai.service.github.GitHubRequestScheduler;
+import com.example.coderepoai.service.github.GitHubResponseCache;
+import com.example.coderepoai.service.ingestion.RefreshJob;
 import com.example.coderepoai.service.ingestion.RefreshService;
+import com.example.coderepoai.service.ingestion.RepositorySyncPoller;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -16,11 +21,20 @@ public class RefreshController {
     private static final Logger logger = LoggerFactory.getLogger(RefreshController.class);
     
     private final RefreshService refreshService;
-
-    public RefreshController(RefreshService refreshService) {
+    private final GitHubRequestScheduler gitHubScheduler;
+    private final GitHubResponseCache gitHubResponseCache;
+    private final RepositorySyncPoller syncPoller;
+    
+    public RefreshController(RefreshService refreshService,
+                             GitHubRequestScheduler gitHubScheduler,
+                             GitHubResponseCache gitHubResponseCache,
+                             RepositorySyncPoller syncPoller) {
         this.refreshService = refreshService;
+        this.gitHubScheduler = gitHubScheduler;
+        this.gitHubResponseCache = gitHubResponseCache;
+        this.syncPoller = syncPoller;
     }
-
+    
     @PostMapping
     public ResponseEntity<Map<String, String>> refreshRepository(@RequestBody Map<String, String> request) {
         String repositoryUrl = request.get("repository_url");
@@ -33,9 +47,10 @@ public class RefreshController {
         }
         
         logger.info("Received refresh request for repository: {}", repositoryUrl);
+        boolean fullRefresh = Boolean.parseBoolean(request.get("full_refresh"));
         
         try {
-            refreshService.refreshRepository(repositoryUrl);
+            refreshService.refreshRepository(repositoryUrl, fullRefresh);
             
             return ResponseEntity.ok(Map.of(
                 "message", "Repository refreshed successfully",
@@ -43,6 +58,8 @@ public class RefreshController {
                 "status", "success"
             ));
             
+        } catch (IllegalArgumentException e) {
+            return unsupportedLocation(repositoryUrl, e);
         } catch (Exception e) {
             logger.error("Error refreshing repository: {}", repositoryUrl, e);
             
@@ -53,7 +70,7 @@ public class RefreshController {
             ));
         }
     }
-
+    
     @PostMapping("/async")
     public ResponseEntity<Map<String, String>> refreshRepositoryAsync(@RequestBody Map<String, String> request) {
         String repositoryUrl = request.get("repository_url");
@@ -66,16 +83,21 @@ public class RefreshController {
         }
         
         logger.info("Received async refresh request for repository: {}", repositoryUrl);
+        boolean fullRefresh = Boolean.parseBoolean(request.get("full_refresh"));
         
         try {
-            refreshService.refreshRepositoryAsync(repositoryUrl);
+            RefreshJob job = refreshService.submitRefresh(repositoryUrl, fullRefresh);
             
             return ResponseEntity.ok(Map.of(
                 "message", "Repository refresh started",
                 "repository_url", repositoryUrl,
+                "job_id", job.getId(),
+                "status_url", "/api/refresh/status/" + job.getId(),
                 "status", "started"
             ));
             
+        } catch (IllegalArgumentException e) {
+            return unsupportedLocation(repositoryUrl, e);
         } catch (Exception e) {
             logger.error("Error starting async repository refresh: {}", repositoryUrl, e);
             
@@ -86,13 +108,77 @@ public class RefreshController {
             ));
         }
     }
-
+    
+    private ResponseEntity<Map<String, String>> unsupportedLocation(String repositoryUrl, IllegalArgumentException e) {
+        logger.warn("Rejected refresh request for {}: {}", repositoryUrl, e.getMessage());
+        return ResponseEntity.badRequest().body(Map.of(
+            "error", e.getMessage(),
+            "repository_url", repositoryUrl,
+            "status", "error"
+        ));
+    }
+    
+    @GetMapping("/dedupe")
+    public ResponseEntity<Map<String, Object>> getDedupeStatistics() {
+        return ResponseEntity.ok(refreshService.getDedupeStatistics());
+    }
+    
+    @GetMapping("/github")
+    public ResponseEntity<Map<String, Object>> getGitHubStatistics() {
+        return ResponseEntity.ok(Map.of(
+            "rate_limit", gitHubScheduler.getStatistics(),
+            "response_cache", gitHubResponseCache.getStatistics()
+        ));
+    }
+    
+    @GetMapping("/sync")
+    public ResponseEntity<Map<String, Object>> getSyncStatistics() {
+        return ResponseEntity.ok(syncPoller.getStatistics());
+    }
+    
     @GetMapping("/status")
-    public ResponseEntity<Map<String, String>> getStatus() {
-        // In a production system, this would return the status of ongoing refresh operations
+    public ResponseEntity<Map<String, Object>> getStatus() {
+        List<Map<String, Object>> activeJobs = refreshService.getActiveJobs().stream()
+                .map(RefreshJob::toStatusMap)
+                .toList();
+        
+        return ResponseEntity.ok(Map.of(
+            "status", activeJobs.isEmpty() ? "ready" : "busy",
+            "service", "refresh",
+            "active_jobs", activeJobs,
+            "coalescing", refreshService.getCoalescingStatistics(),
+            "scheduler", refreshService.getSchedulerStatistics(),
+            "chunking", refreshService.getChunkingStatistics(),
+            "search", refreshService.getSearchStatistics()
+        ));
+    }
+    
+    @GetMapping("/status/{jobId}")
+    public ResponseEntity<Map<String, Object>> getJobStatus(@PathVariable String jobId) {
+        return refreshService.getJob(jobId)
+                .map(job -> ResponseEntity.ok(job.toStatusMap()))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+    
+    @PostMapping("/status/{jobId}/cancel")
+    public ResponseEntity<Map<String, Object>> cancelJob(@PathVariable String jobId) {
+        if (refreshService.getJob(jobId).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        
+        if (!refreshService.cancelJob(jobId)) {
+            return ResponseEntity.status(409).body(Map.of(
+                "error", "Refresh job has already finished",
+                "job_id", jobId,
+                "status", "error"
+            ));
+        }
+        
+        logger.info("Cancellation requested for refresh job {}", jobId);
         return ResponseEntity.ok(Map.of(
-            "status", "ready",
-            "service", "refresh"
+            "message", "Cancellation requested",
+            "job_id", jobId,
+            "status", "cancelling"
         ));
     }
 }
\ No newline at end of file
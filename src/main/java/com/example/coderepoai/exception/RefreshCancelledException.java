@@ -0,0 +1,8 @@
+package com.example.coderepoai.exception;
+
+public class RefreshCancelledException extends RuntimeException {
+    
+    public RefreshCancelledException(String message) {
+        super(message);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,8 @@
+package com.example.coderepoai.exception;
+
+public class WebhookSignatureException extends RuntimeException {
+    
+    public WebhookSignatureException(String message) {
+        super(message);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,11 @@
+package com.example.coderepoai.model;
+
+/**
+ * Granularity of a chunk in the hierarchy of its file. File and type chunks are outlines
+ * (signatures of what they contain) used to find where to look; member chunks hold code.
+ */
+public enum ChunkLevel {
+    FILE,
+    TYPE,
+    MEMBER
+}
@@ -1,13 +1,31 @@
 package com.example.coderepoai.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.HashMap;
 import java.util.Map;
 
 public class CodeChunk {
     private String content;
+    // Set instead of content while chunking: the text stays a view over the file until needed
+    private SourceSpan span;
+    // Set instead of either when the text is read back from a content store on demand
+    private StoredText storedText;
     private String filePath;
     private Map<String, Object> metadata;
     private String repositoryUrl;
     private Integer chunkIndex;
+    private ChunkLevel level = ChunkLevel.MEMBER;
+    // IDs within the file ("file", "type:Outer.Inner", "chunk:3"); the parent is null for the file chunk
+    private String chunkId;
+    private String parentId;
+    // Lines of the original file, 1-based and inclusive
+    private Integer startLine;
+    private Integer endLine;
+    // UTF-8 byte range of the chunk in the indexed (comment- and import-stripped) file content;
+    // for file and type chunks, the range they outline
+    private Integer startByte;
+    private Integer endByte;
 
     public CodeChunk() {}
 
@@ -18,13 +36,89 @@ public class CodeChunk {
         this.chunkIndex = chunkIndex;
     }
 
+    public CodeChunk(SourceSpan span, String filePath, String repositoryUrl, Integer chunkIndex) {
+        this.span = span;
+        this.filePath = filePath;
+        this.repositoryUrl = repositoryUrl;
+        this.chunkIndex = chunkIndex;
+    }
+
     // Getters and Setters
+
+    /**
+     * Builds the text of a span-backed chunk, or reads that of a stored one, on every call;
+     * callers that need it more than once should keep the result.
+     */
     public String getContent() {
-        return content;
+        if (content != null) {
+            return content;
+        }
+        if (span != null) {
+            return span.toString();
+        }
+        return storedText != null ? storedText.read() : null;
     }
 
     public void setContent(String content) {
         this.content = content;
+        this.span = null;
+        this.storedText = null;
+    }
+
+    @JsonIgnore
+    public SourceSpan getSpan() {
+        return span;
+    }
+
+    @JsonIgnore
+    public StoredText getStoredText() {
+        return storedText;
+    }
+
+    @JsonIgnore
+    public int getContentLength() {
+        if (content != null) {
+            return content.length();
+        }
+        if (span != null) {
+            return span.length();
+        }
+        return storedText != null ? storedText.length() : 0;
+    }
+
+    /**
+     * Copy of a span-backed chunk that reads its text from the given source instead of
+     * keeping the file content reachable. Other chunks are returned as they are.
+     */
+    public CodeChunk detach(ContentSource source) {
+        if (span == null || startByte == null || endByte == null) {
+            return this;
+        }
+        CodeChunk detached = copyFor(filePath, repositoryUrl);
+        detached.span = null;
+        detached.storedText = new StoredText(source, span.getPrefix(), startByte, endByte, span.length());
+        return detached;
+    }
+
+    /**
+     * Copy sharing the text (or the span or stored text behind it) and the offsets, with
+     * its own metadata map, for the same content found at another path or repository.
+     */
+    public CodeChunk copyFor(String filePath, String repositoryUrl) {
+        CodeChunk copy = new CodeChunk(content, filePath, repositoryUrl, chunkIndex);
+        copy.span = span;
+        copy.storedText = storedText;
+        copy.level = level;
+        copy.chunkId = chunkId;
+        copy.parentId = parentId;
+        copy.startLine = startLine;
+        copy.endLine = endLine;
+        copy.startByte = startByte;
+        copy.endByte = endByte;
+        if (metadata != null) {
+            copy.metadata = new HashMap<>(metadata);
+        }
+        return copy;
     }
 
     public String getFilePath() {
@@ -59,13 +153,82 @@ public class CodeChunk {
         this.chunkIndex = chunkIndex;
     }
 
+    public ChunkLevel getLevel() {
+        return level;
+    }
+
+    public void setLevel(ChunkLevel level) {
+        this.level = level;
+    }
+
+    public String getChunkId() {
+        return chunkId;
+    }
+
+    public void setChunkId(String chunkId) {
+        this.chunkId = chunkId;
+    }
+
+    public String getParentId() {
+        return parentId;
+    }
+
+    public void setParentId(String parentId) {
+        this.parentId = parentId;
+    }
+
+    public Integer getStartLine() {
+        return startLine;
+    }
+
+    public void setStartLine(Integer startLine) {
+        this.startLine = startLine;
+    }
+
+    public Integer getEndLine() {
+        return endLine;
+    }
+
+    public void setEndLine(Integer endLine) {
+        this.endLine = endLine;
+    }
+
+    public Integer getStartByte() {
+        return startByte;
+    }
+
+    public void setStartByte(Integer startByte) {
+        this.startByte = startByte;
+    }
+
+    public Integer getEndByte() {
+        return endByte;
+    }
+
+    public void setEndByte(Integer endByte) {
+        this.endByte = endByte;
+    }
+
+    /**
+     * @return the file path with the chunk's line range, e.g. "src/App.java:12-40"
+     */
+    @JsonIgnore
+    public String getLocation() {
+        if (startLine == null) {
+            return filePath;
+        }
+        return filePath + ":" + startLine + (endLine != null && !endLine.equals(startLine) ? "-" + endLine : "");
+    }
+
     @Override
     public String toString() {
         return "CodeChunk{" +
                 "filePath='" + filePath + '\'' +
                 ", repositoryUrl='" + repositoryUrl + '\'' +
                 ", chunkIndex=" + chunkIndex +
-                ", contentLength=" + (content != null ? content.length() : 0) +
+                ", level=" + level +
+                ", lines=" + startLine + "-" + endLine +
+                ", contentLength=" + getContentLength() +
                 '}';
     }
 }
\ No newline at end of file
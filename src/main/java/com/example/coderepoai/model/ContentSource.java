@@ -0,0 +1,9 @@
+package com.example.coderepoai.model;
+
+/**
+ * Indexed content of one file kept outside the heap, read back by UTF-8 byte range.
+ */
+public interface ContentSource {
+
+    String read(int startByte, int endByte);
+}
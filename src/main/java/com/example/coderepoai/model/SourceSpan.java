@@ -0,0 +1,105 @@
+package com.example.coderepoai.model;
+
+/**
+ * The text of a chunk as a range of its source file. All chunks cut from one file share
+ * the file content, and a String is only built when the text is needed as one (for the
+ * embedding request or a response). A span can carry a prefix that precedes the range,
+ * such as the enclosing declarations of a syntax-tree chunk.
+ */
+public final class SourceSpan implements CharSequence {
+    private final String source;
+    private final String prefix;
+    private final int start;
+    private final int end;
+    private final int startLine;
+    private final int endLine;
+
+    /**
+     * @param startLine first line of the range, 1-based
+     * @param endLine   last line of the range, inclusive
+     */
+    public SourceSpan(String source, int start, int end, int startLine, int endLine) {
+        this(source, "", start, end, startLine, endLine);
+    }
+
+    private SourceSpan(String source, String prefix, int start, int end, int startLine, int endLine) {
+        if (start < 0 || end > source.length() || start > end) {
+            throw new IndexOutOfBoundsException("Span [" + start + ", " + end + ") of " + source.length() + " chars");
+        }
+        this.source = source;
+        this.prefix = prefix;
+        this.start = start;
+        this.end = end;
+        this.startLine = startLine;
+        this.endLine = endLine;
+    }
+
+    public SourceSpan withPrefix(String prefix) {
+        return new SourceSpan(source, prefix, start, end, startLine, endLine);
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getEnd() {
+        return end;
+    }
+
+    public int getStartLine() {
+        return startLine;
+    }
+
+    public int getEndLine() {
+        return endLine;
+    }
+
+    /**
+     * @return true when the span, prefix included, holds only whitespace
+     */
+    public boolean isBlank() {
+        if (!prefix.isBlank()) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (!Character.isWhitespace(source.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int length() {
+        return prefix.length() + end - start;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return index < prefix.length() ? prefix.charAt(index) : source.charAt(start + index - prefix.length());
+    }
+
+    @Override
+    public CharSequence subSequence(int from, int to) {
+        if (from >= prefix.length()) {
+            return source.subSequence(start + from - prefix.length(), start + to - prefix.length());
+        }
+        return toString().subSequence(from, to);
+    }
+
+    @Override
+    public String toString() {
+        if (prefix.isEmpty()) {
+            return source.substring(start, end);
+        }
+        return new StringBuilder(length()).append(prefix).append(source, start, end).toString();
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.coderepoai.model;
+
+/**
+ * The text of a chunk that no longer holds it: a byte range of the file content in a
+ * {@link ContentSource}, after the prefix the chunker put in front of it.
+ *
+ * @param length length of the text in characters, prefix included
+ */
+public record StoredText(ContentSource source, String prefix, int startByte, int endByte, int length) {
+
+    public String read() {
+        String text = source.read(startByte, endByte);
+        return prefix.isEmpty() ? text : prefix + text;
+    }
+}
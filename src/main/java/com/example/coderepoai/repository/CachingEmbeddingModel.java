@@ -0,0 +1,70 @@
+package com.example.coderepoai.repository;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Wraps the embedding model used by the vector store so that documents carrying a
+ * content hash are only sent to the embedding API the first time that content is seen.
+ * Such documents are embedded from their content alone, which is the text the hash was
+ * computed from; letting the delegate format them would add their metadata, which differs
+ * per file and repository. Queries and documents without a hash go straight to the
+ * delegate. Calls that do reach the embedding API are capped at a fixed number in flight.
+ */
+public class CachingEmbeddingModel implements EmbeddingModel {
+    
+    private final EmbeddingModel delegate;
+    private final EmbeddingCache embeddingCache;
+    private final Semaphore concurrentRequests;
+    
+    public CachingEmbeddingModel(EmbeddingModel delegate, EmbeddingCache embeddingCache, int maxConcurrentRequests) {
+        this.delegate = delegate;
+        this.embeddingCache = embeddingCache;
+        this.concurrentRequests = new Semaphore(Math.max(1, maxConcurrentRequests), true);
+    }
+    
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        return withPermit(() -> delegate.call(request));
+    }
+    
+    @Override
+    public float[] embed(Document document) {
+        Object contentHash = document.getMetadata().get(EmbeddingCache.CONTENT_HASH_KEY);
+        if (contentHash == null) {
+            return withPermit(() -> delegate.embed(document));
+        }
+        
+        float[] embedding = embeddingCache.get(contentHash.toString());
+        if (embedding == null) {
+            embedding = withPermit(() -> delegate.embed(document.getContent()));
+            embeddingCache.put(contentHash.toString(), embedding);
+        }
+        return embedding;
+    }
+    
+    private <T> T withPermit(Supplier<T> embeddingCall) {
+        try {
+            concurrentRequests.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for an embedding request slot", e);
+        }
+        
+        try {
+            return embeddingCall.get();
+        } finally {
+            concurrentRequests.release();
+        }
+    }
+    
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+}
\ No newline at end of file
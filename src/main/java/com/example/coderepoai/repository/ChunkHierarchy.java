@@ -0,0 +1,166 @@
+package com.example.coderepoai.repository;
+
+import com.example.coderepoai.model.ChunkLevel;
+import org.springframework.ai.document.Document;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * The stored documents of each file grouped under the file's own document, with the
+ * embeddings the vector store computed for them, for coarse-to-fine search: files are
+ * ranked by their file chunk, and only the chunks of the best-ranked files are compared
+ * with the query. The vector store stays the source of truth; this holds references only,
+ * and is kept per file for the same reason as the document IDs in {@link CodeChunkVectorStore}:
+ * the store cannot filter by metadata.
+ */
+final class ChunkHierarchy {
+    
+    private final Map<String, Map<String, FileNode>> filesByRepository = new ConcurrentHashMap<>();
+    
+    /**
+     * @param documents  ranked best first
+     * @param compared   documents compared with the query, files included
+     * @param searchable documents of the files searched, which a flat search would compare
+     */
+    record Result(List<Document> documents, int candidateFiles, int compared, int searchable) {
+    }
+    
+    /**
+     * Adds a stored document; documents the store did not attach an embedding to are left out.
+     */
+    void add(String repositoryUrl, String filePath, ChunkLevel level, Document document) {
+        float[] embedding = document.getEmbedding();
+        if (embedding == null || embedding.length == 0) {
+            return;
+        }
+        
+        FileNode file = filesByRepository
+                .computeIfAbsent(repositoryUrl, url -> new ConcurrentHashMap<>())
+                .computeIfAbsent(filePath, path -> new FileNode());
+        synchronized (file) {
+            if (level == ChunkLevel.FILE) {
+                file.document = document;
+            } else {
+                file.children.add(document);
+            }
+        }
+    }
+    
+    void removeFiles(String repositoryUrl, Collection<String> filePaths) {
+        Map<String, FileNode> files = filesByRepository.get(repositoryUrl);
+        if (files != null) {
+            files.keySet().removeAll(filePaths);
+        }
+    }
+    
+    void removeRepository(String repositoryUrl) {
+        filesByRepository.remove(repositoryUrl);
+    }
+    
+    /**
+     * Ranks the files of the repository (or of all repositories) by their file chunk and
+     * ranks the chunks below the best of them.
+     *
+     * @param queryEmbedding called once the first file chunk is found, so a search that falls
+     *                       back to the vector store does not embed the query twice
+     * @return the best chunks, or nothing when no file in scope has a file chunk to rank by
+     */
+    Optional<Result> search(Supplier<float[]> queryEmbedding, String repositoryUrl, int candidateFiles, int topK) {
+        Collection<Map<String, FileNode>> scope = repositoryUrl != null
+                ? Optional.ofNullable(filesByRepository.get(repositoryUrl)).map(List::of).orElse(List.of())
+                : filesByRepository.values();
+        
+        float[] query = null;
+        PriorityQueue<Scored<FileNode>> bestFiles = new PriorityQueue<>();
+        int searchable = 0;
+        int compared = 0;
+        for (Map<String, FileNode> files : scope) {
+            for (FileNode file : files.values()) {
+                Document fileDocument;
+                synchronized (file) {
+                    fileDocument = file.document;
+                    searchable += file.children.size() + (fileDocument != null ? 1 : 0);
+                }
+                if (fileDocument == null) {
+                    continue;
+                }
+                if (query == null) {
+                    query = queryEmbedding.get();
+                }
+                compared++;
+                keepBest(bestFiles, new Scored<>(file, cosineSimilarity(query, fileDocument.getEmbedding())), candidateFiles);
+            }
+        }
+        if (bestFiles.isEmpty()) {
+            return Optional.empty();
+        }
+        
+        PriorityQueue<Scored<Document>> bestDocuments = new PriorityQueue<>();
+        for (Scored<FileNode> scoredFile : bestFiles) {
+            FileNode file = scoredFile.item();
+            Document fileDocument;
+            List<Document> children;
+            synchronized (file) {
+                fileDocument = file.document;
+                children = new ArrayList<>(file.children);
+            }
+            if (children.isEmpty()) {
+                // A file with a single chunk is its own file chunk
+                keepBest(bestDocuments, new Scored<>(fileDocument, scoredFile.score()), topK);
+                continue;
+            }
+            for (Document child : children) {
+                compared++;
+                keepBest(bestDocuments, new Scored<>(child, cosineSimilarity(query, child.getEmbedding())), topK);
+            }
+        }
+        
+        List<Document> documents = new ArrayList<>(bestDocuments.size());
+        while (!bestDocuments.isEmpty()) {
+            documents.add(bestDocuments.poll().item());
+        }
+        Collections.reverse(documents);
+        return Optional.of(new Result(documents, bestFiles.size(), compared, searchable));
+    }
+    
+    private static <T> void keepBest(PriorityQueue<Scored<T>> best, Scored<T> candidate, int limit) {
+        if (best.size() < limit) {
+            best.add(candidate);
+        } else if (candidate.score() > best.peek().score()) {
+            best.poll();
+            best.add(candidate);
+        }
+    }
+    
+    private static double cosineSimilarity(float[] a, float[] b) {
+        if (a.length != b.length) {
+            return -1;
+        }
+        double dot = 0;
+        double normA = 0;
+        double normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return normA == 0 || normB == 0 ? 0 : dot / Math.sqrt(normA * normB);
+    }
+    
+    /**
+     * Ordered worst first, so a bounded priority queue drops its worst element.
+     */
+    private record Scored<T>(T item, double score) implements Comparable<Scored<T>> {
+        @Override
+        public int compareTo(Scored<T> other) {
+            return Double.compare(score, other.score);
+        }
+    }
+    
+    private static final class FileNode {
+        private Document document;
+        private final List<Document> children = new ArrayList<>();
+    }
+}
\ No newline at end of file
@@ -1,6 +1,9 @@
 package com.example.coderepoai.repository;
 
+import com.example.coderepoai.model.ChunkLevel;
 import com.example.coderepoai.model.CodeChunk;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.ai.document.Document;
 import org.springframework.ai.embedding.EmbeddingModel;
 import org.springframework.ai.vectorstore.SearchRequest;
@@ -8,60 +11,111 @@ import org.springframework.ai.vectorstore.VectorStore;
 import org.springframework.ai.vectorstore.filter.Filter;
 import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 @Repository
 public class CodeChunkVectorStore {
     
+    private static final Logger logger = LoggerFactory.getLogger(CodeChunkVectorStore.class);
+    
     private final VectorStore vectorStore;
     private final EmbeddingModel embeddingModel;
+    private final NearDuplicateIndex nearDuplicateIndex;
     private final Set<String> indexedRepositories = ConcurrentHashMap.newKeySet();
     
+    // Vector store document IDs per repository and file, so files can be replaced individually
+    private final Map<String, Map<String, List<String>>> documentIdsByFile = new ConcurrentHashMap<>();
+    
+    // Files ranked by their file chunk before their chunks are searched; 0 searches all chunks at once
+    private final ChunkHierarchy chunkHierarchy = new ChunkHierarchy();
+    private final int candidateFiles;
+    private final AtomicLong hierarchicalSearches = new AtomicLong();
+    private final AtomicLong documentsCompared = new AtomicLong();
+    private final AtomicLong documentsSearchable = new AtomicLong();
+    
     // Fallback storage when AI is not available
     private final Map<String, List<CodeChunk>> fallbackRepository = new ConcurrentHashMap<>();
     private final boolean aiEnabled;
     
     public CodeChunkVectorStore(@Autowired(required = false) VectorStore vectorStore,
-                               @Autowired(required = false) EmbeddingModel embeddingModel) {
+                               @Autowired(required = false) EmbeddingModel embeddingModel,
+                               NearDuplicateIndex nearDuplicateIndex,
+                               @Value("${retrieval.hierarchical.candidate-files:10}") int candidateFiles) {
         this.vectorStore = vectorStore;
         this.embeddingModel = embeddingModel;
+        this.nearDuplicateIndex = nearDuplicateIndex;
+        this.candidateFiles = Math.max(0, candidateFiles);
         this.aiEnabled = (vectorStore != null && embeddingModel != null);
         System.out.println("CodeChunkVectorStore initialized with AI enabled: " + aiEnabled);
     }
 
-    public void addCodeChunks(List<CodeChunk> codeChunks) {
-        if (codeChunks == null || codeChunks.isEmpty()) {
+    /**
+     * Embeds and stores the chunks, except those collapsed into a near-duplicate already
+     * indexed for their repository (see {@link NearDuplicateIndex}).
+     */
+    public void addCodeChunks(List<CodeChunk> batch) {
+        if (batch == null || batch.isEmpty()) {
+            return;
+        }
+        
+        // Span-backed chunks are materialised here, once, for the duplicate check and the embedding request
+        List<String> batchContents = new ArrayList<>(batch.size());
+        for (CodeChunk chunk : batch) {
+            batchContents.add(chunk.getContent());
+        }
+        BitSet representatives = nearDuplicateIndex.collapse(batch, batchContents);
+        List<CodeChunk> codeChunks = new ArrayList<>(representatives.cardinality());
+        List<String> contents = new ArrayList<>(representatives.cardinality());
+        for (int i = representatives.nextSetBit(0); i >= 0; i = representatives.nextSetBit(i + 1)) {
+            codeChunks.add(batch.get(i));
+            contents.add(batchContents.get(i));
+        }
+        if (codeChunks.size() < batch.size()) {
+            logger.debug("Collapsed {} near-duplicate chunks of {}", batch.size() - codeChunks.size(), batch.size());
+        }
+        if (codeChunks.isEmpty()) {
             return;
         }
 
         if (aiEnabled && vectorStore != null) {
             try {
                 // Convert CodeChunks to Spring AI Documents with enhanced metadata
-                List<Document> documents = codeChunks.stream()
-                        .map(this::convertToDocument)
-                        .collect(Collectors.toList());
+                List<Document> documents = new ArrayList<>(codeChunks.size());
+                for (int i = 0; i < codeChunks.size(); i++) {
+                    documents.add(convertToDocument(codeChunks.get(i), contents.get(i)));
+                }
                 
                 // Store in vector database with embeddings
                 vectorStore.add(documents);
                 
-                // Track indexed repositories
-                codeChunks.forEach(chunk -> indexedRepositories.add(chunk.getRepositoryUrl()));
+                // Track indexed repositories and the documents stored for each file
+                for (int i = 0; i < codeChunks.size(); i++) {
+                    CodeChunk chunk = codeChunks.get(i);
+                    indexedRepositories.add(chunk.getRepositoryUrl());
+                    documentIdsByFile
+                            .computeIfAbsent(chunk.getRepositoryUrl(), k -> new ConcurrentHashMap<>())
+                            .computeIfAbsent(chunk.getFilePath(), k -> Collections.synchronizedList(new ArrayList<>()))
+                            .add(documents.get(i).getId());
+                    chunkHierarchy.add(chunk.getRepositoryUrl(), chunk.getFilePath(), chunk.getLevel(), documents.get(i));
+                }
                 System.out.println("Added " + documents.size() + " documents to vector store");
                 
             } catch (Exception e) {
                 // Fallback to simple storage if AI is not available
                 System.err.println("Vector store failed, using fallback: " + e.getMessage());
-                addToFallbackStorage(codeChunks);
+                addToFallbackStorage(codeChunks, contents);
             }
         } else {
             // Use fallback storage when AI is not enabled
             System.out.println("AI not enabled, using fallback storage for " + codeChunks.size() + " chunks");
-            addToFallbackStorage(codeChunks);
+            addToFallbackStorage(codeChunks, contents);
         }
     }
 
@@ -91,8 +145,11 @@ public class CodeChunkVectorStore {
                     System.out.println("Using basic SearchRequest with fallback processing");
                 }
                 
-                // Perform vector similarity search using k-NN algorithms
-                List<Document> documents = vectorStore.similaritySearch(searchRequest);
+                // Narrow down to the best files first when they have file chunks, otherwise
+                // perform vector similarity search using k-NN algorithms over all chunks
+                SearchRequest flatSearchRequest = searchRequest;
+                List<Document> documents = searchHierarchically(processedQuery, repositoryUrl, topK)
+                        .orElseGet(() -> vectorStore.similaritySearch(flatSearchRequest));
                 System.out.println("Vector search found " + documents.size() + " documents for query: " + query);
                 
                 // Convert to CodeChunks and apply additional filtering
@@ -125,24 +182,119 @@ public class CodeChunkVectorStore {
         }
     }
 
+    /**
+     * Compares the query with the file chunks of the repository (or of all repositories),
+     * then with the chunks of the best {@code candidateFiles} files only.
+     */
+    private Optional<List<Document>> searchHierarchically(String query, String repositoryUrl, int topK) {
+        if (candidateFiles == 0) {
+            return Optional.empty();
+        }
+        
+        Optional<ChunkHierarchy.Result> result =
+                chunkHierarchy.search(() -> embeddingModel.embed(query), repositoryUrl, candidateFiles, topK);
+        result.ifPresent(found -> {
+            hierarchicalSearches.incrementAndGet();
+            documentsCompared.addAndGet(found.compared());
+            documentsSearchable.addAndGet(found.searchable());
+            logger.debug("Hierarchical search compared {} of {} documents in {} candidate files",
+                    found.compared(), found.searchable(), found.candidateFiles());
+        });
+        return result.map(ChunkHierarchy.Result::documents);
+    }
+    
+    public Map<String, Object> getSearchStatistics() {
+        long searches = hierarchicalSearches.get();
+        
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("candidate_files", candidateFiles);
+        statistics.put("hierarchical_searches", searches);
+        statistics.put("average_documents_compared", searches == 0 ? 0.0 : (double) documentsCompared.get() / searches);
+        statistics.put("average_documents_searchable", searches == 0 ? 0.0 : (double) documentsSearchable.get() / searches);
+        return statistics;
+    }
+
     public void deleteByRepositoryUrl(String repositoryUrl) {
         if (aiEnabled && vectorStore != null) {
             try {
-                // Note: SimpleVectorStore doesn't support metadata filtering for delete
-                // For now, we'll track manually and rebuild when needed
+                // SimpleVectorStore doesn't support metadata filtering for delete,
+                // so remove the documents we tracked for this repository by ID
                 indexedRepositories.remove(repositoryUrl);
-                System.out.println("Marked repository for removal: " + repositoryUrl);
+                chunkHierarchy.removeRepository(repositoryUrl);
+                Map<String, List<String>> repositoryDocuments = documentIdsByFile.remove(repositoryUrl);
+                if (repositoryDocuments != null) {
+                    deleteDocuments(repositoryDocuments.values());
+                }
+                System.out.println("Removed repository from vector store: " + repositoryUrl);
             } catch (Exception e) {
                 System.err.println("Vector store delete failed: " + e.getMessage());
             }
         }
         
+        nearDuplicateIndex.removeRepository(repositoryUrl);
+        
         // Also remove from fallback storage
         fallbackRepository.remove(repositoryUrl);
         System.out.println("Removed from fallback storage: " + repositoryUrl);
     }
     
-    private Document convertToDocument(CodeChunk chunk) {
+    /**
+     * Removes all chunks of the given files, e.g. before re-indexing modified files
+     * or after files were deleted or renamed.
+     *
+     * @return other files with chunks that were collapsed into a removed chunk as its
+     *         near-duplicates; they need to be indexed again to be found
+     */
+    public Set<String> deleteByFilePaths(String repositoryUrl, Collection<String> filePaths) {
+        if (filePaths == null || filePaths.isEmpty()) {
+            return Set.of();
+        }
+        
+        if (aiEnabled && vectorStore != null) {
+            try {
+                chunkHierarchy.removeFiles(repositoryUrl, filePaths);
+                Map<String, List<String>> repositoryDocuments = documentIdsByFile.get(repositoryUrl);
+                if (repositoryDocuments != null) {
+                    List<List<String>> removed = new ArrayList<>();
+                    for (String filePath : filePaths) {
+                        List<String> ids = repositoryDocuments.remove(filePath);
+                        if (ids != null) {
+                            removed.add(ids);
+                        }
+                    }
+                    deleteDocuments(removed);
+                }
+            } catch (Exception e) {
+                System.err.println("Vector store delete failed: " + e.getMessage());
+            }
+        }
+        
+        Set<String> paths = new HashSet<>(filePaths);
+        fallbackRepository.computeIfPresent(repositoryUrl, (url, chunks) -> {
+            chunks.removeIf(chunk -> paths.contains(chunk.getFilePath()));
+            return chunks;
+        });
+        System.out.println("Removed " + filePaths.size() + " files from repository: " + repositoryUrl);
+        return nearDuplicateIndex.removeFiles(repositoryUrl, filePaths);
+    }
+    
+    public Map<String, Object> getNearDuplicateStatistics() {
+        return nearDuplicateIndex.getStatistics();
+    }
+    
+    private void deleteDocuments(Collection<List<String>> documentIdGroups) {
+        List<String> ids = new ArrayList<>();
+        for (List<String> group : documentIdGroups) {
+            synchronized (group) {
+                ids.addAll(group);
+            }
+        }
+        if (!ids.isEmpty()) {
+            vectorStore.delete(ids);
+        }
+    }
+    
+    private Document convertToDocument(CodeChunk chunk, String content) {
         // Create enriched metadata for better search
         Map<String, Object> metadata = new HashMap<>();
         
@@ -150,10 +302,16 @@ public class CodeChunkVectorStore {
         metadata.put("repositoryUrl", chunk.getRepositoryUrl());
         metadata.put("filePath", chunk.getFilePath());
         metadata.put("chunkIndex", chunk.getChunkIndex());
+        putIfPresent(metadata, "startLine", chunk.getStartLine());
+        putIfPresent(metadata, "endLine", chunk.getEndLine());
+        putIfPresent(metadata, "startByte", chunk.getStartByte());
+        putIfPresent(metadata, "endByte", chunk.getEndByte());
+        putIfPresent(metadata, "level", chunk.getLevel() != null ? chunk.getLevel().name().toLowerCase() : null);
+        putIfPresent(metadata, "chunkId", chunk.getChunkId());
+        putIfPresent(metadata, "parentId", chunk.getParentId());
         
         // Extract intelligent metadata for better filtering
         String filePath = chunk.getFilePath();
-        String content = chunk.getContent();
         
         // File type and language detection
         metadata.put("fileExtension", extractFileExtension(filePath));
@@ -178,7 +336,11 @@ public class CodeChunkVectorStore {
         }
         
         // Create enhanced content for embedding (includes context)
-        String enhancedContent = createEnhancedContent(chunk, metadata);
+        String enhancedContent = createEnhancedContent(chunk.getFilePath(), content, metadata);
+        
+        // Identical embedded text shares one embedding; the header names the file, so only
+        // the same chunk of the same path in another branch or repository hits the cache
+        metadata.put(EmbeddingCache.CONTENT_HASH_KEY, EmbeddingCache.contentHash(enhancedContent));
         
         // Add original metadata if exists
         if (chunk.getMetadata() != null) {
@@ -196,11 +358,48 @@ public class CodeChunkVectorStore {
         chunk.setRepositoryUrl((String) metadata.get("repositoryUrl"));
         chunk.setFilePath((String) metadata.get("filePath"));
         chunk.setChunkIndex((Integer) metadata.get("chunkIndex"));
+        chunk.setStartLine(asInteger(metadata.get("startLine")));
+        chunk.setEndLine(asInteger(metadata.get("endLine")));
+        chunk.setStartByte(asInteger(metadata.get("startByte")));
+        chunk.setEndByte(asInteger(metadata.get("endByte")));
+        if (metadata.get("level") instanceof String level) {
+            chunk.setLevel(ChunkLevel.valueOf(level.toUpperCase()));
+        }
+        chunk.setChunkId((String) metadata.get("chunkId"));
+        chunk.setParentId((String) metadata.get("parentId"));
         chunk.setMetadata(metadata);
         
+        return addDuplicateReferences(chunk);
+    }
+    
+    /**
+     * Lists where near-duplicates of the chunk were found, since they were not stored themselves.
+     */
+    private CodeChunk addDuplicateReferences(CodeChunk chunk) {
+        List<NearDuplicateIndex.Duplicate> duplicates =
+                nearDuplicateIndex.getDuplicates(chunk.getRepositoryUrl(), chunk.getFilePath(), chunk.getChunkIndex());
+        if (duplicates.isEmpty()) {
+            return chunk;
+        }
+        
+        Map<String, Object> metadata = chunk.getMetadata() != null ? new HashMap<>(chunk.getMetadata()) : new HashMap<>();
+        metadata.put("duplicates", duplicates.stream()
+                .map(NearDuplicateIndex.Duplicate::location)
+                .collect(Collectors.joining(",")));
+        chunk.setMetadata(metadata);
         return chunk;
     }
     
+    private void putIfPresent(Map<String, Object> metadata, String key, Object value) {
+        if (value != null) {
+            metadata.put(key, value);
+        }
+    }
+    
+    private Integer asInteger(Object value) {
+        return value instanceof Number number ? number.intValue() : null;
+    }
+    
     private boolean isRelevantForQuery(String query, CodeChunk chunk) {
         if (chunk.getMetadata() == null) return true;
         
@@ -240,11 +439,11 @@ public class CodeChunkVectorStore {
         return true; // No specific filter, include all results
     }
     
-    private String createEnhancedContent(CodeChunk chunk, Map<String, Object> metadata) {
+    private String createEnhancedContent(String filePath, String content, Map<String, Object> metadata) {
         StringBuilder enhanced = new StringBuilder();
         
         // Add contextual header
-        enhanced.append("File: ").append(chunk.getFilePath()).append("\n");
+        enhanced.append("File: ").append(filePath).append("\n");
         
         if (metadata.get("annotations") != null) {
             enhanced.append("Annotations: ").append(metadata.get("annotations")).append("\n");
@@ -254,7 +453,7 @@ public class CodeChunkVectorStore {
             enhanced.append("Classes: ").append(metadata.get("classNames")).append("\n");
         }
         
-        enhanced.append("Content:\n").append(chunk.getContent());
+        enhanced.append("Content:\n").append(content);
         
         return enhanced.toString();
     }
@@ -338,14 +537,17 @@ public class CodeChunkVectorStore {
             ? Map.of(repositoryUrl, fallbackRepository.getOrDefault(repositoryUrl, new ArrayList<>()))
             : fallbackRepository;
             
+        // Scored once per chunk rather than on every comparison
         return searchSpace.values().stream()
                 .flatMap(List::stream)
                 .filter(chunk -> repositoryUrl == null || repositoryUrl.equals(chunk.getRepositoryUrl()))
-                .filter(chunk -> simpleKeywordMatch(query, chunk.getContent()) > 0)
-                .sorted((a, b) -> Double.compare(
-                    simpleKeywordMatch(query, b.getContent()),
-                    simpleKeywordMatch(query, a.getContent())))
+                .map(chunk -> Map.entry(chunk, simpleKeywordMatch(query, chunk.getContent())))
+                .filter(scored -> scored.getValue() > 0)
+                .sorted(Map.Entry.<CodeChunk, Double>comparingByValue().reversed())
                 .limit(maxResults)
+                // Copies, so the references don't end up in the stored chunks
+                .map(scored -> addDuplicateReferences(
+                        scored.getKey().copyFor(scored.getKey().getFilePath(), scored.getKey().getRepositoryUrl())))
                 .collect(Collectors.toList());
     }
     
@@ -363,10 +565,17 @@ public class CodeChunkVectorStore {
         return matches / (double) queryWords.length;
     }
     
-    private void addToFallbackStorage(List<CodeChunk> codeChunks) {
-        for (CodeChunk chunk : codeChunks) {
-            String repositoryUrl = chunk.getRepositoryUrl();
-            fallbackRepository.computeIfAbsent(repositoryUrl, k -> new ArrayList<>()).add(chunk);
+    /**
+     * Keeps copies holding the materialised text: span-backed chunks would keep the whole
+     * file content reachable, and stored ones read a content store file that goes away when
+     * its blob is evicted from the chunk cache.
+     */
+    private void addToFallbackStorage(List<CodeChunk> codeChunks, List<String> contents) {
+        for (int i = 0; i < codeChunks.size(); i++) {
+            CodeChunk chunk = codeChunks.get(i);
+            CodeChunk stored = chunk.copyFor(chunk.getFilePath(), chunk.getRepositoryUrl());
+            stored.setContent(contents.get(i));
+            fallbackRepository.computeIfAbsent(chunk.getRepositoryUrl(), k -> new ArrayList<>()).add(stored);
         }
     }
     
@@ -0,0 +1,84 @@
+package com.example.coderepoai.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Embedding vectors keyed by the hash of the exact text they were computed for, i.e. the
+ * chunk content with the header naming its file. Chunks embedded from identical text (the
+ * same file in several repositories or branches) are embedded once and share one vector
+ * instance.
+ */
+@Component
+public class EmbeddingCache {
+    
+    public static final String CONTENT_HASH_KEY = "contentHash";
+    
+    private final int maxEntries;
+    private final Map<String, float[]> embeddings;
+    
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    
+    public EmbeddingCache(@Value("${ingestion.dedupe.embedding-cache-size:50000}") int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.embeddings = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, float[]> eldest) {
+                return size() > EmbeddingCache.this.maxEntries;
+            }
+        };
+    }
+    
+    public float[] get(String contentHash) {
+        float[] embedding;
+        synchronized (embeddings) {
+            embedding = embeddings.get(contentHash);
+        }
+        if (embedding != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return embedding;
+    }
+    
+    public void put(String contentHash, float[] embedding) {
+        synchronized (embeddings) {
+            embeddings.put(contentHash, embedding);
+        }
+    }
+    
+    public Map<String, Object> getStatistics() {
+        long hitCount = hits.get();
+        long lookups = hitCount + misses.get();
+        int entries;
+        synchronized (embeddings) {
+            entries = embeddings.size();
+        }
+        
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("entries", entries);
+        statistics.put("hits", hitCount);
+        statistics.put("misses", misses.get());
+        statistics.put("hit_ratio", lookups == 0 ? 0.0 : (double) hitCount / lookups);
+        return statistics;
+    }
+    
+    public static String contentHash(String content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,310 @@
+package com.example.coderepoai.repository;
+
+import com.example.coderepoai.model.ChunkLevel;
+import com.example.coderepoai.model.CodeChunk;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Finds chunks that are nearly identical to a chunk already indexed for the same repository
+ * (copy-pasted DTOs, generated code, vendored copies of a file) before they are embedded.
+ * Each chunk gets a MinHash signature over shingles of its tokens; locality-sensitive
+ * hashing of the signature bands finds candidate chunks without comparing against every
+ * indexed one. A chunk whose estimated Jaccard similarity with a candidate reaches the
+ * threshold is collapsed into that representative: it is not embedded or stored, and the
+ * representative keeps a back-reference to where it was found.
+ * <p>
+ * The index lives in memory next to the vector store's document IDs and is rebuilt by a
+ * full refresh, like them.
+ */
+@Component
+public class NearDuplicateIndex {
+    
+    private static final Logger logger = LoggerFactory.getLogger(NearDuplicateIndex.class);
+    
+    // 16 bands of 4 rows: pairs at 0.8 similarity share a band with probability > 0.999,
+    // pairs at 0.3 with about 0.12, so few candidates need their signatures compared
+    private static final int BANDS = 16;
+    private static final int ROWS = 4;
+    private static final int SIGNATURE_LENGTH = BANDS * ROWS;
+    private static final int SHINGLE_TOKENS = 4;
+    // Shingle sets this small make the similarity estimate too coarse; exact copies of
+    // such chunks are still shared through the EmbeddingCache
+    private static final int MIN_SHINGLES = 16;
+    private static final long[] SEEDS = new long[SIGNATURE_LENGTH];
+    
+    static {
+        SplittableRandom random = new SplittableRandom(0x5eed_c0de_2023L);
+        for (int i = 0; i < SEEDS.length; i++) {
+            SEEDS[i] = random.nextLong();
+        }
+    }
+    
+    private final boolean enabled;
+    private final double threshold;
+    private final Map<String, RepositoryIndex> indexesByRepository = new ConcurrentHashMap<>();
+    
+    private final AtomicLong chunksChecked = new AtomicLong();
+    private final AtomicLong chunksCollapsed = new AtomicLong();
+    private final AtomicLong charsCollapsed = new AtomicLong();
+    
+    public NearDuplicateIndex(@Value("${ingestion.dedupe.near-duplicates.enabled:true}") boolean enabled,
+                              @Value("${ingestion.dedupe.near-duplicates.threshold:0.9}") double threshold) {
+        this.enabled = enabled;
+        this.threshold = Math.max(0.0, Math.min(1.0, threshold));
+        logger.info("Near-duplicate detection {} with similarity threshold {}", enabled ? "enabled" : "disabled", this.threshold);
+    }
+    
+    /**
+     * A chunk found at another location that was collapsed into a representative.
+     */
+    public record Duplicate(String filePath, String location, double similarity) {
+    }
+    
+    /**
+     * Checks each chunk against the chunks indexed for its repository, including the ones
+     * before it in the list, and indexes those that have no near-duplicate yet.
+     *
+     * @param contents the text of each chunk, in the same order
+     * @return the positions of the chunks to embed and store; the others were collapsed
+     */
+    public BitSet collapse(List<CodeChunk> chunks, List<String> contents) {
+        BitSet representatives = new BitSet(chunks.size());
+        if (!enabled) {
+            representatives.set(0, chunks.size());
+            return representatives;
+        }
+        
+        for (int i = 0; i < chunks.size(); i++) {
+            CodeChunk chunk = chunks.get(i);
+            // File and type outlines are how search finds a file's members, so they are always kept
+            int[] signature = chunk.getLevel() == ChunkLevel.MEMBER ? signature(contents.get(i)) : null;
+            if (signature == null) {
+                representatives.set(i);
+                continue;
+            }
+            
+            chunksChecked.incrementAndGet();
+            RepositoryIndex index = indexesByRepository.computeIfAbsent(chunk.getRepositoryUrl(), url -> new RepositoryIndex());
+            if (index.addOrCollapse(chunk, signature)) {
+                representatives.set(i);
+            } else {
+                chunksCollapsed.incrementAndGet();
+                charsCollapsed.addAndGet(contents.get(i).length());
+            }
+        }
+        return representatives;
+    }
+    
+    /**
+     * @return the near-duplicates collapsed into the chunk, or an empty list
+     */
+    public List<Duplicate> getDuplicates(String repositoryUrl, String filePath, Integer chunkIndex) {
+        RepositoryIndex index = indexesByRepository.get(repositoryUrl);
+        return index == null ? List.of() : index.duplicatesOf(filePath, chunkIndex);
+    }
+    
+    /**
+     * Forgets the chunks of the given files, both as representatives and as duplicates.
+     *
+     * @return other files with chunks that were collapsed into a forgotten representative;
+     *         those chunks are no longer searchable until their files are indexed again
+     */
+    public Set<String> removeFiles(String repositoryUrl, Collection<String> filePaths) {
+        RepositoryIndex index = indexesByRepository.get(repositoryUrl);
+        return index == null ? Set.of() : index.removeFiles(new HashSet<>(filePaths));
+    }
+    
+    public void removeRepository(String repositoryUrl) {
+        indexesByRepository.remove(repositoryUrl);
+    }
+    
+    public Map<String, Object> getStatistics() {
+        long checked = chunksChecked.get();
+        long collapsed = chunksCollapsed.get();
+        
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("enabled", enabled);
+        statistics.put("threshold", threshold);
+        statistics.put("chunks_checked", checked);
+        statistics.put("embeddings_avoided", collapsed);
+        statistics.put("collapse_ratio", checked == 0 ? 0.0 : (double) collapsed / checked);
+        statistics.put("chars_not_embedded", charsCollapsed.get());
+        statistics.put("representatives", indexesByRepository.values().stream().mapToInt(RepositoryIndex::size).sum());
+        return statistics;
+    }
+    
+    /**
+     * MinHash signature over the distinct shingles of consecutive tokens, where a token is
+     * a run of identifier characters or a single other non-blank character. Whitespace and
+     * layout do not matter, so reformatted copies still match.
+     *
+     * @return the signature, or null when the text has too few shingles to compare
+     */
+    private static int[] signature(CharSequence text) {
+        int[] signature = new int[SIGNATURE_LENGTH];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        long[] window = new long[SHINGLE_TOKENS];
+        int tokens = 0;
+        int shingles = 0;
+        
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            char ch = text.charAt(i);
+            if (Character.isWhitespace(ch)) {
+                i++;
+                continue;
+            }
+            
+            long tokenHash = 0xcbf29ce484222325L;
+            if (Character.isJavaIdentifierPart(ch)) {
+                while (i < length && Character.isJavaIdentifierPart(text.charAt(i))) {
+                    tokenHash = (tokenHash ^ text.charAt(i++)) * 0x100000001b3L;
+                }
+            } else {
+                tokenHash = (tokenHash ^ ch) * 0x100000001b3L;
+                i++;
+            }
+            
+            window[tokens++ % SHINGLE_TOKENS] = tokenHash;
+            if (tokens < SHINGLE_TOKENS) {
+                continue;
+            }
+            
+            long shingle = 0;
+            for (int t = tokens - SHINGLE_TOKENS; t < tokens; t++) {
+                shingle = shingle * 31 + window[t % SHINGLE_TOKENS];
+            }
+            for (int h = 0; h < SIGNATURE_LENGTH; h++) {
+                // Keeps the sign bit clear so signed comparison orders the hashes uniformly
+                int value = (int) (mix(shingle ^ SEEDS[h]) >>> 33);
+                if (value < signature[h]) {
+                    signature[h] = value;
+                }
+            }
+            shingles++;
+        }
+        
+        return shingles < MIN_SHINGLES ? null : signature;
+    }
+    
+    private static double similarity(int[] a, int[] b) {
+        int equal = 0;
+        for (int i = 0; i < SIGNATURE_LENGTH; i++) {
+            if (a[i] == b[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / SIGNATURE_LENGTH;
+    }
+    
+    private static long mix(long value) {
+        // Stafford variant 13 of the MurmurHash3 finalizer
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+    
+    private static long bandKey(int[] signature, int band) {
+        long key = band;
+        for (int row = band * ROWS; row < (band + 1) * ROWS; row++) {
+            key = key * 0x9e3779b97f4a7c15L + signature[row];
+        }
+        return mix(key);
+    }
+    
+    private static String chunkKey(String filePath, Integer chunkIndex) {
+        return filePath + "#" + chunkIndex;
+    }
+    
+    /**
+     * Representatives of one repository in LSH buckets, one bucket per band value.
+     */
+    private final class RepositoryIndex {
+        private final Map<Long, List<Representative>> buckets = new HashMap<>();
+        private final Map<String, Representative> representativesByChunk = new HashMap<>();
+        
+        synchronized boolean addOrCollapse(CodeChunk chunk, int[] signature) {
+            Representative best = null;
+            double bestSimilarity = threshold;
+            Set<Representative> compared = new HashSet<>();
+            for (int band = 0; band < BANDS; band++) {
+                for (Representative candidate : buckets.getOrDefault(bandKey(signature, band), List.of())) {
+                    if (!compared.add(candidate)) {
+                        continue;
+                    }
+                    double similarity = similarity(signature, candidate.signature);
+                    if (similarity >= bestSimilarity) {
+                        best = candidate;
+                        bestSimilarity = similarity;
+                    }
+                }
+            }
+            
+            if (best != null) {
+                best.duplicates.add(new Duplicate(chunk.getFilePath(), chunk.getLocation(), bestSimilarity));
+                return false;
+            }
+            
+            Representative representative = new Representative(chunk.getFilePath(), signature);
+            representativesByChunk.put(chunkKey(chunk.getFilePath(), chunk.getChunkIndex()), representative);
+            for (int band = 0; band < BANDS; band++) {
+                buckets.computeIfAbsent(bandKey(signature, band), key -> new ArrayList<>(1)).add(representative);
+            }
+            return true;
+        }
+        
+        synchronized List<Duplicate> duplicatesOf(String filePath, Integer chunkIndex) {
+            Representative representative = representativesByChunk.get(chunkKey(filePath, chunkIndex));
+            return representative == null ? List.of() : List.copyOf(representative.duplicates);
+        }
+        
+        synchronized Set<String> removeFiles(Set<String> filePaths) {
+            Set<String> orphanedFiles = new HashSet<>();
+            Iterator<Representative> representatives = representativesByChunk.values().iterator();
+            while (representatives.hasNext()) {
+                Representative representative = representatives.next();
+                representative.duplicates.removeIf(duplicate -> filePaths.contains(duplicate.filePath()));
+                if (!filePaths.contains(representative.filePath)) {
+                    continue;
+                }
+                
+                representatives.remove();
+                for (Duplicate duplicate : representative.duplicates) {
+                    orphanedFiles.add(duplicate.filePath());
+                }
+                for (int band = 0; band < BANDS; band++) {
+                    long key = bandKey(representative.signature, band);
+                    List<Representative> bucket = buckets.get(key);
+                    bucket.remove(representative);
+                    if (bucket.isEmpty()) {
+                        buckets.remove(key);
+                    }
+                }
+            }
+            return orphanedFiles;
+        }
+        
+        synchronized int size() {
+            return representativesByChunk.size();
+        }
+    }
+    
+    private static final class Representative {
+        private final String filePath;
+        private final int[] signature;
+        private final List<Duplicate> duplicates = new ArrayList<>(0);
+        
+        private Representative(String filePath, int[] signature) {
+            this.filePath = filePath;
+            this.signature = signature;
+        }
+    }
+}
\ No newline at end of file
@@ -87,9 +87,10 @@ public class ChatService {
             
             for (int i = 0; i < Math.min(relevantChunks.size(), 3); i++) {
                 CodeChunk chunk = relevantChunks.get(i);
-                response.append("**File: ").append(chunk.getFilePath()).append("**\n");
-                response.append("```\n").append(chunk.getContent().substring(0, Math.min(500, chunk.getContent().length())));
-                if (chunk.getContent().length() > 500) response.append("...");
+                String content = chunk.getContent();
+                response.append("**File: ").append(chunk.getLocation()).append("**\n");
+                response.append("```\n").append(content, 0, Math.min(500, content.length()));
+                if (content.length() > 500) response.append("...");
                 response.append("\n```\n\n");
             }
             
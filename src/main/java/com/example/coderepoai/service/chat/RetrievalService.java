@@ -41,8 +41,12 @@ public class RetrievalService {
         for (int i = 0; i < chunks.size(); i++) {
             CodeChunk chunk = chunks.get(i);
             context.append("--- Code Snippet ").append(i + 1).append(" ---\n");
-            context.append("File: ").append(chunk.getFilePath()).append("\n");
+            context.append("File: ").append(chunk.getLocation()).append("\n");
             context.append("Repository: ").append(chunk.getRepositoryUrl()).append("\n");
+            if (chunk.getMetadata() != null && chunk.getMetadata().get("duplicates") != null) {
+                // Near-duplicates collapsed into this chunk at ingest
+                context.append("Also found in: ").append(chunk.getMetadata().get("duplicates")).append("\n");
+            }
             context.append("Content:\n").append(chunk.getContent()).append("\n\n");
         }
         
@@ -0,0 +1,304 @@
+package com.example.coderepoai.service.github;
+
+import org.kohsuke.github.GHRateLimit;
+import org.kohsuke.github.GitHub;
+import org.kohsuke.github.HttpException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Clock;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Gate for every GitHub API call. Keeps a token bucket that is re-seeded from the
+ * rate limit headers of each response, reserves part of the budget for interactive
+ * calls (pull request review) so bulk ingestion cannot starve them, spreads bulk calls
+ * evenly over the rest of the window when the budget runs low, and backs off and
+ * retries on primary/secondary rate limit errors (403/429) instead of failing. The number
+ * of requests in flight is capped separately, so callers can fan out on as many (virtual)
+ * threads as they like without opening unbounded connections to GitHub.
+ */
+@Component
+public class GitHubRequestScheduler {
+    
+    private static final Logger logger = LoggerFactory.getLogger(GitHubRequestScheduler.class);
+    
+    private static final long MAX_BACKOFF_MILLIS = 60_000;
+    private static final long WINDOW_MILLIS = TimeUnit.HOURS.toMillis(1);
+    // A low limit (anonymous clients get 60 an hour) must leave room for bulk calls
+    private static final double MAX_RESERVE_FRACTION = 0.1;
+    
+    public enum Priority {
+        INTERACTIVE,
+        BULK
+    }
+    
+    @FunctionalInterface
+    public interface GitHubCall<T> {
+        T call() throws IOException;
+    }
+    
+    private final Supplier<GHRateLimit.Record> rateLimit;
+    private final Clock clock;
+    private final int interactiveReserve;
+    private final int maxRetries;
+    private final double pacingThreshold;
+    private final Semaphore concurrentRequests;
+    
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition budgetChanged = lock.newCondition();
+    private int limit;
+    private int remaining;
+    private long resetEpochMillis;
+    private int waitingInteractive;
+    private long nextBulkSlotNanos;
+    
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong throttledRequests = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    
+    @Autowired
+    public GitHubRequestScheduler(GitHub github,
+                                  @Value("${github.rate-limit.interactive-reserve:100}") int interactiveReserve,
+                                  @Value("${github.rate-limit.max-retries:5}") int maxRetries,
+                                  @Value("${github.rate-limit.pacing-threshold:0.2}") double pacingThreshold,
+                                  @Value("${github.max-concurrent-requests:16}") int maxConcurrentRequests) {
+        this(() -> github.lastRateLimit().getCore(), Clock.systemUTC(),
+                interactiveReserve, maxRetries, pacingThreshold, maxConcurrentRequests);
+    }
+    
+    /**
+     * @param rateLimit the core rate limit the client recorded from the last response
+     */
+    GitHubRequestScheduler(Supplier<GHRateLimit.Record> rateLimit, Clock clock, int interactiveReserve,
+                           int maxRetries, double pacingThreshold, int maxConcurrentRequests) {
+        this.rateLimit = rateLimit;
+        this.clock = clock;
+        this.interactiveReserve = interactiveReserve;
+        this.maxRetries = maxRetries;
+        this.pacingThreshold = pacingThreshold;
+        this.concurrentRequests = new Semaphore(Math.max(1, maxConcurrentRequests), true);
+        seedFromRateLimit(rateLimit.get());
+    }
+    
+    /**
+     * Runs a GitHub call once budget is available. The call may issue more than one request;
+     * the budget is corrected from the response headers afterwards.
+     */
+    public <T> T execute(Priority priority, GitHubCall<T> call) throws IOException {
+        for (int attempt = 0; ; attempt++) {
+            acquire(priority);
+            requests.incrementAndGet();
+            
+            try {
+                T result = callWithPermit(call);
+                seedFromRateLimit(rateLimit.get());
+                return result;
+            } catch (HttpException e) {
+                seedFromRateLimit(rateLimit.get());
+                
+                long delayMillis = retryDelayMillis(e, attempt);
+                if (delayMillis < 0 || attempt >= maxRetries) {
+                    throw e;
+                }
+                
+                retries.incrementAndGet();
+                logger.warn("GitHub returned {} ({}), retrying {} call in {} ms (attempt {}/{})",
+                        e.getResponseCode(), e.getMessage(), priority, delayMillis, attempt + 1, maxRetries);
+                sleep(delayMillis);
+            }
+        }
+    }
+    
+    private <T> T callWithPermit(GitHubCall<T> call) throws IOException {
+        try {
+            concurrentRequests.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a GitHub request slot");
+        }
+        
+        try {
+            return call.call();
+        } finally {
+            concurrentRequests.release();
+        }
+    }
+    
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        lock.lock();
+        try {
+            statistics.put("limit", limit);
+            statistics.put("remaining", remaining);
+            statistics.put("reset_epoch_millis", resetEpochMillis);
+        } finally {
+            lock.unlock();
+        }
+        statistics.put("requests", requests.get());
+        statistics.put("throttled_requests", throttledRequests.get());
+        statistics.put("retries", retries.get());
+        statistics.put("available_request_slots", concurrentRequests.availablePermits());
+        return statistics;
+    }
+    
+    private void acquire(Priority priority) throws IOException {
+        lock.lock();
+        boolean throttled = false;
+        try {
+            if (priority == Priority.INTERACTIVE) {
+                waitingInteractive++;
+            }
+            
+            try {
+                while (true) {
+                    long nowMillis = clock.millis();
+                    if (nowMillis >= resetEpochMillis) {
+                        // The window has reset; assume a full budget until headers say otherwise
+                        remaining = limit;
+                        resetEpochMillis = nowMillis + WINDOW_MILLIS;
+                    }
+                    
+                    long waitNanos = priority == Priority.INTERACTIVE
+                            ? interactiveWaitNanos(nowMillis)
+                            : bulkWaitNanos(nowMillis);
+                    if (waitNanos <= 0) {
+                        remaining--;
+                        return;
+                    }
+                    
+                    throttled = true;
+                    budgetChanged.awaitNanos(waitNanos);
+                }
+            } finally {
+                if (priority == Priority.INTERACTIVE) {
+                    waitingInteractive--;
+                    budgetChanged.signalAll();
+                }
+                if (throttled) {
+                    throttledRequests.incrementAndGet();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for GitHub rate limit budget");
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private long interactiveWaitNanos(long nowMillis) {
+        return remaining > 0 ? 0 : untilResetNanos(nowMillis);
+    }
+    
+    private long bulkWaitNanos(long nowMillis) {
+        if (waitingInteractive > 0) {
+            return TimeUnit.MILLISECONDS.toNanos(50);
+        }
+        int reserve = reserve();
+        if (remaining <= reserve) {
+            return untilResetNanos(nowMillis);
+        }
+        if (remaining >= limit * pacingThreshold) {
+            return 0;
+        }
+        
+        // Budget is running low: spread the remaining bulk calls evenly until the reset
+        long nowNanos = System.nanoTime();
+        if (nowNanos < nextBulkSlotNanos) {
+            return nextBulkSlotNanos - nowNanos;
+        }
+        long windowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, resetEpochMillis - nowMillis));
+        nextBulkSlotNanos = nowNanos + windowNanos / Math.max(1, remaining - reserve);
+        return 0;
+    }
+    
+    private int reserve() {
+        return Math.min(interactiveReserve, (int) (limit * MAX_RESERVE_FRACTION));
+    }
+    
+    private long untilResetNanos(long nowMillis) {
+        return TimeUnit.MILLISECONDS.toNanos(Math.max(1000, resetEpochMillis - nowMillis));
+    }
+    
+    private void seedFromRateLimit(GHRateLimit.Record core) {
+        lock.lock();
+        try {
+            limit = core.getLimit();
+            remaining = core.getRemaining();
+            resetEpochMillis = TimeUnit.SECONDS.toMillis(core.getResetEpochSeconds());
+            budgetChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * @return how long to wait before retrying, or -1 when the error is not a rate limit
+     */
+    private long retryDelayMillis(HttpException e, int attempt) {
+        int code = e.getResponseCode();
+        if (code != 403 && code != 429) {
+            return -1;
+        }
+        
+        String retryAfter = header(e, "Retry-After");
+        if (retryAfter != null) {
+            try {
+                return TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.trim()));
+            } catch (NumberFormatException ignored) {
+                // Fall through to the other strategies
+            }
+        }
+        
+        String remainingHeader = header(e, "X-RateLimit-Remaining");
+        String resetHeader = header(e, "X-RateLimit-Reset");
+        if ("0".equals(remainingHeader) && resetHeader != null) {
+            return Math.max(1000, TimeUnit.SECONDS.toMillis(Long.parseLong(resetHeader.trim())) - clock.millis());
+        }
+        
+        String message = e.getMessage() != null ? e.getMessage().toLowerCase() : "";
+        boolean rateLimited = code == 429 || message.contains("rate limit") || message.contains("abuse");
+        if (!rateLimited) {
+            // A plain 403 means missing permissions; retrying will not help
+            return -1;
+        }
+        
+        return Math.min(MAX_BACKOFF_MILLIS, 1000L << attempt);
+    }
+    
+    private String header(HttpException e, String name) {
+        Map<String, List<String>> headers = e.getResponseHeaderFields();
+        if (headers == null) {
+            return null;
+        }
+        for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+            if (name.equalsIgnoreCase(entry.getKey()) && entry.getValue() != null && !entry.getValue().isEmpty()) {
+                return entry.getValue().get(0);
+            }
+        }
+        return null;
+    }
+    
+    private void sleep(long millis) throws IOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while backing off from GitHub rate limit");
+        }
+    }
+}
\ No newline at end of file
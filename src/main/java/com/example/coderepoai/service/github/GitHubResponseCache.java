@@ -0,0 +1,102 @@
+package com.example.coderepoai.service.github;
+
+import okhttp3.Cache;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Persistent HTTP cache for GitHub API responses. Cached responses are revalidated with
+ * If-None-Match on every request, so unchanged payloads come back as 304s, which do not
+ * count against the rate limit. The cache evicts least recently used entries once it
+ * exceeds its size bound.
+ * <p>
+ * File and archive downloads are not stored: a repository's blobs or its tarball would
+ * fill the cache and evict the small listing and branch responses that revalidation is
+ * for. Blobs are addressed by content anyway, and a refresh only fetches changed ones.
+ */
+@Component
+public class GitHubResponseCache {
+    
+    private static final Logger logger = LoggerFactory.getLogger(GitHubResponseCache.class);
+    
+    private final Cache cache;
+    
+    public GitHubResponseCache(@Value("${github.cache.enabled:true}") boolean enabled,
+                               @Value("${github.cache.directory:${java.io.tmpdir}/coderepoai-github-cache}") String directory,
+                               @Value("${github.cache.max-size-mb:256}") long maxSizeMb) {
+        if (!enabled) {
+            this.cache = null;
+            logger.info("GitHub response cache disabled");
+            return;
+        }
+        
+        this.cache = new Cache(new File(directory), maxSizeMb * 1024 * 1024);
+        logger.info("GitHub response cache at {} (max {} MB)", directory, maxSizeMb);
+    }
+    
+    public boolean isEnabled() {
+        return cache != null;
+    }
+    
+    /**
+     * @return the underlying cache, or null when caching is disabled
+     */
+    public Cache getCache() {
+        return cache;
+    }
+    
+    /**
+     * Network interceptor that marks download responses as not storable, so the cache
+     * passes them through. It sees the redirected requests as well, e.g. an archive served
+     * from codeload.github.com.
+     */
+    public Interceptor skipDownloads() {
+        return chain -> {
+            Response response = chain.proceed(chain.request());
+            if (!isDownload(chain.request().url())) {
+                return response;
+            }
+            return response.newBuilder().header("Cache-Control", "no-store").build();
+        };
+    }
+    
+    static boolean isDownload(HttpUrl url) {
+        String path = url.encodedPath();
+        return path.contains("/git/blobs/") || path.contains("/tarball") || path.contains("/zipball")
+                || url.host().startsWith("codeload.") || url.host().startsWith("raw.");
+    }
+    
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("enabled", isEnabled());
+        if (cache == null) {
+            return statistics;
+        }
+        
+        // OkHttp counts a 304 revalidation as a hit, which is exactly what saves rate limit budget
+        int requests = cache.requestCount();
+        int hits = cache.hitCount();
+        statistics.put("requests", requests);
+        statistics.put("hits", hits);
+        statistics.put("misses", requests - hits);
+        statistics.put("network_requests", cache.networkCount());
+        statistics.put("hit_ratio", requests == 0 ? 0.0 : (double) hits / requests);
+        try {
+            statistics.put("size_bytes", cache.size());
+        } catch (IOException e) {
+            logger.debug("Could not read GitHub response cache size", e);
+        }
+        statistics.put("max_size_bytes", cache.maxSize());
+        return statistics;
+    }
+}
\ No newline at end of file
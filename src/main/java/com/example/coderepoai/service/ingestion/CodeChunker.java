@@ -1,218 +1,318 @@
 package com.example.coderepoai.service.ingestion;
 
+import com.example.coderepoai.model.ChunkLevel;
 import com.example.coderepoai.model.CodeChunk;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import com.example.coderepoai.model.SourceSpan;
+import com.example.coderepoai.service.ingestion.chunking.ChunkTokenizer;
+import com.example.coderepoai.service.ingestion.chunking.HierarchicalChunk;
+import com.example.coderepoai.service.ingestion.chunking.JavaAstChunker;
+import com.example.coderepoai.service.ingestion.chunking.LineIndex;
+import com.example.coderepoai.service.ingestion.chunking.StructuralChunker;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntUnaryOperator;
 
+/**
+ * Splits files into chunks for embedding. Chunk sizes are measured in tokens of the
+ * embedding model (see {@link ChunkTokenizer}): structural chunkers close a chunk at a
+ * code boundary once it has used half the budget, and every chunker closes one before
+ * it would exceed the budget.
+ * <p>
+ * Java files are chunked along their syntax tree ({@link JavaAstChunker}); files of the
+ * other languages and formats with a block grammar, and Java files that do not parse,
+ * along their blocks ({@link StructuralChunker}); the rest in fixed-size windows.
+ * <p>
+ * Chunkers cut {@link SourceSpan}s over the file content instead of copying lines into
+ * new strings; a chunk's text is only built when it is embedded or returned.
+ * <p>
+ * A file with more than one chunk also gets a file chunk outlining it (for Java, the type
+ * and member signatures; otherwise its definition lines or its first lines), and Java
+ * types with several chunks get a type chunk, so search can narrow down to files before
+ * looking at their members. Every chunk names its parent by an ID within the file.
+ */
 @Service
 public class CodeChunker {
     
-    private static final Logger logger = LoggerFactory.getLogger(CodeChunker.class);
+    private final JavaAstChunker javaAstChunker;
+    private final StructuralChunker structuralChunker;
+    private final ChunkTokenizer tokenizer;
+    private final boolean hierarchy;
     
-    private static final int DEFAULT_CHUNK_SIZE = 1000; // characters
-    private static final int OVERLAP_SIZE = 100; // characters
+    private final LongAdder syntaxTreeFiles = new LongAdder();
+    private final LongAdder structuralFiles = new LongAdder();
+    private final LongAdder fixedSizeFiles = new LongAdder();
     
-    // Patterns for identifying code blocks (methods, classes, functions)
-    private static final Pattern JAVA_METHOD_PATTERN = Pattern.compile("(public|private|protected)?\\s+(static\\s+)?\\w+\\s+\\w+\\s*\\([^\\)]*\\)\\s*\\{");
-    private static final Pattern JAVA_CLASS_PATTERN = Pattern.compile("(public|private)?\\s*(class|interface|enum)\\s+\\w+");
-    private static final Pattern FUNCTION_PATTERN = Pattern.compile("function\\s+\\w+\\s*\\([^\\)]*\\)");
-    private static final Pattern PYTHON_DEF_PATTERN = Pattern.compile("def\\s+\\w+\\s*\\([^\\)]*\\):");
+    public CodeChunker(JavaAstChunker javaAstChunker, StructuralChunker structuralChunker, ChunkTokenizer tokenizer,
+                       @Value("${ingestion.chunking.hierarchy.enabled:true}") boolean hierarchy) {
+        this.javaAstChunker = javaAstChunker;
+        this.structuralChunker = structuralChunker;
+        this.tokenizer = tokenizer;
+        this.hierarchy = hierarchy;
+    }
 
-    public List<CodeChunk> chunkFiles(Map<String, String> files, String repositoryUrl) {
-        List<CodeChunk> chunks = new ArrayList<>();
-        
-        for (Map.Entry<String, String> entry : files.entrySet()) {
-            String filePath = entry.getKey();
-            String content = entry.getValue();
-            
-            List<CodeChunk> fileChunks = chunkSingleFile(content, filePath, repositoryUrl);
-            chunks.addAll(fileChunks);
-        }
-        
-        logger.info("Created {} chunks from {} files", chunks.size(), files.size());
-        return chunks;
+    /**
+     * Chunks a parsed file. Chunk line ranges refer to the original file, byte offsets to
+     * the parsed content.
+     */
+    public List<CodeChunk> chunkFile(String filePath, ParsedFile parsedFile, String repositoryUrl) {
+        return chunkFile(filePath, parsedFile.content(), repositoryUrl, parsedFile::sourceLine);
     }
 
-    private List<CodeChunk> chunkSingleFile(String content, String filePath, String repositoryUrl) {
+    public List<CodeChunk> chunkFile(String filePath, String content, String repositoryUrl) {
+        return chunkFile(filePath, content, repositoryUrl, IntUnaryOperator.identity());
+    }
+
+    private List<CodeChunk> chunkFile(String filePath, String content, String repositoryUrl, IntUnaryOperator sourceLine) {
         List<CodeChunk> chunks = new ArrayList<>();
+        LineIndex lines = new LineIndex(content, tokenizer);
+        List<HierarchicalChunk> logicalChunks = chunkHierarchically(lines, filePath);
         
-        // First, try to chunk by logical code blocks
-        List<String> logicalChunks = chunkByCodeBlocks(content, filePath);
-        
-        // If logical chunking didn't work well, fall back to fixed-size chunking
-        if (logicalChunks.isEmpty() || logicalChunks.size() == 1) {
-            logicalChunks = chunkByFixedSize(content);
-        }
+        // A file with a single chunk is its own file chunk; without the hierarchy, only members are kept
+        long members = logicalChunks.stream()
+                .filter(logicalChunk -> logicalChunk.level() == ChunkLevel.MEMBER && !logicalChunk.span().isBlank())
+                .count();
+        boolean outlines = hierarchy && members > 1;
         
+        String lastPrefix = "";
+        int lastPrefixTokens = 0;
         for (int i = 0; i < logicalChunks.size(); i++) {
-            String chunkContent = logicalChunks.get(i);
-            if (!chunkContent.trim().isEmpty()) {
-                CodeChunk chunk = new CodeChunk(chunkContent, filePath, repositoryUrl, i);
-                
-                // Add metadata
-                Map<String, Object> metadata = new HashMap<>();
-                metadata.put("fileExtension", getFileExtension(filePath));
-                metadata.put("chunkSize", chunkContent.length());
-                metadata.put("totalChunks", logicalChunks.size());
-                chunk.setMetadata(metadata);
+            HierarchicalChunk logicalChunk = logicalChunks.get(i);
+            SourceSpan span = logicalChunk.span();
+            boolean member = logicalChunk.level() == ChunkLevel.MEMBER;
+            if (member ? span.isBlank() : !outlines) {
+                continue;
+            }
+            
+            CodeChunk chunk;
+            int tokens;
+            if (member) {
+                chunk = new CodeChunk(span, filePath, repositoryUrl, i);
                 
-                chunks.add(chunk);
+                // Chunks of one type share their header, so it is counted once
+                if (span.getPrefix() != lastPrefix) {
+                    lastPrefix = span.getPrefix();
+                    lastPrefixTokens = tokenizer.countTokens(lastPrefix);
+                }
+                tokens = lastPrefixTokens + spanTokens(lines, span);
+            } else {
+                String outline = logicalChunk.level() == ChunkLevel.FILE
+                        ? tokenizer.truncateToTokens(logicalChunk.outline(), tokenizer.getMaxTokens())
+                        : logicalChunk.outline();
+                chunk = new CodeChunk(outline, filePath, repositoryUrl, i);
+                tokens = tokenizer.countTokens(outline);
+            }
+            tokenizer.recordChunk(tokens);
+            
+            if (!hierarchy) {
+                chunk.setChunkId("chunk:" + i);
+            } else if (outlines) {
+                chunk.setLevel(logicalChunk.level());
+                chunk.setChunkId(member ? "chunk:" + i : logicalChunk.id());
+                chunk.setParentId(logicalChunk.parentId());
+            } else {
+                chunk.setLevel(ChunkLevel.FILE);
+                chunk.setChunkId(HierarchicalChunk.FILE_ID);
             }
+            chunk.setStartLine(sourceLine.applyAsInt(span.getStartLine()));
+            chunk.setEndLine(sourceLine.applyAsInt(span.getEndLine()));
+            chunk.setStartByte(lines.byteOffset(span.getStart()));
+            chunk.setEndByte(lines.byteOffset(span.getEnd()));
+            
+            // Add metadata
+            Map<String, Object> metadata = new HashMap<>();
+            metadata.put("fileExtension", getFileExtension(filePath));
+            metadata.put("chunkSize", chunk.getContentLength());
+            metadata.put("tokens", tokens);
+            metadata.put("totalChunks", logicalChunks.size());
+            chunk.setMetadata(metadata);
+            
+            chunks.add(chunk);
         }
         
         return chunks;
     }
 
-    private List<String> chunkByCodeBlocks(String content, String filePath) {
-        String extension = getFileExtension(filePath).toLowerCase();
+    /**
+     * Token counts and budget utilisation of the chunks created so far, and how many files
+     * each chunker took.
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> chunkers = new LinkedHashMap<>();
+        chunkers.put("syntax_tree", syntaxTreeFiles.sum());
+        chunkers.put("structural", structuralFiles.sum());
+        chunkers.put("fixed_size", fixedSizeFiles.sum());
         
-        List<String> chunks = new ArrayList<>();
+        Map<String, Object> statistics = tokenizer.getStatistics();
+        statistics.put("files_by_chunker", chunkers);
+        return statistics;
+    }
+
+    /**
+     * The file chunk first, then the chunks below it. Java files that parse come with their
+     * type outlines from the syntax tree; other files get a flat list of members under an
+     * outline of their definition lines (see {@link StructuralChunker}) or first lines.
+     */
+    private List<HierarchicalChunk> chunkHierarchically(LineIndex lines, String filePath) {
+        int maxTokens = tokenizer.getMaxTokens();
+        Optional<List<HierarchicalChunk>> syntaxTreeChunks = getFileExtension(filePath).equalsIgnoreCase("java")
+                ? javaAstChunker.chunk(lines, maxTokens)
+                : Optional.empty();
+        if (syntaxTreeChunks.isPresent() && countMembers(syntaxTreeChunks.get()) > 1) {
+            syntaxTreeFiles.increment();
+            return syntaxTreeChunks.get();
+        }
         
-        switch (extension) {
-            case "java":
-                chunks = chunkJavaFile(content);
-                break;
-            case "js":
-            case "ts":
-                chunks = chunkJavaScriptFile(content);
-                break;
-            case "py":
-                chunks = chunkPythonFile(content);
-                break;
-            default:
-                // For other files, use fixed-size chunking
-                chunks = chunkByFixedSize(content);
+        // Block structure when the syntax tree failed or the language has none
+        Optional<List<HierarchicalChunk>> structuralChunks = syntaxTreeChunks.isPresent()
+                ? Optional.empty()
+                : structuralChunker.chunk(lines, filePath, maxTokens);
+        if (structuralChunks.isPresent() && countMembers(structuralChunks.get()) > 1) {
+            structuralFiles.increment();
+            return splitLongLines(lines, structuralChunks.get());
         }
         
+        // Otherwise (a single block, or no grammar), fixed-size windows
+        fixedSizeFiles.increment();
+        String outline = structuralChunks
+                .map(chunks -> chunks.get(0).outline())
+                .orElseGet(() -> tokenizer.truncateToTokens(lines.content(), maxTokens / 4));
+        List<SourceSpan> windows = chunkByFixedSize(lines);
+        List<HierarchicalChunk> chunks = new ArrayList<>(windows.size() + 1);
+        chunks.add(new HierarchicalChunk(ChunkLevel.FILE, HierarchicalChunk.FILE_ID, null,
+                lines.charSpan(0, lines.content().length()), outline));
+        for (SourceSpan span : windows) {
+            chunks.add(HierarchicalChunk.member(HierarchicalChunk.FILE_ID, span));
+        }
         return chunks;
     }
 
-    private List<String> chunkJavaFile(String content) {
-        List<String> chunks = new ArrayList<>();
-        String[] lines = content.split("\n");
-        
-        StringBuilder currentChunk = new StringBuilder();
-        int braceLevel = 0;
-        boolean inMethod = false;
-        
-        for (String line : lines) {
-            currentChunk.append(line).append("\n");
-            
-            // Count braces to track code blocks
-            for (char c : line.toCharArray()) {
-                if (c == '{') {
-                    braceLevel++;
-                    if (JAVA_METHOD_PATTERN.matcher(line).find()) {
-                        inMethod = true;
-                    }
-                } else if (c == '}') {
-                    braceLevel--;
-                    if (braceLevel == 0 && inMethod) {
-                        // End of method, create chunk
-                        chunks.add(currentChunk.toString());
-                        currentChunk = new StringBuilder();
-                        inMethod = false;
-                    }
-                }
+    private static long countMembers(List<HierarchicalChunk> chunks) {
+        return chunks.stream().filter(chunk -> chunk.level() == ChunkLevel.MEMBER).count();
+    }
+
+    /**
+     * Cuts member chunks that are a single line over the budget (minified code, data) into
+     * pieces, as the fixed-size windows do.
+     */
+    private List<HierarchicalChunk> splitLongLines(LineIndex lines, List<HierarchicalChunk> chunks) {
+        int maxTokens = tokenizer.getMaxTokens();
+        List<HierarchicalChunk> result = new ArrayList<>(chunks.size());
+        for (HierarchicalChunk chunk : chunks) {
+            SourceSpan span = chunk.span();
+            int line = span.getStartLine() - 1;
+            if (chunk.level() != ChunkLevel.MEMBER || span.getEndLine() != span.getStartLine()
+                    || lines.lineTokens(line) <= maxTokens) {
+                result.add(chunk);
+                continue;
             }
-            
-            // If chunk gets too large, split anyway
-            if (currentChunk.length() > DEFAULT_CHUNK_SIZE * 2) {
-                chunks.add(currentChunk.toString());
-                currentChunk = new StringBuilder();
-                braceLevel = 0;
-                inMethod = false;
+            List<SourceSpan> pieces = new ArrayList<>();
+            splitLongLine(lines, line, maxTokens, pieces);
+            for (SourceSpan piece : pieces) {
+                result.add(HierarchicalChunk.member(chunk.parentId(), piece));
             }
         }
-        
-        if (currentChunk.length() > 0) {
-            chunks.add(currentChunk.toString());
-        }
-        
-        return chunks;
+        return result;
     }
 
-    private List<String> chunkJavaScriptFile(String content) {
-        List<String> chunks = new ArrayList<>();
-        String[] lines = content.split("\n");
+    /**
+     * Windows of whole lines that fill the token budget, each repeating the last lines of
+     * the previous window up to the overlap budget. Lines over the budget on their own
+     * (minified code, data) are cut into pieces.
+     */
+    private List<SourceSpan> chunkByFixedSize(LineIndex lines) {
+        List<SourceSpan> chunks = new ArrayList<>();
+        int maxTokens = tokenizer.getMaxTokens();
+        int overlapTokens = tokenizer.getOverlapTokens();
         
-        StringBuilder currentChunk = new StringBuilder();
+        int start = 0;
+        int windowTokens = 0;
         
-        for (String line : lines) {
-            currentChunk.append(line).append("\n");
+        for (int line = 0; line < lines.lineCount(); line++) {
+            int lineTokens = lines.lineTokens(line);
             
-            // Check for function boundaries
-            if (FUNCTION_PATTERN.matcher(line).find()) {
-                if (currentChunk.length() > DEFAULT_CHUNK_SIZE) {
-                    chunks.add(currentChunk.toString());
-                    currentChunk = new StringBuilder();
-                    currentChunk.append(line).append("\n");
+            if (lineTokens > maxTokens) {
+                if (start < line) {
+                    chunks.add(lines.lineSpan(start, line));
                 }
+                splitLongLine(lines, line, maxTokens, chunks);
+                start = line + 1;
+                windowTokens = 0;
+                continue;
             }
             
-            if (currentChunk.length() > DEFAULT_CHUNK_SIZE * 2) {
-                chunks.add(currentChunk.toString());
-                currentChunk = new StringBuilder();
+            if (windowTokens + lineTokens > maxTokens && start < line) {
+                chunks.add(lines.lineSpan(start, line));
+                
+                // Carry trailing lines over, but never the whole window
+                int overlapStart = line;
+                int carried = 0;
+                while (overlapStart - 1 > start
+                        && carried + lines.lineTokens(overlapStart - 1) <= overlapTokens
+                        && carried + lines.lineTokens(overlapStart - 1) + lineTokens <= maxTokens) {
+                    overlapStart--;
+                    carried += lines.lineTokens(overlapStart);
+                }
+                start = overlapStart;
+                windowTokens = carried;
             }
+            windowTokens += lineTokens;
         }
         
-        if (currentChunk.length() > 0) {
-            chunks.add(currentChunk.toString());
+        if (start < lines.lineCount()) {
+            chunks.add(lines.lineSpan(start, lines.lineCount()));
         }
         
         return chunks;
     }
 
-    private List<String> chunkPythonFile(String content) {
-        List<String> chunks = new ArrayList<>();
-        String[] lines = content.split("\n");
-        
-        StringBuilder currentChunk = new StringBuilder();
+    private void splitLongLine(LineIndex lines, int line, int maxTokens, List<SourceSpan> chunks) {
+        String content = lines.content();
+        int lineEnd = lines.lineEnd(line);
+        int charsPerBudget = Math.max(1, (int) ((long) (lineEnd - lines.lineStart(line)) * maxTokens / lines.lineTokens(line)));
         
-        for (String line : lines) {
-            currentChunk.append(line).append("\n");
-            
-            // Check for function/class definitions
-            if (PYTHON_DEF_PATTERN.matcher(line).find() || line.trim().startsWith("class ")) {
-                if (currentChunk.length() > DEFAULT_CHUNK_SIZE) {
-                    chunks.add(currentChunk.toString());
-                    currentChunk = new StringBuilder();
-                    currentChunk.append(line).append("\n");
+        int position = lines.lineStart(line);
+        while (position < lineEnd) {
+            // Estimate the cut from the line's own characters per token, then shrink until it fits
+            int end = pieceEnd(content, position, Math.min(lineEnd, position + charsPerBudget));
+            int pieceTokens;
+            while ((pieceTokens = tokenizer.countTokens(content.substring(position, end))) > maxTokens) {
+                int shorter = pieceEnd(content, position,
+                        position + Math.max(1, (int) ((long) (end - position) * maxTokens / pieceTokens) - 1));
+                if (shorter >= end) {
+                    break;
                 }
+                end = shorter;
             }
-            
-            if (currentChunk.length() > DEFAULT_CHUNK_SIZE * 2) {
-                chunks.add(currentChunk.toString());
-                currentChunk = new StringBuilder();
-            }
+            chunks.add(lines.charSpan(position, end));
+            position = end;
         }
-        
-        if (currentChunk.length() > 0) {
-            chunks.add(currentChunk.toString());
+    }
+
+    /**
+     * Moves a cut off the middle of a surrogate pair: before it, or after it when the pair
+     * is all the piece would hold.
+     */
+    private static int pieceEnd(String content, int position, int end) {
+        if (end < content.length() && Character.isHighSurrogate(content.charAt(end - 1))
+                && Character.isLowSurrogate(content.charAt(end))) {
+            return end - position > 1 ? end - 1 : end + 1;
         }
-        
-        return chunks;
+        return end;
     }
 
-    private List<String> chunkByFixedSize(String content) {
-        List<String> chunks = new ArrayList<>();
-        
-        for (int i = 0; i < content.length(); i += DEFAULT_CHUNK_SIZE - OVERLAP_SIZE) {
-            int end = Math.min(i + DEFAULT_CHUNK_SIZE, content.length());
-            String chunk = content.substring(i, end);
-            chunks.add(chunk);
-            
-            if (end >= content.length()) {
-                break;
-            }
+    /**
+     * Tokens of the span's text, from the per-line counts when it covers whole lines.
+     */
+    private int spanTokens(LineIndex lines, SourceSpan span) {
+        int fromLine = span.getStartLine() - 1;
+        int toLine = span.getEndLine();
+        if (lines.lineStart(fromLine) == span.getStart() && lines.lineEnd(toLine - 1) == span.getEnd()) {
+            return lines.tokens(fromLine, toLine);
         }
-        
-        return chunks;
+        return tokenizer.countTokens(span.getSource().substring(span.getStart(), span.getEnd()));
     }
 
     private String getFileExtension(String filePath) {
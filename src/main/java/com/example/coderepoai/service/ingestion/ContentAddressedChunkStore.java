@@ -0,0 +1,149 @@
+package com.example.coderepoai.service.ingestion;
+
+import com.example.coderepoai.model.CodeChunk;
+import com.example.coderepoai.model.ContentSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Caches parsed-and-chunked file content by git blob SHA, so a file that appears in several
+ * repositories or branches is parsed and chunked once and every further occurrence reuses
+ * the same chunk text. Entries are evicted least-recently-used beyond a fixed count.
+ * <p>
+ * With the {@link IndexedContentStore} enabled, cached chunks keep only byte ranges of
+ * the file content written there, so the cache does not hold every file's text on the heap.
+ */
+@Component
+public class ContentAddressedChunkStore {
+    
+    private final int maxEntries;
+    private final IndexedContentStore contentStore;
+    private final Map<String, List<CodeChunk>> chunksByBlob;
+    
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong charsShared = new AtomicLong();
+    
+    public ContentAddressedChunkStore(@Value("${ingestion.dedupe.max-entries:100000}") int maxEntries,
+                                      IndexedContentStore contentStore) {
+        this.maxEntries = maxEntries;
+        this.contentStore = contentStore;
+        this.chunksByBlob = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<CodeChunk>> eldest) {
+                if (size() <= ContentAddressedChunkStore.this.maxEntries) {
+                    return false;
+                }
+                contentStore.delete(eldest.getKey());
+                return true;
+            }
+        };
+    }
+    
+    /**
+     * Returns chunks for the given file, reusing previously computed chunks of an identical blob.
+     *
+     * @param blobSha git blob SHA of the raw content, or null to derive it from the content
+     * @param chunker parses and chunks the content on a cache miss
+     */
+    public List<CodeChunk> getOrCompute(String blobSha, String filePath, String content, String repositoryUrl,
+                                        Supplier<List<CodeChunk>> chunker) {
+        // Chunking strategy depends on the file type, so the extension is part of the key
+        String key = (blobSha != null ? blobSha : gitBlobSha(content)) + ":" + getFileExtension(filePath);
+        
+        List<CodeChunk> cached;
+        synchronized (chunksByBlob) {
+            cached = chunksByBlob.get(key);
+        }
+        
+        if (cached == null) {
+            misses.incrementAndGet();
+            List<CodeChunk> chunks = chunker.get();
+            List<CodeChunk> templates = detach(key, chunks);
+            synchronized (chunksByBlob) {
+                chunksByBlob.put(key, templates);
+            }
+            return chunks;
+        }
+        
+        hits.incrementAndGet();
+        List<CodeChunk> chunks = new ArrayList<>(cached.size());
+        for (CodeChunk template : cached) {
+            // Share the text (or where to find it) and copy only the per-reference fields
+            chunks.add(template.copyFor(filePath, repositoryUrl));
+            charsShared.addAndGet(template.getContentLength());
+        }
+        return chunks;
+    }
+    
+    /**
+     * Chunks to keep in the cache: chunks of one file share its content, which is written to
+     * the content store so the cached copies can drop it.
+     */
+    private List<CodeChunk> detach(String key, List<CodeChunk> chunks) {
+        // File and type outlines are text of their own; any member span leads to the content
+        Optional<CodeChunk> spanned = chunks.stream().filter(chunk -> chunk.getSpan() != null).findFirst();
+        if (spanned.isEmpty()) {
+            return chunks;
+        }
+        
+        Optional<ContentSource> source = contentStore.store(key, spanned.get().getSpan().getSource());
+        if (source.isEmpty()) {
+            return chunks;
+        }
+        
+        List<CodeChunk> templates = new ArrayList<>(chunks.size());
+        for (CodeChunk chunk : chunks) {
+            templates.add(chunk.detach(source.get()));
+        }
+        return templates;
+    }
+    
+    public Map<String, Object> getStatistics() {
+        long hitCount = hits.get();
+        long lookups = hitCount + misses.get();
+        int entries;
+        synchronized (chunksByBlob) {
+            entries = chunksByBlob.size();
+        }
+        
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("entries", entries);
+        statistics.put("hits", hitCount);
+        statistics.put("misses", misses.get());
+        statistics.put("hit_ratio", lookups == 0 ? 0.0 : (double) hitCount / lookups);
+        statistics.put("bytes_saved", charsShared.get() * Character.BYTES);
+        statistics.put("content_store", contentStore.getStatistics());
+        return statistics;
+    }
+    
+    /**
+     * Same hash git uses for blob objects, so SHAs reported by GitHub and by local
+     * repositories match content hashed here.
+     */
+    static String gitBlobSha(String content) {
+        try {
+            byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            digest.update(("blob " + bytes.length + "\0").getBytes(StandardCharsets.US_ASCII));
+            return HexFormat.of().formatHex(digest.digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 not available", e);
+        }
+    }
+    
+    private String getFileExtension(String filePath) {
+        int lastDotIndex = filePath.lastIndexOf('.');
+        if (lastDotIndex > 0 && lastDotIndex < filePath.length() - 1) {
+            return filePath.substring(lastDotIndex + 1).toLowerCase();
+        }
+        return "";
+    }
+}
\ No newline at end of file
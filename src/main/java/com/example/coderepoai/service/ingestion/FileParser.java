@@ -1,114 +1,91 @@
 package com.example.coderepoai.service.ingestion;
 
 import com.example.coderepoai.exception.FileParseException;
+import com.example.coderepoai.service.ingestion.lexer.LexedSource;
+import com.example.coderepoai.service.ingestion.lexer.LexerRegistry;
+import com.example.coderepoai.service.ingestion.lexer.SourceLexer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.regex.Pattern;
-
 @Service
 public class FileParser {
     
     private static final Logger logger = LoggerFactory.getLogger(FileParser.class);
     
-    private static final Pattern COMMENT_PATTERN = Pattern.compile("^\\s*[#/\\*].*");
-    private static final Pattern IMPORT_PATTERN = Pattern.compile("^\\s*(import|include|require|using)\\s+");
+    // Binary files are recognised from their first few KB; a text file does not turn binary later on
+    private static final int BINARY_SNIFF_LENGTH = 8 * 1024;
+    
+    private final LexerRegistry lexerRegistry;
+    
+    public FileParser(LexerRegistry lexerRegistry) {
+        this.lexerRegistry = lexerRegistry;
+    }
 
-    public Map<String, String> parseFiles(Map<String, String> rawFiles) {
-        Map<String, String> parsedFiles = new HashMap<>();
-        
-        for (Map.Entry<String, String> entry : rawFiles.entrySet()) {
-            String filePath = entry.getKey();
-            String content = entry.getValue();
-            
-            try {
-                String parsedContent = parseFileContent(content, filePath);
-                if (!parsedContent.trim().isEmpty()) {
-                    parsedFiles.put(filePath, parsedContent);
-                }
-            } catch (Exception e) {
-                logger.warn("Failed to parse file: {}", filePath, e);
-                throw new FileParseException("Failed to parse file: " + filePath, e);
-            }
+    public String parseFile(String filePath, CharSequence content) {
+        return parse(filePath, content).content();
+    }
+
+    /**
+     * Strips comments, blank lines and imports with the lexer for the file's language and
+     * returns the imports separately.
+     */
+    public ParsedFile parse(String filePath, CharSequence content) {
+        try {
+            return parseFileContent(content, filePath);
+        } catch (Exception | StackOverflowError e) {
+            logger.warn("Failed to parse file: {}", filePath, e);
+            throw new FileParseException("Failed to parse file: " + filePath, e);
         }
-        
-        return parsedFiles;
     }
 
-    private String parseFileContent(String content, String filePath) {
-        if (content == null || content.trim().isEmpty()) {
-            return "";
+    /**
+     * Why {@link #parse} returned no content for a file: it is empty, binary, or holds
+     * nothing but comments, blank lines and imports.
+     */
+    public String emptyReason(CharSequence content) {
+        if (content == null || content.length() == 0) {
+            return SkippedFile.REASON_EMPTY;
+        }
+        return isBinaryFile(content) ? SkippedFile.REASON_BINARY : SkippedFile.REASON_NO_CODE;
+    }
+
+    private ParsedFile parseFileContent(CharSequence content, String filePath) {
+        SourceLexer lexer = lexerRegistry.forPath(filePath);
+        String language = lexer.getSyntax().name();
+        
+        if (content == null || content.length() == 0) {
+            return ParsedFile.empty(language);
         }
 
         // Remove common binary file indicators
         if (isBinaryFile(content)) {
             logger.debug("Skipping binary file: {}", filePath);
-            return "";
+            return ParsedFile.empty(language);
         }
 
-        // Clean up the content
-        String cleanedContent = cleanContent(content);
-        
-        // Add file metadata
-        StringBuilder result = new StringBuilder();
-        result.append("// File: ").append(filePath).append("\n");
-        result.append(cleanedContent);
-        
-        return result.toString();
-    }
-
-    private boolean isBinaryFile(String content) {
-        // Simple heuristic: if content contains null bytes or too many non-printable chars
-        long nullBytes = content.chars().filter(ch -> ch == 0).count();
-        if (nullBytes > 0) {
-            return true;
-        }
-        
-        long nonPrintableChars = content.chars()
-            .filter(ch -> ch < 32 && ch != 9 && ch != 10 && ch != 13) // Tab, LF, CR are OK
-            .count();
-        
-        return nonPrintableChars > content.length() * 0.1; // More than 10% non-printable
+        // Clean up the content. The file path is deliberately not added here: the output then
+        // depends only on the content, so identical blobs can share parsed and chunked results,
+        // and the vector store prefixes every chunk with its path at embedding time anyway.
+        LexedSource lexed = lexer.lex(content);
+        return new ParsedFile(lexed.content(), language, lexed.imports(), lexed.sourceLines());
     }
 
-    private String cleanContent(String content) {
-        String[] lines = content.split("\n");
-        StringBuilder cleaned = new StringBuilder();
-        
-        boolean inBlockComment = false;
+    private boolean isBinaryFile(CharSequence content) {
+        // Simple heuristic: null bytes or too many non-printable chars near the start
+        int length = Math.min(content.length(), BINARY_SNIFF_LENGTH);
+        int nonPrintableChars = 0;
         
-        for (String line : lines) {
-            String trimmedLine = line.trim();
-            
-            // Handle block comments (/* ... */)
-            if (trimmedLine.contains("/*")) {
-                inBlockComment = true;
-            }
-            if (inBlockComment && trimmedLine.contains("*/")) {
-                inBlockComment = false;
-                continue;
-            }
-            if (inBlockComment) {
-                continue;
-            }
-            
-            // Skip empty lines and single-line comments
-            if (trimmedLine.isEmpty() || COMMENT_PATTERN.matcher(trimmedLine).matches()) {
-                continue;
+        for (int i = 0; i < length; i++) {
+            char ch = content.charAt(i);
+            if (ch == 0) {
+                return true;
             }
-            
-            // Keep import statements but mark them
-            if (IMPORT_PATTERN.matcher(trimmedLine).matches()) {
-                cleaned.append("// Import: ").append(trimmedLine).append("\n");
-                continue;
+            if (ch < 32 && ch != '\t' && ch != '\n' && ch != '\r') {
+                nonPrintableChars++;
             }
-            
-            cleaned.append(line).append("\n");
         }
         
-        return cleaned.toString();
+        return nonPrintableChars > length * 0.1; // More than 10% non-printable
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,155 @@
+package com.example.coderepoai.service.ingestion;
+
+import com.example.coderepoai.model.ContentSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the indexed content of files on disk, one UTF-8 file per content key, so cached
+ * chunks can hold a byte range instead of the text. A range is read back with a single
+ * positional read when the chunk's text is needed.
+ */
+@Component
+public class IndexedContentStore {
+    
+    private static final Logger logger = LoggerFactory.getLogger(IndexedContentStore.class);
+    
+    private final Path directory;
+    
+    private final AtomicLong filesWritten = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicLong reads = new AtomicLong();
+    private final AtomicLong bytesRead = new AtomicLong();
+    
+    public IndexedContentStore(@Value("${ingestion.content-store.enabled:true}") boolean enabled,
+                               @Value("${ingestion.content-store.directory:${java.io.tmpdir}/coderepoai-content}") String directory) {
+        Path storeDirectory = null;
+        if (enabled) {
+            try {
+                storeDirectory = Files.createDirectories(Path.of(directory));
+                clear(storeDirectory);
+                logger.info("Indexed content store at {}", storeDirectory);
+            } catch (IOException e) {
+                logger.warn("Indexed content store disabled, cannot create {}: {}", directory, e.getMessage());
+            }
+        }
+        this.directory = storeDirectory;
+    }
+    
+    public boolean isEnabled() {
+        return directory != null;
+    }
+    
+    /**
+     * Writes the content under the key, replacing what an earlier parser version may have
+     * left there.
+     *
+     * @return the stored content, or nothing when the store is disabled or the write failed
+     */
+    public Optional<ContentSource> store(String key, String content) {
+        if (directory == null) {
+            return Optional.empty();
+        }
+        
+        Path file = fileFor(key);
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        try {
+            Path temporary = Files.createTempFile(directory, "content", ".tmp");
+            Files.write(temporary, bytes);
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Could not store indexed content {}: {}", key, e.getMessage());
+            return Optional.empty();
+        }
+        
+        filesWritten.incrementAndGet();
+        bytesWritten.addAndGet(bytes.length);
+        return Optional.of(new StoredFile(file));
+    }
+    
+    public void delete(String key) {
+        if (directory == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(fileFor(key));
+        } catch (IOException e) {
+            logger.debug("Could not delete indexed content {}", key, e);
+        }
+    }
+    
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("enabled", isEnabled());
+        statistics.put("files_written", filesWritten.get());
+        statistics.put("bytes_written", bytesWritten.get());
+        statistics.put("reads", reads.get());
+        statistics.put("bytes_read", bytesRead.get());
+        return statistics;
+    }
+    
+    /**
+     * Removes what an earlier run left behind: the chunk cache that referenced it lived on
+     * the heap, so nothing can read those files any more.
+     */
+    private static void clear(Path directory) throws IOException {
+        int deleted = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, Files::isRegularFile)) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+                deleted++;
+            }
+        }
+        if (deleted > 0) {
+            logger.info("Deleted {} indexed content files of an earlier run from {}", deleted, directory);
+        }
+    }
+    
+    private Path fileFor(String key) {
+        return directory.resolve(key.replaceAll("[^A-Za-z0-9._-]", "_"));
+    }
+    
+    private final class StoredFile implements ContentSource {
+        private final Path file;
+        
+        private StoredFile(Path file) {
+            this.file = file;
+        }
+        
+        @Override
+        public String read(int startByte, int endByte) {
+            ByteBuffer buffer = ByteBuffer.allocate(endByte - startByte);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, startByte + buffer.position()) < 0) {
+                        throw new EOFException("Indexed content " + file.getFileName() + " ends before byte " + endByte);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read indexed content " + file.getFileName(), e);
+            }
+            
+            reads.incrementAndGet();
+            bytesRead.addAndGet(buffer.capacity());
+            return new String(buffer.array(), StandardCharsets.UTF_8);
+        }
+    }
+}
\ No newline at end of file
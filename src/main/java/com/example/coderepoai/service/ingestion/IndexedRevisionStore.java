@@ -0,0 +1,38 @@
+package com.example.coderepoai.service.ingestion;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers which commit each repository was last indexed at. Kept in memory on purpose:
+ * the vector store is in-memory too, so after a restart nothing is indexed and the next
+ * refresh has to be a full one anyway.
+ */
+@Component
+public class IndexedRevisionStore {
+    
+    private final Map<String, String> indexedRevisions = new ConcurrentHashMap<>();
+    
+    public Optional<String> getIndexedRevision(String repositoryUrl) {
+        return Optional.ofNullable(indexedRevisions.get(repositoryUrl));
+    }
+    
+    public void setIndexedRevision(String repositoryUrl, String revision) {
+        if (revision == null) {
+            indexedRevisions.remove(repositoryUrl);
+        } else {
+            indexedRevisions.put(repositoryUrl, revision);
+        }
+    }
+    
+    public void clear(String repositoryUrl) {
+        indexedRevisions.remove(repositoryUrl);
+    }
+    
+    public Map<String, String> getIndexedRevisions() {
+        return Map.copyOf(indexedRevisions);
+    }
+}
\ No newline at end of file
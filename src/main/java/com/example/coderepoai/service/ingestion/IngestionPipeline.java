@@ -0,0 +1,210 @@
+package com.example.coderepoai.service.ingestion;
+
+import com.example.coderepoai.model.CodeChunk;
+import com.example.coderepoai.service.ingestion.source.SourceFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Runs fetch → parse/chunk → embed/store as concurrent stages connected by bounded queues.
+ * A full queue blocks the stage feeding it, so a slow embedding API slows fetching down
+ * instead of letting parsed files pile up, and memory stays proportional to the queue
+ * sizes rather than to the repository size. Storing starts with the first full batch,
+ * while files are still being fetched.
+ * <p>
+ * The producer runs on the caller's thread; the parse workers and the store stage run on
+ * the shared pipeline executor, platform or virtual threads as configured for the others.
+ */
+@Component
+public class IngestionPipeline {
+    
+    private static final Logger logger = LoggerFactory.getLogger(IngestionPipeline.class);
+    
+    private static final long POLL_MILLIS = 100;
+    
+    // End-of-stream markers; compared by identity
+    private static final SourceFile END_OF_FILES = new SourceFile("", "", null);
+    private static final List<CodeChunk> END_OF_CHUNKS = new ArrayList<>();
+    
+    private final int queueCapacity;
+    private final int parseWorkers;
+    private final int storeBatchSize;
+    private final Executor stageExecutor;
+    
+    public IngestionPipeline(@Value("${ingestion.pipeline.queue-capacity:256}") int queueCapacity,
+                             @Value("${ingestion.pipeline.parse-workers:0}") int parseWorkers,
+                             @Value("${ingestion.pipeline.store-batch-size:100}") int storeBatchSize,
+                             @Qualifier("pipelineExecutor") Executor stageExecutor) {
+        this.stageExecutor = stageExecutor;
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.parseWorkers = parseWorkers > 0 ? parseWorkers : Runtime.getRuntime().availableProcessors();
+        this.storeBatchSize = Math.max(1, storeBatchSize);
+    }
+    
+    /**
+     * Produces the files of one repository into the pipeline. The sink may be called from
+     * several threads and blocks while the pipeline is full.
+     */
+    @FunctionalInterface
+    public interface FileProducer {
+        int produce(Consumer<SourceFile> sink);
+    }
+    
+    public record Result(int fileCount, int chunkCount, int batchCount) {
+    }
+    
+    /**
+     * Streams every produced file through the chunker and hands the chunks to the store in
+     * batches. Returns once everything produced has been stored; a failure in any stage
+     * stops the other stages and is rethrown.
+     */
+    public Result run(String repositoryUrl, FileProducer producer,
+                      Function<SourceFile, List<CodeChunk>> chunker,
+                      Consumer<List<CodeChunk>> store) {
+        BlockingQueue<SourceFile> fileQueue = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<List<CodeChunk>> chunkQueue = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicInteger chunkCount = new AtomicInteger();
+        AtomicInteger batchCount = new AtomicInteger();
+        
+        long startTime = System.nanoTime();
+        boolean finished = false;
+        
+        try {
+            CountDownLatch parsersDone = new CountDownLatch(parseWorkers);
+            for (int i = 0; i < parseWorkers; i++) {
+                stageExecutor.execute(() -> {
+                    try {
+                        SourceFile file;
+                        while ((file = take(fileQueue, failure)) != END_OF_FILES && file != null) {
+                            List<CodeChunk> chunks = chunker.apply(file);
+                            if (!chunks.isEmpty()) {
+                                put(chunkQueue, chunks, failure);
+                            }
+                        }
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    } finally {
+                        parsersDone.countDown();
+                    }
+                });
+            }
+            
+            CompletableFuture<Void> storeStage = CompletableFuture.runAsync(() -> {
+                try {
+                    List<CodeChunk> batch = new ArrayList<>(storeBatchSize);
+                    List<CodeChunk> chunks;
+                    while ((chunks = take(chunkQueue, failure)) != END_OF_CHUNKS && chunks != null) {
+                        batch.addAll(chunks);
+                        if (batch.size() >= storeBatchSize) {
+                            storeBatch(store, batch, chunkCount, batchCount);
+                            batch = new ArrayList<>(storeBatchSize);
+                        }
+                    }
+                    if (chunks == END_OF_CHUNKS && !batch.isEmpty()) {
+                        storeBatch(store, batch, chunkCount, batchCount);
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                }
+            }, stageExecutor);
+            
+            int fileCount;
+            try {
+                fileCount = producer.produce(file -> put(fileQueue, file, failure));
+            } catch (RuntimeException e) {
+                // A failing stage makes the sink throw inside the producer; report the original cause
+                failure.compareAndSet(null, e);
+                rethrowFailure(failure);
+                throw e;
+            }
+            
+            for (int i = 0; i < parseWorkers; i++) {
+                put(fileQueue, END_OF_FILES, failure);
+            }
+            parsersDone.await();
+            put(chunkQueue, END_OF_CHUNKS, failure);
+            storeStage.get();
+            
+            rethrowFailure(failure);
+            finished = true;
+            
+            Result result = new Result(fileCount, chunkCount.get(), batchCount.get());
+            logger.info("Ingestion pipeline for {} finished in {} ms: {} files, {} chunks in {} batches ({} parse workers, queue capacity {})",
+                    repositoryUrl, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime),
+                    result.fileCount(), result.chunkCount(), result.batchCount(), parseWorkers, queueCapacity);
+            return result;
+            
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null, e);
+            throw new IllegalStateException("Interrupted while ingesting " + repositoryUrl, e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Store stage failed for " + repositoryUrl, e.getCause());
+        } finally {
+            if (!finished) {
+                // The stages live on a shared executor, so they are stopped by the failure flag, not by interruption
+                failure.compareAndSet(null, new CancellationException("Ingestion pipeline for " + repositoryUrl + " stopped"));
+            }
+        }
+    }
+    
+    private void storeBatch(Consumer<List<CodeChunk>> store, List<CodeChunk> batch,
+                            AtomicInteger chunkCount, AtomicInteger batchCount) {
+        store.accept(batch);
+        chunkCount.addAndGet(batch.size());
+        batchCount.incrementAndGet();
+    }
+    
+    /**
+     * Blocks until there is room in the queue, giving up once another stage has failed.
+     */
+    private <T> void put(BlockingQueue<T> queue, T item, AtomicReference<Throwable> failure) {
+        try {
+            do {
+                rethrowFailure(failure);
+            } while (!queue.offer(item, POLL_MILLIS, TimeUnit.MILLISECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the ingestion pipeline", e);
+        }
+    }
+    
+    /**
+     * @return the next item, or null once another stage has failed, even if items are left
+     */
+    private <T> T take(BlockingQueue<T> queue, AtomicReference<Throwable> failure) throws InterruptedException {
+        while (failure.get() == null) {
+            T item = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            if (item != null) {
+                return item;
+            }
+        }
+        return null;
+    }
+    
+    private void rethrowFailure(AtomicReference<Throwable> failure) {
+        Throwable t = failure.get();
+        if (t == null) {
+            return;
+        }
+        if (t instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        if (t instanceof Error error) {
+            throw error;
+        }
+        throw new IllegalStateException("Ingestion pipeline failed", t);
+    }
+}
\ No newline at end of file
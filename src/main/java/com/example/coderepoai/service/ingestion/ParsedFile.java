@@ -0,0 +1,28 @@
+package com.example.coderepoai.service.ingestion;
+
+import com.example.coderepoai.service.ingestion.lexer.SourceImport;
+
+import java.util.List;
+
+/**
+ * A file ready for chunking: its content without comments and imports, the language its
+ * lexer was picked for, the imports as structured data, and the line of the original file
+ * each content line came from (see {@link #sourceLine}).
+ */
+public record ParsedFile(String content, String language, List<SourceImport> imports, int[] sourceLines) {
+    
+    static ParsedFile empty(String language) {
+        return new ParsedFile("", language, List.of(), new int[0]);
+    }
+    
+    /**
+     * @param contentLine 1-based line of the content
+     * @return the 1-based line of the original file it came from
+     */
+    public int sourceLine(int contentLine) {
+        if (sourceLines.length == 0) {
+            return contentLine;
+        }
+        return sourceLines[Math.max(0, Math.min(contentLine, sourceLines.length) - 1)];
+    }
+}
\ No newline at end of file
@@ -0,0 +1,55 @@
+package com.example.coderepoai.service.ingestion;
+
+import com.example.coderepoai.service.ingestion.source.FileChange;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Files changed between two commits as reported by push events, so an incremental refresh
+ * does not have to ask the source for the change set again.
+ *
+ * @param baseRevision commit the changes apply to; only usable if the index is at this commit
+ * @param headRevision commit after the changes
+ */
+public record PushedChanges(String baseRevision, String headRevision, List<FileChange> changes) {
+    
+    public PushedChanges {
+        changes = List.copyOf(changes);
+    }
+    
+    /**
+     * Appends a later push. Only the last change of each path is kept, since files are
+     * fetched at the final head anyway.
+     *
+     * @return the combined change set, or null when the later push does not start where
+     *         this one ends (out of order or rewritten history)
+     */
+    public PushedChanges followedBy(PushedChanges next) {
+        if (next == null || !headRevision.equals(next.baseRevision())) {
+            return null;
+        }
+        
+        List<FileChange> combined = new ArrayList<>(changes);
+        combined.addAll(next.changes());
+        return new PushedChanges(baseRevision, next.headRevision(), squash(combined));
+    }
+    
+    /**
+     * Collapses changes listed oldest first to the last change per path. A file removed and
+     * added again ends up modified.
+     */
+    public static List<FileChange> squash(List<FileChange> changes) {
+        Map<String, FileChange> byPath = new LinkedHashMap<>();
+        for (FileChange change : changes) {
+            FileChange previous = byPath.remove(change.path());
+            if (previous != null && previous.type() == FileChange.Type.REMOVED && change.type() == FileChange.Type.ADDED) {
+                change = new FileChange(FileChange.Type.MODIFIED, change.path(), null);
+            }
+            byPath.put(change.path(), change);
+        }
+        return new ArrayList<>(byPath.values());
+    }
+}
\ No newline at end of file
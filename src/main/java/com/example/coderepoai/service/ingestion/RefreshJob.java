@@ -0,0 +1,282 @@
+package com.example.coderepoai.service.ingestion;
+
+import com.example.coderepoai.exception.RefreshCancelledException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of one repository refresh. Counters are updated from the pipeline threads
+ * while the job runs; fetching, parsing, chunking and embedding overlap, so the reported
+ * status is the earliest stage that still has work left.
+ */
+public class RefreshJob {
+    
+    public enum Status {
+        QUEUED,
+        FETCHING,
+        PARSING,
+        CHUNKING,
+        EMBEDDING,
+        DONE,
+        FAILED,
+        CANCELLED;
+        
+        public boolean isFinished() {
+            return this == DONE || this == FAILED || this == CANCELLED;
+        }
+    }
+    
+    private static final int MAX_REPORTED_SKIPPED_FILES = 50;
+    
+    private final String id;
+    private final String repositoryUrl;
+    private final Instant createdAt = Instant.now();
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+    
+    // QUEUED, FETCHING (running) or a finished status; the stages after fetching are derived
+    private volatile Status phase = Status.QUEUED;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile String error;
+    private volatile boolean cancelRequested;
+    private volatile boolean fetchComplete;
+    private volatile int expectedFiles = -1;
+    // Can still be upgraded by a coalesced request while the job is queued
+    private volatile boolean fullRefresh;
+    private volatile RefreshPriority priority;
+    // Change set reported by push events; dropped when a request without one is coalesced
+    private volatile PushedChanges pushedChanges;
+    
+    private final AtomicInteger filesFetched = new AtomicInteger();
+    private final AtomicInteger filesParsed = new AtomicInteger();
+    private final AtomicInteger filesChunked = new AtomicInteger();
+    private final AtomicInteger chunksCreated = new AtomicInteger();
+    private final AtomicInteger chunksEmbedded = new AtomicInteger();
+    private final AtomicLong bytesFetched = new AtomicLong();
+    private final AtomicInteger coalescedRequests = new AtomicInteger();
+    private final AtomicInteger filesSkipped = new AtomicInteger();
+    // The first few skipped files with their reasons; the count covers all of them
+    private final Queue<SkippedFile> skippedFiles = new ConcurrentLinkedQueue<>();
+    
+    public RefreshJob(String id, String repositoryUrl, boolean fullRefresh, RefreshPriority priority) {
+        this.id = id;
+        this.repositoryUrl = repositoryUrl;
+        this.fullRefresh = fullRefresh;
+        this.priority = priority;
+    }
+    
+    RefreshJob withPushedChanges(PushedChanges pushedChanges) {
+        this.pushedChanges = pushedChanges;
+        return this;
+    }
+    
+    public String getId() {
+        return id;
+    }
+    
+    public String getRepositoryUrl() {
+        return repositoryUrl;
+    }
+    
+    public boolean isFullRefresh() {
+        return fullRefresh;
+    }
+    
+    public RefreshPriority getPriority() {
+        return priority;
+    }
+    
+    public PushedChanges getPushedChanges() {
+        return pushedChanges;
+    }
+    
+    public CompletableFuture<Void> getCompletion() {
+        return completion;
+    }
+    
+    public Status getStatus() {
+        Status current = phase;
+        if (current != Status.FETCHING || !fetchComplete) {
+            return current;
+        }
+        
+        int fetched = filesFetched.get();
+        if (filesParsed.get() < fetched) {
+            return Status.PARSING;
+        }
+        if (filesChunked.get() < fetched) {
+            return Status.CHUNKING;
+        }
+        return Status.EMBEDDING;
+    }
+    
+    public boolean isCancelRequested() {
+        return cancelRequested;
+    }
+    
+    /**
+     * Asks the job to stop. The pipeline notices at its next file or batch boundary, so no
+     * further embedding requests are made once the current batch is done.
+     *
+     * @return false when the job had already finished
+     */
+    public boolean cancel() {
+        if (phase.isFinished()) {
+            return false;
+        }
+        cancelRequested = true;
+        return true;
+    }
+    
+    public void checkNotCancelled() {
+        if (cancelRequested) {
+            throw new RefreshCancelledException("Refresh job " + id + " was cancelled");
+        }
+    }
+    
+    /**
+     * Records another refresh request for the same repository that is served by this job.
+     * The job runs at the highest priority of the requests it serves.
+     */
+    void coalesce(boolean fullRefreshRequested, RefreshPriority requestedPriority, PushedChanges requestedChanges) {
+        coalescedRequests.incrementAndGet();
+        priority = priority.max(requestedPriority);
+        pushedChanges = pushedChanges != null ? pushedChanges.followedBy(requestedChanges) : null;
+        if (fullRefreshRequested) {
+            fullRefresh = true;
+        }
+    }
+    
+    void start() {
+        startedAt = Instant.now();
+        phase = Status.FETCHING;
+    }
+    
+    void setExpectedFiles(int expectedFiles) {
+        this.expectedFiles = expectedFiles;
+    }
+    
+    void fetchFinished() {
+        fetchComplete = true;
+    }
+    
+    void fileFetched(long bytes) {
+        filesFetched.incrementAndGet();
+        bytesFetched.addAndGet(bytes);
+    }
+    
+    void fileParsed() {
+        filesParsed.incrementAndGet();
+    }
+    
+    void fileSkipped(SkippedFile skippedFile) {
+        if (filesSkipped.incrementAndGet() <= MAX_REPORTED_SKIPPED_FILES) {
+            skippedFiles.add(skippedFile);
+        }
+    }
+    
+    void fileChunked(int chunkCount) {
+        filesChunked.incrementAndGet();
+        chunksCreated.addAndGet(chunkCount);
+    }
+    
+    void chunksEmbedded(int chunkCount) {
+        chunksEmbedded.addAndGet(chunkCount);
+    }
+    
+    void succeed() {
+        finish(Status.DONE);
+        completion.complete(null);
+    }
+    
+    void fail(Throwable cause) {
+        error = cause.getMessage();
+        finish(Status.FAILED);
+        completion.completeExceptionally(cause);
+    }
+    
+    void markCancelled() {
+        error = "Cancelled";
+        finish(Status.CANCELLED);
+        completion.completeExceptionally(new RefreshCancelledException("Refresh job " + id + " was cancelled"));
+    }
+    
+    private void finish(Status status) {
+        finishedAt = Instant.now();
+        phase = status;
+    }
+    
+    /**
+     * Snapshot for the status API. Throughput is averaged over the whole run; the ETA
+     * extrapolates from the share of the expected work that has been embedded so far.
+     */
+    public Map<String, Object> toStatusMap() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("job_id", id);
+        status.put("repository_url", repositoryUrl);
+        status.put("status", getStatus().name().toLowerCase());
+        status.put("full_refresh", fullRefresh);
+        status.put("priority", priority.name().toLowerCase());
+        status.put("coalesced_requests", coalescedRequests.get());
+        status.put("created_at", createdAt.toString());
+        status.put("started_at", startedAt != null ? startedAt.toString() : null);
+        status.put("finished_at", finishedAt != null ? finishedAt.toString() : null);
+        status.put("files_fetched", filesFetched.get());
+        status.put("files_parsed", filesParsed.get());
+        status.put("files_chunked", filesChunked.get());
+        status.put("files_skipped", filesSkipped.get());
+        status.put("chunks_created", chunksCreated.get());
+        status.put("chunks_embedded", chunksEmbedded.get());
+        status.put("bytes_fetched", bytesFetched.get());
+        status.put("expected_files", expectedFiles >= 0 ? expectedFiles : null);
+        
+        if (startedAt != null) {
+            Instant end = finishedAt != null ? finishedAt : Instant.now();
+            double seconds = Math.max(0.001, Duration.between(startedAt, end).toMillis() / 1000.0);
+            status.put("elapsed_ms", Duration.between(startedAt, end).toMillis());
+            status.put("files_per_second", filesChunked.get() / seconds);
+            status.put("bytes_per_second", bytesFetched.get() / seconds);
+            status.put("chunks_per_second", chunksEmbedded.get() / seconds);
+            
+            double progress = progress();
+            status.put("progress", progress >= 0 ? progress : null);
+            status.put("eta_seconds", finishedAt == null && progress > 0 ? seconds * (1 - progress) / progress : null);
+        }
+        
+        status.put("skipped_files", skippedFiles.stream()
+                .map(skipped -> Map.of("path", skipped.path(), "reason", skipped.reason(), "elapsed_micros", skipped.elapsedMicros()))
+                .toList());
+        status.put("error", error);
+        return status;
+    }
+    
+    /**
+     * @return fraction of the expected work done, or -1 while the total is unknown
+     */
+    private double progress() {
+        if (phase.isFinished()) {
+            return 1.0;
+        }
+        
+        int expected = fetchComplete ? filesFetched.get() : expectedFiles;
+        int chunked = filesChunked.get();
+        if (expected <= 0 || chunked == 0) {
+            return -1;
+        }
+        
+        // Chunks per file so far gives the expected total number of chunks to embed
+        double expectedChunks = (double) chunksCreated.get() / chunked * expected;
+        if (expectedChunks <= 0) {
+            return Math.min(1.0, (double) chunked / expected);
+        }
+        return Math.min(1.0, chunksEmbedded.get() / expectedChunks);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,187 @@
+package com.example.coderepoai.service.ingestion;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps every running refresh job and the most recent finished ones, so clients can poll
+ * the status of a job they started and cancel it. Also remembers how many files the last
+ * successful refresh of each repository saw, which is the best guess for the next one.
+ * <p>
+ * Refreshes are single-flight per repository: at most one job runs and at most one
+ * follow-up waits behind it. A request that arrives while a job is still queued joins
+ * that job. A request that arrives while a job is running joins the follow-up, so changes
+ * pushed after the running job resolved its revision are still picked up, but only once.
+ * Jobs that were asked to cancel are never joined; the request gets a new follow-up instead.
+ */
+@Component
+public class RefreshJobRegistry {
+    
+    private final Map<String, RefreshJob> jobs = new ConcurrentHashMap<>();
+    private final Map<String, Integer> lastFileCounts = new ConcurrentHashMap<>();
+    private final Deque<String> finishedJobIds = new ArrayDeque<>();
+    private final int maxFinishedJobs;
+    
+    // Current and follow-up job per repository, guarded by this
+    private final Map<String, RefreshSlot> slots = new HashMap<>();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong startedJobs = new AtomicLong();
+    private final AtomicLong joinedQueued = new AtomicLong();
+    private final AtomicLong joinedFollowUps = new AtomicLong();
+    private final AtomicLong followUpsScheduled = new AtomicLong();
+    
+    public record Admission(RefreshJob job, boolean start) {
+    }
+    
+    public RefreshJobRegistry(@Value("${ingestion.jobs.max-finished:100}") int maxFinishedJobs) {
+        this.maxFinishedJobs = Math.max(1, maxFinishedJobs);
+    }
+    
+    private RefreshJob create(String repositoryUrl, boolean fullRefresh, RefreshPriority priority) {
+        RefreshJob job = new RefreshJob(UUID.randomUUID().toString(), repositoryUrl, fullRefresh, priority);
+        jobs.put(job.getId(), job);
+        job.getCompletion().whenComplete((result, error) -> onFinished(job));
+        return job;
+    }
+    
+    /**
+     * Finds or creates the job that will serve a refresh request.
+     *
+     * @return the job, and whether the caller has to start it now
+     */
+    public synchronized Admission admit(String repositoryUrl, boolean fullRefresh, RefreshPriority priority) {
+        return admit(repositoryUrl, fullRefresh, priority, null);
+    }
+    
+    /**
+     * Like {@link #admit(String, boolean, RefreshPriority)}, for a request that already knows
+     * which files changed. A job serving several such requests keeps their combined change
+     * set as long as the pushes are contiguous.
+     */
+    public synchronized Admission admit(String repositoryUrl, boolean fullRefresh, RefreshPriority priority,
+                                        PushedChanges pushedChanges) {
+        requests.incrementAndGet();
+        RefreshSlot slot = slots.computeIfAbsent(repositoryUrl, url -> new RefreshSlot());
+        
+        if (slot.current == null) {
+            slot.current = create(repositoryUrl, fullRefresh, priority).withPushedChanges(pushedChanges);
+            startedJobs.incrementAndGet();
+            return new Admission(slot.current, true);
+        }
+        
+        // A cancelled job is going to stop without refreshing anything, so it serves no one
+        if (slot.current.getStatus() == RefreshJob.Status.QUEUED && !slot.current.isCancelRequested()) {
+            slot.current.coalesce(fullRefresh, priority, pushedChanges);
+            joinedQueued.incrementAndGet();
+            return new Admission(slot.current, false);
+        }
+        
+        if (slot.next != null && !slot.next.isCancelRequested()) {
+            slot.next.coalesce(fullRefresh, priority, pushedChanges);
+            joinedFollowUps.incrementAndGet();
+            return new Admission(slot.next, false);
+        }
+        
+        if (slot.next != null) {
+            // Never started, so it is finished here rather than by running it
+            slot.next.markCancelled();
+        }
+        
+        slot.next = create(repositoryUrl, fullRefresh, priority).withPushedChanges(pushedChanges);
+        followUpsScheduled.incrementAndGet();
+        return new Admission(slot.next, false);
+    }
+    
+    /**
+     * Moves a job from queued to running. Requests join a queued job by changing what it
+     * refreshes, so this takes the same lock as {@link #admit}: a request either joins
+     * before the job reads its settings or ends up in the follow-up.
+     */
+    public synchronized void start(RefreshJob job) {
+        job.start();
+    }
+    
+    /**
+     * Called when the current job of a repository has finished.
+     *
+     * @return the follow-up job the caller has to start, or null
+     */
+    public synchronized RefreshJob release(RefreshJob job) {
+        RefreshSlot slot = slots.get(job.getRepositoryUrl());
+        if (slot == null || slot.current != job) {
+            return null;
+        }
+        
+        slot.current = slot.next;
+        slot.next = null;
+        if (slot.current == null) {
+            slots.remove(job.getRepositoryUrl());
+            return null;
+        }
+        
+        startedJobs.incrementAndGet();
+        return slot.current;
+    }
+    
+    /**
+     * @return true while a job for the repository is queued or running
+     */
+    public synchronized boolean isRefreshing(String repositoryUrl) {
+        return slots.containsKey(repositoryUrl);
+    }
+    
+    public Map<String, Object> getCoalescingStatistics() {
+        long total = requests.get();
+        long coalesced = joinedQueued.get() + joinedFollowUps.get();
+        
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("requests", total);
+        statistics.put("jobs_started", startedJobs.get());
+        statistics.put("coalesced_requests", coalesced);
+        statistics.put("joined_queued_job", joinedQueued.get());
+        statistics.put("joined_follow_up", joinedFollowUps.get());
+        statistics.put("follow_ups_scheduled", followUpsScheduled.get());
+        statistics.put("coalesce_ratio", total == 0 ? 0.0 : (double) coalesced / total);
+        return statistics;
+    }
+    
+    public Optional<RefreshJob> get(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+    
+    public List<RefreshJob> getActiveJobs() {
+        return jobs.values().stream()
+                .filter(job -> !job.getStatus().isFinished())
+                .toList();
+    }
+    
+    public List<RefreshJob> getJobs() {
+        return new ArrayList<>(jobs.values());
+    }
+    
+    public Optional<Integer> getLastFileCount(String repositoryUrl) {
+        return Optional.ofNullable(lastFileCounts.get(repositoryUrl));
+    }
+    
+    public void setLastFileCount(String repositoryUrl, int fileCount) {
+        lastFileCounts.put(repositoryUrl, fileCount);
+    }
+    
+    private void onFinished(RefreshJob job) {
+        synchronized (finishedJobIds) {
+            finishedJobIds.addLast(job.getId());
+            while (finishedJobIds.size() > maxFinishedJobs) {
+                jobs.remove(finishedJobIds.removeFirst());
+            }
+        }
+    }
+    
+    private static class RefreshSlot {
+        private RefreshJob current;
+        private RefreshJob next;
+    }
+}
\ No newline at end of file
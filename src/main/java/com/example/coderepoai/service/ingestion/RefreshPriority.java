@@ -0,0 +1,26 @@
+package com.example.coderepoai.service.ingestion;
+
+/**
+ * Who asked for a refresh. Decides the order in which queued jobs start and the share of
+ * store batches a running job gets relative to the other running jobs.
+ */
+public enum RefreshPriority {
+    
+    INTERACTIVE(4),
+    WEBHOOK(2),
+    SCHEDULED(1);
+    
+    private final int weight;
+    
+    RefreshPriority(int weight) {
+        this.weight = weight;
+    }
+    
+    public int getWeight() {
+        return weight;
+    }
+    
+    public RefreshPriority max(RefreshPriority other) {
+        return other != null && other.ordinal() < ordinal() ? other : this;
+    }
+}
\ No newline at end of file
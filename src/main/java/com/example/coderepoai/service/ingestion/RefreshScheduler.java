@@ -0,0 +1,212 @@
+package com.example.coderepoai.service.ingestion;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Decides when refresh jobs run and how they share the pipeline once running.
+ * <p>
+ * At most {@code maxConcurrentJobs} jobs run at a time; queued jobs start by priority
+ * (interactive, then webhook, then scheduled) and in arrival order within a priority.
+ * <p>
+ * Running jobs take turns storing batches: only {@code batchSlots} batches are embedded
+ * at once and a free slot goes to the waiting job that has received the fewest batches
+ * relative to its priority weight (stride scheduling, a smooth weighted round-robin).
+ * A huge repository therefore gets the same share per batch as a small one instead of
+ * holding the embedding API until it is done, and its fetch and parse stages slow down
+ * through pipeline backpressure while it waits for its turn.
+ */
+@Component
+public class RefreshScheduler {
+    
+    private static final Logger logger = LoggerFactory.getLogger(RefreshScheduler.class);
+    
+    private final Executor taskExecutor;
+    private final int maxConcurrentJobs;
+    
+    private final Object lock = new Object();
+    private final List<PendingJob> pendingJobs = new ArrayList<>();
+    private final Map<String, FairShare> shares = new HashMap<>();
+    private int runningJobs;
+    private int freeBatchSlots;
+    private long sequence;
+    // Pass of the most recent grant; new jobs start here so they cannot claim a backlog of turns
+    private double virtualTime;
+    
+    public RefreshScheduler(@Qualifier("taskExecutor") Executor taskExecutor,
+                            @Value("${ingestion.scheduler.max-concurrent-jobs:4}") int maxConcurrentJobs,
+                            @Value("${ingestion.scheduler.batch-slots:4}") int batchSlots) {
+        this.taskExecutor = taskExecutor;
+        this.maxConcurrentJobs = Math.max(1, maxConcurrentJobs);
+        this.freeBatchSlots = Math.max(1, batchSlots);
+    }
+    
+    /**
+     * Queues a job. The task runs on the task executor once a job slot is free; if the
+     * executor rejects it, onRejected is called instead.
+     */
+    public void submit(RefreshJob job, Runnable task, Consumer<RuntimeException> onRejected) {
+        synchronized (lock) {
+            pendingJobs.add(new PendingJob(job, task, onRejected, sequence++));
+        }
+        dispatch();
+    }
+    
+    /**
+     * Runs one store batch of a job once it is the job's turn.
+     */
+    public void runBatch(RefreshJob job, Runnable batch) {
+        acquireBatchSlot(job);
+        try {
+            batch.run();
+        } finally {
+            releaseBatchSlot();
+        }
+    }
+    
+    public Map<String, Object> getStatistics() {
+        synchronized (lock) {
+            Map<String, Object> statistics = new LinkedHashMap<>();
+            statistics.put("running_jobs", runningJobs);
+            statistics.put("max_concurrent_jobs", maxConcurrentJobs);
+            statistics.put("free_batch_slots", freeBatchSlots);
+            
+            Map<String, Long> pendingByPriority = new LinkedHashMap<>();
+            for (RefreshPriority priority : RefreshPriority.values()) {
+                pendingByPriority.put(priority.name().toLowerCase(),
+                        pendingJobs.stream().filter(pending -> pending.job().getPriority() == priority).count());
+            }
+            statistics.put("pending_jobs", pendingByPriority);
+            
+            Map<String, Object> batchesGranted = new LinkedHashMap<>();
+            for (FairShare share : shares.values()) {
+                batchesGranted.put(share.job.getId(), share.batchesGranted);
+            }
+            statistics.put("batches_granted", batchesGranted);
+            return statistics;
+        }
+    }
+    
+    private void dispatch() {
+        List<PendingJob> toStart = new ArrayList<>();
+        synchronized (lock) {
+            while (runningJobs < maxConcurrentJobs && !pendingJobs.isEmpty()) {
+                PendingJob next = Collections.min(pendingJobs, Comparator
+                        .comparing((PendingJob pending) -> pending.job().getPriority())
+                        .thenComparingLong(PendingJob::sequence));
+                pendingJobs.remove(next);
+                runningJobs++;
+                toStart.add(next);
+            }
+        }
+        
+        for (PendingJob pending : toStart) {
+            start(pending);
+        }
+    }
+    
+    private void start(PendingJob pending) {
+        try {
+            taskExecutor.execute(() -> {
+                try {
+                    pending.task().run();
+                } finally {
+                    jobFinished();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.error("Could not start refresh job {} for {}", pending.job().getId(), pending.job().getRepositoryUrl(), e);
+            jobFinished();
+            pending.onRejected().accept(e);
+        }
+    }
+    
+    private void jobFinished() {
+        synchronized (lock) {
+            runningJobs--;
+        }
+        dispatch();
+    }
+    
+    private void acquireBatchSlot(RefreshJob job) {
+        synchronized (lock) {
+            FairShare share = shares.get(job.getId());
+            if (share == null) {
+                share = new FairShare(job, virtualTime);
+                shares.put(job.getId(), share);
+                job.getCompletion().whenComplete((result, error) -> removeShare(job));
+            }
+            
+            share.waitingSince = sequence++;
+            try {
+                while (freeBatchSlots == 0 || nextWaitingShare() != share) {
+                    lock.wait();
+                }
+            } catch (InterruptedException e) {
+                share.waitingSince = -1;
+                lock.notifyAll();
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for a store batch slot", e);
+            }
+            
+            share.waitingSince = -1;
+            freeBatchSlots--;
+            virtualTime = share.pass;
+            share.pass += 1.0 / job.getPriority().getWeight();
+            share.batchesGranted++;
+            // Another slot may still be free for the next waiting job
+            lock.notifyAll();
+        }
+    }
+    
+    private void releaseBatchSlot() {
+        synchronized (lock) {
+            freeBatchSlots++;
+            lock.notifyAll();
+        }
+    }
+    
+    private FairShare nextWaitingShare() {
+        FairShare next = null;
+        for (FairShare share : shares.values()) {
+            if (share.waitingSince < 0) {
+                continue;
+            }
+            if (next == null || share.pass < next.pass
+                    || (share.pass == next.pass && share.waitingSince < next.waitingSince)) {
+                next = share;
+            }
+        }
+        return next;
+    }
+    
+    private void removeShare(RefreshJob job) {
+        synchronized (lock) {
+            shares.remove(job.getId());
+            lock.notifyAll();
+        }
+    }
+    
+    private record PendingJob(RefreshJob job, Runnable task, Consumer<RuntimeException> onRejected, long sequence) {
+    }
+    
+    private static class FairShare {
+        private final RefreshJob job;
+        private double pass;
+        private long waitingSince = -1;
+        private long batchesGranted;
+        
+        private FairShare(RefreshJob job, double pass) {
+            this.job = job;
+            this.pass = pass;
+        }
+    }
+}
\ No newline at end of file
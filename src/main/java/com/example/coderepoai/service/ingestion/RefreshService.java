@@ -1,89 +1,436 @@
 package com.example.coderepoai.service.ingestion;
 
+import com.example.coderepoai.exception.FileParseException;
+import com.example.coderepoai.exception.RefreshCancelledException;
 import com.example.coderepoai.model.CodeChunk;
 import com.example.coderepoai.repository.CodeChunkVectorStore;
+import com.example.coderepoai.repository.EmbeddingCache;
+import com.example.coderepoai.service.ingestion.lexer.SourceImport;
+import com.example.coderepoai.service.ingestion.source.FileChange;
+import com.example.coderepoai.service.ingestion.source.RepositorySource;
+import com.example.coderepoai.service.ingestion.source.SourceFile;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Service
 public class RefreshService {
     
     private static final Logger logger = LoggerFactory.getLogger(RefreshService.class);
     
-    private final RepositoryFetcher repositoryFetcher;
+    private final List<RepositorySource> repositorySources;
+    private final IndexedRevisionStore indexedRevisionStore;
     private final FileParser fileParser;
     private final CodeChunker codeChunker;
     private final CodeChunkVectorStore codeChunkVectorStore;
-
-    public RefreshService(RepositoryFetcher repositoryFetcher, 
+    private final ContentAddressedChunkStore chunkStore;
+    private final EmbeddingCache embeddingCache;
+    private final IngestionPipeline ingestionPipeline;
+    private final RefreshJobRegistry jobRegistry;
+    private final RefreshScheduler refreshScheduler;
+    
+    public RefreshService(List<RepositorySource> repositorySources,
+                         IndexedRevisionStore indexedRevisionStore,
                          FileParser fileParser,
                          CodeChunker codeChunker,
-                         CodeChunkVectorStore codeChunkVectorStore) {
-        this.repositoryFetcher = repositoryFetcher;
+                         CodeChunkVectorStore codeChunkVectorStore,
+                         ContentAddressedChunkStore chunkStore,
+                         EmbeddingCache embeddingCache,
+                         IngestionPipeline ingestionPipeline,
+                         RefreshJobRegistry jobRegistry,
+                         RefreshScheduler refreshScheduler) {
+        this.repositorySources = repositorySources;
+        this.indexedRevisionStore = indexedRevisionStore;
         this.fileParser = fileParser;
         this.codeChunker = codeChunker;
         this.codeChunkVectorStore = codeChunkVectorStore;
+        this.chunkStore = chunkStore;
+        this.embeddingCache = embeddingCache;
+        this.ingestionPipeline = ingestionPipeline;
+        this.jobRegistry = jobRegistry;
+        this.refreshScheduler = refreshScheduler;
     }
-
+    
     public void refreshRepository(String repositoryUrl) {
-        logger.info("Starting repository refresh for: {}", repositoryUrl);
+        refreshRepository(repositoryUrl, false);
+    }
+    
+    /**
+     * Refreshes a repository from any supported location: a GitHub URL, a local working
+     * directory or a local bare git repository. When the repository was indexed before and
+     * the source is versioned, only files changed since the indexed commit are re-processed.
+     *
+     * @param fullRefresh re-index everything even if an incremental refresh is possible
+     */
+    public void refreshRepository(String repositoryUrl, boolean fullRefresh) {
+        RefreshJob job = submitRefresh(repositoryUrl, fullRefresh);
+        
+        try {
+            job.getCompletion().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RefreshCancelledException cancelled) {
+                throw cancelled;
+            }
+            throw new RuntimeException("Repository refresh failed", e.getCause());
+        }
+    }
+    
+    public RefreshJob submitRefresh(String repositoryUrl, boolean fullRefresh) {
+        return submitRefresh(repositoryUrl, fullRefresh, RefreshPriority.INTERACTIVE);
+    }
+    
+    /**
+     * Queues a refresh with the {@link RefreshScheduler} and returns its job right away, so
+     * the caller can poll its progress or cancel it. Concurrent requests for the same
+     * repository are coalesced (see {@link RefreshJobRegistry#admit}), so the returned job
+     * may be shared.
+     *
+     * @throws IllegalArgumentException when no source supports the location
+     */
+    public RefreshJob submitRefresh(String repositoryUrl, boolean fullRefresh, RefreshPriority priority) {
+        resolveSource(repositoryUrl);
+        return submit(jobRegistry.admit(repositoryUrl, fullRefresh, priority));
+    }
+    
+    /**
+     * Queues an incremental refresh of files reported by push events. The change set is
+     * used as-is when the index is still at its base commit; otherwise the refresh falls
+     * back to asking the source what changed.
+     */
+    public RefreshJob submitPushedChanges(String repositoryUrl, PushedChanges pushedChanges, RefreshPriority priority) {
+        resolveSource(repositoryUrl);
+        return submit(jobRegistry.admit(repositoryUrl, false, priority, pushedChanges));
+    }
+    
+    private RefreshJob submit(RefreshJobRegistry.Admission admission) {
+        String repositoryUrl = admission.job().getRepositoryUrl();
+        
+        if (admission.start()) {
+            execute(admission.job());
+        } else {
+            logger.info("Refresh request for {} coalesced into job {}", repositoryUrl, admission.job().getId());
+        }
+        
+        return admission.job();
+    }
+    
+    private void execute(RefreshJob job) {
+        refreshScheduler.submit(job,
+                () -> {
+                    try {
+                        runJob(job, this::refresh);
+                    } catch (RuntimeException e) {
+                        // Already logged and recorded on the job
+                    } finally {
+                        startFollowUp(job);
+                    }
+                },
+                e -> {
+                    job.fail(e);
+                    startFollowUp(job);
+                });
+    }
+    
+    private void startFollowUp(RefreshJob finishedJob) {
+        RefreshJob followUp = jobRegistry.release(finishedJob);
+        if (followUp != null) {
+            logger.info("Starting follow-up refresh job {} for {}", followUp.getId(), followUp.getRepositoryUrl());
+            execute(followUp);
+        }
+    }
+    
+    private void runJob(RefreshJob job, Consumer<RefreshJob> refresh) {
+        logger.info("Starting repository refresh for: {} (job {})", job.getRepositoryUrl(), job.getId());
+        jobRegistry.start(job);
         
         try {
-            // Step 1: Clear existing data for this repository
-            logger.debug("Clearing existing data for repository: {}", repositoryUrl);
-            codeChunkVectorStore.deleteByRepositoryUrl(repositoryUrl);
+            job.checkNotCancelled();
+            refresh.accept(job);
+            job.succeed();
+            logger.info("Repository refresh completed successfully for: {}", job.getRepositoryUrl());
             
-            // Step 2: Fetch repository files
-            logger.debug("Fetching repository files...");
-            Map<String, String> rawFiles = repositoryFetcher.fetchRepositoryFiles(repositoryUrl);
-            logger.info("Fetched {} files from repository", rawFiles.size());
+        } catch (Exception e) {
+            if (job.isCancelRequested()) {
+                job.markCancelled();
+                logger.info("Refresh job {} for {} was cancelled", job.getId(), job.getRepositoryUrl());
+                throw new RefreshCancelledException("Repository refresh was cancelled: " + job.getRepositoryUrl());
+            }
             
-            if (rawFiles.isEmpty()) {
-                logger.warn("No files found in repository: {}", repositoryUrl);
+            job.fail(e);
+            logger.error("Failed to refresh repository: {}", job.getRepositoryUrl(), e);
+            throw new RuntimeException("Repository refresh failed", e);
+        }
+    }
+    
+    private void refresh(RefreshJob job) {
+        String repositoryUrl = job.getRepositoryUrl();
+        RepositorySource source = resolveSource(repositoryUrl);
+        String indexedRevision = indexedRevisionStore.getIndexedRevision(repositoryUrl).orElse(null);
+        PushedChanges pushedChanges = job.getPushedChanges();
+        
+        if (!job.isFullRefresh() && pushedChanges != null && pushedChanges.baseRevision().equals(indexedRevision)) {
+            refreshChangedFiles(job, source, pushedChanges.headRevision(), pushedChanges.changes());
+            indexedRevisionStore.setIndexedRevision(repositoryUrl, pushedChanges.headRevision());
+            return;
+        }
+        
+        String headRevision = source.resolveRevision(repositoryUrl);
+        
+        if (!job.isFullRefresh() && headRevision != null && indexedRevision != null) {
+            if (headRevision.equals(indexedRevision)) {
+                logger.info("Repository {} is already indexed at {}", repositoryUrl, headRevision);
                 return;
             }
             
-            // Step 3: Parse files
-            logger.debug("Parsing files...");
-            Map<String, String> parsedFiles = fileParser.parseFiles(rawFiles);
-            logger.info("Parsed {} files successfully", parsedFiles.size());
-            
-            // Step 4: Chunk files into smaller pieces
-            logger.debug("Chunking files...");
-            List<CodeChunk> codeChunks = codeChunker.chunkFiles(parsedFiles, repositoryUrl);
-            logger.info("Created {} code chunks", codeChunks.size());
-            
-            // Step 5: Store chunks in vector database
-            logger.debug("Storing chunks in vector database...");
-            codeChunkVectorStore.addCodeChunks(codeChunks);
-            
-            logger.info("Repository refresh completed successfully for: {}", repositoryUrl);
-            
-        } catch (Exception e) {
-            logger.error("Failed to refresh repository: {}", repositoryUrl, e);
-            throw new RuntimeException("Repository refresh failed", e);
+            List<FileChange> changes = source.listChanges(repositoryUrl, indexedRevision, headRevision);
+            if (changes != null) {
+                refreshChangedFiles(job, source, headRevision, changes);
+                indexedRevisionStore.setIndexedRevision(repositoryUrl, headRevision);
+                return;
+            }
+            logger.info("Change set for {} is unavailable, falling back to a full refresh", repositoryUrl);
         }
+        
+        // Step 1: Clear existing data for this repository
+        logger.debug("Clearing existing data for repository: {}", repositoryUrl);
+        codeChunkVectorStore.deleteByRepositoryUrl(repositoryUrl);
+        indexedRevisionStore.clear(repositoryUrl);
+        jobRegistry.getLastFileCount(repositoryUrl).ifPresent(job::setExpectedFiles);
+        
+        // Steps 2-5: Fetch, parse/chunk and store as overlapping stages
+        logger.debug("Fetching repository files from {} source...", source.getName());
+        IngestionPipeline.Result result = runPipeline(job,
+                sink -> source.fetchFiles(repositoryUrl, headRevision, sink));
+        logger.info("Fetched {} files from repository", result.fileCount());
+        
+        if (result.fileCount() == 0) {
+            logger.warn("No files found in repository: {}", repositoryUrl);
+            return;
+        }
+        logger.info("Created {} code chunks", result.chunkCount());
+        
+        indexedRevisionStore.setIndexedRevision(repositoryUrl, headRevision);
+        jobRegistry.setLastFileCount(repositoryUrl, result.fileCount());
+        logDedupeStatistics();
     }
-
-    @Async
-    public CompletableFuture<Void> refreshRepositoryAsync(String repositoryUrl) {
-        logger.info("Starting async repository refresh for: {}", repositoryUrl);
+    
+    /**
+     * Replaces the chunks of added and modified files and drops the chunks of removed
+     * and renamed-away files, leaving the rest of the index untouched.
+     */
+    private void refreshChangedFiles(RefreshJob job, RepositorySource source, String headRevision,
+                                     List<FileChange> changes) {
+        String repositoryUrl = job.getRepositoryUrl();
+        Set<String> staleFiles = new HashSet<>();
+        Set<String> filesToFetch = new LinkedHashSet<>();
         
-        try {
-            refreshRepository(repositoryUrl);
-            logger.info("Async repository refresh completed successfully for: {}", repositoryUrl);
-            return CompletableFuture.completedFuture(null);
-        } catch (Exception e) {
-            logger.error("Async repository refresh failed for: {}", repositoryUrl, e);
-            CompletableFuture<Void> future = new CompletableFuture<>();
-            future.completeExceptionally(e);
-            return future;
+        for (FileChange change : changes) {
+            if (change.previousPath() != null) {
+                staleFiles.add(change.previousPath());
+            }
+            staleFiles.add(change.path());
+            if (change.type() != FileChange.Type.REMOVED && SupportedFiles.shouldProcessFile(change.path())) {
+                filesToFetch.add(change.path());
+            }
+        }
+        
+        // Unchanged files whose chunks were collapsed into chunks of stale files lose them
+        // with those, so they are re-indexed too, which can orphan further files in turn
+        Set<String> removedFiles = new HashSet<>();
+        Set<String> filesToRemove = staleFiles;
+        while (!filesToRemove.isEmpty()) {
+            removedFiles.addAll(filesToRemove);
+            Set<String> orphanedFiles = new HashSet<>(codeChunkVectorStore.deleteByFilePaths(repositoryUrl, filesToRemove));
+            orphanedFiles.removeAll(removedFiles);
+            filesToFetch.addAll(orphanedFiles);
+            filesToRemove = orphanedFiles;
+        }
+        
+        logger.info("Incremental refresh of {}: {} changed files, {} to re-index ({} for near-duplicates of changed files)",
+                repositoryUrl, changes.size(), filesToFetch.size(), removedFiles.size() - staleFiles.size());
+        
+        if (filesToFetch.isEmpty()) {
+            return;
+        }
+        
+        job.setExpectedFiles(filesToFetch.size());
+        IngestionPipeline.Result result = runPipeline(job,
+                sink -> source.fetchFiles(repositoryUrl, headRevision, filesToFetch, sink));
+        
+        logger.info("Incremental refresh completed for {}: {} chunks re-indexed", repositoryUrl, result.chunkCount());
+        logDedupeStatistics();
+    }
+    
+    /**
+     * @return the head commit of the repository, or null when its source is not versioned
+     */
+    public String resolveHeadRevision(String repositoryUrl) {
+        return resolveSource(repositoryUrl).resolveRevision(repositoryUrl);
+    }
+    
+    public Map<String, String> getIndexedRevisions() {
+        return indexedRevisionStore.getIndexedRevisions();
+    }
+    
+    public boolean isRefreshing(String repositoryUrl) {
+        return jobRegistry.isRefreshing(repositoryUrl);
+    }
+    
+    private RepositorySource resolveSource(String location) {
+        return repositorySources.stream()
+                .filter(source -> source.supports(location))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("No repository source supports: " + location
+                        + " (local repositories must be under ingestion.local.roots)"));
+    }
+    
+    /**
+     * Runs the pipeline for a job, reporting progress at every stage and stopping at the
+     * next file or batch once the job is cancelled.
+     */
+    private IngestionPipeline.Result runPipeline(RefreshJob job, IngestionPipeline.FileProducer producer) {
+        return ingestionPipeline.run(job.getRepositoryUrl(),
+                sink -> {
+                    int fileCount = producer.produce(file -> {
+                        job.checkNotCancelled();
+                        // UTF-16 length; exact for ASCII source, close enough for throughput
+                        job.fileFetched(file.content().length());
+                        sink.accept(file);
+                    });
+                    job.fetchFinished();
+                    return fileCount;
+                },
+                file -> {
+                    job.checkNotCancelled();
+                    return parseAndChunk(job, file);
+                },
+                batch -> refreshScheduler.runBatch(job, () -> {
+                    job.checkNotCancelled();
+                    codeChunkVectorStore.addCodeChunks(batch);
+                    job.chunksEmbedded(batch.size());
+                }));
+    }
+    
+    private List<CodeChunk> parseAndChunk(RefreshJob job, SourceFile file) {
+        String repositoryUrl = job.getRepositoryUrl();
+        AtomicBoolean parsed = new AtomicBoolean();
+        
+        List<CodeChunk> chunks = chunkStore.getOrCompute(file.blobSha(), file.path(), file.content(), repositoryUrl, () -> {
+            long startTime = System.nanoTime();
+            ParsedFile parsedFile;
+            String skipReason = null;
+            try {
+                parsedFile = fileParser.parse(file.path(), file.content());
+                if (parsedFile.content().isEmpty()) {
+                    skipReason = fileParser.emptyReason(file.content());
+                }
+            } catch (FileParseException e) {
+                // One malformed file must not fail the whole refresh
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                skipReason = cause.getClass().getSimpleName() + ": " + cause.getMessage();
+                parsedFile = ParsedFile.empty(null);
+            }
+            parsed.set(true);
+            job.fileParsed();
+            if (skipReason != null) {
+                job.fileSkipped(new SkippedFile(file.path(), skipReason, (System.nanoTime() - startTime) / 1000));
+                return List.of();
+            }
+            List<CodeChunk> fileChunks = codeChunker.chunkFile(file.path(), parsedFile, repositoryUrl);
+            addImportMetadata(fileChunks, parsedFile);
+            return fileChunks;
+        });
+        
+        if (!parsed.get()) {
+            // Served from the chunk store, so parsing and chunking were both skipped
+            job.fileParsed();
         }
+        job.fileChunked(chunks.size());
+        return chunks;
+    }
+    
+    /**
+     * Imports were stripped from the content, so they travel as metadata of every chunk of
+     * the file instead, where they can be filtered on without costing embedding tokens.
+     */
+    private void addImportMetadata(List<CodeChunk> chunks, ParsedFile parsedFile) {
+        if (parsedFile.imports().isEmpty()) {
+            return;
+        }
+        
+        String modules = parsedFile.imports().stream()
+                .map(SourceImport::module)
+                .distinct()
+                .collect(Collectors.joining(","));
+        for (CodeChunk chunk : chunks) {
+            chunk.getMetadata().put("imports", modules);
+        }
+    }
+    
+    /**
+     * Hit ratios of the blob-level chunk cache and the chunk-level embedding cache, and the
+     * embeddings avoided by collapsing near-duplicate chunks.
+     */
+    public Map<String, Object> getDedupeStatistics() {
+        return Map.of(
+            "chunks", chunkStore.getStatistics(),
+            "embeddings", embeddingCache.getStatistics(),
+            "near_duplicates", codeChunkVectorStore.getNearDuplicateStatistics()
+        );
+    }
+    
+    private void logDedupeStatistics() {
+        logger.info("Dedupe statistics: chunks {}, embeddings {}, near-duplicates {}",
+                chunkStore.getStatistics(), embeddingCache.getStatistics(),
+                codeChunkVectorStore.getNearDuplicateStatistics());
+    }
+    
+    public CompletableFuture<Void> refreshRepositoryAsync(String repositoryUrl) {
+        return refreshRepositoryAsync(repositoryUrl, false);
+    }
+    
+    public CompletableFuture<Void> refreshRepositoryAsync(String repositoryUrl, boolean fullRefresh) {
+        return submitRefresh(repositoryUrl, fullRefresh).getCompletion();
+    }
+    
+    public Optional<RefreshJob> getJob(String jobId) {
+        return jobRegistry.get(jobId);
+    }
+    
+    public List<RefreshJob> getActiveJobs() {
+        return jobRegistry.getActiveJobs();
+    }
+    
+    public Map<String, Object> getCoalescingStatistics() {
+        return jobRegistry.getCoalescingStatistics();
+    }
+    
+    public Map<String, Object> getSchedulerStatistics() {
+        return refreshScheduler.getStatistics();
+    }
+    
+    public Map<String, Object> getChunkingStatistics() {
+        return codeChunker.getStatistics();
+    }
+    
+    /**
+     * How much of the index coarse-to-fine searches compared with their queries.
+     */
+    public Map<String, Object> getSearchStatistics() {
+        return codeChunkVectorStore.getSearchStatistics();
+    }
+    
+    /**
+     * @return false when the job does not exist or has already finished
+     */
+    public boolean cancelJob(String jobId) {
+        return jobRegistry.get(jobId).map(RefreshJob::cancel).orElse(false);
     }
 }
\ No newline at end of file
@@ -0,0 +1,308 @@
+package com.example.coderepoai.service.ingestion;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Streams repository archives (GitHub tarballs or local archive files) entry by entry
+ * without extracting them to disk or holding the whole archive in memory.
+ */
+@Component
+public class RepositoryArchiveReader {
+    
+    private static final Logger logger = LoggerFactory.getLogger(RepositoryArchiveReader.class);
+    
+    private static final int TAR_BLOCK_SIZE = 512;
+    
+    public static boolean isArchiveFile(Path file) {
+        String fileName = file.getFileName().toString().toLowerCase();
+        return fileName.endsWith(".zip") || fileName.endsWith(".tar.gz") || fileName.endsWith(".tgz");
+    }
+    
+    /**
+     * Reads a local .zip, .tar.gz or .tgz archive. Entries are named relative to the single
+     * directory that wraps all of them, if there is one, as in archives created from a
+     * checkout or downloaded from a code host; otherwise their names are kept as they are.
+     */
+    public int readArchiveFile(Path archiveFile, Predicate<String> pathFilter, BiConsumer<String, String> consumer) throws IOException {
+        if (!isArchiveFile(archiveFile)) {
+            throw new IllegalArgumentException("Unsupported archive format: " + archiveFile);
+        }
+        boolean zip = archiveFile.getFileName().toString().toLowerCase().endsWith(".zip");
+        
+        // Needs all entry names up front: the zip central directory, or a pass over the tar headers
+        String root = zip ? commonRootDirectory(zipEntryNames(archiveFile)) : commonRootDirectory(tarEntryNames(archiveFile));
+        UnaryOperator<String> toPath = name -> name.startsWith(root) ? name.substring(root.length()) : name;
+        
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(archiveFile))) {
+            return zip
+                    ? readZip(in, toPath, pathFilter, consumer)
+                    : readTar(new GZIPInputStream(in, 64 * 1024), toPath, pathFilter, consumer);
+        }
+    }
+    
+    /**
+     * Reads a GitHub tarball, which wraps every entry in a single "owner-repo-sha/" directory.
+     */
+    public int readTarGz(InputStream in, Predicate<String> pathFilter, BiConsumer<String, String> consumer) throws IOException {
+        return readTar(new GZIPInputStream(in, 64 * 1024), RepositoryArchiveReader::stripFirstDirectory, pathFilter, consumer);
+    }
+    
+    private int readZip(InputStream in, UnaryOperator<String> toPath, Predicate<String> pathFilter,
+                        BiConsumer<String, String> consumer) throws IOException {
+        int entryCount = 0;
+        ZipInputStream zip = new ZipInputStream(in, StandardCharsets.UTF_8);
+        
+        ZipEntry entry;
+        while ((entry = zip.getNextEntry()) != null) {
+            if (entry.isDirectory()) {
+                continue;
+            }
+            
+            String path = toPath.apply(entry.getName());
+            if (path.isEmpty() || !pathFilter.test(path)) {
+                continue;
+            }
+            
+            consumer.accept(path, new String(zip.readAllBytes(), StandardCharsets.UTF_8));
+            entryCount++;
+        }
+        
+        return entryCount;
+    }
+    
+    private int readTar(InputStream tar, UnaryOperator<String> toPath, Predicate<String> pathFilter,
+                        BiConsumer<String, String> consumer) throws IOException {
+        int entryCount = forEachTarEntry(tar,
+                name -> {
+                    String path = toPath.apply(name);
+                    return !path.isEmpty() && pathFilter.test(path);
+                },
+                (name, data) -> consumer.accept(toPath.apply(name), new String(data, StandardCharsets.UTF_8)));
+        
+        logger.debug("Read {} entries from tar archive", entryCount);
+        return entryCount;
+    }
+    
+    /**
+     * Walks the regular file entries of a tar stream, reading the content of those the filter
+     * accepts and skipping the rest.
+     *
+     * @return number of entries read
+     */
+    private int forEachTarEntry(InputStream tar, Predicate<String> nameFilter, BiConsumer<String, byte[]> consumer) throws IOException {
+        int entryCount = 0;
+        byte[] header = new byte[TAR_BLOCK_SIZE];
+        String pendingLongName = null;
+        
+        while (true) {
+            int read = tar.readNBytes(header, 0, TAR_BLOCK_SIZE);
+            if (read < TAR_BLOCK_SIZE || isZeroBlock(header)) {
+                break;
+            }
+            
+            String name = readString(header, 0, 100);
+            long size = readSize(header, 124, 12);
+            char type = (char) header[156];
+            String prefix = readString(header, 345, 155);
+            if (!prefix.isEmpty() && isUstar(header)) {
+                name = prefix + "/" + name;
+            }
+            
+            switch (type) {
+                case 'L': // GNU long name for the next entry
+                    pendingLongName = readString(readData(tar, size), 0, (int) size);
+                    continue;
+                case 'x': // PAX extended header for the next entry
+                    String paxPath = readPaxPath(readData(tar, size));
+                    if (paxPath != null) {
+                        pendingLongName = paxPath;
+                    }
+                    continue;
+                case '0':
+                case '\0':
+                    break;
+                default:
+                    // Directories, links and global PAX headers carry no file content
+                    skipData(tar, size);
+                    pendingLongName = null;
+                    continue;
+            }
+            
+            if (pendingLongName != null) {
+                name = pendingLongName;
+                pendingLongName = null;
+            }
+            
+            if (!nameFilter.test(name)) {
+                skipData(tar, size);
+                continue;
+            }
+            
+            consumer.accept(name, readData(tar, size));
+            entryCount++;
+        }
+        
+        return entryCount;
+    }
+    
+    private List<String> zipEntryNames(Path archiveFile) throws IOException {
+        try (ZipFile zipFile = new ZipFile(archiveFile.toFile(), StandardCharsets.UTF_8)) {
+            return zipFile.stream()
+                    .filter(entry -> !entry.isDirectory())
+                    .map(ZipEntry::getName)
+                    .toList();
+        }
+    }
+    
+    private List<String> tarEntryNames(Path archiveFile) throws IOException {
+        List<String> names = new ArrayList<>();
+        try (InputStream in = new GZIPInputStream(new BufferedInputStream(Files.newInputStream(archiveFile)), 64 * 1024)) {
+            forEachTarEntry(in, name -> {
+                names.add(name);
+                return false;
+            }, (name, data) -> { });
+        }
+        return names;
+    }
+    
+    /**
+     * @return the top-level directory (with its trailing slash) shared by every file entry,
+     *         or an empty string when entries lie at the top level or in different directories
+     */
+    static String commonRootDirectory(List<String> names) {
+        String root = null;
+        for (String name : names) {
+            int slash = name.indexOf('/');
+            if (slash <= 0) {
+                return "";
+            }
+            if (root == null) {
+                root = name.substring(0, slash + 1);
+            } else if (!name.startsWith(root)) {
+                return "";
+            }
+        }
+        return root != null ? root : "";
+    }
+    
+    private static String stripFirstDirectory(String name) {
+        int slash = name.indexOf('/');
+        if (slash < 0) {
+            return name;
+        }
+        return name.substring(slash + 1);
+    }
+    
+    private byte[] readData(InputStream tar, long size) throws IOException {
+        if (size > Integer.MAX_VALUE - TAR_BLOCK_SIZE) {
+            throw new IOException("Tar entry too large: " + size + " bytes");
+        }
+        
+        byte[] data = tar.readNBytes((int) size);
+        if (data.length < size) {
+            throw new IOException("Unexpected end of tar archive");
+        }
+        tar.skipNBytes(padding(size));
+        return data;
+    }
+    
+    private void skipData(InputStream tar, long size) throws IOException {
+        tar.skipNBytes(size + padding(size));
+    }
+    
+    private long padding(long size) {
+        long remainder = size % TAR_BLOCK_SIZE;
+        return remainder == 0 ? 0 : TAR_BLOCK_SIZE - remainder;
+    }
+    
+    private String readPaxPath(byte[] paxData) {
+        // Records look like "<length> <key>=<value>\n"
+        String records = new String(paxData, StandardCharsets.UTF_8);
+        for (String record : records.split("\n")) {
+            int space = record.indexOf(' ');
+            if (space > 0 && record.startsWith("path=", space + 1)) {
+                return record.substring(space + 1 + "path=".length());
+            }
+        }
+        return null;
+    }
+    
+    private boolean isZeroBlock(byte[] block) {
+        for (byte b : block) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private boolean isUstar(byte[] header) {
+        return header[257] == 'u' && header[258] == 's' && header[259] == 't'
+                && header[260] == 'a' && header[261] == 'r';
+    }
+    
+    private String readString(byte[] buffer, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && end < buffer.length && buffer[end] != 0) {
+            end++;
+        }
+        return new String(buffer, offset, end - offset, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Reads a numeric header field: octal digits, or for values that do not fit them (files
+     * of 8 GiB or more) the GNU base-256 form, flagged by the high bit of the first byte.
+     */
+    private long readSize(byte[] buffer, int offset, int length) throws IOException {
+        byte first = buffer[offset];
+        if ((first & 0x80) == 0) {
+            return readOctal(buffer, offset, length);
+        }
+        if (first != (byte) 0x80) {
+            // 0xff starts a negative number, anything else is not a size
+            throw new IOException("Invalid base-256 tar entry size");
+        }
+        
+        long value = 0;
+        for (int i = offset + 1; i < offset + length; i++) {
+            if ((value >>> 55) != 0) {
+                throw new IOException("Tar entry size out of range");
+            }
+            value = (value << 8) | (buffer[i] & 0xff);
+        }
+        return value;
+    }
+    
+    private long readOctal(byte[] buffer, int offset, int length) {
+        long value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            byte b = buffer[i];
+            if (b == 0 || b == ' ') {
+                if (value > 0) {
+                    break;
+                }
+                continue;
+            }
+            value = (value << 3) + (b - '0');
+        }
+        return value;
+    }
+}
\ No newline at end of file
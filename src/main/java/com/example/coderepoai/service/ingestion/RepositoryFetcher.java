@@ -1,108 +1,349 @@
 package com.example.coderepoai.service.ingestion;
 
 import com.example.coderepoai.exception.RepositoryFetchException;
+import com.example.coderepoai.service.github.GitHubRequestScheduler;
+import com.example.coderepoai.service.github.GitHubRequestScheduler.GitHubCall;
+import com.example.coderepoai.service.github.GitHubRequestScheduler.Priority;
+import com.example.coderepoai.service.ingestion.source.FileChange;
+import com.example.coderepoai.service.ingestion.source.SourceFile;
 import org.kohsuke.github.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 @Service
 public class RepositoryFetcher {
     
     private static final Logger logger = LoggerFactory.getLogger(RepositoryFetcher.class);
     
+    private static final String FETCH_MODE_TREE = "tree";
+    private static final String FETCH_MODE_ARCHIVE = "archive";
+    
+    // The compare API lists at most 300 changed files; a full list may be longer
+    private static final int MAX_COMPARE_FILES = 300;
+    
     private final GitHub github;
+    private final GitHubRequestScheduler scheduler;
+    private final RepositoryArchiveReader archiveReader;
+    private final String fetchMode;
+    private final int fetchConcurrency;
+    private final Executor ioExecutor;
+    private final Map<String, GHRepository> repositoryHandles = new ConcurrentHashMap<>();
     
-    public RepositoryFetcher(@Value("${github.token:}") String githubToken) {
+    public RepositoryFetcher(GitHub github,
+                             GitHubRequestScheduler scheduler,
+                             @Value("${github.fetch.mode:tree}") String fetchMode,
+                             @Value("${github.fetch.concurrency:8}") int fetchConcurrency,
+                             RepositoryArchiveReader archiveReader,
+                             @Qualifier("ioExecutor") Executor ioExecutor) {
+        this.github = github;
+        this.scheduler = scheduler;
+        this.archiveReader = archiveReader;
+        this.fetchMode = fetchMode;
+        this.fetchConcurrency = Math.max(1, fetchConcurrency);
+        this.ioExecutor = ioExecutor;
+    }
+    
+    /**
+     * Streams every supported file of the repository at the given ref (default branch when null)
+     * to the consumer. In tree mode the consumer is invoked from the blob download threads.
+     *
+     * @return number of files fetched
+     */
+    public int fetchRepositoryFiles(String repositoryUrl, String ref, Consumer<SourceFile> consumer) {
         try {
-            // Try Spring property first, then environment variable
-            String token = githubToken;
-            if (token == null || token.trim().isEmpty()) {
-                token = System.getenv("GITHUB_TOKEN");
+            String repoPath = extractRepoPathFromUrl(repositoryUrl);
+            GHRepository repository = bulk(() -> github.getRepository(repoPath));
+            String revision = ref != null ? ref : repository.getDefaultBranch();
+            
+            if (FETCH_MODE_TREE.equalsIgnoreCase(fetchMode)) {
+                return fetchFilesFromTree(repository, revision, consumer);
             }
             
-            if (token == null || token.trim().isEmpty()) {
-                this.github = GitHub.connectAnonymously();
-                logger.warn("Using anonymous GitHub connection - rate limits will be stricter");
-            } else {
-                this.github = GitHub.connectUsingOAuth(token);
-                logger.info("Connected to GitHub using OAuth token");
+            return fetchFilesRecursively(repository, "", revision, consumer);
+        } catch (IOException e) {
+            throw new RepositoryFetchException("Failed to fetch repository: " + repositoryUrl, e);
+        }
+    }
+    
+    /**
+     * Fetches only the given paths at the given ref, used by incremental refreshes.
+     */
+    public int fetchRepositoryFiles(String repositoryUrl, String ref, Collection<String> paths, Consumer<SourceFile> consumer) {
+        try {
+            String repoPath = extractRepoPathFromUrl(repositoryUrl);
+            GHRepository repository = bulk(() -> github.getRepository(repoPath));
+            
+            long startTime = System.nanoTime();
+            int fileCount = downloadInParallel(repository, new ArrayList<>(paths), path -> path, path -> {
+                GHContent content = bulk(() -> repository.getFileContent(path, ref));
+                byte[] bytes = bulk(() -> {
+                    try (InputStream in = content.read()) {
+                        return in.readAllBytes();
+                    }
+                });
+                consumer.accept(new SourceFile(path, new String(bytes, StandardCharsets.UTF_8), content.getSha()));
+            });
+            
+            logger.info("Fetched {} of {} changed files from {} in {} ms", fileCount, paths.size(), repoPath,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+            return fileCount;
+        } catch (IOException e) {
+            throw new RepositoryFetchException("Failed to fetch files from repository: " + repositoryUrl, e);
+        }
+    }
+    
+    /**
+     * Returns the commit SHA at the head of the default branch. The repository handle is
+     * remembered, so repeated checks cost one branch request each, which the response
+     * cache turns into a conditional request that does not count against the rate limit
+     * while the branch is unchanged.
+     */
+    public String resolveHeadRevision(String repositoryUrl) {
+        String repoPath = extractRepoPathFromUrl(repositoryUrl);
+        try {
+            GHRepository repository = repositoryHandles.get(repoPath);
+            if (repository == null) {
+                repository = bulk(() -> github.getRepository(repoPath));
+                repositoryHandles.put(repoPath, repository);
             }
+            GHRepository handle = repository;
+            return bulk(() -> handle.getBranch(handle.getDefaultBranch())).getSHA1();
         } catch (IOException e) {
-            throw new RepositoryFetchException("Failed to connect to GitHub", e);
+            // The repository may have been renamed or its default branch changed
+            repositoryHandles.remove(repoPath);
+            throw new RepositoryFetchException("Failed to resolve head of repository: " + repositoryUrl, e);
         }
     }
-
-    public Map<String, String> fetchRepositoryFiles(String repositoryUrl) {
+    
+    /**
+     * Lists files changed between two commits, or returns null when the change set cannot be
+     * derived reliably (history rewritten or more files than the compare API reports).
+     */
+    public List<FileChange> compareRevisions(String repositoryUrl, String baseRevision, String headRevision) {
+        try {
+            GHRepository repository = bulk(() -> github.getRepository(extractRepoPathFromUrl(repositoryUrl)));
+            GHCompare compare = bulk(() -> repository.getCompare(baseRevision, headRevision));
+            
+            if (compare.getStatus() == GHCompare.Status.behind || compare.getStatus() == GHCompare.Status.diverged) {
+                logger.info("Head of {} is {} the indexed revision", repositoryUrl, compare.getStatus());
+                return null;
+            }
+            
+            GHCommit.File[] files = compare.getFiles();
+            if (files.length >= MAX_COMPARE_FILES) {
+                logger.info("Compare for {} lists {} files, change set may be incomplete", repositoryUrl, files.length);
+                return null;
+            }
+            
+            List<FileChange> changes = new ArrayList<>(files.length);
+            for (GHCommit.File file : files) {
+                changes.add(toFileChange(file));
+            }
+            return changes;
+        } catch (IOException e) {
+            throw new RepositoryFetchException("Failed to compare revisions of repository: " + repositoryUrl, e);
+        }
+    }
+    
+    private FileChange toFileChange(GHCommit.File file) {
+        switch (file.getStatus()) {
+            case "added":
+            case "copied":
+                return new FileChange(FileChange.Type.ADDED, file.getFileName(), null);
+            case "removed":
+                return new FileChange(FileChange.Type.REMOVED, file.getFileName(), null);
+            case "renamed":
+                return new FileChange(FileChange.Type.RENAMED, file.getFileName(), file.getPreviousFilename());
+            default:
+                return new FileChange(FileChange.Type.MODIFIED, file.getFileName(), null);
+        }
+    }
+    
+    public boolean isArchiveMode() {
+        return FETCH_MODE_ARCHIVE.equalsIgnoreCase(fetchMode);
+    }
+    
+    /**
+     * Downloads the repository as a single tarball for the given ref (default branch when null)
+     * and hands each supported file to the consumer while the archive is still being decompressed.
+     */
+    public int streamRepositoryArchive(String repositoryUrl, String ref, BiConsumer<String, String> consumer) {
         try {
             String repoPath = extractRepoPathFromUrl(repositoryUrl);
-            GHRepository repository = github.getRepository(repoPath);
+            GHRepository repository = bulk(() -> github.getRepository(repoPath));
             
-            Map<String, String> files = new HashMap<>();
-            fetchFilesRecursively(repository, "", files);
+            long startTime = System.nanoTime();
+            int entryCount = bulk(() -> repository.readTar(
+                    in -> archiveReader.readTarGz(in, SupportedFiles::shouldProcessFile, consumer),
+                    ref));
             
-            return files;
+            logger.info("Streamed {} files from {} archive in {} ms", entryCount, repoPath,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+            return entryCount;
         } catch (IOException e) {
-            throw new RepositoryFetchException("Failed to fetch repository: " + repositoryUrl, e);
+            throw new RepositoryFetchException("Failed to download archive for repository: " + repositoryUrl, e);
         }
     }
-
-    private void fetchFilesRecursively(GHRepository repository, String path, Map<String, String> files) throws IOException {
-        List<GHContent> contents = repository.getDirectoryContent(path);
+    
+    /**
+     * Lists the whole repository with a single recursive Git Trees call and then
+     * downloads the matching blobs with a bounded pool of parallel requests.
+     */
+    private int fetchFilesFromTree(GHRepository repository, String revision, Consumer<SourceFile> consumer) throws IOException {
+        long startTime = System.nanoTime();
+        
+        GHTree tree = bulk(() -> repository.getTreeRecursive(revision, 1));
+        if (tree.isTruncated()) {
+            // GitHub caps recursive trees at 100k entries; walk the directories instead
+            logger.warn("Git tree for {} is truncated, falling back to directory listing", repository.getFullName());
+            return fetchFilesRecursively(repository, "", revision, consumer);
+        }
+        
+        List<GHTreeEntry> blobs = new ArrayList<>();
+        for (GHTreeEntry entry : tree.getTree()) {
+            if ("blob".equals(entry.getType()) && SupportedFiles.shouldProcessFile(entry.getPath())) {
+                blobs.add(entry);
+            }
+        }
+        long listedTime = System.nanoTime();
+        
+        AtomicLong totalBytes = new AtomicLong();
+        int fileCount = downloadInParallel(repository, blobs, GHTreeEntry::getPath, entry -> {
+            byte[] bytes = bulk(() -> {
+                try (InputStream in = entry.readAsBlob()) {
+                    return in.readAllBytes();
+                }
+            });
+            consumer.accept(new SourceFile(entry.getPath(), new String(bytes, StandardCharsets.UTF_8), entry.getSha()));
+            totalBytes.addAndGet(bytes.length);
+        });
+        
+        long finishedTime = System.nanoTime();
+        logger.info("Fetched {} of {} tree entries ({} bytes) from {}: tree listing {} ms, blob download {} ms (concurrency {})",
+                fileCount, tree.getTree().size(), totalBytes.get(), repository.getFullName(),
+                TimeUnit.NANOSECONDS.toMillis(listedTime - startTime),
+                TimeUnit.NANOSECONDS.toMillis(finishedTime - listedTime),
+                fetchConcurrency);
+        
+        return fileCount;
+    }
+    
+    /**
+     * Runs one download per item on the shared I/O executor, with at most fetchConcurrency
+     * downloads of this fetch in flight. A failed download is logged and skipped. Any other
+     * failure, e.g. the consumer rejecting a file of a cancelled refresh, stops the fetch:
+     * no further downloads are submitted and those not started yet are skipped.
+     *
+     * @return number of successful downloads
+     */
+    private <T> int downloadInParallel(GHRepository repository, List<T> items, Function<T, String> pathOf, Download<T> download) {
+        AtomicInteger successCount = new AtomicInteger();
+        // Permits are taken before submitting, so a platform pool never parks threads waiting for one
+        Semaphore permits = new Semaphore(fetchConcurrency);
+        List<CompletableFuture<Void>> downloads = new ArrayList<>(items.size());
+        // Cancelling a runAsync future does not interrupt its task, so tasks and the submit loop check this
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        
+        try {
+            for (T item : items) {
+                permits.acquire();
+                if (failure.get() != null) {
+                    permits.release();
+                    break;
+                }
+                try {
+                    downloads.add(CompletableFuture.runAsync(() -> {
+                        try {
+                            if (failure.get() != null) {
+                                return;
+                            }
+                            download.run(item);
+                            successCount.incrementAndGet();
+                            logger.debug("Fetched file: {}", pathOf.apply(item));
+                        } catch (IOException e) {
+                            logger.warn("Failed to fetch content for file: {}", pathOf.apply(item), e);
+                        } catch (RuntimeException | Error e) {
+                            failure.compareAndSet(null, e);
+                            throw e;
+                        } finally {
+                            permits.release();
+                        }
+                    }, ioExecutor));
+                } catch (RejectedExecutionException e) {
+                    permits.release();
+                    throw e;
+                }
+            }
+            
+            for (CompletableFuture<Void> future : downloads) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            downloads.forEach(future -> future.cancel(true));
+            throw new RepositoryFetchException("Interrupted while fetching repository: " + repository.getFullName(), e);
+        } catch (ExecutionException e) {
+            downloads.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                // Raised by the consumer, e.g. a cancelled refresh; report it as is
+                throw runtimeException;
+            }
+            throw new RepositoryFetchException("Failed to fetch repository: " + repository.getFullName(), e.getCause());
+        }
+        
+        return successCount.get();
+    }
+    
+    private int fetchFilesRecursively(GHRepository repository, String path, String revision, Consumer<SourceFile> consumer) throws IOException {
+        List<GHContent> contents = bulk(() -> repository.getDirectoryContent(path, revision));
+        int fileCount = 0;
         
         for (GHContent content : contents) {
             if (content.isFile()) {
                 String filename = content.getName().toLowerCase();
-                if (shouldProcessFile(filename)) {
+                if (SupportedFiles.shouldProcessFile(filename)) {
                     try {
-                        String fileContent = content.getContent();
-                        files.put(content.getPath(), fileContent);
+                        String fileContent = bulk(content::getContent);
+                        consumer.accept(new SourceFile(content.getPath(), fileContent, content.getSha()));
+                        fileCount++;
                         logger.debug("Fetched file: {}", content.getPath());
                     } catch (IOException e) {
                         logger.warn("Failed to fetch content for file: {}", content.getPath(), e);
                     }
                 }
             } else if (content.isDirectory()) {
-                fetchFilesRecursively(repository, content.getPath(), files);
+                fileCount += fetchFilesRecursively(repository, content.getPath(), revision, consumer);
             }
         }
-    }
-
-    private boolean shouldProcessFile(String filename) {
-        if (filename == null || filename.isEmpty()) return false;
-        
-        String lowerName = filename.toLowerCase();
-        
-        // Common code file extensions
-        Set<String> supportedExtensions = Set.of(
-            ".java", ".js", ".ts", ".py", ".cpp", ".c", ".h", ".hpp",
-            ".cs", ".go", ".rs", ".php", ".rb", ".swift", ".kt",
-            ".scala", ".clj", ".hs", ".ml", ".r", ".sql", ".md",
-            ".txt", ".json", ".yml", ".yaml", ".xml", ".gradle",
-            ".properties", ".proto", ".sh", ".bash", ".css", ".html"
-        );
         
-        // Check file extensions
-        if (supportedExtensions.stream().anyMatch(lowerName::endsWith)) {
-            return true;
-        }
-        
-        // Check for common files without extensions
-        Set<String> commonFiles = Set.of(
-            "readme", "license", "dockerfile", "makefile", "rakefile",
-            "gemfile", "requirements", "package", "composer", "gulpfile"
-        );
-        
-        return commonFiles.stream().anyMatch(lowerName::startsWith);
+        return fileCount;
     }
-
+    
+    /**
+     * Ingestion traffic is bulk: it yields to pull request review calls when the rate limit runs low.
+     */
+    private <T> T bulk(GitHubCall<T> call) throws IOException {
+        return scheduler.execute(Priority.BULK, call);
+    }
+    
     private String extractRepoPathFromUrl(String repositoryUrl) {
         // Extract owner/repo from GitHub URL
-        // Examples: 
+        // Examples:
         // https://github.com/owner/repo -> owner/repo
         // https://github.com/owner/repo.git -> owner/repo
         String cleanUrl = repositoryUrl.replace("https://github.com/", "").replace(".git", "");
@@ -111,4 +352,9 @@ public class RepositoryFetcher {
         }
         throw new IllegalArgumentException("Invalid GitHub repository URL: " + repositoryUrl);
     }
+    
+    @FunctionalInterface
+    private interface Download<T> {
+        void run(T item) throws IOException;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,154 @@
+package com.example.coderepoai.service.ingestion;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps indexed repositories current without manual refreshes. Every tick it checks the
+ * head of each repository that is due and submits an incremental refresh at
+ * {@link RefreshPriority#SCHEDULED} priority only when the head moved.
+ * <p>
+ * The polling interval adapts per repository: it halves when a check finds new commits and
+ * grows by half when it does not, bounded by the configured minimum and maximum. Active
+ * repositories are therefore checked every few minutes while dormant ones drift towards
+ * the maximum interval and stop spending rate limit.
+ */
+@Component
+public class RepositorySyncPoller {
+    
+    private static final Logger logger = LoggerFactory.getLogger(RepositorySyncPoller.class);
+    
+    private static final double BACKOFF_FACTOR = 1.5;
+    
+    private final RefreshService refreshService;
+    private final Clock clock;
+    private final boolean enabled;
+    private final Duration minInterval;
+    private final Duration maxInterval;
+    private final Duration initialInterval;
+    
+    private final Map<String, SyncState> states = new ConcurrentHashMap<>();
+    
+    @Autowired
+    public RepositorySyncPoller(RefreshService refreshService,
+                                @Value("${ingestion.sync.enabled:true}") boolean enabled,
+                                @Value("${ingestion.sync.min-interval-seconds:60}") long minIntervalSeconds,
+                                @Value("${ingestion.sync.max-interval-seconds:21600}") long maxIntervalSeconds,
+                                @Value("${ingestion.sync.initial-interval-seconds:300}") long initialIntervalSeconds) {
+        this(refreshService, Clock.systemUTC(), enabled, minIntervalSeconds, maxIntervalSeconds, initialIntervalSeconds);
+    }
+    
+    RepositorySyncPoller(RefreshService refreshService, Clock clock, boolean enabled, long minIntervalSeconds,
+                         long maxIntervalSeconds, long initialIntervalSeconds) {
+        this.refreshService = refreshService;
+        this.clock = clock;
+        this.enabled = enabled;
+        this.minInterval = Duration.ofSeconds(Math.max(1, minIntervalSeconds));
+        this.maxInterval = Duration.ofSeconds(Math.max(minIntervalSeconds, maxIntervalSeconds));
+        this.initialInterval = clamp(Duration.ofSeconds(initialIntervalSeconds));
+    }
+    
+    @Scheduled(fixedDelayString = "${ingestion.sync.tick-ms:15000}", initialDelayString = "${ingestion.sync.tick-ms:15000}")
+    public void pollDueRepositories() {
+        if (!enabled) {
+            return;
+        }
+        
+        Map<String, String> indexedRevisions = refreshService.getIndexedRevisions();
+        // Repositories that were dropped or failed a full refresh are no longer tracked
+        states.keySet().retainAll(indexedRevisions.keySet());
+        
+        Instant now = clock.instant();
+        indexedRevisions.forEach((repositoryUrl, indexedRevision) -> {
+            SyncState state = states.computeIfAbsent(repositoryUrl, url -> new SyncState(initialInterval, now));
+            if (now.isBefore(state.nextCheckAt) || refreshService.isRefreshing(repositoryUrl)) {
+                return;
+            }
+            poll(repositoryUrl, indexedRevision, state, now);
+        });
+    }
+    
+    private void poll(String repositoryUrl, String indexedRevision, SyncState state, Instant now) {
+        state.checks++;
+        state.lastCheckAt = now;
+        
+        try {
+            String headRevision = refreshService.resolveHeadRevision(repositoryUrl);
+            if (headRevision == null || headRevision.equals(indexedRevision)) {
+                state.interval = clamp(Duration.ofMillis((long) (state.interval.toMillis() * BACKOFF_FACTOR)));
+            } else {
+                logger.info("Repository {} moved from {} to {}, scheduling incremental refresh",
+                        repositoryUrl, indexedRevision, headRevision);
+                state.changes++;
+                state.lastChangeAt = now;
+                state.interval = clamp(state.interval.dividedBy(2));
+                refreshService.submitRefresh(repositoryUrl, false, RefreshPriority.SCHEDULED);
+            }
+        } catch (RuntimeException e) {
+            // Back off as if nothing changed, so an unreachable repository does not burn rate limit
+            state.failures++;
+            state.interval = clamp(Duration.ofMillis((long) (state.interval.toMillis() * BACKOFF_FACTOR)));
+            logger.warn("Could not check head of {}: {}", repositoryUrl, e.getMessage());
+        }
+        
+        state.nextCheckAt = now.plus(state.interval);
+    }
+    
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> repositories = new TreeMap<>();
+        states.forEach((repositoryUrl, state) -> {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("interval_seconds", state.interval.toSeconds());
+            entry.put("next_check_at", state.nextCheckAt.toString());
+            entry.put("last_check_at", state.lastCheckAt != null ? state.lastCheckAt.toString() : null);
+            entry.put("last_change_at", state.lastChangeAt != null ? state.lastChangeAt.toString() : null);
+            entry.put("checks", state.checks);
+            entry.put("changes", state.changes);
+            entry.put("failures", state.failures);
+            repositories.put(repositoryUrl, entry);
+        });
+        
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("enabled", enabled);
+        statistics.put("min_interval_seconds", minInterval.toSeconds());
+        statistics.put("max_interval_seconds", maxInterval.toSeconds());
+        statistics.put("repositories", repositories);
+        return statistics;
+    }
+    
+    private Duration clamp(Duration interval) {
+        if (interval.compareTo(minInterval) < 0) {
+            return minInterval;
+        }
+        if (interval.compareTo(maxInterval) > 0) {
+            return maxInterval;
+        }
+        return interval;
+    }
+    
+    // Only touched from the scheduling thread; read for statistics
+    private static class SyncState {
+        private volatile Duration interval;
+        private volatile Instant nextCheckAt;
+        private volatile Instant lastCheckAt;
+        private volatile Instant lastChangeAt;
+        private volatile long checks;
+        private volatile long changes;
+        private volatile long failures;
+        
+        private SyncState(Duration interval, Instant now) {
+            this.interval = interval;
+            this.nextCheckAt = now.plus(interval);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,11 @@
+package com.example.coderepoai.service.ingestion;
+
+/**
+ * A file that was left out of a refresh, why, and how long parsing it took.
+ */
+public record SkippedFile(String path, String reason, long elapsedMicros) {
+    
+    public static final String REASON_EMPTY = "empty";
+    public static final String REASON_BINARY = "binary";
+    public static final String REASON_NO_CODE = "nothing left after stripping comments";
+}
\ No newline at end of file
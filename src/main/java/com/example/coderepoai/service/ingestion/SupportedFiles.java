@@ -0,0 +1,50 @@
+package com.example.coderepoai.service.ingestion;
+
+import java.util.Set;
+
+/**
+ * Decides which repository files are worth indexing. Shared by every repository source
+ * so GitHub, archive and local ingestion all pick up the same set of files.
+ */
+public final class SupportedFiles {
+    
+    // Common code file extensions
+    private static final Set<String> SUPPORTED_EXTENSIONS = Set.of(
+        ".java", ".js", ".ts", ".py", ".cpp", ".c", ".h", ".hpp",
+        ".cs", ".go", ".rs", ".php", ".rb", ".swift", ".kt",
+        ".scala", ".clj", ".hs", ".ml", ".r", ".sql", ".md",
+        ".txt", ".json", ".yml", ".yaml", ".xml", ".gradle",
+        ".properties", ".proto", ".sh", ".bash", ".css", ".html"
+    );
+    
+    // Common files without extensions
+    private static final Set<String> COMMON_FILES = Set.of(
+        "readme", "license", "dockerfile", "makefile", "rakefile",
+        "gemfile", "requirements", "package", "composer", "gulpfile"
+    );
+    
+    private SupportedFiles() {
+    }
+    
+    /**
+     * @param path a file name or a slash-separated repository path
+     */
+    public static boolean shouldProcessFile(String path) {
+        if (path == null || path.isEmpty()) return false;
+        
+        String lowerName = getFileName(path).toLowerCase();
+        if (lowerName.isEmpty()) return false;
+        
+        // Check file extensions
+        if (SUPPORTED_EXTENSIONS.stream().anyMatch(lowerName::endsWith)) {
+            return true;
+        }
+        
+        return COMMON_FILES.stream().anyMatch(lowerName::startsWith);
+    }
+    
+    public static String getFileName(String path) {
+        int lastSlash = path.lastIndexOf('/');
+        return lastSlash >= 0 ? path.substring(lastSlash + 1) : path;
+    }
+}
\ No newline at end of file
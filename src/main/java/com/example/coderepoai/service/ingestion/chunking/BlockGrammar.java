@@ -0,0 +1,136 @@
+package com.example.coderepoai.service.ingestion.chunking;
+
+import com.example.coderepoai.service.ingestion.lexer.LanguageSyntax;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * How the blocks of a language nest, for {@link StructuralChunker}: either by bracket
+ * characters or by indentation. Comments and string literals are skipped as the lexer
+ * skips them, following the grammar's {@link LanguageSyntax}.
+ * <p>
+ * Patterns are matched at the first non-blank character of a line.
+ *
+ * @param indentation  blocks nest by indentation; brackets only continue a line
+ * @param blockOpen    characters that open a block when nesting by brackets
+ * @param blockClose   the matching closing characters, in the same order
+ * @param definition   lines that start a definition (a function, type or section), or
+ *                     {@code null}; chunks are closed before them once half full, and the
+ *                     file outline lists them
+ * @param attribute    lines that belong to the definition below them (annotations,
+ *                     decorators, attributes), or {@code null}
+ * @param closer       lines that end an indented block and stay with it ({@code end} in
+ *                     Ruby, closing tags), or {@code null}
+ * @param semicolons   statements end with a semicolon, so a line ending in a word is
+ *                     continued by the next one (a C return type above the function name)
+ * @param directives   lines starting with {@code #} are preprocessor directives, whose
+ *                     brackets do not count and whose conditional branches are followed
+ *                     like the first one
+ * @param charLiterals {@code 'x'} is a character literal although {@code '} is not a quote
+ *                     (Rust lifetimes)
+ */
+public record BlockGrammar(String name,
+                           LanguageSyntax syntax,
+                           boolean indentation,
+                           String blockOpen,
+                           String blockClose,
+                           Pattern definition,
+                           Pattern attribute,
+                           Pattern closer,
+                           boolean semicolons,
+                           boolean directives,
+                           boolean charLiterals) {
+    
+    // Control statements look like calls followed by a block; they never start a definition
+    private static final String NOT_CONTROL = "(?!(?:if|else|for|foreach|while|do|switch|case|catch|return|using|lock|sizeof|typeof|new|throw|await|yield|when)\\b)";
+    private static final Pattern AT_ANNOTATION = Pattern.compile("@\\w");
+    
+    private static final LanguageSyntax JSON_SYNTAX = new LanguageSyntax("json",
+            List.of(), false, null, null, false, "\"", "", false, null);
+    
+    public static final BlockGrammar C = braces("c", LanguageSyntax.C,
+            "(?:template\\s*<.*>\\s*)?(?:(?:class|struct|union|enum|namespace)\\b(?!.*;\\s*$)|"
+                    + NOT_CONTROL + "(?:[\\w:<>*&~,]+\\s+)*[*&]*[\\w:~]+\\s*\\((?!.*;\\s*$))",
+            null, true, true);
+    public static final BlockGrammar JAVA = braces("java", LanguageSyntax.JAVA,
+            "(?:(?:public|private|protected|static|final|abstract|sealed|non-sealed|synchronized|native|default|strictfp)\\s+)*"
+                    + "(?:(?:class|interface|enum|record|@interface)\\b|" + NOT_CONTROL + "(?:<[^>]*>\\s*)?[\\w<>\\[\\],.?]+\\s+\\w+\\s*\\()",
+            AT_ANNOTATION, true, false);
+    public static final BlockGrammar KOTLIN = braces("kotlin", LanguageSyntax.KOTLIN,
+            "(?:(?:public|private|protected|internal|open|abstract|override|final|sealed|data|inline|suspend|enum|annotation"
+                    + "|companion|inner|operator|infix|tailrec|external|actual|expect|value|const)\\s+)*(?:fun|class|interface|object)\\b",
+            AT_ANNOTATION, false, false);
+    public static final BlockGrammar SCALA = braces("scala", LanguageSyntax.C_FAMILY,
+            "(?:(?:private|protected|override|final|sealed|abstract|implicit|lazy|case|inline)\\s+)*(?:def|class|object|trait|enum|given)\\b",
+            AT_ANNOTATION, false, false);
+    public static final BlockGrammar CSHARP = braces("csharp", LanguageSyntax.C_FAMILY,
+            "(?:(?:public|private|protected|internal|static|abstract|sealed|virtual|override|async|partial|readonly|unsafe|extern|new)\\s+)*"
+                    + "(?:(?:class|struct|interface|enum|record|namespace|delegate)\\b|" + NOT_CONTROL + "[\\w<>\\[\\],.?]+\\s+\\w+\\s*(?:<[^>]*>)?\\s*\\()",
+            Pattern.compile("\\[\\w"), true, false);
+    public static final BlockGrammar GO = braces("go", LanguageSyntax.GO,
+            "(?:func|type)\\b", null, false, false);
+    public static final BlockGrammar RUST = new BlockGrammar("rust", LanguageSyntax.RUST, false, "{", "}",
+            Pattern.compile("(?:pub(?:\\([^)]*\\))?\\s+)?(?:(?:async|const|unsafe|default|extern(?:\\s+\"[^\"]*\")?)\\s+)*"
+                    + "(?:(?:fn|struct|enum|trait|impl|mod|union)\\b|macro_rules!)"),
+            Pattern.compile("#!?\\["), null, false, false, true);
+    public static final BlockGrammar SWIFT = braces("swift", LanguageSyntax.C_FAMILY,
+            "(?:(?:public|private|fileprivate|internal|open|static|final|override|mutating|class|convenience|required)\\s+)*"
+                    + "(?:func|class|struct|enum|protocol|extension|actor|init)\\b",
+            AT_ANNOTATION, false, false);
+    public static final BlockGrammar TYPESCRIPT = braces("typescript", LanguageSyntax.TYPESCRIPT,
+            "(?:export\\s+)?(?:default\\s+)?(?:declare\\s+)?(?:abstract\\s+)?(?:async\\s+)?"
+                    + "(?:function\\b|class\\b|interface\\b|enum\\b|namespace\\b|type\\s+\\w+|"
+                    + "(?:const|let|var)\\s+\\w+\\s*(?::[^=]+)?=\\s*(?:async\\s+)?(?:function\\b|\\([^)]*\\)\\s*(?::[^=]+)?=>|\\w+\\s*=>)|"
+                    + "(?:(?:public|private|protected|static|readonly|override|get|set)\\s+)*" + NOT_CONTROL + "\\w+\\s*(?:<[^>]*>)?\\s*\\([^)]*\\)\\s*(?::[^{]+)?\\{)",
+            AT_ANNOTATION, false, false);
+    public static final BlockGrammar JAVASCRIPT = new BlockGrammar("javascript", LanguageSyntax.JAVASCRIPT, false, "{", "}",
+            TYPESCRIPT.definition, AT_ANNOTATION, null, false, false, false);
+    public static final BlockGrammar PHP = braces("php", LanguageSyntax.C_FAMILY,
+            "(?:(?:public|private|protected|static|abstract|final|readonly)\\s+)*(?:function|class|interface|trait|enum)\\b",
+            Pattern.compile("#\\["), true, false);
+    public static final BlockGrammar R = braces("r", LanguageSyntax.SHELL,
+            "[\\w.]+\\s*(?:<-|=)\\s*function\\b", null, false, false);
+    public static final BlockGrammar SHELL = braces("shell", LanguageSyntax.SHELL,
+            "(?:function\\s+[\\w-]+|[\\w-]+\\s*\\(\\s*\\))", null, false, false);
+    public static final BlockGrammar GRADLE = braces("gradle", LanguageSyntax.C_FAMILY,
+            "(?:task|def)\\b|\\w+(?:\\s*\\([^)]*\\))?\\s*\\{", null, false, false);
+    public static final BlockGrammar PROTO = braces("proto", LanguageSyntax.C_FAMILY,
+            "(?:message|service|enum|rpc|extend)\\b", null, true, false);
+    public static final BlockGrammar CSS = braces("css", LanguageSyntax.CSS,
+            "[^\\s{}][^{};]*\\{", null, false, false);
+    public static final BlockGrammar JSON = new BlockGrammar("json", JSON_SYNTAX, false, "{[", "}]",
+            Pattern.compile("\"[^\"]*\"\\s*:\\s*[\\[{]"), null, null, false, false, false);
+    // Every bracket nests a form; top-level forms are the blocks
+    public static final BlockGrammar CLOJURE = new BlockGrammar("clojure", new LanguageSyntax("clojure",
+            List.of(";"), false, null, null, false, "\"", "\"", false, null), false, "([{", ")]}",
+            Pattern.compile("\\((?:defn-?|def|defmacro|defprotocol|defrecord|defmulti|defmethod|deftype|ns)\\b"), null, null, false, false, false);
+    public static final BlockGrammar SQL = new BlockGrammar("sql", LanguageSyntax.SQL, false, "(", ")",
+            Pattern.compile("(?i)(?:create|alter|drop|insert|update|delete|select|with|grant|merge)\\b"), null, null, true, false, false);
+    
+    public static final BlockGrammar PYTHON = indented("python", LanguageSyntax.PYTHON,
+            "(?:async\\s+)?def\\b|class\\b", AT_ANNOTATION, "(?:else|elif|except|finally)\\b");
+    public static final BlockGrammar RUBY = indented("ruby", LanguageSyntax.SHELL,
+            "(?:def|class|module)\\b", null, "(?:end|else|elsif|when|rescue|ensure)\\b");
+    public static final BlockGrammar HASKELL = indented("haskell", LanguageSyntax.PLAIN,
+            "(?:data|newtype|type|class|instance|module)\\b|[a-z_][\\w']*\\s*::", null, null);
+    public static final BlockGrammar OCAML = indented("ocaml", LanguageSyntax.PLAIN,
+            "(?:let|and|type|module|exception|class)\\b", null, null);
+    public static final BlockGrammar YAML = indented("yaml", LanguageSyntax.YAML,
+            "[^\\s#-][^:]*:(?:\\s|$)", null, null);
+    public static final BlockGrammar MARKUP = indented("markup", LanguageSyntax.MARKUP,
+            null, null, "</");
+    public static final BlockGrammar MARKDOWN = indented("markdown", LanguageSyntax.PLAIN,
+            "#{1,6}\\s", null, null);
+    
+    private static BlockGrammar braces(String name, LanguageSyntax syntax, String definition, Pattern attribute,
+                                       boolean semicolons, boolean directives) {
+        return new BlockGrammar(name, syntax, false, "{", "}", Pattern.compile(definition), attribute, null, semicolons, directives, false);
+    }
+    
+    private static BlockGrammar indented(String name, LanguageSyntax syntax, String definition, Pattern attribute, String closer) {
+        return new BlockGrammar(name, syntax, true, "", "",
+                definition != null ? Pattern.compile(definition) : null, attribute,
+                closer != null ? Pattern.compile(closer) : null, false, false, false);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,193 @@
+package com.example.coderepoai.service.ingestion.chunking;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingRegistry;
+import com.knuddels.jtokkit.api.EncodingType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts tokens the way the embedding model does, so chunks can be sized to its budget
+ * instead of by characters. The BPE encoding is looked up from the model name and runs
+ * locally; unknown models get cl100k_base, which all current OpenAI embedding models use.
+ * <p>
+ * Also keeps track of how much of the budget the emitted chunks actually use.
+ */
+@Component
+public class ChunkTokenizer {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ChunkTokenizer.class);
+    
+    // Utilisation histogram in quarters of the budget, plus one bucket for chunks over it
+    private static final int UTILISATION_BUCKETS = 5;
+    
+    private final Encoding encoding;
+    private final String model;
+    private final int maxTokens;
+    private final int overlapTokens;
+    
+    private final LongAdder chunks = new LongAdder();
+    private final LongAdder tokens = new LongAdder();
+    private final AtomicLongArray utilisation = new AtomicLongArray(UTILISATION_BUCKETS);
+    
+    public ChunkTokenizer(@Value("${spring.ai.openai.embedding.options.model:text-embedding-ada-002}") String model,
+                          @Value("${ingestion.chunking.encoding:}") String encodingName,
+                          @Value("${ingestion.chunking.max-tokens:512}") int defaultMaxTokens,
+                          @Value("${ingestion.chunking.overlap-tokens:64}") int overlapTokens,
+                          @Value("${ingestion.chunking.model-budgets:}") String modelBudgets) {
+        EncodingRegistry registry = Encodings.newLazyEncodingRegistry();
+        this.encoding = !encodingName.isBlank()
+                ? registry.getEncoding(encodingName)
+                        .orElseThrow(() -> new IllegalArgumentException("Unknown token encoding: " + encodingName))
+                : registry.getEncodingForModel(model)
+                        .orElseGet(() -> registry.getEncoding(EncodingType.CL100K_BASE));
+        this.model = model;
+        this.maxTokens = Math.max(16, parseModelBudgets(modelBudgets).getOrDefault(model, defaultMaxTokens));
+        this.overlapTokens = Math.max(0, Math.min(overlapTokens, maxTokens / 2));
+        
+        logger.info("Chunking for {} with {} encoding: {} tokens per chunk, {} tokens overlap",
+                model, encoding.getName(), maxTokens, this.overlapTokens);
+    }
+    
+    public int countTokens(String text) {
+        return text.isEmpty() ? 0 : encoding.countTokens(text);
+    }
+    
+    /**
+     * Cuts the text after the last whole line that fits the budget, marking the cut with
+     * a line saying how many lines were left out. A budget too small for that line gets
+     * no marker, and a first line over the budget is cut within the line.
+     */
+    public String truncateToTokens(String text, int budget) {
+        if (countTokens(text) <= budget) {
+            return text;
+        }
+        
+        // The marker never says more lines than the text has, so this is as long as it gets
+        int markerTokens = countTokens(marker(text.lines().count()));
+        boolean marked = budget > markerTokens;
+        int remaining = marked ? budget - markerTokens : budget;
+        
+        StringBuilder truncated = new StringBuilder();
+        int start = 0;
+        while (start < text.length()) {
+            int newline = text.indexOf('\n', start);
+            int end = newline < 0 ? text.length() : newline + 1;
+            int lineTokens = countTokens(text.substring(start, end));
+            if (lineTokens > remaining) {
+                break;
+            }
+            truncated.append(text, start, end);
+            remaining -= lineTokens;
+            start = end;
+        }
+        
+        if (start == 0) {
+            // Not even the first line fits, so keep as much of it as does
+            start = fittingPrefix(text, marked ? remaining - 1 : remaining);
+            truncated.append(text, 0, start);
+            if (marked && start > 0) {
+                truncated.append('\n');
+            }
+        }
+        
+        return marked ? truncated.append(marker(text.substring(start).lines().count())).toString() : truncated.toString();
+    }
+    
+    private static String marker(long omittedLines) {
+        return "... (" + omittedLines + " more lines)\n";
+    }
+    
+    /**
+     * @return the length of the longest prefix of the first line within the budget, never
+     *         ending between the halves of a surrogate pair
+     */
+    private int fittingPrefix(String text, int budget) {
+        int newline = text.indexOf('\n');
+        int low = 0;
+        int high = newline < 0 ? text.length() : newline;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (countTokens(text.substring(0, middle)) <= budget) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low > 0 && Character.isHighSurrogate(text.charAt(low - 1)) ? low - 1 : low;
+    }
+    
+    /**
+     * @return the most tokens a chunk should have for the configured embedding model
+     */
+    public int getMaxTokens() {
+        return maxTokens;
+    }
+    
+    /**
+     * @return how many tokens consecutive fixed-size windows share
+     */
+    public int getOverlapTokens() {
+        return overlapTokens;
+    }
+    
+    public void recordChunk(int chunkTokens) {
+        chunks.increment();
+        tokens.add(chunkTokens);
+        int bucket = chunkTokens > maxTokens
+                ? UTILISATION_BUCKETS - 1
+                : chunkTokens * 4 / (maxTokens + 1);
+        utilisation.incrementAndGet(bucket);
+    }
+    
+    public Map<String, Object> getStatistics() {
+        long chunkCount = chunks.sum();
+        long tokenCount = tokens.sum();
+        
+        Map<String, Object> histogram = new LinkedHashMap<>();
+        histogram.put("0-25%", utilisation.get(0));
+        histogram.put("25-50%", utilisation.get(1));
+        histogram.put("50-75%", utilisation.get(2));
+        histogram.put("75-100%", utilisation.get(3));
+        histogram.put("over_budget", utilisation.get(4));
+        
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("embedding_model", model);
+        statistics.put("encoding", encoding.getName());
+        statistics.put("max_tokens", maxTokens);
+        statistics.put("overlap_tokens", overlapTokens);
+        statistics.put("chunks", chunkCount);
+        statistics.put("tokens", tokenCount);
+        statistics.put("average_tokens", chunkCount == 0 ? 0.0 : (double) tokenCount / chunkCount);
+        statistics.put("average_utilisation", chunkCount == 0 ? 0.0 : (double) tokenCount / chunkCount / maxTokens);
+        statistics.put("utilisation", histogram);
+        return statistics;
+    }
+    
+    /**
+     * Parses "model:max-tokens" pairs separated by commas.
+     */
+    private static Map<String, Integer> parseModelBudgets(String modelBudgets) {
+        Map<String, Integer> budgets = new HashMap<>();
+        for (String entry : modelBudgets.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            int colon = entry.lastIndexOf(':');
+            if (colon <= 0) {
+                throw new IllegalArgumentException("Expected model:max-tokens in ingestion.chunking.model-budgets, got: " + entry);
+            }
+            budgets.put(entry.substring(0, colon).trim(), Integer.parseInt(entry.substring(colon + 1).trim()));
+        }
+        return budgets;
+    }
+}
\ No newline at end of file
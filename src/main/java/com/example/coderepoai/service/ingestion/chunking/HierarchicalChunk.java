@@ -0,0 +1,25 @@
+package com.example.coderepoai.service.ingestion.chunking;
+
+import com.example.coderepoai.model.ChunkLevel;
+import com.example.coderepoai.model.SourceSpan;
+
+/**
+ * A chunk with its place in the file's hierarchy. Member chunks are their span; file and
+ * type chunks are an outline built from the source, and their span is the range outlined.
+ *
+ * @param id       ID within the file, or null for members (numbered by the caller)
+ * @param parentId ID of the enclosing chunk, or null for the file chunk
+ * @param outline  the text of a file or type chunk, null for members
+ */
+public record HierarchicalChunk(ChunkLevel level, String id, String parentId, SourceSpan span, String outline) {
+    
+    public static final String FILE_ID = "file";
+    
+    public static HierarchicalChunk member(String parentId, SourceSpan span) {
+        return new HierarchicalChunk(ChunkLevel.MEMBER, null, parentId, span, null);
+    }
+    
+    public HierarchicalChunk withParent(String parentId) {
+        return new HierarchicalChunk(level, id, parentId, span, outline);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,293 @@
+package com.example.coderepoai.service.ingestion.chunking;
+
+import com.example.coderepoai.model.ChunkLevel;
+import com.example.coderepoai.model.SourceSpan;
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.JavaToken;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.Position;
+import com.github.javaparser.Range;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Chunks Java sources along their syntax tree: one chunk per method, constructor or
+ * initializer, and one per run of consecutive fields (or enum constants), each prefixed
+ * with the package and the signatures of its enclosing types so the chunk stands on its
+ * own. Chunks are spans of the original source, so formatting is preserved and the
+ * member text is not copied.
+ * <p>
+ * The member chunks come with the outline of the file and, for nested types and files
+ * with several types, of each type with at least two chunks: its signature followed by
+ * the signatures of its members. Members belong to the innermost type with an outline,
+ * or to the file.
+ * <p>
+ * Returns nothing when the file does not parse, so the caller can fall back to its
+ * heuristic chunking.
+ */
+@Component
+public class JavaAstChunker {
+    
+    private static final Logger logger = LoggerFactory.getLogger(JavaAstChunker.class);
+    
+    // JavaParser instances are not thread-safe; chunking runs on several pipeline workers.
+    // RAW accepts every syntax level without running validators; only the structure matters here.
+    private static final ThreadLocal<JavaParser> PARSER = ThreadLocal.withInitial(() -> new JavaParser(
+            new ParserConfiguration()
+                    .setLanguageLevel(ParserConfiguration.LanguageLevel.RAW)
+                    .setAttributeComments(false)
+                    .setTabSize(1)));
+    
+    private final ChunkTokenizer tokenizer;
+    
+    public JavaAstChunker(ChunkTokenizer tokenizer) {
+        this.tokenizer = tokenizer;
+    }
+    
+    /**
+     * @param maxTokens members that take more tokens than this together with their header are
+     *                  split at line boundaries, each part keeping the enclosing type header
+     * @return the file outline (not cut to the budget), then each type outline followed by
+     *         the type's chunks: spans over the file content, prefixed with the package and
+     *         type headers
+     */
+    public Optional<List<HierarchicalChunk>> chunk(LineIndex lines, int maxTokens) {
+        ParseResult<CompilationUnit> result;
+        try {
+            result = PARSER.get().parse(lines.content());
+        } catch (RuntimeException | StackOverflowError e) {
+            logger.debug("Java parser failed: {}", e.toString());
+            return Optional.empty();
+        }
+        if (!result.isSuccessful() || result.getResult().isEmpty()) {
+            return Optional.empty();
+        }
+        
+        CompilationUnit unit = result.getResult().get();
+        String packageHeader = unit.getPackageDeclaration()
+                .map(declaration -> lines.content().substring(start(lines, declaration), end(lines, declaration)).strip() + "\n")
+                .orElse("");
+        
+        List<HierarchicalChunk> chunks = new ArrayList<>();
+        StringBuilder fileOutline = new StringBuilder(packageHeader);
+        // The outline of a file's only type is the file's
+        boolean typeOutlines = unit.getTypes().size() > 1;
+        for (TypeDeclaration<?> type : unit.getTypes()) {
+            appendOutline(type, "", lines, fileOutline);
+            chunkType(type, packageHeader, "", HierarchicalChunk.FILE_ID, typeOutlines, lines, maxTokens, chunks);
+        }
+        chunks.add(0, new HierarchicalChunk(ChunkLevel.FILE, HierarchicalChunk.FILE_ID, null,
+                lines.charSpan(0, lines.content().length()), fileOutline.toString()));
+        return Optional.of(chunks);
+    }
+    
+    private void chunkType(TypeDeclaration<?> type, String outerHeader, String outerName, String parentId, boolean outlined,
+                           LineIndex lines, int maxTokens, List<HierarchicalChunk> chunks) {
+        String header = outerHeader + typeSignature(type) + "\n";
+        String name = outerName.isEmpty() ? type.getNameAsString() : outerName + "." + type.getNameAsString();
+        String id = "type:" + name;
+        int chunksBefore = chunks.size();
+        List<Node> fieldGroup = new ArrayList<>();
+        
+        if (type instanceof EnumDeclaration enumDeclaration) {
+            fieldGroup.addAll(enumDeclaration.getEntries());
+        }
+        
+        for (BodyDeclaration<?> member : type.getMembers()) {
+            if (member.isFieldDeclaration() || member.isAnnotationMemberDeclaration()) {
+                fieldGroup.add(member);
+                continue;
+            }
+            
+            flushFieldGroup(fieldGroup, header, id, lines, maxTokens, chunks);
+            if (member instanceof TypeDeclaration<?> nestedType) {
+                chunkType(nestedType, header, name, id, true, lines, maxTokens, chunks);
+            } else {
+                addChunks(header, id, lines, start(lines, member), end(lines, member), maxTokens, chunks);
+            }
+        }
+        flushFieldGroup(fieldGroup, header, id, lines, maxTokens, chunks);
+        
+        // A type without members is still worth one chunk: its signature says what it is
+        if (chunks.size() == chunksBefore) {
+            addChunks(outerHeader, parentId, lines, start(lines, type), end(lines, type), maxTokens, chunks);
+            return;
+        }
+        
+        if (outlined && chunks.size() - chunksBefore >= 2) {
+            StringBuilder outline = new StringBuilder(outerHeader);
+            appendOutline(type, "", lines, outline);
+            chunks.add(chunksBefore, new HierarchicalChunk(ChunkLevel.TYPE, id, parentId,
+                    lines.charSpan(start(lines, type), end(lines, type)), tokenizer.truncateToTokens(outline.toString(), maxTokens)));
+        } else {
+            // Not worth an outline of its own; the enclosing outline covers these chunks
+            for (int i = chunksBefore; i < chunks.size(); i++) {
+                if (id.equals(chunks.get(i).parentId())) {
+                    chunks.set(i, chunks.get(i).withParent(parentId));
+                }
+            }
+        }
+    }
+    
+    private void flushFieldGroup(List<Node> fieldGroup, String header, String parentId, LineIndex lines, int maxTokens,
+                                 List<HierarchicalChunk> chunks) {
+        if (fieldGroup.isEmpty()) {
+            return;
+        }
+        addChunks(header, parentId, lines, start(lines, fieldGroup.get(0)), end(lines, fieldGroup.get(fieldGroup.size() - 1)),
+                maxTokens, chunks);
+        fieldGroup.clear();
+    }
+    
+    private void addChunks(String header, String parentId, LineIndex lines, int start, int end, int maxTokens,
+                           List<HierarchicalChunk> chunks) {
+        // The header is repeated in every part, but never leaves less than half the budget
+        int bodyBudget = Math.max(maxTokens / 2, maxTokens - tokenizer.countTokens(header));
+        int firstLine = lines.lineOf(start);
+        int lastLine = lines.lineOf(Math.max(start, end - 1));
+        if (lines.tokens(firstLine, lastLine + 1) <= bodyBudget) {
+            chunks.add(HierarchicalChunk.member(parentId, lines.charSpan(start, end).withPrefix(header)));
+            return;
+        }
+        
+        int partStart = firstLine;
+        int partTokens = 0;
+        for (int line = firstLine; line <= lastLine; line++) {
+            if (partTokens > 0 && partTokens + lines.lineTokens(line) > bodyBudget) {
+                chunks.add(HierarchicalChunk.member(parentId, lines.lineSpan(partStart, line).withPrefix(header)));
+                partStart = line;
+                partTokens = 0;
+            }
+            partTokens += lines.lineTokens(line);
+        }
+        chunks.add(HierarchicalChunk.member(parentId, lines.charSpan(lines.lineStart(partStart), end).withPrefix(header)));
+    }
+    
+    /**
+     * The type signature and one line per member: signatures of methods and constructors,
+     * declarations of fields without initializers, nested types outlined in turn.
+     */
+    private void appendOutline(TypeDeclaration<?> type, String indent, LineIndex lines, StringBuilder outline) {
+        String memberIndent = indent + "    ";
+        outline.append(indent).append(typeSignature(type)).append('\n');
+        if (type instanceof EnumDeclaration enumDeclaration && enumDeclaration.getEntries().isNonEmpty()) {
+            outline.append(memberIndent)
+                    .append(enumDeclaration.getEntries().stream()
+                            .map(EnumConstantDeclaration::getNameAsString)
+                            .collect(Collectors.joining(", ")))
+                    .append(";\n");
+        }
+        for (BodyDeclaration<?> member : type.getMembers()) {
+            if (member instanceof TypeDeclaration<?> nestedType) {
+                appendOutline(nestedType, memberIndent, lines, outline);
+            } else {
+                outline.append(memberIndent).append(memberSignature(member, lines)).append('\n');
+            }
+        }
+        outline.append(indent).append("}\n");
+    }
+    
+    private String memberSignature(BodyDeclaration<?> member, LineIndex lines) {
+        if (member instanceof CallableDeclaration<?> callable) {
+            return callable.getDeclarationAsString(true, true, true).strip() + ";";
+        }
+        if (member instanceof FieldDeclaration field) {
+            String modifiers = field.getModifiers().stream()
+                    .map(modifier -> modifier.getKeyword().asString() + " ")
+                    .collect(Collectors.joining());
+            String names = field.getVariables().stream()
+                    .map(VariableDeclarator::getNameAsString)
+                    .collect(Collectors.joining(", "));
+            return modifiers + field.getVariable(0).getType().asString() + " " + names + ";";
+        }
+        if (member instanceof AnnotationMemberDeclaration annotationMember) {
+            return annotationMember.getType().asString() + " " + annotationMember.getNameAsString() + "();";
+        }
+        if (member instanceof InitializerDeclaration initializer) {
+            return initializer.isStatic() ? "static { ... }" : "{ ... }";
+        }
+        
+        // Compact record constructors and anything newer: the first line as written
+        String text = lines.content().substring(start(lines, member), end(lines, member)).strip();
+        int newline = text.indexOf('\n');
+        return newline < 0 ? text : text.substring(0, newline).strip();
+    }
+    
+    /**
+     * Start of the node, or of its line when only indentation precedes it, so the chunk keeps
+     * its formatting.
+     */
+    private static int start(LineIndex lines, Node node) {
+        Optional<Range> range = node.getRange();
+        if (range.isEmpty()) {
+            return 0;
+        }
+        
+        int lineStart = lines.lineStart(range.get().begin.line - 1);
+        int start = offset(lines, range.get().begin);
+        for (int i = lineStart; i < start; i++) {
+            if (!Character.isWhitespace(lines.content().charAt(i))) {
+                return start;
+            }
+        }
+        return lineStart;
+    }
+    
+    /**
+     * End of the node including the rest of its line when that is only whitespace.
+     */
+    private static int end(LineIndex lines, Node node) {
+        Optional<Range> range = node.getRange();
+        if (range.isEmpty()) {
+            return lines.content().length();
+        }
+        
+        int end = Math.min(lines.content().length(), offset(lines, range.get().end) + 1);
+        int lineEnd = lines.lineEnd(range.get().end.line - 1);
+        for (int i = end; i < lineEnd; i++) {
+            if (!Character.isWhitespace(lines.content().charAt(i))) {
+                return end;
+            }
+        }
+        return lineEnd;
+    }
+    
+    private static int offset(LineIndex lines, Position position) {
+        return lines.lineStart(position.line - 1) + position.column - 1;
+    }
+    
+    /**
+     * The declaration up to its opening brace: annotations, modifiers, name, type
+     * parameters, record components and supertypes, as written.
+     */
+    private String typeSignature(TypeDeclaration<?> type) {
+        if (type.getTokenRange().isEmpty()) {
+            return type.getNameAsString() + " {";
+        }
+        
+        StringBuilder signature = new StringBuilder();
+        int parenDepth = 0;
+        for (JavaToken token : type.getTokenRange().get()) {
+            String text = token.getText();
+            signature.append(text);
+            if (text.equals("(")) {
+                parenDepth++;
+            } else if (text.equals(")")) {
+                parenDepth--;
+            } else if (text.equals("{") && parenDepth == 0) {
+                break;
+            }
+        }
+        return signature.toString();
+    }
+}
\ No newline at end of file
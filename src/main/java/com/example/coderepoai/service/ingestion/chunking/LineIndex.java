@@ -0,0 +1,143 @@
+package com.example.coderepoai.service.ingestion.chunking;
+
+import com.example.coderepoai.model.SourceSpan;
+
+import java.util.Arrays;
+
+/**
+ * Line start offsets, UTF-8 byte offsets and token counts of one file, built in a single
+ * pass so chunkers can size chunks and cut them at line boundaries without copying the
+ * text. Lines are numbered from 0 here and include their trailing newline.
+ */
+public final class LineIndex {
+    
+    private final String content;
+    private final int lineCount;
+    // lineStarts[lineCount] is the content length, bytesBefore and tokensBefore the file's totals
+    private final int[] lineStarts;
+    private final int[] bytesBefore;
+    private final int[] tokensBefore;
+    
+    public LineIndex(String content, ChunkTokenizer tokenizer) {
+        this.content = content;
+        int[] starts = new int[64];
+        int lines = 0;
+        
+        int start = 0;
+        while (start < content.length()) {
+            int newline = content.indexOf('\n', start);
+            if (lines + 1 == starts.length) {
+                starts = Arrays.copyOf(starts, starts.length * 2);
+            }
+            starts[lines++] = start;
+            start = newline < 0 ? content.length() : newline + 1;
+        }
+        starts[lines] = content.length();
+        this.lineCount = lines;
+        this.lineStarts = starts;
+        
+        int[] bytes = new int[lines + 1];
+        int[] tokens = new int[lines + 1];
+        for (int line = 0; line < lines; line++) {
+            bytes[line + 1] = bytes[line] + utf8Length(content, starts[line], starts[line + 1]);
+            // The tokenizer only takes strings; the line copy dies young
+            tokens[line + 1] = tokens[line] + tokenizer.countTokens(content.substring(starts[line], starts[line + 1]));
+        }
+        this.bytesBefore = bytes;
+        this.tokensBefore = tokens;
+    }
+    
+    public String content() {
+        return content;
+    }
+    
+    public int lineCount() {
+        return lineCount;
+    }
+    
+    public int lineStart(int line) {
+        return lineStarts[line];
+    }
+    
+    /**
+     * @return offset just past the line's newline
+     */
+    public int lineEnd(int line) {
+        return lineStarts[line + 1];
+    }
+    
+    /**
+     * @return offset of the line's newline, or the content length for a last line without one
+     */
+    public int lineContentEnd(int line) {
+        int end = lineStarts[line + 1];
+        return end > lineStarts[line] && content.charAt(end - 1) == '\n' ? end - 1 : end;
+    }
+    
+    /**
+     * @return the line containing the offset
+     */
+    public int lineOf(int offset) {
+        int index = Arrays.binarySearch(lineStarts, 0, lineCount + 1, offset);
+        int line = index >= 0 ? index : -index - 2;
+        return Math.max(0, Math.min(line, lineCount - 1));
+    }
+    
+    /**
+     * @return offset of the character in the UTF-8 encoding of the content
+     */
+    public int byteOffset(int offset) {
+        int line = lineOf(offset);
+        if (lineCount == 0 || offset >= content.length()) {
+            return bytesBefore[lineCount];
+        }
+        return bytesBefore[line] + utf8Length(content, lineStarts[line], offset);
+    }
+    
+    public int lineTokens(int line) {
+        return tokensBefore[line + 1] - tokensBefore[line];
+    }
+    
+    /**
+     * @return tokens of the lines in [fromLine, toLine)
+     */
+    public int tokens(int fromLine, int toLine) {
+        return tokensBefore[toLine] - tokensBefore[fromLine];
+    }
+    
+    /**
+     * @return the lines in [fromLine, toLine) as a span
+     */
+    public SourceSpan lineSpan(int fromLine, int toLine) {
+        return new SourceSpan(content, lineStarts[fromLine], lineStarts[toLine], fromLine + 1, Math.max(fromLine + 1, toLine));
+    }
+    
+    /**
+     * @return the characters in [start, end) as a span
+     */
+    public SourceSpan charSpan(int start, int end) {
+        int endLine = end > start ? lineOf(end - 1) : lineOf(start);
+        return new SourceSpan(content, start, end, lineOf(start) + 1, endLine + 1);
+    }
+    
+    private static int utf8Length(String text, int from, int to) {
+        int bytes = 0;
+        for (int i = from; i < to; i++) {
+            char ch = text.charAt(i);
+            if (ch < 0x80) {
+                bytes++;
+            } else if (ch < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(ch) && i + 1 < to && Character.isLowSurrogate(text.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else if (Character.isSurrogate(ch)) {
+                // Encoded as '?', as String.getBytes does
+                bytes++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+}
\ No newline at end of file
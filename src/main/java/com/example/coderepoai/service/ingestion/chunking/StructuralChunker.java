@@ -0,0 +1,632 @@
+package com.example.coderepoai.service.ingestion.chunking;
+
+import com.example.coderepoai.model.ChunkLevel;
+import com.example.coderepoai.service.ingestion.SupportedFiles;
+import com.example.coderepoai.service.ingestion.lexer.LanguageSyntax;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Chunks files along their block structure, described per file type by a
+ * {@link BlockGrammar}, for languages without a syntax tree chunker. One pass over the
+ * file records for every line how deeply it is nested, whether a chunk may start there
+ * (it is not inside a comment, string or bracketed expression, and does not continue or
+ * close the line above), and whether it starts a definition.
+ * <p>
+ * The lines where a chunk may start at the top level divide the file into blocks, which
+ * are packed into chunks of whole blocks: a chunk is closed before a block that would
+ * exceed the budget, or before a definition once it has used half the budget. A block too
+ * large for one chunk is divided one level of nesting deeper in the same way, and its
+ * parts after the first are prefixed with its first line (the class, impl or namespace
+ * header). Comments and attributes directly above a block stay with it.
+ */
+@Component
+public class StructuralChunker {
+    
+    // Line flags recorded by the scan
+    private static final byte CAN_START = 1;
+    private static final byte LEADING = 2;
+    private static final byte DEFINITION = 4;
+    
+    private static final int TAB_WIDTH = 8;
+    // Definitions nested deeper (local functions, lambdas) neither steer cuts nor appear in the outline
+    private static final int MAX_DEFINITION_DEPTH = 2;
+    // Last characters of a line that leave its statement open in bracket-nested languages
+    // (not commas, which separate the entries of enum, struct and object literals)
+    private static final String OPEN_LINE_ENDINGS = "=\\>&|+-*/:?";
+    // First characters of a line that continue the statement of an open line above
+    private static final String CONTINUATION_STARTS = ".?:&|+-*/%=<>";
+    
+    private final ChunkTokenizer tokenizer;
+    private final boolean enabled;
+    private final Map<String, BlockGrammar> grammarsByExtension = new HashMap<>();
+    
+    public StructuralChunker(ChunkTokenizer tokenizer,
+                             @Value("${ingestion.chunking.structural.enabled:true}") boolean enabled) {
+        this.tokenizer = tokenizer;
+        this.enabled = enabled;
+        
+        register(BlockGrammar.C, "c", "h", "cpp", "cc", "hpp");
+        register(BlockGrammar.JAVA, "java");
+        register(BlockGrammar.KOTLIN, "kt", "kts");
+        register(BlockGrammar.SCALA, "scala");
+        register(BlockGrammar.CSHARP, "cs");
+        register(BlockGrammar.GO, "go");
+        register(BlockGrammar.RUST, "rs");
+        register(BlockGrammar.SWIFT, "swift");
+        register(BlockGrammar.TYPESCRIPT, "ts", "tsx");
+        register(BlockGrammar.JAVASCRIPT, "js", "jsx", "mjs", "cjs");
+        register(BlockGrammar.PHP, "php");
+        register(BlockGrammar.R, "r");
+        register(BlockGrammar.SHELL, "sh", "bash");
+        register(BlockGrammar.GRADLE, "gradle");
+        register(BlockGrammar.PROTO, "proto");
+        register(BlockGrammar.CSS, "css");
+        register(BlockGrammar.JSON, "json");
+        register(BlockGrammar.CLOJURE, "clj");
+        register(BlockGrammar.SQL, "sql");
+        register(BlockGrammar.PYTHON, "py");
+        register(BlockGrammar.RUBY, "rb");
+        register(BlockGrammar.HASKELL, "hs");
+        register(BlockGrammar.OCAML, "ml");
+        register(BlockGrammar.YAML, "yml", "yaml");
+        register(BlockGrammar.MARKUP, "xml", "html");
+        register(BlockGrammar.MARKDOWN, "md");
+    }
+    
+    /**
+     * @return the grammar for the file's extension, or nothing when structural chunking is
+     *         disabled or the file type has none
+     */
+    public Optional<BlockGrammar> grammarFor(String filePath) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        String fileName = SupportedFiles.getFileName(filePath).toLowerCase(Locale.ROOT);
+        int dot = fileName.lastIndexOf('.');
+        return dot < 0 ? Optional.empty() : Optional.ofNullable(grammarsByExtension.get(fileName.substring(dot + 1)));
+    }
+    
+    /**
+     * @param maxTokens lines that take more tokens than this on their own are returned as
+     *                  chunks of one line, for the caller to cut
+     * @return the file outline (its definition lines, or its first lines, within a quarter of
+     *         the budget), then the chunks below it; nothing for files without a grammar
+     */
+    public Optional<List<HierarchicalChunk>> chunk(LineIndex lines, String filePath, int maxTokens) {
+        Optional<BlockGrammar> grammar = grammarFor(filePath);
+        if (grammar.isEmpty()) {
+            return Optional.empty();
+        }
+        
+        Structure structure = new Scan(grammar.get(), lines).run();
+        List<HierarchicalChunk> chunks = new ArrayList<>();
+        chunks.add(new HierarchicalChunk(ChunkLevel.FILE, HierarchicalChunk.FILE_ID, null,
+                lines.charSpan(0, lines.content().length()), outline(structure, lines, maxTokens)));
+        if (lines.lineCount() > 0) {
+            new Packer(lines, structure, maxTokens, chunks).pack(0, lines.lineCount(), 0, "", "", false);
+        }
+        return Optional.of(chunks);
+    }
+    
+    private String outline(Structure structure, LineIndex lines, int maxTokens) {
+        String content = lines.content();
+        StringBuilder outline = new StringBuilder();
+        for (int line = 0; line < lines.lineCount(); line++) {
+            if ((structure.flags()[line] & DEFINITION) != 0) {
+                outline.append(content, lines.lineStart(line), lines.lineContentEnd(line)).append('\n');
+            }
+        }
+        return tokenizer.truncateToTokens(outline.isEmpty() ? content : outline.toString(), maxTokens / 4);
+    }
+    
+    private void register(BlockGrammar grammar, String... extensions) {
+        for (String extension : extensions) {
+            grammarsByExtension.put(extension, grammar);
+        }
+    }
+    
+    /**
+     * Nesting depth and flags of every line; {@code maxDepth} is the deepest level at which
+     * a chunk may start.
+     */
+    private record Structure(int[] depths, byte[] flags, int maxDepth) {
+    }
+    
+    /**
+     * One forward pass over a file, carrying the comment, string and bracket state from
+     * line to line.
+     */
+    private static final class Scan {
+        private final BlockGrammar grammar;
+        private final LanguageSyntax syntax;
+        private final LineIndex lines;
+        private final String content;
+        private final Matcher definition;
+        private final Matcher attribute;
+        private final Matcher closer;
+        private final String[] lineComments;
+        // Characters that can change the scan state; runs of other characters are only looked at for lastCode
+        private final boolean[] specialChars = new boolean[128];
+        
+        private final int[] depths;
+        private final byte[] flags;
+        private int maxDepth;
+        
+        // Open block comments, and the quote of an open string (0 when outside one)
+        private int commentDepth;
+        private char quote;
+        private boolean tripleQuote;
+        // Blocks open, and brackets open within the innermost block; the brackets of the
+        // enclosing blocks wait on the stack until their block closes
+        private int depth;
+        private int brackets;
+        private int[] bracketStack = new int[16];
+        // Whether the last line left its statement open, and the last character of code seen
+        private boolean continues;
+        private char lastCode = ';';
+        // Indentation columns of the open blocks, when nesting by indentation
+        private int[] indents = new int[16];
+        private int indentCount = 1;
+        // Depth at each open #if, and at the end of its first branch (-1 before its #else);
+        // lines in #else branches never start a chunk, as their first branch already could
+        private int[] conditionals = new int[16];
+        private int conditionalCount;
+        private int elseBranches;
+        private boolean directiveContinues;
+        
+        private Scan(BlockGrammar grammar, LineIndex lines) {
+            this.grammar = grammar;
+            this.syntax = grammar.syntax();
+            this.lines = lines;
+            this.content = lines.content();
+            this.definition = matcher(grammar.definition());
+            this.attribute = matcher(grammar.attribute());
+            this.closer = matcher(grammar.closer());
+            this.lineComments = syntax.lineComments().toArray(String[]::new);
+            this.depths = new int[lines.lineCount()];
+            this.flags = new byte[lines.lineCount()];
+            
+            for (String special : List.of("()[]{}", grammar.blockOpen(), grammar.blockClose(), syntax.quotes(),
+                    grammar.charLiterals() ? "'" : "", syntax.blockCommentOpen() != null ? syntax.blockCommentOpen().substring(0, 1) : "")) {
+                for (char ch : special.toCharArray()) {
+                    specialChars[ch] = true;
+                }
+            }
+            for (String prefix : lineComments) {
+                specialChars[prefix.charAt(0)] = true;
+            }
+        }
+        
+        private Matcher matcher(Pattern pattern) {
+            return pattern != null ? pattern.matcher(content) : null;
+        }
+        
+        private Structure run() {
+            for (int line = 0; line < lines.lineCount(); line++) {
+                scanLine(line, lines.lineStart(line), lines.lineContentEnd(line));
+            }
+            return new Structure(depths, flags, maxDepth);
+        }
+        
+        private void scanLine(int line, int start, int end) {
+            boolean inLiteral = commentDepth > 0 || quote != 0;
+            boolean continued = continues;
+            int startBrackets = brackets;
+            depths[line] = depth;
+            
+            int first = start;
+            if (!inLiteral) {
+                while (first < end && Character.isWhitespace(content.charAt(first))) {
+                    first++;
+                }
+                if (first == end) {
+                    // Blank lines stay with the block above and leave the statement state alone
+                    return;
+                }
+            }
+            
+            if (grammar.directives() && !inLiteral && (directiveContinues || content.charAt(first) == '#')) {
+                scanDirective(line, first, end, !directiveContinues && startBrackets == 0 && !continued);
+                return;
+            }
+            
+            char codeBefore = lastCode;
+            boolean leading = !inLiteral && (startsComment(first) || matchesAt(attribute, first, end));
+            scanCode(inLiteral ? start : first, end);
+            if (inLiteral) {
+                // Lines that start inside a comment or string never start a chunk
+                if (grammar.indentation()) {
+                    depths[line] = indentCount;
+                }
+                return;
+            }
+            
+            boolean closing = closes(first, end);
+            boolean canStart = startBrackets == 0 && !continued && !closing && elseBranches == 0;
+            if (grammar.indentation()) {
+                depths[line] = startBrackets == 0 && !continued ? indentationDepth(column(start, first), closing) : indentCount;
+                continues = brackets == 0 && (lastCode == '\\' || lastCode == ',');
+            } else {
+                // An opening brace on a line of its own, or an operator continuing an unfinished statement
+                char firstChar = content.charAt(first);
+                canStart = canStart
+                        && !(firstChar == '{' && grammar.blockOpen().equals("{"))
+                        && !(CONTINUATION_STARTS.indexOf(firstChar) >= 0 && "{};".indexOf(codeBefore) < 0);
+                continues = OPEN_LINE_ENDINGS.indexOf(lastCode) >= 0
+                        || grammar.semicolons() && (Character.isLetterOrDigit(lastCode) || lastCode == '_');
+            }
+            
+            if (canStart) {
+                flags[line] = CAN_START;
+                maxDepth = Math.max(maxDepth, depths[line]);
+                if (leading) {
+                    flags[line] |= LEADING;
+                } else if (depths[line] <= MAX_DEFINITION_DEPTH && matchesAt(definition, first, end)) {
+                    flags[line] |= DEFINITION;
+                }
+            }
+        }
+        
+        /**
+         * Follows conditional compilation so both branches of an {@code #if} start at the
+         * same depth and the code after {@code #endif} continues from the first branch.
+         */
+        private void scanDirective(int line, int first, int end, boolean canStart) {
+            boolean continuation = directiveContinues;
+            directiveContinues = end > first && content.charAt(end - 1) == '\\';
+            if (continuation) {
+                return;
+            }
+            
+            int keyword = first + 1;
+            while (keyword < end && Character.isWhitespace(content.charAt(keyword))) {
+                keyword++;
+            }
+            boolean leading = false;
+            if (content.startsWith("if", keyword)) {
+                if (conditionalCount * 2 == conditionals.length) {
+                    conditionals = Arrays.copyOf(conditionals, conditionals.length * 2);
+                }
+                conditionals[conditionalCount * 2] = depth;
+                conditionals[conditionalCount * 2 + 1] = -1;
+                conditionalCount++;
+                leading = true;
+            } else if (content.startsWith("el", keyword) && conditionalCount > 0) {
+                int top = (conditionalCount - 1) * 2;
+                if (conditionals[top + 1] < 0) {
+                    conditionals[top + 1] = depth;
+                    elseBranches++;
+                }
+                depth = conditionals[top];
+                canStart = false;
+            } else if (content.startsWith("endif", keyword) && conditionalCount > 0) {
+                conditionalCount--;
+                int firstBranchDepth = conditionals[conditionalCount * 2 + 1];
+                if (firstBranchDepth >= 0) {
+                    depth = firstBranchDepth;
+                    elseBranches--;
+                }
+                canStart = false;
+            }
+            
+            if (canStart && elseBranches == 0) {
+                flags[line] = (byte) (CAN_START | (leading ? LEADING : 0));
+                maxDepth = Math.max(maxDepth, depths[line]);
+            }
+        }
+        
+        /**
+         * Follows comments, strings and brackets through the rest of the line.
+         */
+        private void scanCode(int i, int end) {
+            while (i < end) {
+                if (commentDepth > 0) {
+                    i = skipBlockComment(i, end);
+                    continue;
+                }
+                if (quote != 0) {
+                    i = skipString(i, end);
+                    continue;
+                }
+                
+                char ch = content.charAt(i);
+                if (ch >= 128 || !specialChars[ch]) {
+                    if (ch > ' ') {
+                        lastCode = ch;
+                    }
+                    i++;
+                    continue;
+                }
+                if (lineCommentAt(i)) {
+                    break;
+                }
+                if (syntax.blockCommentOpen() != null && content.startsWith(syntax.blockCommentOpen(), i)) {
+                    commentDepth = 1;
+                    i += syntax.blockCommentOpen().length();
+                    continue;
+                }
+                
+                lastCode = ch;
+                if (syntax.quotes().indexOf(ch) >= 0) {
+                    quote = ch;
+                    tripleQuote = syntax.tripleQuotes() && tripled(i, end);
+                    i += tripleQuote ? 3 : 1;
+                    continue;
+                }
+                if (ch == '\'' && grammar.charLiterals()) {
+                    i = skipCharLiteral(i, end);
+                    continue;
+                }
+                
+                int block = grammar.blockOpen().indexOf(ch);
+                if (block >= 0) {
+                    if (depth == bracketStack.length) {
+                        bracketStack = Arrays.copyOf(bracketStack, depth * 2);
+                    }
+                    bracketStack[depth++] = brackets;
+                    brackets = 0;
+                } else if (grammar.blockClose().indexOf(ch) >= 0) {
+                    if (depth > 0) {
+                        brackets = bracketStack[--depth];
+                    }
+                } else if (ch == '(' || ch == '[' || ch == '{') {
+                    brackets++;
+                } else if (ch == ')' || ch == ']' || ch == '}') {
+                    brackets = Math.max(0, brackets - 1);
+                }
+                i++;
+            }
+            
+            // Strings that may not span lines end with their line
+            if (quote != 0 && !tripleQuote && syntax.multilineQuotes().indexOf(quote) < 0) {
+                quote = 0;
+            }
+        }
+        
+        private int skipBlockComment(int i, int end) {
+            String open = syntax.blockCommentOpen();
+            String close = syntax.blockCommentClose();
+            while (i < end) {
+                if (content.startsWith(close, i)) {
+                    i += close.length();
+                    if (--commentDepth == 0) {
+                        return i;
+                    }
+                } else if (syntax.nestedBlockComments() && content.startsWith(open, i)) {
+                    i += open.length();
+                    commentDepth++;
+                } else {
+                    i++;
+                }
+            }
+            return end;
+        }
+        
+        private int skipString(int i, int end) {
+            while (i < end) {
+                char ch = content.charAt(i);
+                if (ch == '\\' && i + 1 < end) {
+                    i += 2;
+                } else if (ch == quote && (!tripleQuote || tripled(i, end))) {
+                    i += tripleQuote ? 3 : 1;
+                    quote = 0;
+                    return i;
+                } else {
+                    i++;
+                }
+            }
+            return end;
+        }
+        
+        private boolean tripled(int i, int end) {
+            char ch = content.charAt(i);
+            return i + 2 < end && content.charAt(i + 1) == ch && content.charAt(i + 2) == ch;
+        }
+        
+        /**
+         * Skips {@code 'x'} or an escaped character literal; any other apostrophe (a Rust
+         * lifetime) is a single character.
+         */
+        private int skipCharLiteral(int i, int end) {
+            if (i + 2 < end && content.charAt(i + 1) != '\\' && content.charAt(i + 2) == '\'') {
+                return i + 3;
+            }
+            if (i + 1 < end && content.charAt(i + 1) == '\\') {
+                int close = content.indexOf('\'', i + 3);
+                if (close > 0 && close < Math.min(end, i + 12)) {
+                    return close + 1;
+                }
+            }
+            return i + 1;
+        }
+        
+        private boolean lineCommentAt(int i) {
+            for (String prefix : lineComments) {
+                if (content.startsWith(prefix, i)
+                        && (!syntax.commentNeedsSpace() || i == 0 || Character.isWhitespace(content.charAt(i - 1)))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        
+        private boolean startsComment(int first) {
+            return lineCommentAt(first)
+                    || syntax.blockCommentOpen() != null && content.startsWith(syntax.blockCommentOpen(), first);
+        }
+        
+        /**
+         * A line that closes a bracket or block, or matches the grammar's closer, stays with
+         * the block it closes.
+         */
+        private boolean closes(int first, int end) {
+            char ch = content.charAt(first);
+            return ch == ')' || ch == ']' || ch == '}' || grammar.blockClose().indexOf(ch) >= 0 || matchesAt(closer, first, end);
+        }
+        
+        private boolean matchesAt(Matcher matcher, int first, int end) {
+            return matcher != null && matcher.region(first, end).lookingAt();
+        }
+        
+        private int column(int start, int first) {
+            int column = 0;
+            for (int i = start; i < first; i++) {
+                column = content.charAt(i) == '\t' ? (column / TAB_WIDTH + 1) * TAB_WIDTH : column + 1;
+            }
+            return column;
+        }
+        
+        /**
+         * Closes the indented blocks the line is left of and opens one when it is indented
+         * further than the innermost.
+         *
+         * @return the number of blocks the line is inside
+         */
+        private int indentationDepth(int column, boolean closing) {
+            while (indentCount > 1 && column < indents[indentCount - 1]) {
+                indentCount--;
+            }
+            if (column > indents[indentCount - 1] && !closing) {
+                if (indentCount == indents.length) {
+                    indents = Arrays.copyOf(indents, indentCount * 2);
+                }
+                indents[indentCount++] = column;
+            }
+            return indentCount - 1;
+        }
+    }
+    
+    /**
+     * Packs the blocks of a range of lines into chunks, dividing blocks that do not fit.
+     */
+    private final class Packer {
+        private final LineIndex lines;
+        private final Structure structure;
+        private final int maxTokens;
+        private final List<HierarchicalChunk> chunks;
+        
+        private Packer(LineIndex lines, Structure structure, int maxTokens, List<HierarchicalChunk> chunks) {
+            this.lines = lines;
+            this.structure = structure;
+            this.maxTokens = maxTokens;
+            this.chunks = chunks;
+        }
+        
+        /**
+         * @param level       nesting depth at which blocks start in the range
+         * @param firstPrefix prefix of the chunk starting at the first line of the range
+         * @param prefix      prefix of the other chunks: the headers of the enclosing blocks
+         * @param headed      whether the prefix already ends with the header of this range
+         */
+        private void pack(int from, int to, int level, String firstPrefix, String prefix, boolean headed) {
+            if (to - from == 1) {
+                // A line over the budget on its own is left for the caller to cut, without a prefix
+                boolean fits = lines.lineTokens(from) + (firstPrefix.isEmpty() ? 0 : tokenizer.countTokens(firstPrefix)) <= maxTokens;
+                emit(from, to, fits ? firstPrefix : "");
+                return;
+            }
+            
+            List<Integer> starts = new ArrayList<>();
+            BitSet definitions = new BitSet();
+            while (true) {
+                collectBlocks(from, to, level, starts, definitions);
+                if (starts.size() > 1 || level > structure.maxDepth()) {
+                    break;
+                }
+                // The range is one block; divide it at the next level under its header
+                level++;
+                if (!headed) {
+                    prefix = prefix + header(from, to);
+                    headed = true;
+                }
+            }
+            
+            // Headers are repeated in every part, but never leave less than half the budget
+            int budget = prefix.isEmpty() ? maxTokens : Math.max(maxTokens / 2, maxTokens - tokenizer.countTokens(prefix));
+            int chunkStart = from;
+            int chunkTokens = 0;
+            for (int block = 0; block < starts.size(); block++) {
+                int blockStart = starts.get(block);
+                int blockEnd = block + 1 < starts.size() ? starts.get(block + 1) : to;
+                int blockTokens = lines.tokens(blockStart, blockEnd);
+                
+                if (blockTokens > budget) {
+                    if (chunkStart < blockStart) {
+                        emit(chunkStart, blockStart, chunkStart == from ? firstPrefix : prefix);
+                    }
+                    pack(blockStart, blockEnd, level + 1, blockStart == from ? firstPrefix : prefix,
+                            prefix + header(blockStart, blockEnd), true);
+                    chunkStart = blockEnd;
+                    chunkTokens = 0;
+                    continue;
+                }
+                
+                if (chunkTokens > 0 && (chunkTokens + blockTokens > budget || definitions.get(block) && chunkTokens > budget / 2)) {
+                    emit(chunkStart, blockStart, chunkStart == from ? firstPrefix : prefix);
+                    chunkStart = blockStart;
+                    chunkTokens = 0;
+                }
+                chunkTokens += blockTokens;
+            }
+            if (chunkStart < to) {
+                emit(chunkStart, to, chunkStart == from ? firstPrefix : prefix);
+            }
+        }
+        
+        /**
+         * Finds where blocks start in the range: its first line and the lines at most
+         * {@code level} deep where a chunk may start, except those directly below a comment or
+         * attribute, which join the block of the line above. Beyond the deepest level every
+         * line is a block.
+         */
+        private void collectBlocks(int from, int to, int level, List<Integer> starts, BitSet definitions) {
+            starts.clear();
+            definitions.clear();
+            if (level > structure.maxDepth()) {
+                for (int line = from; line < to; line++) {
+                    starts.add(line);
+                }
+                return;
+            }
+            
+            byte[] flags = structure.flags();
+            starts.add(from);
+            definitions.set(0, (flags[from] & DEFINITION) != 0);
+            boolean attached = (flags[from] & LEADING) != 0;
+            for (int line = from + 1; line < to; line++) {
+                if ((flags[line] & CAN_START) == 0 || structure.depths()[line] > level) {
+                    continue;
+                }
+                if (!attached) {
+                    starts.add(line);
+                }
+                if ((flags[line] & DEFINITION) != 0) {
+                    definitions.set(starts.size() - 1);
+                }
+                attached = (flags[line] & LEADING) != 0;
+            }
+        }
+        
+        /**
+         * @return the first line of the range below its comments and attributes, or nothing
+         *         when that line would take more than a quarter of the budget
+         */
+        private String header(int from, int to) {
+            int line = from;
+            while (line < to - 1 && (structure.flags()[line] & (CAN_START | LEADING)) != CAN_START) {
+                line++;
+            }
+            String header = lines.content().substring(lines.lineStart(line), lines.lineContentEnd(line)) + "\n";
+            return lines.lineTokens(line) <= maxTokens / 4 ? header : "";
+        }
+        
+        private void emit(int fromLine, int toLine, String prefix) {
+            chunks.add(HierarchicalChunk.member(HierarchicalChunk.FILE_ID, lines.lineSpan(fromLine, toLine).withPrefix(prefix)));
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,30 @@
+package com.example.coderepoai.service.ingestion.lexer;
+
+import java.util.List;
+
+/**
+ * Recognises the import statements of one language among the lines the lexer keeps.
+ * A rule instance serves a single file, so it may remember that a statement spans
+ * several lines.
+ */
+public interface ImportRule {
+    
+    /**
+     * Cheap pre-check on the first non-blank character of a line, so most lines never
+     * reach {@link #accept}.
+     */
+    boolean mayStartWith(char firstChar);
+    
+    /**
+     * @return true while a statement started on an earlier line is not finished yet
+     */
+    default boolean isOpen() {
+        return false;
+    }
+    
+    /**
+     * @param line a kept line without comments and surrounding whitespace
+     * @return true when the line is (part of) an import statement and is left out of the content
+     */
+    boolean accept(String line, List<SourceImport> imports);
+}
\ No newline at end of file
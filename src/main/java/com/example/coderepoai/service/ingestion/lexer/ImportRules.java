@@ -0,0 +1,295 @@
+package com.example.coderepoai.service.ingestion.lexer;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Import rules of the languages the lexer registry knows. Each factory method returns a
+ * fresh rule for one file.
+ */
+public final class ImportRules {
+    
+    private ImportRules() {
+    }
+    
+    /**
+     * Java and Kotlin: {@code import [static] a.b.C[.*] [as D][;]}.
+     */
+    public static ImportRule jvm() {
+        return new JvmImportRule();
+    }
+    
+    /**
+     * JavaScript and TypeScript: ES module imports, re-exports and top-level {@code require}.
+     */
+    public static ImportRule javascript() {
+        return new JavaScriptImportRule();
+    }
+    
+    public static ImportRule python() {
+        return new PythonImportRule();
+    }
+    
+    public static ImportRule go() {
+        return new GoImportRule();
+    }
+    
+    public static ImportRule rust() {
+        return new RustImportRule();
+    }
+    
+    /**
+     * C and C++: {@code #include <header>} and {@code #include "header"}.
+     */
+    public static ImportRule cInclude() {
+        return new CIncludeRule();
+    }
+    
+    private static final class JvmImportRule implements ImportRule {
+        
+        private static final Pattern IMPORT = Pattern.compile("import\\s+(static\\s+)?([\\w.`]+(?:\\.\\*)?)(?:\\s+as\\s+\\w+)?\\s*;?");
+        
+        @Override
+        public boolean mayStartWith(char firstChar) {
+            return firstChar == 'i';
+        }
+        
+        @Override
+        public boolean accept(String line, List<SourceImport> imports) {
+            Matcher matcher = IMPORT.matcher(line);
+            if (!matcher.matches()) {
+                return false;
+            }
+            imports.add(new SourceImport(matcher.group(1) != null ? "import static" : "import", matcher.group(2)));
+            return true;
+        }
+    }
+    
+    private static final class JavaScriptImportRule implements ImportRule {
+        
+        private static final Pattern FROM = Pattern.compile("(?:import|export)\\s[^'\"]*?\\bfrom\\s*['\"]([^'\"]+)['\"]\\s*;?");
+        private static final Pattern SIDE_EFFECT = Pattern.compile("import\\s*['\"]([^'\"]+)['\"]\\s*;?");
+        private static final Pattern REQUIRE = Pattern.compile("(?:const|let|var|import)\\s+[\\w{}\\s,:]+=\\s*require\\(\\s*['\"]([^'\"]+)['\"]\\s*\\)\\s*;?");
+        private static final Pattern OPEN_IMPORT = Pattern.compile("import\\s+(?:type\\s+)?(?:[\\w$*]+\\s*,\\s*)?\\{[\\w$\\s,{}*]*");
+        // Lines inside the braces: names, commas, braces, "as" and "type"
+        private static final Pattern IMPORT_LIST = Pattern.compile("[\\w$\\s,{}*]+");
+        private static final Pattern CLOSE_FROM = Pattern.compile("[\\w$\\s,{}*]*\\bfrom\\s*['\"]([^'\"]+)['\"]\\s*;?");
+        private static final Pattern ENDS_WITH_FROM = Pattern.compile(".*\\bfrom");
+        private static final Pattern SOURCE = Pattern.compile("['\"]([^'\"]+)['\"]\\s*;?");
+        
+        private boolean open;
+        // The list ended with "from" and the module follows on the next line
+        private boolean awaitingSource;
+        
+        @Override
+        public boolean mayStartWith(char firstChar) {
+            return firstChar == 'i' || firstChar == 'e' || firstChar == 'c' || firstChar == 'l' || firstChar == 'v';
+        }
+        
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+        
+        @Override
+        public boolean accept(String line, List<SourceImport> imports) {
+            if (open) {
+                return acceptContinuation(line, imports);
+            }
+            
+            Matcher matcher = FROM.matcher(line);
+            if (matcher.matches() || (matcher = SIDE_EFFECT.matcher(line)).matches()) {
+                imports.add(new SourceImport("import", matcher.group(1)));
+                return true;
+            }
+            matcher = REQUIRE.matcher(line);
+            if (matcher.matches()) {
+                imports.add(new SourceImport("require", matcher.group(1)));
+                return true;
+            }
+            // import { a,\n b\n} from 'x'
+            if (OPEN_IMPORT.matcher(line).matches()) {
+                open = true;
+                awaitingSource = ENDS_WITH_FROM.matcher(line).matches();
+                return true;
+            }
+            return false;
+        }
+        
+        private boolean acceptContinuation(String line, List<SourceImport> imports) {
+            Matcher matcher = (awaitingSource ? SOURCE : CLOSE_FROM).matcher(line);
+            if (matcher.matches()) {
+                imports.add(new SourceImport("import", matcher.group(1)));
+                open = awaitingSource = false;
+                return true;
+            }
+            if (!awaitingSource && IMPORT_LIST.matcher(line).matches()) {
+                awaitingSource = ENDS_WITH_FROM.matcher(line).matches();
+                return true;
+            }
+            // Not an import after all; stop swallowing lines
+            open = awaitingSource = false;
+            return false;
+        }
+    }
+    
+    private static final class PythonImportRule implements ImportRule {
+        
+        private static final Pattern IMPORT = Pattern.compile("import\\s+([\\w.]+(?:\\s+as\\s+\\w+)?(?:\\s*,\\s*[\\w.]+(?:\\s+as\\s+\\w+)?)*)\\s*\\\\?");
+        private static final Pattern FROM = Pattern.compile("from\\s+([\\w.]+)\\s+import\\s+(.+)");
+        
+        // Inside "from x import (" until ")", or after a trailing backslash
+        private char closing;
+        
+        @Override
+        public boolean mayStartWith(char firstChar) {
+            return firstChar == 'i' || firstChar == 'f';
+        }
+        
+        @Override
+        public boolean isOpen() {
+            return closing != 0;
+        }
+        
+        @Override
+        public boolean accept(String line, List<SourceImport> imports) {
+            if (closing != 0) {
+                if (closing == ')' ? line.contains(")") : !line.endsWith("\\")) {
+                    closing = 0;
+                }
+                return true;
+            }
+            
+            Matcher matcher = IMPORT.matcher(line);
+            if (matcher.matches()) {
+                for (String module : matcher.group(1).split(",")) {
+                    imports.add(new SourceImport("import", module.trim().split("\\s+")[0]));
+                }
+                closing = line.endsWith("\\") ? '\\' : 0;
+                return true;
+            }
+            
+            matcher = FROM.matcher(line);
+            if (matcher.matches()) {
+                imports.add(new SourceImport("import", matcher.group(1)));
+                String names = matcher.group(2);
+                if (names.startsWith("(") && !names.contains(")")) {
+                    closing = ')';
+                } else if (names.endsWith("\\")) {
+                    closing = '\\';
+                }
+                return true;
+            }
+            return false;
+        }
+    }
+    
+    private static final class GoImportRule implements ImportRule {
+        
+        private static final Pattern SINGLE = Pattern.compile("import\\s+(?:[\\w.]+\\s+)?\"([^\"]+)\"");
+        private static final Pattern BLOCK_START = Pattern.compile("import\\s*\\(");
+        private static final Pattern BLOCK_ENTRY = Pattern.compile("(?:[\\w.]+\\s+)?\"([^\"]+)\"\\s*;?");
+        
+        private boolean open;
+        
+        @Override
+        public boolean mayStartWith(char firstChar) {
+            return firstChar == 'i';
+        }
+        
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+        
+        @Override
+        public boolean accept(String line, List<SourceImport> imports) {
+            if (open) {
+                if (line.equals(")")) {
+                    open = false;
+                    return true;
+                }
+                Matcher matcher = BLOCK_ENTRY.matcher(line);
+                if (matcher.matches()) {
+                    imports.add(new SourceImport("import", matcher.group(1)));
+                    return true;
+                }
+                // Not an import after all; stop swallowing lines
+                open = false;
+                return false;
+            }
+            
+            Matcher matcher = SINGLE.matcher(line);
+            if (matcher.matches()) {
+                imports.add(new SourceImport("import", matcher.group(1)));
+                return true;
+            }
+            if (BLOCK_START.matcher(line).matches()) {
+                open = true;
+                return true;
+            }
+            return false;
+        }
+    }
+    
+    private static final class RustImportRule implements ImportRule {
+        
+        private static final Pattern USE = Pattern.compile("(?:pub(?:\\([^)]*\\))?\\s+)?use\\s+([\\w:]+?)(?:::\\{.*|::\\*|\\s+as\\s+\\w+)?\\s*;?");
+        private static final Pattern EXTERN_CRATE = Pattern.compile("extern\\s+crate\\s+(\\w+)(?:\\s+as\\s+\\w+)?\\s*;");
+        
+        // A use tree split over several lines, until its semicolon
+        private boolean open;
+        
+        @Override
+        public boolean mayStartWith(char firstChar) {
+            return firstChar == 'u' || firstChar == 'p' || firstChar == 'e';
+        }
+        
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+        
+        @Override
+        public boolean accept(String line, List<SourceImport> imports) {
+            if (open) {
+                open = !line.endsWith(";");
+                return true;
+            }
+            
+            Matcher matcher = USE.matcher(line);
+            if (matcher.matches()) {
+                imports.add(new SourceImport("use", matcher.group(1)));
+                open = !line.endsWith(";");
+                return true;
+            }
+            matcher = EXTERN_CRATE.matcher(line);
+            if (matcher.matches()) {
+                imports.add(new SourceImport("crate", matcher.group(1)));
+                return true;
+            }
+            return false;
+        }
+    }
+    
+    private static final class CIncludeRule implements ImportRule {
+        
+        private static final Pattern INCLUDE = Pattern.compile("#\\s*include\\s*[<\"]([^>\"]+)[>\"]");
+        
+        @Override
+        public boolean mayStartWith(char firstChar) {
+            return firstChar == '#';
+        }
+        
+        @Override
+        public boolean accept(String line, List<SourceImport> imports) {
+            Matcher matcher = INCLUDE.matcher(line);
+            if (!matcher.matches()) {
+                return false;
+            }
+            imports.add(new SourceImport("include", matcher.group(1)));
+            return true;
+        }
+    }
+}
\ No newline at end of file
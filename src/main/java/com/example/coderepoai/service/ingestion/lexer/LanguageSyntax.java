@@ -0,0 +1,74 @@
+package com.example.coderepoai.service.ingestion.lexer;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * The lexical details of a language that matter for stripping comments: how comments and
+ * string literals are delimited, and how imports are written.
+ *
+ * @param lineComments          prefixes that comment out the rest of a line
+ * @param commentNeedsSpace     a line comment only starts at the beginning of a line or after
+ *                              whitespace ({@code a#b} is not a comment in YAML or shell)
+ * @param blockCommentOpen      {@code null} when the language has no block comments
+ * @param nestedBlockComments   block comments nest (Rust, Kotlin)
+ * @param quotes                characters that delimit string literals
+ * @param multilineQuotes       quotes whose literals may span lines (JavaScript template strings,
+ *                              Go raw strings)
+ * @param tripleQuotes          a tripled quote opens a literal that spans lines (Python, Java
+ *                              text blocks)
+ * @param importRule            creates the import rule for one file, or {@code null}
+ */
+public record LanguageSyntax(String name,
+                             List<String> lineComments,
+                             boolean commentNeedsSpace,
+                             String blockCommentOpen,
+                             String blockCommentClose,
+                             boolean nestedBlockComments,
+                             String quotes,
+                             String multilineQuotes,
+                             boolean tripleQuotes,
+                             Supplier<ImportRule> importRule) {
+    
+    private static final List<String> SLASH_COMMENTS = List.of("//");
+    private static final List<String> HASH_COMMENTS = List.of("#");
+    
+    public static final LanguageSyntax JAVA = new LanguageSyntax("java",
+            SLASH_COMMENTS, false, "/*", "*/", false, "\"'", "", true, ImportRules::jvm);
+    public static final LanguageSyntax KOTLIN = new LanguageSyntax("kotlin",
+            SLASH_COMMENTS, false, "/*", "*/", true, "\"'", "", true, ImportRules::jvm);
+    public static final LanguageSyntax JAVASCRIPT = new LanguageSyntax("javascript",
+            SLASH_COMMENTS, false, "/*", "*/", false, "\"'`", "`", false, ImportRules::javascript);
+    public static final LanguageSyntax TYPESCRIPT = new LanguageSyntax("typescript",
+            SLASH_COMMENTS, false, "/*", "*/", false, "\"'`", "`", false, ImportRules::javascript);
+    public static final LanguageSyntax PYTHON = new LanguageSyntax("python",
+            HASH_COMMENTS, false, null, null, false, "\"'", "", true, ImportRules::python);
+    public static final LanguageSyntax GO = new LanguageSyntax("go",
+            SLASH_COMMENTS, false, "/*", "*/", false, "\"'`", "`", false, ImportRules::go);
+    // No single quotes: 'a is a lifetime far more often than the start of a char literal
+    public static final LanguageSyntax RUST = new LanguageSyntax("rust",
+            SLASH_COMMENTS, false, "/*", "*/", true, "\"", "\"", false, ImportRules::rust);
+    public static final LanguageSyntax C = new LanguageSyntax("c",
+            SLASH_COMMENTS, false, "/*", "*/", false, "\"'", "", false, ImportRules::cInclude);
+    public static final LanguageSyntax SQL = new LanguageSyntax("sql",
+            List.of("--"), false, "/*", "*/", false, "'\"", "", false, null);
+    public static final LanguageSyntax YAML = new LanguageSyntax("yaml",
+            HASH_COMMENTS, true, null, null, false, "\"'", "", false, null);
+    
+    // Families for the remaining indexed file types
+    public static final LanguageSyntax C_FAMILY = new LanguageSyntax("c-family",
+            SLASH_COMMENTS, false, "/*", "*/", false, "\"'", "", false, null);
+    public static final LanguageSyntax CSS = new LanguageSyntax("css",
+            List.of(), false, "/*", "*/", false, "\"'", "", false, null);
+    public static final LanguageSyntax SHELL = new LanguageSyntax("shell",
+            HASH_COMMENTS, true, null, null, false, "\"", "", false, null);
+    public static final LanguageSyntax MARKUP = new LanguageSyntax("markup",
+            List.of(), false, "<!--", "-->", false, "", "", false, null);
+    // Prose and data: only blank lines and trailing whitespace are dropped
+    public static final LanguageSyntax PLAIN = new LanguageSyntax("plain",
+            List.of(), false, null, null, false, "", "", false, null);
+    
+    public ImportRule newImportRule() {
+        return importRule != null ? importRule.get() : null;
+    }
+}
\ No newline at end of file
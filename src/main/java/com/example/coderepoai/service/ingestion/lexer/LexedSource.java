@@ -0,0 +1,11 @@
+package com.example.coderepoai.service.ingestion.lexer;
+
+import java.util.List;
+
+/**
+ * Source text with comments, blank lines and import statements removed, the imports that
+ * were removed, and for every line of the content the 1-based line of the source it
+ * came from.
+ */
+public record LexedSource(String content, List<SourceImport> imports, int[] sourceLines) {
+}
\ No newline at end of file
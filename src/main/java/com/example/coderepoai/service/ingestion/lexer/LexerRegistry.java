@@ -0,0 +1,69 @@
+package com.example.coderepoai.service.ingestion.lexer;
+
+import com.example.coderepoai.service.ingestion.SupportedFiles;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Picks the lexer for a file by its extension, or by its name for well-known files
+ * without one. Files of unknown types get the plain lexer, which keeps every non-blank
+ * line, so nothing is stripped by a guess about its syntax.
+ */
+@Component
+public class LexerRegistry {
+    
+    private final Map<String, SourceLexer> lexersByExtension = new HashMap<>();
+    private final Map<String, SourceLexer> lexersByFileName = new HashMap<>();
+    private final SourceLexer plainLexer = new SourceLexer(LanguageSyntax.PLAIN);
+    
+    public LexerRegistry() {
+        register(LanguageSyntax.JAVA, "java");
+        register(LanguageSyntax.KOTLIN, "kt", "kts");
+        register(LanguageSyntax.JAVASCRIPT, "js", "jsx", "mjs", "cjs");
+        register(LanguageSyntax.TYPESCRIPT, "ts", "tsx");
+        register(LanguageSyntax.PYTHON, "py");
+        register(LanguageSyntax.GO, "go");
+        register(LanguageSyntax.RUST, "rs");
+        register(LanguageSyntax.C, "c", "h", "cpp", "cc", "hpp");
+        register(LanguageSyntax.SQL, "sql");
+        register(LanguageSyntax.YAML, "yml", "yaml");
+        register(LanguageSyntax.C_FAMILY, "cs", "swift", "scala", "php", "proto", "gradle");
+        register(LanguageSyntax.CSS, "css");
+        register(LanguageSyntax.SHELL, "sh", "bash", "rb", "r", "properties");
+        register(LanguageSyntax.MARKUP, "xml", "html");
+        
+        SourceLexer shell = lexersByExtension.get("sh");
+        for (String fileName : new String[] {"dockerfile", "makefile", "rakefile", "gemfile", "requirements"}) {
+            lexersByFileName.put(fileName, shell);
+        }
+    }
+    
+    public SourceLexer forPath(String path) {
+        String fileName = SupportedFiles.getFileName(path).toLowerCase(Locale.ROOT);
+        
+        int dot = fileName.lastIndexOf('.');
+        if (dot >= 0) {
+            SourceLexer lexer = lexersByExtension.get(fileName.substring(dot + 1));
+            if (lexer != null) {
+                return lexer;
+            }
+        }
+        
+        for (Map.Entry<String, SourceLexer> entry : lexersByFileName.entrySet()) {
+            if (fileName.startsWith(entry.getKey())) {
+                return entry.getValue();
+            }
+        }
+        return plainLexer;
+    }
+    
+    private void register(LanguageSyntax syntax, String... extensions) {
+        SourceLexer lexer = new SourceLexer(syntax);
+        for (String extension : extensions) {
+            lexersByExtension.put(extension, lexer);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,10 @@
+package com.example.coderepoai.service.ingestion.lexer;
+
+/**
+ * One dependency a source file declares.
+ *
+ * @param kind   the statement that declared it: import, include, use, require or crate
+ * @param module what was imported, as written (package, module path, header or crate)
+ */
+public record SourceImport(String kind, String module) {
+}
\ No newline at end of file
@@ -0,0 +1,293 @@
+package com.example.coderepoai.service.ingestion.lexer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Strips comments, blank lines, trailing whitespace and import statements from source
+ * text in one forward pass, following the {@link LanguageSyntax} of its language.
+ * <p>
+ * Comment markers inside string literals are left alone. A string that is not allowed to
+ * span lines ends with its line, so a stray apostrophe in prose cannot swallow the file.
+ * Content is copied into a per-thread scratch buffer first and kept characters are
+ * copied to the output in runs, so lexing allocates little beyond its result.
+ * <p>
+ * Each kept line stays one line of the output, so the result records which source line
+ * every output line came from.
+ */
+public final class SourceLexer {
+    
+    // Scratch buffers that grew beyond this for a huge file are dropped instead of kept per thread
+    private static final int MAX_RETAINED_CHARS = 1024 * 1024;
+    private static final ThreadLocal<ScratchBuffers> SCRATCH_BUFFERS = ThreadLocal.withInitial(ScratchBuffers::new);
+    
+    private final LanguageSyntax syntax;
+    // Characters that can change the scanner state; everything else is copied in bulk
+    private final boolean[] specialChars = new boolean[128];
+    private final char[][] lineComments;
+    private final char[] blockOpen;
+    private final char[] blockClose;
+    
+    public SourceLexer(LanguageSyntax syntax) {
+        this.syntax = syntax;
+        this.lineComments = syntax.lineComments().stream().map(String::toCharArray).toArray(char[][]::new);
+        this.blockOpen = syntax.blockCommentOpen() != null ? syntax.blockCommentOpen().toCharArray() : null;
+        this.blockClose = syntax.blockCommentClose() != null ? syntax.blockCommentClose().toCharArray() : null;
+        
+        specialChars['\n'] = true;
+        for (char[] prefix : lineComments) {
+            specialChars[prefix[0]] = true;
+        }
+        if (blockOpen != null) {
+            specialChars[blockOpen[0]] = true;
+        }
+        for (char quote : syntax.quotes().toCharArray()) {
+            specialChars[quote] = true;
+        }
+    }
+    
+    public LanguageSyntax getSyntax() {
+        return syntax;
+    }
+    
+    public LexedSource lex(CharSequence content) {
+        ScratchBuffers buffers = SCRATCH_BUFFERS.get();
+        char[] chars = buffers.load(content);
+        StringBuilder out = buffers.output;
+        out.setLength(0);
+        
+        try {
+            List<SourceImport> imports = new ArrayList<>();
+            Scan scan = new Scan(chars, content.length(), out, syntax.newImportRule(), imports);
+            scan.run();
+            return new LexedSource(out.toString(), imports.isEmpty() ? List.of() : List.copyOf(imports),
+                    Arrays.copyOf(scan.sourceLines, scan.keptLines));
+        } finally {
+            if (chars.length > MAX_RETAINED_CHARS || out.capacity() > MAX_RETAINED_CHARS) {
+                SCRATCH_BUFFERS.remove();
+            }
+        }
+    }
+    
+    /**
+     * State of lexing one file.
+     */
+    private final class Scan {
+        private final char[] chars;
+        private final int length;
+        private final StringBuilder out;
+        private final ImportRule importRule;
+        private final List<SourceImport> imports;
+        // Start of the pending run of kept characters, and of the current line in the output
+        private int runStart;
+        private int lineStart;
+        // 1-based source line being scanned, and the source line of every kept line so far
+        private int inputLine = 1;
+        private int[] sourceLines = new int[64];
+        private int keptLines;
+        
+        private Scan(char[] chars, int length, StringBuilder out, ImportRule importRule, List<SourceImport> imports) {
+            this.chars = chars;
+            this.length = length;
+            this.out = out;
+            this.importRule = importRule;
+            this.imports = imports;
+        }
+        
+        private void run() {
+            int i = 0;
+            while (i < length) {
+                while (i < length && (chars[i] >= 128 || !specialChars[chars[i]])) {
+                    i++;
+                }
+                if (i == length) {
+                    break;
+                }
+                
+                char ch = chars[i];
+                if (ch == '\n') {
+                    flushRun(i);
+                    endLine();
+                    runStart = ++i;
+                    continue;
+                }
+                
+                int commentLength = lineCommentAt(i);
+                if (commentLength > 0) {
+                    flushRun(i);
+                    i += commentLength;
+                    while (i < length && chars[i] != '\n') {
+                        i++;
+                    }
+                    runStart = i;
+                    continue;
+                }
+                
+                if (blockOpen != null && matches(i, blockOpen)) {
+                    flushRun(i);
+                    i = skipBlockComment(i + blockOpen.length);
+                    runStart = i;
+                    continue;
+                }
+                
+                if (syntax.quotes().indexOf(ch) >= 0) {
+                    i = skipString(i);
+                    continue;
+                }
+                i++;
+            }
+            
+            flushRun(length);
+            endLine();
+        }
+        
+        private int lineCommentAt(int i) {
+            for (char[] prefix : lineComments) {
+                if (matches(i, prefix) && (!syntax.commentNeedsSpace() || i == 0 || chars[i - 1] <= ' ')) {
+                    return prefix.length;
+                }
+            }
+            return 0;
+        }
+        
+        /**
+         * @return the index just after the comment, or the end of the content
+         */
+        private int skipBlockComment(int i) {
+            int depth = 1;
+            while (i < length) {
+                if (chars[i] == '\n') {
+                    endLine();
+                    i++;
+                } else if (matches(i, blockClose)) {
+                    i += blockClose.length;
+                    if (--depth == 0) {
+                        return i;
+                    }
+                } else if (syntax.nestedBlockComments() && matches(i, blockOpen)) {
+                    i += blockOpen.length;
+                    depth++;
+                } else {
+                    i++;
+                }
+            }
+            return length;
+        }
+        
+        /**
+         * @return the index just after the closing quote, or of the newline that ends an
+         *         unterminated single-line string
+         */
+        private int skipString(int i) {
+            char quote = chars[i];
+            boolean triple = syntax.tripleQuotes() && i + 2 < length && chars[i + 1] == quote && chars[i + 2] == quote;
+            boolean multiline = triple || syntax.multilineQuotes().indexOf(quote) >= 0;
+            i += triple ? 3 : 1;
+            
+            while (i < length) {
+                char ch = chars[i];
+                if (ch == '\n') {
+                    if (!multiline) {
+                        return i;
+                    }
+                    flushRun(i);
+                    endLine();
+                    runStart = ++i;
+                } else if (ch == '\\' && i + 1 < length && chars[i + 1] != '\n') {
+                    i += 2;
+                } else if (ch == quote && (!triple || (i + 2 < length && chars[i + 1] == quote && chars[i + 2] == quote))) {
+                    return i + (triple ? 3 : 1);
+                } else {
+                    i++;
+                }
+            }
+            return length;
+        }
+        
+        private boolean matches(int i, char[] token) {
+            if (i + token.length > length) {
+                return false;
+            }
+            for (int k = 0; k < token.length; k++) {
+                if (chars[i + k] != token[k]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        private void flushRun(int end) {
+            if (runStart < end) {
+                out.append(chars, runStart, end - runStart);
+            }
+            runStart = end;
+        }
+        
+        private void endLine() {
+            if (keepLine()) {
+                if (keptLines == sourceLines.length) {
+                    sourceLines = Arrays.copyOf(sourceLines, keptLines * 2);
+                }
+                sourceLines[keptLines++] = inputLine;
+            }
+            inputLine++;
+        }
+        
+        /**
+         * Keeps the line just written, minus trailing whitespace, unless it is blank or an
+         * import statement.
+         *
+         * @return whether the line was kept
+         */
+        private boolean keepLine() {
+            int end = out.length();
+            while (end > lineStart && out.charAt(end - 1) <= ' ') {
+                end--;
+            }
+            out.setLength(end);
+            if (end == lineStart) {
+                return false;
+            }
+            
+            if (importRule != null) {
+                int first = lineStart;
+                while (out.charAt(first) <= ' ') {
+                    first++;
+                }
+                if ((importRule.isOpen() || importRule.mayStartWith(out.charAt(first)))
+                        && importRule.accept(out.substring(first, end), imports)) {
+                    out.setLength(lineStart);
+                    return false;
+                }
+            }
+            
+            out.append('\n');
+            lineStart = out.length();
+            return true;
+        }
+    }
+    
+    /**
+     * Per-thread buffers reused across files.
+     */
+    private static final class ScratchBuffers {
+        private final StringBuilder output = new StringBuilder(16 * 1024);
+        private char[] chars = new char[16 * 1024];
+        
+        private char[] load(CharSequence content) {
+            int length = content.length();
+            if (chars.length < length) {
+                chars = new char[Math.max(length, chars.length * 2)];
+            }
+            if (content instanceof String string) {
+                string.getChars(0, length, chars, 0);
+            } else {
+                for (int i = 0; i < length; i++) {
+                    chars[i] = content.charAt(i);
+                }
+            }
+            return chars;
+        }
+    }
+}
\ No newline at end of file
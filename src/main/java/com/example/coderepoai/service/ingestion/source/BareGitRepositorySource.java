@@ -0,0 +1,233 @@
+package com.example.coderepoai.service.ingestion.source;
+
+import com.example.coderepoai.exception.RepositoryFetchException;
+import com.example.coderepoai.service.ingestion.SupportedFiles;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Reads files straight out of a local bare git repository (e.g. a mirror created with
+ * {@code git clone --mirror}) using the git command line, without a working tree or network access.
+ * Blobs are streamed through a single {@code git cat-file --batch} process.
+ */
+@Component
+public class BareGitRepositorySource implements RepositorySource {
+    
+    private static final Logger logger = LoggerFactory.getLogger(BareGitRepositorySource.class);
+    
+    private final LocalPaths localPaths;
+    private final String gitExecutable;
+    
+    public BareGitRepositorySource(LocalPaths localPaths, @Value("${ingestion.git.executable:git}") String gitExecutable) {
+        this.localPaths = localPaths;
+        this.gitExecutable = gitExecutable;
+    }
+    
+    @Override
+    public String getName() {
+        return "bare-git";
+    }
+    
+    @Override
+    public boolean supports(String location) {
+        Path path = localPaths.toPath(location);
+        return path != null && Files.isDirectory(path) && LocalPaths.isBareGitRepository(path);
+    }
+    
+    @Override
+    public int fetchFiles(String location, String revision, Consumer<SourceFile> consumer) {
+        return fetchFiles(location, revision, null, consumer);
+    }
+    
+    @Override
+    public int fetchFiles(String location, String revision, Collection<String> paths, Consumer<SourceFile> consumer) {
+        Path gitDir = localPaths.toPath(location);
+        long startTime = System.nanoTime();
+        
+        try {
+            List<TreeEntry> blobs = listBlobs(gitDir, revision != null ? revision : "HEAD");
+            if (paths != null) {
+                Set<String> wanted = Set.copyOf(paths);
+                blobs.removeIf(blob -> !wanted.contains(blob.path()));
+            }
+            long listedTime = System.nanoTime();
+            
+            int fileCount = readBlobs(gitDir, blobs, consumer);
+            
+            logger.info("Read {} files from bare repository {}: tree listing {} ms, blob read {} ms", fileCount, gitDir,
+                    TimeUnit.NANOSECONDS.toMillis(listedTime - startTime),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - listedTime));
+            return fileCount;
+        } catch (IOException e) {
+            throw new RepositoryFetchException("Failed to read bare repository: " + location, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RepositoryFetchException("Interrupted while reading bare repository: " + location, e);
+        }
+    }
+    
+    @Override
+    public String resolveRevision(String location) {
+        try {
+            Process process = startGit(localPaths.toPath(location), "rev-parse", "HEAD");
+            String revision = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8).trim();
+            waitForGit(process, "rev-parse");
+            return revision;
+        } catch (IOException e) {
+            throw new RepositoryFetchException("Failed to resolve head of bare repository: " + location, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RepositoryFetchException("Interrupted while resolving head of bare repository: " + location, e);
+        }
+    }
+    
+    @Override
+    public List<FileChange> listChanges(String location, String fromRevision, String toRevision) {
+        try {
+            Process process = startGit(localPaths.toPath(location),
+                    "diff", "--name-status", "-z", "-M", fromRevision, toRevision);
+            String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            waitForGit(process, "diff");
+            return parseNameStatus(output);
+        } catch (IOException e) {
+            // Typically the indexed revision no longer exists after a forced push
+            logger.warn("Failed to diff {}..{} in {}: {}", fromRevision, toRevision, location, e.getMessage());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RepositoryFetchException("Interrupted while diffing bare repository: " + location, e);
+        }
+    }
+    
+    /**
+     * Parses "git diff --name-status -z" output: a status field followed by one path,
+     * or two paths (old, new) for renames and copies, all NUL-separated.
+     */
+    private List<FileChange> parseNameStatus(String output) {
+        List<FileChange> changes = new ArrayList<>();
+        String[] fields = output.split("\0");
+        
+        int i = 0;
+        while (i < fields.length && !fields[i].isEmpty()) {
+            char status = fields[i].charAt(0);
+            switch (status) {
+                case 'R':
+                    changes.add(new FileChange(FileChange.Type.RENAMED, fields[i + 2], fields[i + 1]));
+                    i += 3;
+                    break;
+                case 'C':
+                    changes.add(new FileChange(FileChange.Type.ADDED, fields[i + 2], null));
+                    i += 3;
+                    break;
+                case 'A':
+                    changes.add(new FileChange(FileChange.Type.ADDED, fields[i + 1], null));
+                    i += 2;
+                    break;
+                case 'D':
+                    changes.add(new FileChange(FileChange.Type.REMOVED, fields[i + 1], null));
+                    i += 2;
+                    break;
+                default:
+                    changes.add(new FileChange(FileChange.Type.MODIFIED, fields[i + 1], null));
+                    i += 2;
+            }
+        }
+        
+        return changes;
+    }
+    
+    private List<TreeEntry> listBlobs(Path gitDir, String revision) throws IOException, InterruptedException {
+        Process process = startGit(gitDir, "ls-tree", "-r", "-z", "--full-tree", revision);
+        List<TreeEntry> blobs = new ArrayList<>();
+        
+        // Entries look like "<mode> SP <type> SP <sha> TAB <path> NUL"
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        for (String record : output.split("\0")) {
+            int tab = record.indexOf('\t');
+            if (tab < 0) {
+                continue;
+            }
+            String[] meta = record.substring(0, tab).split(" ");
+            String path = record.substring(tab + 1);
+            if (meta.length == 3 && "blob".equals(meta[1]) && SupportedFiles.shouldProcessFile(path)) {
+                blobs.add(new TreeEntry(path, meta[2]));
+            }
+        }
+        
+        waitForGit(process, "ls-tree");
+        return blobs;
+    }
+    
+    private int readBlobs(Path gitDir, List<TreeEntry> blobs, Consumer<SourceFile> consumer) throws IOException, InterruptedException {
+        Process process = startGit(gitDir, "cat-file", "--batch");
+        int fileCount = 0;
+        
+        try (OutputStream requests = process.getOutputStream();
+             InputStream responses = new BufferedInputStream(process.getInputStream(), 64 * 1024)) {
+            for (TreeEntry blob : blobs) {
+                requests.write((blob.sha() + "\n").getBytes(StandardCharsets.US_ASCII));
+                requests.flush();
+                
+                // Response header is "<sha> <type> <size>\n", followed by the content and a newline
+                String[] header = readLine(responses).split(" ");
+                if (header.length < 3) {
+                    logger.warn("Missing blob {} for {}", blob.sha(), blob.path());
+                    continue;
+                }
+                
+                int size = Integer.parseInt(header[2]);
+                byte[] content = responses.readNBytes(size);
+                responses.read();
+                
+                consumer.accept(new SourceFile(blob.path(), new String(content, StandardCharsets.UTF_8), blob.sha()));
+                fileCount++;
+            }
+        }
+        
+        waitForGit(process, "cat-file");
+        return fileCount;
+    }
+    
+    private String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(64);
+        int b;
+        while ((b = in.read()) != -1 && b != '\n') {
+            line.write(b);
+        }
+        return line.toString(StandardCharsets.UTF_8);
+    }
+    
+    private Process startGit(Path gitDir, String... args) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(gitExecutable);
+        command.add("--git-dir=" + gitDir);
+        command.addAll(List.of(args));
+        
+        return new ProcessBuilder(command)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+    }
+    
+    private void waitForGit(Process process, String command) throws IOException, InterruptedException {
+        int exitCode = process.waitFor();
+        if (exitCode != 0) {
+            throw new IOException("git " + command + " exited with code " + exitCode);
+        }
+    }
+    
+    private record TreeEntry(String path, String sha) {
+    }
+}
\ No newline at end of file
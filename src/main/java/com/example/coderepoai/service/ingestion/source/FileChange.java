@@ -0,0 +1,16 @@
+package com.example.coderepoai.service.ingestion.source;
+
+/**
+ * A file-level change between two revisions of a repository.
+ *
+ * @param previousPath the old path of a renamed file, otherwise {@code null}
+ */
+public record FileChange(Type type, String path, String previousPath) {
+    
+    public enum Type {
+        ADDED,
+        MODIFIED,
+        REMOVED,
+        RENAMED
+    }
+}
\ No newline at end of file
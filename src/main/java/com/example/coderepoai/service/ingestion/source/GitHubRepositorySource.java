@@ -0,0 +1,55 @@
+package com.example.coderepoai.service.ingestion.source;
+
+import com.example.coderepoai.service.ingestion.RepositoryFetcher;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reads repositories through the GitHub API using the configured fetch mode.
+ */
+@Component
+public class GitHubRepositorySource implements RepositorySource {
+    
+    private final RepositoryFetcher repositoryFetcher;
+    
+    public GitHubRepositorySource(RepositoryFetcher repositoryFetcher) {
+        this.repositoryFetcher = repositoryFetcher;
+    }
+    
+    @Override
+    public String getName() {
+        return "github";
+    }
+    
+    @Override
+    public boolean supports(String location) {
+        return location != null && location.startsWith("https://github.com/");
+    }
+    
+    @Override
+    public int fetchFiles(String location, String revision, Consumer<SourceFile> consumer) {
+        if (repositoryFetcher.isArchiveMode()) {
+            return repositoryFetcher.streamRepositoryArchive(location, revision,
+                    (path, content) -> consumer.accept(new SourceFile(path, content, null)));
+        }
+        return repositoryFetcher.fetchRepositoryFiles(location, revision, consumer);
+    }
+    
+    @Override
+    public int fetchFiles(String location, String revision, Collection<String> paths, Consumer<SourceFile> consumer) {
+        return repositoryFetcher.fetchRepositoryFiles(location, revision, paths, consumer);
+    }
+    
+    @Override
+    public String resolveRevision(String location) {
+        return repositoryFetcher.resolveHeadRevision(location);
+    }
+    
+    @Override
+    public List<FileChange> listChanges(String location, String fromRevision, String toRevision) {
+        return repositoryFetcher.compareRevisions(location, fromRevision, toRevision);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,98 @@
+package com.example.coderepoai.service.ingestion.source;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resolves local repository locations. Refresh requests are not authenticated, so only
+ * paths under the configured roots are accepted; anything else on the server could
+ * otherwise be indexed and read back through chat.
+ */
+@Component
+public class LocalPaths {
+    
+    private static final Logger logger = LoggerFactory.getLogger(LocalPaths.class);
+    
+    private final List<Path> roots;
+    
+    /**
+     * @param roots comma-separated directories local repositories may live under; none by default
+     */
+    public LocalPaths(@Value("${ingestion.local.roots:}") String roots) {
+        this.roots = new ArrayList<>();
+        for (String root : roots.split(",")) {
+            if (root.isBlank()) {
+                continue;
+            }
+            try {
+                this.roots.add(Path.of(root.trim()).toRealPath());
+            } catch (IOException e) {
+                logger.warn("Ignoring local repository root {}: {}", root.trim(), e.getMessage());
+            }
+        }
+        if (!this.roots.isEmpty()) {
+            logger.info("Local repositories may be indexed under {}", this.roots);
+        }
+    }
+    
+    /**
+     * Resolves "file:" URIs and absolute filesystem paths to their real path, with symbolic
+     * links and ".." segments resolved. Returns null for remote locations and for paths
+     * that do not exist or are not under one of the configured roots.
+     */
+    Path toPath(String location) {
+        Path path = toLocalPath(location);
+        if (path == null || roots.isEmpty()) {
+            return null;
+        }
+        
+        Path realPath;
+        try {
+            realPath = path.toRealPath();
+        } catch (IOException e) {
+            return null;
+        }
+        for (Path root : roots) {
+            if (realPath.startsWith(root)) {
+                return realPath;
+            }
+        }
+        logger.debug("Rejected local repository outside the configured roots: {}", location);
+        return null;
+    }
+    
+    private static Path toLocalPath(String location) {
+        if (location == null || location.isBlank()) {
+            return null;
+        }
+        try {
+            if (location.startsWith("file:")) {
+                return Path.of(URI.create(location));
+            }
+            Path path = Path.of(location);
+            return path.isAbsolute() ? path : null;
+        } catch (IllegalArgumentException e) {
+            // Malformed URI or path
+            return null;
+        }
+    }
+    
+    static boolean isBareGitRepository(Path path) {
+        return Files.isRegularFile(path.resolve("HEAD"))
+                && Files.isDirectory(path.resolve("objects"))
+                && Files.isDirectory(path.resolve("refs"));
+    }
+    
+    static String toRepositoryPath(Path root, Path file) {
+        return root.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+    }
+}
\ No newline at end of file
@@ -0,0 +1,60 @@
+package com.example.coderepoai.service.ingestion.source;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Where repository files come from. {@code RefreshService} picks the first source that
+ * supports a location, so the rest of the ingestion pipeline does not care whether files
+ * are read from the GitHub API, a local checkout or a bare mirror.
+ */
+public interface RepositorySource {
+    
+    String getName();
+    
+    boolean supports(String location);
+    
+    /**
+     * Streams every indexable file at the location to the consumer.
+     * The consumer may be invoked from several threads at once.
+     *
+     * @param revision commit to read, or {@code null} for the current head
+     * @return number of files emitted
+     */
+    int fetchFiles(String location, String revision, Consumer<SourceFile> consumer);
+    
+    /**
+     * Streams only the given paths. Sources that cannot address single files
+     * read everything and drop what was not asked for.
+     */
+    default int fetchFiles(String location, String revision, Collection<String> paths, Consumer<SourceFile> consumer) {
+        Set<String> wanted = Set.copyOf(paths);
+        AtomicInteger fileCount = new AtomicInteger();
+        fetchFiles(location, revision, file -> {
+            if (wanted.contains(file.path())) {
+                consumer.accept(file);
+                fileCount.incrementAndGet();
+            }
+        });
+        return fileCount.get();
+    }
+    
+    /**
+     * @return the commit currently at the head of the location, or {@code null} when the
+     *         source is not versioned and every refresh has to be a full one
+     */
+    default String resolveRevision(String location) {
+        return null;
+    }
+    
+    /**
+     * @return files changed between the two revisions, or {@code null} when the change set
+     *         cannot be determined and a full refresh is required
+     */
+    default List<FileChange> listChanges(String location, String fromRevision, String toRevision) {
+        return null;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,11 @@
+package com.example.coderepoai.service.ingestion.source;
+
+/**
+ * A single file emitted by a {@link RepositorySource}.
+ *
+ * @param path    repository-relative path using '/' separators
+ * @param content decoded file content
+ * @param blobSha git blob SHA when the source knows it, otherwise {@code null}
+ */
+public record SourceFile(String path, String content, String blobSha) {
+}
\ No newline at end of file
@@ -8,12 +8,16 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -24,11 +28,14 @@ public class CodeReviewService {
     
     private final ChatClient chatClient;
     private final GitHubPullRequestService pullRequestService;
+    private final Executor ioExecutor;
     
     @Autowired
-    public CodeReviewService(ChatClient chatClient, GitHubPullRequestService pullRequestService) {
+    public CodeReviewService(ChatClient chatClient, GitHubPullRequestService pullRequestService,
+                             @Qualifier("ioExecutor") Executor ioExecutor) {
         this.chatClient = chatClient;
         this.pullRequestService = pullRequestService;
+        this.ioExecutor = ioExecutor;
     }
     
     /**
@@ -38,11 +45,13 @@ public class CodeReviewService {
         logger.info("Starting AI code review for PR #{} in repository: {}", pullRequestNumber, repositoryUrl);
         
         try {
-            // Get pull request details
-            PullRequest pullRequest = pullRequestService.getPullRequest(repositoryUrl, pullRequestNumber);
-            
-            // Get the diff content
-            String diffContent = pullRequestService.getPullRequestDiff(repositoryUrl, pullRequestNumber);
+            // Get pull request details and the diff content in parallel
+            CompletableFuture<PullRequest> pullRequestFuture = CompletableFuture.supplyAsync(
+                    () -> pullRequestService.getPullRequest(repositoryUrl, pullRequestNumber), ioExecutor);
+            CompletableFuture<String> diffFuture = CompletableFuture.supplyAsync(
+                    () -> pullRequestService.getPullRequestDiff(repositoryUrl, pullRequestNumber), ioExecutor);
+            PullRequest pullRequest = join(pullRequestFuture);
+            String diffContent = join(diffFuture);
             
             // Create code review object
             CodeReview codeReview = new CodeReview(pullRequestNumber, repositoryUrl);
@@ -72,6 +81,17 @@ public class CodeReviewService {
         }
     }
     
+    private <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+    
     private void performAICodeReview(CodeReview codeReview, PullRequest pullRequest, String diffContent) {
         try {
             String reviewPrompt = buildReviewPrompt(pullRequest, diffContent);
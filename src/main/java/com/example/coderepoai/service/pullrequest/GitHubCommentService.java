@@ -1,12 +1,13 @@
 package com.example.coderepoai.service.pullrequest;
 
-import com.example.coderepoai.exception.RepositoryFetchException;
 import com.example.coderepoai.model.CodeReview;
 import com.example.coderepoai.model.ReviewComment;
+import com.example.coderepoai.service.github.GitHubRequestScheduler;
+import com.example.coderepoai.service.github.GitHubRequestScheduler.GitHubCall;
+import com.example.coderepoai.service.github.GitHubRequestScheduler.Priority;
 import org.kohsuke.github.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
@@ -19,28 +20,16 @@ public class GitHubCommentService {
     private static final Logger logger = LoggerFactory.getLogger(GitHubCommentService.class);
     
     private final GitHub github;
+    private final GitHubRequestScheduler scheduler;
     private final boolean isAuthenticatedMode;
     
-    public GitHubCommentService(@Value("${github.token:}") String githubToken) {
-        try {
-            String token = githubToken;
-            if (token == null || token.trim().isEmpty()) {
-                token = System.getenv("GITHUB_TOKEN");
-            }
-            
-            if (token == null || token.trim().isEmpty()) {
-                this.github = null;
-                this.isAuthenticatedMode = false;
-                logger.warn("No GitHub token provided - comment posting will be disabled");
-            } else {
-                this.github = GitHub.connectUsingOAuth(token);
-                this.isAuthenticatedMode = true;
-                logger.info("Connected to GitHub for commenting operations");
-            }
-            
-        } catch (IOException e) {
-            logger.error("Failed to connect to GitHub for commenting: {}", e.getMessage());
-            throw new RepositoryFetchException("Failed to connect to GitHub for commenting", e);
+    public GitHubCommentService(GitHub github, GitHubRequestScheduler scheduler) {
+        this.github = github;
+        this.scheduler = scheduler;
+        this.isAuthenticatedMode = !github.isAnonymous();
+        
+        if (!isAuthenticatedMode) {
+            logger.warn("No GitHub token provided - comment posting will be disabled");
         }
     }
     
@@ -55,8 +44,8 @@ public class GitHubCommentService {
         
         try {
             String repoPath = extractRepoPathFromUrl(repositoryUrl);
-            GHRepository repository = github.getRepository(repoPath);
-            GHPullRequest pullRequest = repository.getPullRequest(codeReview.getPullRequestNumber());
+            GHRepository repository = interactive(() -> github.getRepository(repoPath));
+            GHPullRequest pullRequest = interactive(() -> repository.getPullRequest(codeReview.getPullRequestNumber()));
             
             // Post summary comment first
             postSummaryComment(pullRequest, codeReview);
@@ -147,7 +136,7 @@ public class GitHubCommentService {
         summary.append("---\n");
         summary.append("*This review was generated by AI. Please review the suggestions and use your judgment.*");
         
-        pullRequest.comment(summary.toString());
+        interactive(() -> pullRequest.comment(summary.toString()));
         logger.info("Posted summary comment for PR #{}", pullRequest.getNumber());
     }
     
@@ -165,16 +154,16 @@ public class GitHubCommentService {
         
         try {
             // Try to create a review comment on the specific line
-            pullRequest.createReviewComment(
+            interactive(() -> pullRequest.createReviewComment(
                 formattedComment,
                 pullRequest.getHead().getSha(),
                 comment.getPath(),
                 comment.getLine()
-            );
+            ));
             
             logger.debug("Posted line comment on {}:{} for PR #{}", 
                         comment.getPath(), comment.getLine(), pullRequest.getNumber());
-            
+                        
         } catch (IOException e) {
             // If line comment fails, fall back to general comment
             logger.warn("Failed to post line comment, posting as general comment: {}", e.getMessage());
@@ -196,7 +185,8 @@ public class GitHubCommentService {
                                            formattedComment);
         }
         
-        pullRequest.comment(formattedComment);
+        String body = formattedComment;
+        interactive(() -> pullRequest.comment(body));
         logger.debug("Posted general comment for PR #{}", pullRequest.getNumber());
     }
     
@@ -254,7 +244,7 @@ public class GitHubCommentService {
             report.append(formatReviewComment(comment)).append("\n\n");
         }
         
-        pullRequest.comment(report.toString());
+        interactive(() -> pullRequest.comment(report.toString()));
         logger.info("Posted failed comments report with {} items for PR #{}", 
                    failedComments.size(), pullRequest.getNumber());
     }
@@ -270,13 +260,13 @@ public class GitHubCommentService {
         
         try {
             String repoPath = extractRepoPathFromUrl(repositoryUrl);
-            GHRepository repository = github.getRepository(repoPath);
-            GHPullRequest pullRequest = repository.getPullRequest(pullRequestNumber);
+            GHRepository repository = interactive(() -> github.getRepository(repoPath));
+            GHPullRequest pullRequest = interactive(() -> repository.getPullRequest(pullRequestNumber));
             
             String formattedSummary = "## 🤖 AI Code Review\n\n" + summary + 
                                     "\n\n---\n*This review was generated by AI.*";
             
-            pullRequest.comment(formattedSummary);
+            interactive(() -> pullRequest.comment(formattedSummary));
             
             logger.info("Posted simple review summary for PR #{}", pullRequestNumber);
             return true;
@@ -287,6 +277,10 @@ public class GitHubCommentService {
         }
     }
     
+    private <T> T interactive(GitHubCall<T> call) throws IOException {
+        return scheduler.execute(Priority.INTERACTIVE, call);
+    }
+    
     private String getStateEmoji(String state) {
         if (state == null) return "❓ Unknown";
         
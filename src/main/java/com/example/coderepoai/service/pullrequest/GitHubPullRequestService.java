@@ -3,10 +3,12 @@ package com.example.coderepoai.service.pullrequest;
 import com.example.coderepoai.exception.RepositoryFetchException;
 import com.example.coderepoai.model.PullRequest;
 import com.example.coderepoai.model.ReviewComment;
+import com.example.coderepoai.service.github.GitHubRequestScheduler;
+import com.example.coderepoai.service.github.GitHubRequestScheduler.GitHubCall;
+import com.example.coderepoai.service.github.GitHubRequestScheduler.Priority;
 import org.kohsuke.github.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
@@ -23,24 +25,11 @@ public class GitHubPullRequestService {
     private static final Logger logger = LoggerFactory.getLogger(GitHubPullRequestService.class);
     
     private final GitHub github;
+    private final GitHubRequestScheduler scheduler;
     
-    public GitHubPullRequestService(@Value("${github.token:}") String githubToken) {
-        try {
-            String token = githubToken;
-            if (token == null || token.trim().isEmpty()) {
-                token = System.getenv("GITHUB_TOKEN");
-            }
-            
-            if (token == null || token.trim().isEmpty()) {
-                this.github = GitHub.connectAnonymously();
-                logger.warn("Using anonymous GitHub connection - PR operations may be limited");
-            } else {
-                this.github = GitHub.connectUsingOAuth(token);
-                logger.info("Connected to GitHub using OAuth token for PR operations");
-            }
-        } catch (IOException e) {
-            throw new RepositoryFetchException("Failed to connect to GitHub for PR operations", e);
-        }
+    public GitHubPullRequestService(GitHub github, GitHubRequestScheduler scheduler) {
+        this.github = github;
+        this.scheduler = scheduler;
     }
     
     /**
@@ -63,13 +52,14 @@ public class GitHubPullRequestService {
     public List<PullRequest> getPullRequests(String repositoryUrl, GHIssueState state) {
         try {
             String repoPath = extractRepoPathFromUrl(repositoryUrl);
-            GHRepository repository = github.getRepository(repoPath);
+            GHRepository repository = interactive(() -> github.getRepository(repoPath));
             
-            List<GHPullRequest> ghPullRequests = repository.getPullRequests(state);
+            List<GHPullRequest> ghPullRequests = interactive(() -> repository.getPullRequests(state));
             List<PullRequest> pullRequests = new ArrayList<>();
             
             for (GHPullRequest ghPr : ghPullRequests) {
-                PullRequest pr = convertToPullRequest(ghPr);
+                // Change counts are not part of the list response and are loaded lazily
+                PullRequest pr = interactive(() -> convertToPullRequest(ghPr));
                 pullRequests.add(pr);
             }
             
@@ -87,10 +77,10 @@ public class GitHubPullRequestService {
     public PullRequest getPullRequest(String repositoryUrl, int pullRequestNumber) {
         try {
             String repoPath = extractRepoPathFromUrl(repositoryUrl);
-            GHRepository repository = github.getRepository(repoPath);
+            GHRepository repository = interactive(() -> github.getRepository(repoPath));
             
-            GHPullRequest ghPr = repository.getPullRequest(pullRequestNumber);
-            PullRequest pr = convertToPullRequest(ghPr);
+            GHPullRequest ghPr = interactive(() -> repository.getPullRequest(pullRequestNumber));
+            PullRequest pr = interactive(() -> convertToPullRequest(ghPr));
             
             logger.info("Fetched pull request #{} from repository: {}", pullRequestNumber, repositoryUrl);
             return pr;
@@ -106,12 +96,12 @@ public class GitHubPullRequestService {
     public String getPullRequestDiff(String repositoryUrl, int pullRequestNumber) {
         try {
             String repoPath = extractRepoPathFromUrl(repositoryUrl);
-            GHRepository repository = github.getRepository(repoPath);
+            GHRepository repository = interactive(() -> github.getRepository(repoPath));
             
-            GHPullRequest ghPr = repository.getPullRequest(pullRequestNumber);
+            GHPullRequest ghPr = interactive(() -> repository.getPullRequest(pullRequestNumber));
             
             // Get the diff using GitHub API
-            GHCompare comparison = repository.getCompare(ghPr.getBase().getSha(), ghPr.getHead().getSha());
+            GHCompare comparison = interactive(() -> repository.getCompare(ghPr.getBase().getSha(), ghPr.getHead().getSha()));
             
             StringBuilder diffContent = new StringBuilder();
             for (GHCommit commit : comparison.getCommits()) {
@@ -120,7 +110,7 @@ public class GitHubPullRequestService {
             }
             
             // Get changed files
-            PagedIterable<GHPullRequestFileDetail> files = ghPr.listFiles();
+            List<GHPullRequestFileDetail> files = interactive(() -> ghPr.listFiles().toList());
             for (GHPullRequestFileDetail file : files) {
                 diffContent.append("File: ").append(file.getFilename()).append("\n");
                 diffContent.append("Status: ").append(file.getStatus()).append("\n");
@@ -145,10 +135,10 @@ public class GitHubPullRequestService {
     public List<String> getPullRequestChangedFiles(String repositoryUrl, int pullRequestNumber) {
         try {
             String repoPath = extractRepoPathFromUrl(repositoryUrl);
-            GHRepository repository = github.getRepository(repoPath);
+            GHRepository repository = interactive(() -> github.getRepository(repoPath));
             
-            GHPullRequest ghPr = repository.getPullRequest(pullRequestNumber);
-            PagedIterable<GHPullRequestFileDetail> files = ghPr.listFiles();
+            GHPullRequest ghPr = interactive(() -> repository.getPullRequest(pullRequestNumber));
+            List<GHPullRequestFileDetail> files = interactive(() -> ghPr.listFiles().toList());
             
             List<String> changedFiles = new ArrayList<>();
             for (GHPullRequestFileDetail file : files) {
@@ -169,10 +159,10 @@ public class GitHubPullRequestService {
     public List<ReviewComment> getPullRequestComments(String repositoryUrl, int pullRequestNumber) {
         try {
             String repoPath = extractRepoPathFromUrl(repositoryUrl);
-            GHRepository repository = github.getRepository(repoPath);
+            GHRepository repository = interactive(() -> github.getRepository(repoPath));
             
-            GHPullRequest ghPr = repository.getPullRequest(pullRequestNumber);
-            PagedIterable<GHPullRequestReviewComment> ghComments = ghPr.listReviewComments();
+            GHPullRequest ghPr = interactive(() -> repository.getPullRequest(pullRequestNumber));
+            List<GHPullRequestReviewComment> ghComments = interactive(() -> ghPr.listReviewComments().toList());
             
             List<ReviewComment> comments = new ArrayList<>();
             for (GHPullRequestReviewComment ghComment : ghComments) {
@@ -259,6 +249,13 @@ public class GitHubPullRequestService {
         return comment;
     }
     
+    /**
+     * Pull request review is user-facing, so its calls take priority over bulk ingestion.
+     */
+    private <T> T interactive(GitHubCall<T> call) throws IOException {
+        return scheduler.execute(Priority.INTERACTIVE, call);
+    }
+    
     private LocalDateTime convertToLocalDateTime(Date date) {
         return date.toInstant()
                   .atZone(ZoneId.systemDefault())
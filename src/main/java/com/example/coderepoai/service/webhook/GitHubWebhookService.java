@@ -0,0 +1,129 @@
+package com.example.coderepoai.service.webhook;
+
+import com.example.coderepoai.exception.WebhookSignatureException;
+import com.example.coderepoai.service.ingestion.RefreshService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Verifies GitHub webhook deliveries and turns pushes to the default branch of an indexed
+ * repository into debounced incremental refreshes.
+ * <p>
+ * Recorded payloads can be replayed locally by signing them with the configured secret:
+ * {@code openssl dgst -sha256 -hmac "$SECRET" payload.json} gives the value for the
+ * {@code X-Hub-Signature-256: sha256=<hex>} header.
+ */
+@Service
+public class GitHubWebhookService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(GitHubWebhookService.class);
+    
+    private static final String SIGNATURE_PREFIX = "sha256=";
+    
+    private final RefreshService refreshService;
+    private final PushEventDebouncer debouncer;
+    private final ObjectMapper objectMapper;
+    private final String secret;
+    private final boolean allowUnsigned;
+    
+    public GitHubWebhookService(RefreshService refreshService,
+                                PushEventDebouncer debouncer,
+                                ObjectMapper objectMapper,
+                                @Value("${github.webhook.secret:}") String secret,
+                                @Value("${github.webhook.allow-unsigned:false}") boolean allowUnsigned) {
+        this.refreshService = refreshService;
+        this.debouncer = debouncer;
+        this.objectMapper = objectMapper;
+        this.secret = secret;
+        this.allowUnsigned = allowUnsigned;
+    }
+    
+    /**
+     * Checks the X-Hub-Signature-256 header against an HMAC-SHA256 of the raw body.
+     */
+    public void verifySignature(byte[] body, String signatureHeader) {
+        if (secret == null || secret.isBlank()) {
+            if (allowUnsigned) {
+                return;
+            }
+            throw new WebhookSignatureException("Webhook secret is not configured");
+        }
+        if (signatureHeader == null || !signatureHeader.startsWith(SIGNATURE_PREFIX)) {
+            throw new WebhookSignatureException("Missing X-Hub-Signature-256 header");
+        }
+        
+        byte[] expected;
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            expected = mac.doFinal(body);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+        
+        byte[] actual;
+        try {
+            actual = HexFormat.of().parseHex(signatureHeader.substring(SIGNATURE_PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new WebhookSignatureException("Malformed X-Hub-Signature-256 header");
+        }
+        // Constant time, so the signature cannot be guessed byte by byte
+        if (!MessageDigest.isEqual(expected, actual)) {
+            throw new WebhookSignatureException("Webhook signature does not match");
+        }
+    }
+    
+    /**
+     * @return what happened to the push, for the delivery log on GitHub
+     */
+    public String handlePush(byte[] body) throws IOException {
+        PushEvent event = PushEvent.fromPayload(objectMapper.readTree(body));
+        
+        if (event.deleted()) {
+            return "ignored: branch deleted";
+        }
+        if (!event.isDefaultBranch()) {
+            return "ignored: not the default branch";
+        }
+        
+        Optional<String> repositoryUrl = findIndexedRepository(event.repositoryFullName());
+        if (repositoryUrl.isEmpty()) {
+            return "ignored: repository is not indexed";
+        }
+        
+        logger.info("Push to {} ({} -> {}, {} commits, {} files)", event.repositoryFullName(),
+                event.before(), event.after(), event.commitCount(), event.changes().size());
+        debouncer.submit(repositoryUrl.get(), event.ref(), event.toPushedChanges());
+        return "queued";
+    }
+    
+    /**
+     * Finds the URL a repository was indexed under; users may have used any form of it.
+     */
+    private Optional<String> findIndexedRepository(String fullName) {
+        String wanted = fullName.toLowerCase(Locale.ROOT);
+        return refreshService.getIndexedRevisions().keySet().stream()
+                .filter(url -> normalizeRepositoryUrl(url).equals(wanted))
+                .findFirst();
+    }
+    
+    private String normalizeRepositoryUrl(String repositoryUrl) {
+        String path = repositoryUrl.toLowerCase(Locale.ROOT)
+                .replaceFirst("^https?://(www\\.)?github\\.com/", "")
+                .replaceFirst("/+$", "");
+        return path.endsWith(".git") ? path.substring(0, path.length() - 4) : path;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,79 @@
+package com.example.coderepoai.service.webhook;
+
+import com.example.coderepoai.service.ingestion.PushedChanges;
+import com.example.coderepoai.service.ingestion.source.FileChange;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The parts of a GitHub push event payload the indexer needs.
+ *
+ * @param changes file changes of all commits in the payload, oldest first
+ */
+public record PushEvent(String repositoryFullName,
+                        String ref,
+                        String defaultBranch,
+                        String before,
+                        String after,
+                        boolean forced,
+                        boolean deleted,
+                        int commitCount,
+                        List<FileChange> changes) {
+    
+    // GitHub lists at most 20 commits in a push payload; the rest have to be compared
+    static final int MAX_PAYLOAD_COMMITS = 20;
+    
+    private static final String NULL_SHA = "0000000000000000000000000000000000000000";
+    
+    public static PushEvent fromPayload(JsonNode payload) {
+        JsonNode repository = payload.path("repository");
+        String fullName = repository.path("full_name").asText(null);
+        if (fullName == null || payload.path("after").asText(null) == null) {
+            throw new IllegalArgumentException("Not a push event payload");
+        }
+        
+        List<FileChange> changes = new ArrayList<>();
+        int commitCount = 0;
+        for (JsonNode commit : payload.path("commits")) {
+            commitCount++;
+            addChanges(changes, commit.path("removed"), FileChange.Type.REMOVED);
+            addChanges(changes, commit.path("added"), FileChange.Type.ADDED);
+            addChanges(changes, commit.path("modified"), FileChange.Type.MODIFIED);
+        }
+        
+        return new PushEvent(
+            fullName,
+            payload.path("ref").asText(""),
+            repository.path("default_branch").asText(null),
+            payload.path("before").asText(NULL_SHA),
+            payload.path("after").asText(),
+            payload.path("forced").asBoolean(),
+            payload.path("deleted").asBoolean(),
+            commitCount,
+            PushedChanges.squash(changes)
+        );
+    }
+    
+    public boolean isDefaultBranch() {
+        return defaultBranch != null && ref.equals("refs/heads/" + defaultBranch);
+    }
+    
+    /**
+     * @return the change set of this push, or null when the payload cannot be trusted to
+     *         list every changed file and the source has to be asked instead
+     */
+    public PushedChanges toPushedChanges() {
+        if (forced || NULL_SHA.equals(before) || commitCount >= MAX_PAYLOAD_COMMITS) {
+            return null;
+        }
+        return new PushedChanges(before, after, changes);
+    }
+    
+    private static void addChanges(List<FileChange> changes, JsonNode paths, FileChange.Type type) {
+        for (JsonNode path : paths) {
+            changes.add(new FileChange(type, path.asText(), null));
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,119 @@
+package com.example.coderepoai.service.webhook;
+
+import com.example.coderepoai.service.ingestion.PushedChanges;
+import com.example.coderepoai.service.ingestion.RefreshPriority;
+import com.example.coderepoai.service.ingestion.RefreshService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects bursts of pushes to the same branch into one incremental refresh. A push waits
+ * for {@code debounceMs} of quiet before its refresh is submitted, but never longer than
+ * {@code maxDelayMs} after the first push of the burst, so a busy branch still gets indexed.
+ */
+@Component
+public class PushEventDebouncer {
+    
+    private static final Logger logger = LoggerFactory.getLogger(PushEventDebouncer.class);
+    
+    private final RefreshService refreshService;
+    private final long debounceMs;
+    private final long maxDelayMs;
+    private final ScheduledExecutorService timer;
+    
+    // Guarded by this
+    private final Map<String, PendingPush> pending = new HashMap<>();
+    private final AtomicLong pushesReceived = new AtomicLong();
+    private final AtomicLong refreshesSubmitted = new AtomicLong();
+    
+    public PushEventDebouncer(RefreshService refreshService,
+                              @Value("${github.webhook.debounce-ms:2000}") long debounceMs,
+                              @Value("${github.webhook.max-delay-ms:30000}") long maxDelayMs) {
+        this.refreshService = refreshService;
+        this.debounceMs = Math.max(0, debounceMs);
+        this.maxDelayMs = Math.max(this.debounceMs, maxDelayMs);
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "WebhookDebounce");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * @param changes the change set of the push, or null when it is unknown
+     */
+    public synchronized void submit(String repositoryUrl, String ref, PushedChanges changes) {
+        pushesReceived.incrementAndGet();
+        String key = repositoryUrl + "#" + ref;
+        long now = System.currentTimeMillis();
+        
+        PendingPush push = pending.get(key);
+        if (push == null) {
+            push = new PendingPush(repositoryUrl, changes, now);
+            pending.put(key, push);
+        } else {
+            push.flush.cancel(false);
+            push.changes = push.changes != null ? push.changes.followedBy(changes) : null;
+        }
+        
+        long delay = Math.min(debounceMs, push.firstReceivedAt + maxDelayMs - now);
+        push.flush = timer.schedule(() -> flush(key), Math.max(0, delay), TimeUnit.MILLISECONDS);
+    }
+    
+    public synchronized Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("pushes_received", pushesReceived.get());
+        statistics.put("refreshes_submitted", refreshesSubmitted.get());
+        statistics.put("pending_branches", pending.size());
+        statistics.put("debounce_ms", debounceMs);
+        statistics.put("max_delay_ms", maxDelayMs);
+        return statistics;
+    }
+    
+    private void flush(String key) {
+        PendingPush push;
+        synchronized (this) {
+            push = pending.remove(key);
+        }
+        if (push == null) {
+            return;
+        }
+        
+        try {
+            if (push.changes != null) {
+                logger.info("Submitting {} pushed file changes for {}", push.changes.changes().size(), push.repositoryUrl);
+                refreshService.submitPushedChanges(push.repositoryUrl, push.changes, RefreshPriority.WEBHOOK);
+            } else {
+                logger.info("Submitting incremental refresh for {} after push", push.repositoryUrl);
+                refreshService.submitRefresh(push.repositoryUrl, false, RefreshPriority.WEBHOOK);
+            }
+            refreshesSubmitted.incrementAndGet();
+        } catch (RuntimeException e) {
+            logger.error("Failed to submit refresh for push to {}", push.repositoryUrl, e);
+        }
+    }
+    
+    private static class PendingPush {
+        private final String repositoryUrl;
+        private final long firstReceivedAt;
+        private PushedChanges changes;
+        private ScheduledFuture<?> flush;
+        
+        private PendingPush(String repositoryUrl, PushedChanges changes, long firstReceivedAt) {
+            this.repositoryUrl = repositoryUrl;
+            this.changes = changes;
+            this.firstReceivedAt = firstReceivedAt;
+        }
+    }
+}
\ No newline at end of file
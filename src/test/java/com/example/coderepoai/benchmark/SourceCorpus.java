@@ -0,0 +1,78 @@
+package com.example.coderepoai.benchmark;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Source files read from disk for the benchmarks. The default corpus is this project's own
+ * sources, so benchmarks are run from the project root; point the corpus parameter at a
+ * larger checkout to measure on more code.
+ */
+public final class SourceCorpus {
+    
+    private final Map<String, String> files;
+    private final long bytes;
+    
+    private SourceCorpus(Map<String, String> files) {
+        this.files = files;
+        this.bytes = files.values().stream()
+                .mapToLong(content -> content.getBytes(StandardCharsets.UTF_8).length)
+                .sum();
+    }
+    
+    /**
+     * @param extensions file extensions to include, without the dot; all files when none
+     */
+    public static SourceCorpus load(String directory, String... extensions) {
+        Path root = Paths.get(directory);
+        if (!Files.isDirectory(root)) {
+            throw new IllegalStateException("Benchmark corpus " + root.toAbsolutePath() + " is not a directory");
+        }
+        
+        List<String> suffixes = Stream.of(extensions).map(extension -> "." + extension).toList();
+        try (Stream<Path> paths = Files.walk(root)) {
+            List<Path> sources = paths
+                    .filter(Files::isRegularFile)
+                    .filter(path -> suffixes.isEmpty() || suffixes.stream().anyMatch(
+                            path.getFileName().toString().toLowerCase(Locale.ROOT)::endsWith))
+                    .sorted()
+                    .collect(Collectors.toList());
+            
+            Map<String, String> files = new LinkedHashMap<>();
+            for (Path source : sources) {
+                files.put(root.relativize(source).toString().replace('\\', '/'),
+                        new String(Files.readAllBytes(source), StandardCharsets.UTF_8));
+            }
+            if (files.isEmpty()) {
+                throw new IllegalStateException("Benchmark corpus " + root.toAbsolutePath() + " has no matching files");
+            }
+            return new SourceCorpus(files);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read benchmark corpus " + root.toAbsolutePath(), e);
+        }
+    }
+    
+    /**
+     * @return file contents by path relative to the corpus directory, in path order
+     */
+    public Map<String, String> files() {
+        return files;
+    }
+    
+    /**
+     * @return the UTF-8 size of all files
+     */
+    public long bytes() {
+        return bytes;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,91 @@
+package com.example.coderepoai.config;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the platform and virtual modes of the I/O executor on a burst of blocking calls
+ * to a local stand-in for GitHub: each call waits for one of the downstream's permits, as
+ * the per-downstream limits do, then sleeps for the response latency. With a downstream
+ * limit above the pool size the platform pool is the bottleneck; in virtual mode only the
+ * limit is. Virtual mode needs Java 21, on older runtimes both modes use the pool.
+ * <p>
+ * Run from the project root with
+ * {@code mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ * -Dexec.args="-cp %classpath org.openjdk.jmh.Main ExecutorModeBenchmark"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExecutorModeBenchmark {
+    
+    @Param({"platform", "virtual"})
+    public String mode;
+    
+    @Param({"16", "128"})
+    public int downstreamLimit;
+    
+    @Param("256")
+    public int calls;
+    
+    @Param("10")
+    public int latencyMillis;
+    
+    private Executor executor;
+    private Semaphore downstream;
+    
+    @Setup
+    public void createExecutor() {
+        // The default pool size of the I/O executor
+        executor = new AppConfig().ioExecutor(mode, 32);
+        downstream = new Semaphore(downstreamLimit);
+    }
+    
+    @TearDown
+    public void shutdownExecutor() {
+        if (executor instanceof ThreadPoolTaskExecutor pool) {
+            pool.shutdown();
+        }
+    }
+    
+    @Benchmark
+    public void blockingCalls() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(calls);
+        for (int i = 0; i < calls; i++) {
+            executor.execute(() -> {
+                try {
+                    downstream.acquire();
+                    try {
+                        Thread.sleep(latencyMillis);
+                    } finally {
+                        downstream.release();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,127 @@
+package com.example.coderepoai.repository;
+
+import com.example.coderepoai.model.ChunkLevel;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ChunkHierarchyTest {
+    
+    private static final String REPOSITORY = "https://github.com/example/app";
+    private static final Supplier<float[]> QUERY = () -> new float[] {1, 0};
+    
+    private final ChunkHierarchy hierarchy = new ChunkHierarchy();
+    
+    @Test
+    public void ranksChunksOfTheBestRankedFilesOnly() {
+        add("A.java", ChunkLevel.FILE, "a", 1, 0.1f);
+        add("A.java", ChunkLevel.MEMBER, "a1", 1, 0);
+        add("A.java", ChunkLevel.MEMBER, "a2", 0, 1);
+        add("B.java", ChunkLevel.FILE, "b", 0.9f, 0.5f);
+        add("B.java", ChunkLevel.MEMBER, "b1", 0.8f, 0.2f);
+        // The best chunk of all, but in a file whose outline does not match the query
+        add("C.java", ChunkLevel.FILE, "c", 0, 1);
+        add("C.java", ChunkLevel.MEMBER, "c1", 1, 0);
+        add("C.java", ChunkLevel.MEMBER, "c2", 1, 0.1f);
+        
+        ChunkHierarchy.Result result = hierarchy.search(QUERY, REPOSITORY, 2, 3).orElseThrow();
+        
+        assertEquals(List.of("a1", "b1", "a2"), ids(result));
+        assertEquals(2, result.candidateFiles());
+        // Three file chunks, then the three chunks of A and B
+        assertEquals(6, result.compared());
+        assertEquals(8, result.searchable());
+    }
+    
+    @Test
+    public void keepsOnlyTheTopChunks() {
+        add("A.java", ChunkLevel.FILE, "a", 1, 0);
+        add("A.java", ChunkLevel.MEMBER, "a1", 0.5f, 0.5f);
+        add("A.java", ChunkLevel.MEMBER, "a2", 1, 0);
+        add("A.java", ChunkLevel.MEMBER, "a3", 0, 1);
+        
+        ChunkHierarchy.Result result = hierarchy.search(QUERY, REPOSITORY, 5, 2).orElseThrow();
+        
+        assertEquals(List.of("a2", "a1"), ids(result));
+    }
+    
+    @Test
+    public void returnsAFileWithoutChildrenAsItsOwnChunk() {
+        add("Small.java", ChunkLevel.FILE, "small", 1, 0);
+        add("Large.java", ChunkLevel.FILE, "large", 0.5f, 0.5f);
+        add("Large.java", ChunkLevel.MEMBER, "large1", 0.1f, 1);
+        
+        ChunkHierarchy.Result result = hierarchy.search(QUERY, REPOSITORY, 2, 5).orElseThrow();
+        
+        assertEquals(List.of("small", "large1"), ids(result));
+    }
+    
+    @Test
+    public void findsNothingWithoutFileChunksAndDoesNotEmbedTheQuery() {
+        add("A.java", ChunkLevel.MEMBER, "a1", 1, 0);
+        AtomicInteger embeddings = new AtomicInteger();
+        
+        Optional<ChunkHierarchy.Result> result = hierarchy.search(() -> {
+            embeddings.incrementAndGet();
+            return QUERY.get();
+        }, REPOSITORY, 5, 5);
+        
+        assertTrue(result.isEmpty());
+        assertEquals(0, embeddings.get());
+    }
+    
+    @Test
+    public void leavesOutDocumentsWithoutAnEmbedding() {
+        add("A.java", ChunkLevel.FILE, "a", 1, 0);
+        hierarchy.add(REPOSITORY, "A.java", ChunkLevel.MEMBER, new Document("unembedded", "unembedded", new HashMap<>()));
+        
+        ChunkHierarchy.Result result = hierarchy.search(QUERY, REPOSITORY, 5, 5).orElseThrow();
+        
+        assertEquals(List.of("a"), ids(result));
+        assertEquals(1, result.searchable());
+    }
+    
+    @Test
+    public void searchesOneRepositoryOrAll() {
+        add("A.java", ChunkLevel.FILE, "a", 1, 0);
+        hierarchy.add("https://github.com/example/other", "B.java", ChunkLevel.FILE, document("b", 0.5f, 0.5f));
+        
+        assertEquals(List.of("a"), ids(hierarchy.search(QUERY, REPOSITORY, 5, 5).orElseThrow()));
+        assertEquals(List.of("a", "b"), ids(hierarchy.search(QUERY, null, 5, 5).orElseThrow()));
+        assertTrue(hierarchy.search(QUERY, "https://github.com/example/unknown", 5, 5).isEmpty());
+    }
+    
+    @Test
+    public void forgetsRemovedFilesAndRepositories() {
+        add("A.java", ChunkLevel.FILE, "a", 1, 0);
+        add("B.java", ChunkLevel.FILE, "b", 0.5f, 0.5f);
+        
+        hierarchy.removeFiles(REPOSITORY, List.of("A.java"));
+        assertEquals(List.of("b"), ids(hierarchy.search(QUERY, REPOSITORY, 5, 5).orElseThrow()));
+        
+        hierarchy.removeRepository(REPOSITORY);
+        assertTrue(hierarchy.search(QUERY, REPOSITORY, 5, 5).isEmpty());
+    }
+    
+    private void add(String filePath, ChunkLevel level, String id, float x, float y) {
+        hierarchy.add(REPOSITORY, filePath, level, document(id, x, y));
+    }
+    
+    private static Document document(String id, float x, float y) {
+        Document document = new Document(id, id, new HashMap<>());
+        document.setEmbedding(new float[] {x, y});
+        return document;
+    }
+    
+    private static List<String> ids(ChunkHierarchy.Result result) {
+        return result.documents().stream().map(Document::getId).toList();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,160 @@
+package com.example.coderepoai.repository;
+
+import com.example.coderepoai.model.ChunkLevel;
+import com.example.coderepoai.model.CodeChunk;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class NearDuplicateIndexTest {
+    
+    private static final String REPOSITORY = "https://github.com/example/app";
+    
+    private static final String DTO = """
+            public class CustomerDto {
+                private String firstName;
+                private String lastName;
+                private String email;
+                
+                public String getFirstName() { return firstName; }
+                public void setFirstName(String firstName) { this.firstName = firstName; }
+                public String getLastName() { return lastName; }
+                public void setLastName(String lastName) { this.lastName = lastName; }
+                public String getEmail() { return email; }
+                public void setEmail(String email) { this.email = email; }
+            }
+            """;
+    
+    private static final String SERVICE = """
+            public List<Order> findOpenOrders(Customer customer) {
+                return orderRepository.findByCustomer(customer.getId()).stream()
+                        .filter(order -> order.getStatus() == Status.OPEN)
+                        .sorted(Comparator.comparing(Order::getCreatedAt))
+                        .collect(Collectors.toList());
+            }
+            """;
+    
+    private final NearDuplicateIndex index = new NearDuplicateIndex(true, 0.8);
+    
+    @Test
+    public void collapsesACopyIntoTheFirstChunkIndexed() {
+        CodeChunk original = chunk("a/CustomerDto.java", 0, 1, 12);
+        CodeChunk copy = chunk("b/CustomerDto.java", 0, 5, 16);
+        
+        BitSet kept = index.collapse(List.of(original, copy), List.of(DTO, DTO));
+        
+        assertEquals(bits(0), kept);
+        assertEquals(List.of(new NearDuplicateIndex.Duplicate("b/CustomerDto.java", "b/CustomerDto.java:5-16", 1.0)),
+                index.getDuplicates(REPOSITORY, "a/CustomerDto.java", 0));
+        assertEquals(List.of(), index.getDuplicates(REPOSITORY, "b/CustomerDto.java", 0));
+    }
+    
+    @Test
+    public void collapsesReformattedAndSlightlyEditedCopies() {
+        String reformatted = DTO.replace("\n    ", "\n  ").replace("{ return", "{\n      return");
+        String edited = DTO.replace("private String email;", "protected String email;");
+        
+        BitSet kept = index.collapse(
+                List.of(chunk("Original.java", 0), chunk("Reformatted.java", 0), chunk("Edited.java", 0)),
+                List.of(DTO, reformatted, edited));
+        
+        assertEquals(bits(0), kept);
+        List<NearDuplicateIndex.Duplicate> duplicates = index.getDuplicates(REPOSITORY, "Original.java", 0);
+        assertEquals(1.0, duplicates.get(0).similarity());
+        assertTrue(duplicates.get(1).similarity() >= 0.8 && duplicates.get(1).similarity() < 1.0);
+    }
+    
+    @Test
+    public void keepsDifferentCode() {
+        BitSet kept = index.collapse(List.of(chunk("Dto.java", 0), chunk("Service.java", 0)), List.of(DTO, SERVICE));
+        
+        assertEquals(bits(0, 1), kept);
+    }
+    
+    @Test
+    public void keepsChunksTooShortToCompare() {
+        String getter = "public String getName() { return name; }\n";
+        
+        BitSet kept = index.collapse(List.of(chunk("A.java", 0), chunk("B.java", 0)), List.of(getter, getter));
+        
+        assertEquals(bits(0, 1), kept);
+    }
+    
+    @Test
+    public void keepsFileAndTypeOutlines() {
+        CodeChunk first = chunk("a/CustomerDto.java", 0);
+        CodeChunk second = chunk("b/CustomerDto.java", 0);
+        second.setLevel(ChunkLevel.FILE);
+        
+        BitSet kept = index.collapse(List.of(first, second), List.of(DTO, DTO));
+        
+        assertEquals(bits(0, 1), kept);
+    }
+    
+    @Test
+    public void comparesChunksOnlyWithinTheirRepository() {
+        CodeChunk other = new CodeChunk(DTO, "CustomerDto.java", "https://github.com/example/other", 0);
+        
+        BitSet kept = index.collapse(List.of(chunk("CustomerDto.java", 0), other), List.of(DTO, DTO));
+        
+        assertEquals(bits(0, 1), kept);
+    }
+    
+    @Test
+    public void keepsEverythingWhenDisabled() {
+        NearDuplicateIndex disabled = new NearDuplicateIndex(false, 0.8);
+        
+        BitSet kept = disabled.collapse(List.of(chunk("A.java", 0), chunk("B.java", 0)), List.of(DTO, DTO));
+        
+        assertEquals(bits(0, 1), kept);
+    }
+    
+    @Test
+    public void removingARepresentativeReportsTheFilesCollapsedIntoIt() {
+        index.collapse(List.of(chunk("Original.java", 0), chunk("Copy.java", 0), chunk("Service.java", 0),
+                        chunk("OtherCopy.java", 0)),
+                List.of(DTO, DTO, SERVICE, DTO));
+        
+        Set<String> orphans = index.removeFiles(REPOSITORY, List.of("Original.java", "Service.java"));
+        
+        assertEquals(Set.of("Copy.java", "OtherCopy.java"), orphans);
+        assertEquals(List.of(), index.getDuplicates(REPOSITORY, "Original.java", 0));
+        // With the representative gone, the copy is indexed as one of its own again
+        assertEquals(bits(0), index.collapse(List.of(chunk("Copy.java", 0)), List.of(DTO)));
+    }
+    
+    @Test
+    public void removingADuplicateDropsItsBackReference() {
+        index.collapse(List.of(chunk("Original.java", 0), chunk("Copy.java", 0)), List.of(DTO, DTO));
+        
+        Set<String> orphans = index.removeFiles(REPOSITORY, List.of("Copy.java"));
+        
+        assertEquals(Set.of(), orphans);
+        assertEquals(List.of(), index.getDuplicates(REPOSITORY, "Original.java", 0));
+        assertEquals(Set.of(), index.removeFiles(REPOSITORY, List.of("Original.java")));
+    }
+    
+    private static CodeChunk chunk(String filePath, int chunkIndex) {
+        return new CodeChunk("", filePath, REPOSITORY, chunkIndex);
+    }
+    
+    private static CodeChunk chunk(String filePath, int chunkIndex, int startLine, int endLine) {
+        CodeChunk chunk = chunk(filePath, chunkIndex);
+        chunk.setStartLine(startLine);
+        chunk.setEndLine(endLine);
+        return chunk;
+    }
+    
+    private static BitSet bits(int... positions) {
+        BitSet bits = new BitSet();
+        for (int position : positions) {
+            bits.set(position);
+        }
+        return bits;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,108 @@
+package com.example.coderepoai.service.github;
+
+import com.example.coderepoai.service.github.GitHubRequestScheduler.Priority;
+import org.junit.jupiter.api.Test;
+import org.kohsuke.github.GHRateLimit;
+
+import java.io.InterruptedIOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GitHubRequestSchedulerTest {
+    
+    private static final Instant NOW = Instant.parse("2024-05-01T12:00:00Z");
+    private static final Clock CLOCK = Clock.fixed(NOW, ZoneOffset.UTC);
+    private static final Duration NO_WAIT = Duration.ofSeconds(2);
+    
+    @Test
+    public void anonymousClientIsNotHeldBackByTheDefaultReserve() {
+        // Anonymous clients get 60 requests an hour, fewer than the default reserve of 100
+        AtomicReference<GHRateLimit.Record> rateLimit = new AtomicReference<>(record(60, 60, NOW.plusSeconds(3600)));
+        GitHubRequestScheduler scheduler = scheduler(rateLimit, 100);
+        
+        assertTimeoutPreemptively(NO_WAIT, () -> {
+            for (int remaining = 59; remaining > 10; remaining--) {
+                int seen = remaining;
+                scheduler.execute(Priority.BULK, () -> {
+                    rateLimit.set(record(60, seen, NOW.plusSeconds(3600)));
+                    return seen;
+                });
+            }
+        });
+        assertEquals(11, scheduler.getStatistics().get("remaining"));
+    }
+    
+    @Test
+    public void bulkCallsResumeOnceTheWindowHasResetAlthoughBudgetWasLeft() {
+        // The last response left only the reserve, and its reset time has passed since
+        AtomicReference<GHRateLimit.Record> rateLimit = new AtomicReference<>(record(5000, 100, NOW.minusSeconds(1)));
+        GitHubRequestScheduler scheduler = scheduler(rateLimit, 100);
+        
+        String result = assertTimeoutPreemptively(NO_WAIT, () -> scheduler.execute(Priority.BULK, () -> "done"));
+        
+        assertEquals("done", result);
+        assertEquals(0L, scheduler.getStatistics().get("throttled_requests"));
+    }
+    
+    @Test
+    public void fullBudgetIsAssumedUntilTheNextResponseAfterAReset() {
+        AtomicReference<GHRateLimit.Record> rateLimit = new AtomicReference<>(record(5000, 0, NOW.minusSeconds(1)));
+        GitHubRequestScheduler scheduler = scheduler(rateLimit, 100);
+        
+        assertTimeoutPreemptively(NO_WAIT, () -> scheduler.execute(Priority.BULK, () -> {
+            rateLimit.set(record(5000, 4999, NOW.plusSeconds(3600)));
+            return null;
+        }));
+        
+        assertEquals(4999, scheduler.getStatistics().get("remaining"));
+        assertEquals(NOW.plusSeconds(3600).toEpochMilli(), scheduler.getStatistics().get("reset_epoch_millis"));
+    }
+    
+    @Test
+    public void bulkCallsWaitForTheResetOnceOnlyTheReserveIsLeft() throws Exception {
+        AtomicReference<GHRateLimit.Record> rateLimit = new AtomicReference<>(record(5000, 100, NOW.plusSeconds(600)));
+        GitHubRequestScheduler scheduler = scheduler(rateLimit, 100);
+        
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread bulk = new Thread(() -> {
+            try {
+                scheduler.execute(Priority.BULK, () -> "too early");
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        });
+        bulk.start();
+        bulk.join(300);
+        assertTrue(bulk.isAlive(), "bulk call should wait for the reset");
+        
+        bulk.interrupt();
+        bulk.join(NO_WAIT.toMillis());
+        assertInstanceOf(InterruptedIOException.class, failure.get());
+    }
+    
+    @Test
+    public void interactiveCallsMayUseTheReserve() {
+        AtomicReference<GHRateLimit.Record> rateLimit = new AtomicReference<>(record(5000, 100, NOW.plusSeconds(600)));
+        GitHubRequestScheduler scheduler = scheduler(rateLimit, 100);
+        
+        String result = assertTimeoutPreemptively(NO_WAIT, () -> scheduler.execute(Priority.INTERACTIVE, () -> "review"));
+        
+        assertEquals("review", result);
+    }
+    
+    private static GitHubRequestScheduler scheduler(AtomicReference<GHRateLimit.Record> rateLimit, int interactiveReserve) {
+        return new GitHubRequestScheduler(rateLimit::get, CLOCK, interactiveReserve, 0, 0.2, 4);
+    }
+    
+    private static GHRateLimit.Record record(int limit, int remaining, Instant reset) {
+        return new GHRateLimit.Record(limit, remaining, reset.getEpochSecond());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,40 @@
+package com.example.coderepoai.service.ingestion;
+
+import com.example.coderepoai.model.CodeChunk;
+import com.example.coderepoai.service.ingestion.chunking.ChunkTokenizer;
+import com.example.coderepoai.service.ingestion.chunking.JavaAstChunker;
+import com.example.coderepoai.service.ingestion.chunking.StructuralChunker;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CodeChunkerTest {
+    
+    private final ChunkTokenizer tokenizer = new ChunkTokenizer("text-embedding-ada-002", "", 16, 0, "");
+    private final CodeChunker chunker = new CodeChunker(new JavaAstChunker(tokenizer),
+            new StructuralChunker(tokenizer, true), tokenizer, false);
+    
+    @Test
+    public void longLineIsNotCutInsideASurrogatePair() {
+        // Every offset of the first cut relative to the pairs
+        for (String lead : List.of("", "x", "xy", "xyz")) {
+            String line = lead + "ab😀".repeat(200);
+            
+            List<CodeChunk> chunks = chunker.chunkFile("notes.txt", line + "\n", "repo");
+            
+            assertTrue(chunks.size() > 1, "the line was not cut");
+            StringBuilder joined = new StringBuilder();
+            for (CodeChunk chunk : chunks) {
+                String content = chunk.getContent();
+                assertFalse(Character.isHighSurrogate(content.charAt(content.length() - 1)), "ends in a pair: " + content);
+                assertFalse(Character.isLowSurrogate(content.charAt(0)), "starts in a pair: " + content);
+                joined.append(content);
+            }
+            assertEquals(line + "\n", joined.toString());
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,132 @@
+package com.example.coderepoai.service.ingestion;
+
+import com.example.coderepoai.benchmark.SourceCorpus;
+import com.example.coderepoai.service.ingestion.lexer.LexerRegistry;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Parse throughput of the single-pass lexer against the line filter it replaced, which
+ * split the content into lines and ran two regular expressions on each. The bytes counter
+ * is the rate in bytes of source per second.
+ * <p>
+ * Run from the project root with
+ * {@code mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ * -Dexec.args="-cp %classpath org.openjdk.jmh.Main FileParserBenchmark"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileParserBenchmark {
+    
+    private static final Pattern COMMENT_PATTERN = Pattern.compile("^\\s*[#/\\*].*");
+    private static final Pattern IMPORT_PATTERN = Pattern.compile("^\\s*(import|include|require|using)\\s+");
+    
+    @Param("src/main")
+    public String corpus;
+    
+    private SourceCorpus sources;
+    private FileParser fileParser;
+    
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Bytes {
+        public long bytes;
+        
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+    
+    @Setup
+    public void loadCorpus() {
+        sources = SourceCorpus.load(corpus);
+        fileParser = new FileParser(new LexerRegistry());
+    }
+    
+    @Benchmark
+    public void lexer(Bytes bytes, Blackhole blackhole) {
+        for (Map.Entry<String, String> file : sources.files().entrySet()) {
+            blackhole.consume(fileParser.parse(file.getKey(), file.getValue()));
+        }
+        bytes.bytes += sources.bytes();
+    }
+    
+    @Benchmark
+    public void lineFilter(Bytes bytes, Blackhole blackhole) {
+        for (String content : sources.files().values()) {
+            blackhole.consume(isBinaryFile(content) ? "" : cleanContent(content));
+        }
+        bytes.bytes += sources.bytes();
+    }
+    
+    // The parser before the lexer, kept here as the baseline
+    
+    private static boolean isBinaryFile(String content) {
+        long nullBytes = content.chars().filter(ch -> ch == 0).count();
+        if (nullBytes > 0) {
+            return true;
+        }
+        
+        long nonPrintableChars = content.chars()
+                .filter(ch -> ch < 32 && ch != 9 && ch != 10 && ch != 13)
+                .count();
+        
+        return nonPrintableChars > content.length() * 0.1;
+    }
+    
+    private static String cleanContent(String content) {
+        String[] lines = content.split("\n");
+        StringBuilder cleaned = new StringBuilder();
+        
+        boolean inBlockComment = false;
+        
+        for (String line : lines) {
+            String trimmedLine = line.trim();
+            
+            if (trimmedLine.contains("/*")) {
+                inBlockComment = true;
+            }
+            if (inBlockComment && trimmedLine.contains("*/")) {
+                inBlockComment = false;
+                continue;
+            }
+            if (inBlockComment) {
+                continue;
+            }
+            
+            if (trimmedLine.isEmpty() || COMMENT_PATTERN.matcher(trimmedLine).matches()) {
+                continue;
+            }
+            
+            if (IMPORT_PATTERN.matcher(trimmedLine).matches()) {
+                cleaned.append("// Import: ").append(trimmedLine).append("\n");
+                continue;
+            }
+            
+            cleaned.append(line).append("\n");
+        }
+        
+        return cleaned.toString();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,34 @@
+package com.example.coderepoai.service.ingestion;
+
+import com.example.coderepoai.service.ingestion.lexer.LexerRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FileParserTest {
+    
+    private final FileParser parser = new FileParser(new LexerRegistry());
+    
+    @Test
+    public void reportsEmptyFiles() {
+        assertTrue(parser.parse("Empty.java", "").content().isEmpty());
+        assertEquals(SkippedFile.REASON_EMPTY, parser.emptyReason(""));
+    }
+    
+    @Test
+    public void reportsBinaryFiles() {
+        String content = "PK\u0003\u0004\u0000\u0000binary";
+        
+        assertTrue(parser.parse("lib.jar", content).content().isEmpty());
+        assertEquals(SkippedFile.REASON_BINARY, parser.emptyReason(content));
+    }
+    
+    @Test
+    public void reportsFilesWithNothingButComments() {
+        String content = "// License header\n/* nothing else */\n\nimport java.util.List;\n";
+        
+        assertTrue(parser.parse("package-info.java", content).content().isEmpty());
+        assertEquals(SkippedFile.REASON_NO_CODE, parser.emptyReason(content));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,205 @@
+package com.example.coderepoai.service.ingestion;
+
+import com.example.coderepoai.model.CodeChunk;
+import com.example.coderepoai.service.ingestion.source.SourceFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class IngestionPipelineTest {
+    
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+    
+    // Like the pipeline executor bean: a thread per stage, never a queue
+    private final ThreadPoolExecutor stageExecutor =
+            new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS, new SynchronousQueue<>());
+    
+    @AfterEach
+    public void stopStages() {
+        stageExecutor.shutdownNow();
+    }
+    
+    @Test
+    public void storesEveryChunkInBatches() {
+        IngestionPipeline pipeline = new IngestionPipeline(8, 4, 10, stageExecutor);
+        AtomicInteger stored = new AtomicInteger();
+        
+        IngestionPipeline.Result result = assertTimeoutPreemptively(TIMEOUT, () -> pipeline.run("repo",
+                files(1000), IngestionPipelineTest::chunk, batch -> stored.addAndGet(batch.size())));
+        
+        assertEquals(1000, result.fileCount());
+        assertEquals(1000, result.chunkCount());
+        assertEquals(1000, stored.get());
+        assertTrue(result.batchCount() >= 100, "batches of at most ten chunks, the last one flushed early");
+    }
+    
+    @Test
+    public void slowStoreHoldsBackTheProducer() throws Exception {
+        IngestionPipeline pipeline = new IngestionPipeline(2, 1, 1, stageExecutor);
+        AtomicInteger produced = new AtomicInteger();
+        CountDownLatch storeReleased = new CountDownLatch(1);
+        AtomicReference<IngestionPipeline.Result> result = new AtomicReference<>();
+        
+        Thread run = new Thread(() -> result.set(pipeline.run("repo",
+                sink -> {
+                    for (int i = 0; i < 1000; i++) {
+                        sink.accept(file(i));
+                        produced.incrementAndGet();
+                    }
+                    return 1000;
+                },
+                IngestionPipelineTest::chunk,
+                batch -> await(storeReleased))));
+        run.start();
+        
+        // Two queues of two plus one file in the parse worker and one batch in the store
+        Thread.sleep(500);
+        int producedWhileBlocked = produced.get();
+        assertTrue(producedWhileBlocked <= 8, "produced " + producedWhileBlocked + " files while the store was blocked");
+        Thread.sleep(200);
+        assertEquals(producedWhileBlocked, produced.get());
+        
+        storeReleased.countDown();
+        run.join(TIMEOUT.toMillis());
+        assertEquals(1000, result.get().chunkCount());
+    }
+    
+    @Test
+    public void parseFailureStopsTheOtherWorkersAndIsRethrown() {
+        IngestionPipeline pipeline = new IngestionPipeline(256, 2, 10, stageExecutor);
+        RuntimeException malformed = new IllegalStateException("malformed file");
+        CountDownLatch produced = new CountDownLatch(1);
+        AtomicInteger chunked = new AtomicInteger();
+        AtomicInteger chunkedBeforeFailure = new AtomicInteger();
+        
+        RuntimeException thrown = assertTimeoutPreemptively(TIMEOUT, () -> assertThrows(RuntimeException.class,
+                () -> pipeline.run("repo",
+                        sink -> {
+                            int count = files(100).produce(sink);
+                            produced.countDown();
+                            return count;
+                        },
+                        file -> {
+                            if (file.path().equals("File0.java")) {
+                                // Fail once the queue holds every other file
+                                await(produced);
+                                chunkedBeforeFailure.set(chunked.get());
+                                throw malformed;
+                            }
+                            chunked.incrementAndGet();
+                            sleep(5);
+                            return chunk(file);
+                        },
+                        batch -> { })));
+        
+        assertSame(malformed, thrown);
+        // The other worker finishes the file it holds, but leaves the rest of the queue alone
+        assertTrue(chunked.get() - chunkedBeforeFailure.get() <= 2,
+                "chunked " + (chunked.get() - chunkedBeforeFailure.get()) + " files after the failure");
+    }
+    
+    @Test
+    public void storeFailureStopsTheProducerAndIsRethrown() {
+        IngestionPipeline pipeline = new IngestionPipeline(4, 2, 5, stageExecutor);
+        RuntimeException unavailable = new IllegalStateException("vector store unavailable");
+        AtomicInteger produced = new AtomicInteger();
+        
+        RuntimeException thrown = assertTimeoutPreemptively(TIMEOUT, () -> assertThrows(RuntimeException.class,
+                () -> pipeline.run("repo",
+                        sink -> {
+                            for (int i = 0; i < 1000; i++) {
+                                sink.accept(file(i));
+                                produced.incrementAndGet();
+                            }
+                            return 1000;
+                        },
+                        IngestionPipelineTest::chunk,
+                        batch -> {
+                            throw unavailable;
+                        })));
+        
+        assertSame(unavailable, thrown);
+        assertTrue(produced.get() < 1000, "producer kept going after the store failed");
+    }
+    
+    @Test
+    public void producerFailureReleasesTheStageThreads() throws InterruptedException {
+        IngestionPipeline pipeline = new IngestionPipeline(4, 3, 5, stageExecutor);
+        RuntimeException unreachable = new IllegalStateException("repository unreachable");
+        
+        RuntimeException thrown = assertThrows(RuntimeException.class, () -> pipeline.run("repo",
+                sink -> {
+                    sink.accept(file(0));
+                    throw unreachable;
+                },
+                IngestionPipelineTest::chunk, batch -> { }));
+        
+        assertSame(unreachable, thrown);
+        // The threads are shared, so the stages have to end on their own rather than by shutting the pool down
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (stageExecutor.getActiveCount() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, stageExecutor.getActiveCount());
+    }
+    
+    @Test
+    public void emptyProducerFinishesWithoutStoring() {
+        IngestionPipeline pipeline = new IngestionPipeline(4, 2, 5, stageExecutor);
+        AtomicReference<List<CodeChunk>> stored = new AtomicReference<>();
+        
+        IngestionPipeline.Result result = assertTimeoutPreemptively(TIMEOUT, () -> pipeline.run("repo",
+                sink -> 0, IngestionPipelineTest::chunk, stored::set));
+        
+        assertEquals(new IngestionPipeline.Result(0, 0, 0), result);
+        assertNull(stored.get());
+    }
+    
+    private static IngestionPipeline.FileProducer files(int count) {
+        return sink -> {
+            for (int i = 0; i < count; i++) {
+                sink.accept(file(i));
+            }
+            return count;
+        };
+    }
+    
+    private static SourceFile file(int index) {
+        return new SourceFile("File" + index + ".java", "class File" + index + " {}", null);
+    }
+    
+    private static List<CodeChunk> chunk(SourceFile file) {
+        return List.of(new CodeChunk(file.content(), file.path(), "repo", 0));
+    }
+    
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
\ No newline at end of file
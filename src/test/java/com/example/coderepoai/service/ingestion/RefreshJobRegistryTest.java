@@ -0,0 +1,121 @@
+package com.example.coderepoai.service.ingestion;
+
+import com.example.coderepoai.service.ingestion.source.FileChange;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RefreshJobRegistryTest {
+    
+    private static final String REPOSITORY_URL = "https://github.com/acme/widgets";
+    
+    private final RefreshJobRegistry registry = new RefreshJobRegistry(10);
+    
+    @Test
+    public void requestsJoinTheQueuedJob() {
+        RefreshJobRegistry.Admission first = registry.admit(REPOSITORY_URL, false, RefreshPriority.SCHEDULED);
+        RefreshJobRegistry.Admission second = registry.admit(REPOSITORY_URL, true, RefreshPriority.INTERACTIVE);
+        
+        assertTrue(first.start());
+        assertFalse(second.start());
+        assertSame(first.job(), second.job());
+        // The joined job runs with the strongest settings of the requests it serves
+        assertTrue(first.job().isFullRefresh());
+        assertEquals(RefreshPriority.INTERACTIVE, first.job().getPriority());
+        assertEquals(1L, registry.getCoalescingStatistics().get("joined_queued_job"));
+    }
+    
+    @Test
+    public void requestsWhileRunningShareOneFollowUp() {
+        RefreshJob running = registry.admit(REPOSITORY_URL, false, RefreshPriority.SCHEDULED).job();
+        registry.start(running);
+        
+        RefreshJobRegistry.Admission second = registry.admit(REPOSITORY_URL, false, RefreshPriority.WEBHOOK);
+        RefreshJobRegistry.Admission third = registry.admit(REPOSITORY_URL, true, RefreshPriority.SCHEDULED);
+        
+        assertNotSame(running, second.job());
+        assertSame(second.job(), third.job());
+        assertFalse(second.start());
+        assertFalse(running.isFullRefresh(), "a running job is not changed by later requests");
+        assertTrue(second.job().isFullRefresh());
+        
+        running.succeed();
+        assertSame(second.job(), registry.release(running));
+        assertTrue(registry.isRefreshing(REPOSITORY_URL));
+        
+        second.job().succeed();
+        assertNull(registry.release(second.job()));
+        assertFalse(registry.isRefreshing(REPOSITORY_URL));
+    }
+    
+    @Test
+    public void contiguousPushesAreCombined() {
+        RefreshJob job = registry.admit(REPOSITORY_URL, false, RefreshPriority.WEBHOOK, push("a", "b", "A.java")).job();
+        registry.admit(REPOSITORY_URL, false, RefreshPriority.WEBHOOK, push("b", "c", "B.java"));
+        
+        assertEquals(new PushedChanges("a", "c", List.of(modified("A.java"), modified("B.java"))), job.getPushedChanges());
+        
+        // A request that does not know what changed makes the job ask the source
+        registry.admit(REPOSITORY_URL, false, RefreshPriority.SCHEDULED);
+        assertNull(job.getPushedChanges());
+    }
+    
+    @Test
+    public void cancelledQueuedJobIsNotJoined() {
+        RefreshJob cancelled = registry.admit(REPOSITORY_URL, false, RefreshPriority.SCHEDULED).job();
+        assertTrue(cancelled.cancel());
+        
+        RefreshJobRegistry.Admission next = registry.admit(REPOSITORY_URL, true, RefreshPriority.INTERACTIVE);
+        
+        assertNotSame(cancelled, next.job());
+        assertFalse(next.start(), "waits for the cancelled job to give up its slot");
+        assertFalse(next.job().isCancelRequested());
+        assertFalse(cancelled.isFullRefresh());
+        
+        cancelled.markCancelled();
+        assertSame(next.job(), registry.release(cancelled));
+    }
+    
+    @Test
+    public void cancelledFollowUpIsReplaced() {
+        RefreshJob running = registry.admit(REPOSITORY_URL, false, RefreshPriority.SCHEDULED).job();
+        registry.start(running);
+        RefreshJob cancelled = registry.admit(REPOSITORY_URL, false, RefreshPriority.SCHEDULED).job();
+        cancelled.cancel();
+        
+        RefreshJob followUp = registry.admit(REPOSITORY_URL, false, RefreshPriority.WEBHOOK).job();
+        
+        assertNotSame(cancelled, followUp);
+        // It never started, so nothing else would finish it
+        assertEquals(RefreshJob.Status.CANCELLED, cancelled.getStatus());
+        assertTrue(cancelled.getCompletion().isCompletedExceptionally());
+        
+        running.succeed();
+        assertSame(followUp, registry.release(running));
+    }
+    
+    @Test
+    public void repositoriesAreIndependent() {
+        RefreshJobRegistry.Admission widgets = registry.admit(REPOSITORY_URL, false, RefreshPriority.SCHEDULED);
+        RefreshJobRegistry.Admission gadgets = registry.admit("https://github.com/acme/gadgets", false, RefreshPriority.SCHEDULED);
+        
+        assertTrue(widgets.start());
+        assertTrue(gadgets.start());
+        assertNotSame(widgets.job(), gadgets.job());
+    }
+    
+    private static PushedChanges push(String base, String head, String path) {
+        return new PushedChanges(base, head, List.of(modified(path)));
+    }
+    
+    private static FileChange modified(String path) {
+        return new FileChange(FileChange.Type.MODIFIED, path, null);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,233 @@
+package com.example.coderepoai.service.ingestion;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RefreshSchedulerTest {
+    
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+    private static final Executor DIRECT = Runnable::run;
+    
+    private final List<Thread> threads = new ArrayList<>();
+    
+    @AfterEach
+    public void stopThreads() {
+        threads.forEach(Thread::interrupt);
+    }
+    
+    @Test
+    public void startsQueuedJobsByPriorityThenArrival() {
+        RefreshScheduler scheduler = new RefreshScheduler(DIRECT, 1, 1);
+        List<String> started = new ArrayList<>();
+        
+        // The first job runs inline and holds the only job slot while the others are queued
+        scheduler.submit(job("running", RefreshPriority.SCHEDULED), () -> {
+            started.add("running");
+            submit(scheduler, started, "scheduled-1", RefreshPriority.SCHEDULED);
+            submit(scheduler, started, "webhook", RefreshPriority.WEBHOOK);
+            submit(scheduler, started, "scheduled-2", RefreshPriority.SCHEDULED);
+            submit(scheduler, started, "interactive", RefreshPriority.INTERACTIVE);
+            assertEquals(List.of("running"), started);
+        }, e -> {
+        });
+        
+        assertEquals(List.of("running", "interactive", "webhook", "scheduled-1", "scheduled-2"), started);
+        assertEquals(0, scheduler.getStatistics().get("running_jobs"));
+    }
+    
+    @Test
+    public void runsUpToTheConfiguredNumberOfJobsAtOnce() {
+        List<Runnable> tasks = new ArrayList<>();
+        RefreshScheduler scheduler = new RefreshScheduler(tasks::add, 2, 1);
+        List<String> started = new ArrayList<>();
+        for (String id : List.of("a", "b", "c")) {
+            submit(scheduler, started, id, RefreshPriority.WEBHOOK);
+        }
+        
+        assertEquals(2, tasks.size());
+        assertEquals(2, scheduler.getStatistics().get("running_jobs"));
+        @SuppressWarnings("unchecked")
+        Map<String, Long> pending = (Map<String, Long>) scheduler.getStatistics().get("pending_jobs");
+        assertEquals(1, pending.get("webhook").longValue());
+        
+        tasks.get(0).run();
+        assertEquals(3, tasks.size());
+        tasks.get(1).run();
+        tasks.get(2).run();
+        assertEquals(List.of("a", "b", "c"), started);
+        assertEquals(0, scheduler.getStatistics().get("running_jobs"));
+    }
+    
+    @Test
+    public void freesTheJobSlotWhenTheExecutorRejectsAJob() {
+        List<String> started = new ArrayList<>();
+        AtomicReference<RuntimeException> rejection = new AtomicReference<>();
+        RejectedExecutionException full = new RejectedExecutionException("full");
+        RefreshScheduler scheduler = new RefreshScheduler(task -> {
+            if (rejection.get() == null) {
+                throw full;
+            }
+            task.run();
+        }, 1, 1);
+        
+        scheduler.submit(job("rejected", RefreshPriority.INTERACTIVE), () -> started.add("rejected"), rejection::set);
+        submit(scheduler, started, "next", RefreshPriority.INTERACTIVE);
+        
+        assertSame(full, rejection.get());
+        assertEquals(List.of("next"), started);
+        assertEquals(0, scheduler.getStatistics().get("running_jobs"));
+    }
+    
+    @Test
+    public void sharesBatchSlotsByPriorityWeight() {
+        RefreshScheduler scheduler = new RefreshScheduler(DIRECT, 4, 1);
+        BatchDriver driver = new BatchDriver(scheduler);
+        
+        List<String> granted = assertTimeoutPreemptively(TIMEOUT, () -> {
+            driver.holdSlot(job("holder", RefreshPriority.SCHEDULED));
+            driver.request(job("interactive", RefreshPriority.INTERACTIVE));
+            driver.request(job("scheduled", RefreshPriority.SCHEDULED));
+            return driver.grant(20);
+        });
+        
+        // Weights 4 and 1: four batches for every one, from the start
+        assertEquals(16, Collections.frequency(granted, "interactive"), granted.toString());
+        assertEquals(4, Collections.frequency(granted, "scheduled"), granted.toString());
+        assertEquals(List.of("interactive", "scheduled"), granted.subList(0, 2));
+    }
+    
+    @Test
+    public void aJobJoiningLateGetsNoBacklogOfTurns() {
+        RefreshScheduler scheduler = new RefreshScheduler(DIRECT, 4, 1);
+        BatchDriver driver = new BatchDriver(scheduler);
+        
+        List<String> granted = assertTimeoutPreemptively(TIMEOUT, () -> {
+            driver.holdSlot(job("holder", RefreshPriority.SCHEDULED));
+            driver.request(job("early", RefreshPriority.WEBHOOK));
+            driver.grant(10);
+            driver.request(job("late", RefreshPriority.WEBHOOK));
+            return driver.grant(10);
+        });
+        
+        // Equal weights alternate from the moment the late job arrives
+        for (int i = 0; i + 1 < granted.size(); i++) {
+            assertTrue(!granted.get(i).equals(granted.get(i + 1)), granted.toString());
+        }
+    }
+    
+    @Test
+    public void finishedJobsLeaveTheBatchRotation() {
+        RefreshScheduler scheduler = new RefreshScheduler(DIRECT, 4, 2);
+        RefreshJob job = job("done", RefreshPriority.INTERACTIVE);
+        
+        scheduler.runBatch(job, () -> {
+        });
+        assertEquals(Map.of("done", 1L), scheduler.getStatistics().get("batches_granted"));
+        assertEquals(2, scheduler.getStatistics().get("free_batch_slots"));
+        
+        job.succeed();
+        assertEquals(Map.of(), scheduler.getStatistics().get("batches_granted"));
+    }
+    
+    private static void submit(RefreshScheduler scheduler, List<String> started, String id, RefreshPriority priority) {
+        scheduler.submit(job(id, priority), () -> started.add(id), e -> {
+            throw e;
+        });
+    }
+    
+    private static RefreshJob job(String id, RefreshPriority priority) {
+        return new RefreshJob(id, "https://github.com/acme/" + id, false, priority);
+    }
+    
+    /**
+     * Drives store batches one grant at a time with a single batch slot. Every job always
+     * has one batch waiting for the slot, the one holding it included, so each grant is
+     * decided among all jobs and the order is deterministic.
+     */
+    private final class BatchDriver {
+        private final RefreshScheduler scheduler;
+        private final List<String> granted = Collections.synchronizedList(new ArrayList<>());
+        private final Semaphore batchDone = new Semaphore(0);
+        private final Semaphore batchStarted = new Semaphore(0);
+        private final List<RefreshJob> jobs = new ArrayList<>();
+        
+        private BatchDriver(RefreshScheduler scheduler) {
+            this.scheduler = scheduler;
+        }
+        
+        /**
+         * Starts a batch of the job that holds the slot until the first grant.
+         */
+        void holdSlot(RefreshJob job) throws InterruptedException {
+            start(job);
+            batchStarted.acquire();
+        }
+        
+        /**
+         * Queues the job's first batch; it has one waiting from then on.
+         */
+        void request(RefreshJob job) throws InterruptedException {
+            jobs.add(job);
+            awaitWaiting(start(job));
+        }
+        
+        /**
+         * Finishes the running batch the given number of times and returns which jobs were
+         * granted the slot next.
+         */
+        List<String> grant(int count) throws InterruptedException {
+            List<String> order = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                batchDone.release();
+                batchStarted.acquire();
+                String id = granted.get(granted.size() - 1);
+                order.add(id);
+                RefreshJob running = jobs.stream().filter(job -> job.getId().equals(id)).findFirst().orElseThrow();
+                // The running job's next batch waits before the slot is handed on
+                awaitWaiting(start(running));
+            }
+            return order;
+        }
+        
+        private Thread start(RefreshJob job) {
+            Thread thread = new Thread(() -> {
+                try {
+                    scheduler.runBatch(job, () -> {
+                        granted.add(job.getId());
+                        batchStarted.release();
+                        batchDone.acquireUninterruptibly();
+                    });
+                } catch (IllegalStateException e) {
+                    // Interrupted by stopThreads while still waiting for the slot
+                }
+            }, "batch-" + job.getId());
+            thread.setDaemon(true);
+            threads.add(thread);
+            thread.start();
+            return thread;
+        }
+        
+        private void awaitWaiting(Thread thread) throws InterruptedException {
+            // Waiting for a slot is the only place a batch thread parks before its batch runs
+            while (thread.getState() != Thread.State.WAITING) {
+                TimeUnit.MILLISECONDS.sleep(1);
+            }
+        }
+    }
+}
\ No newline at end of file
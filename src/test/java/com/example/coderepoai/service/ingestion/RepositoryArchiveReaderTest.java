@@ -0,0 +1,195 @@
+package com.example.coderepoai.service.ingestion;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class RepositoryArchiveReaderTest {
+    
+    @TempDir
+    Path temp;
+    
+    private final RepositoryArchiveReader reader = new RepositoryArchiveReader();
+    
+    @Test
+    public void stripsTheDirectoryWrappingEveryEntryOfALocalArchive() throws IOException {
+        Map<String, String> entries = entries("repo-main/", "",
+                "repo-main/src/Foo.java", "class Foo {}",
+                "repo-main/README.md", "# Repo");
+        
+        assertEquals(Map.of("src/Foo.java", "class Foo {}", "README.md", "# Repo"), readFile(writeZip(entries)));
+        assertEquals(Map.of("src/Foo.java", "class Foo {}", "README.md", "# Repo"), readFile(writeTarGz(entries)));
+    }
+    
+    @Test
+    public void keepsEntryNamesOfALocalArchiveWithSeveralTopLevelDirectories() throws IOException {
+        Map<String, String> entries = entries("src/Foo.java", "class Foo {}",
+                "docs/guide.md", "# Guide");
+        
+        assertEquals(Map.of("src/Foo.java", "class Foo {}", "docs/guide.md", "# Guide"), readFile(writeZip(entries)));
+        assertEquals(Map.of("src/Foo.java", "class Foo {}", "docs/guide.md", "# Guide"), readFile(writeTarGz(entries)));
+    }
+    
+    @Test
+    public void keepsEntryNamesWhenFilesLieAtTheTopLevel() throws IOException {
+        Map<String, String> entries = entries("repo/src/Foo.java", "class Foo {}",
+                "build.gradle", "plugins {}");
+        
+        assertEquals(Map.of("repo/src/Foo.java", "class Foo {}", "build.gradle", "plugins {}"), readFile(writeZip(entries)));
+        assertEquals(Map.of("repo/src/Foo.java", "class Foo {}", "build.gradle", "plugins {}"), readFile(writeTarGz(entries)));
+    }
+    
+    @Test
+    public void stripsTheWrappingDirectoryOfAGitHubTarball() throws IOException {
+        byte[] tarball = tarGz(entries("owner-repo-0123abc/", "",
+                "owner-repo-0123abc/src/Foo.java", "class Foo {}",
+                "owner-repo-0123abc/image.png", "binary"));
+        
+        Map<String, String> files = new LinkedHashMap<>();
+        int count = reader.readTarGz(new ByteArrayInputStream(tarball), SupportedFiles::shouldProcessFile, files::put);
+        
+        assertEquals(1, count);
+        assertEquals(Map.of("src/Foo.java", "class Foo {}"), files);
+    }
+    
+    @Test
+    public void readsBase256EntrySizes() throws IOException {
+        // GNU tar switches to base-256 for sizes beyond 11 octal digits; small ones are valid too
+        byte[] tarball = tarGz(entries("repo/src/Foo.java", "class Foo {}",
+                "repo/src/Bar.java", "class Bar {}"), true);
+        
+        Map<String, String> files = new LinkedHashMap<>();
+        int count = reader.readTarGz(new ByteArrayInputStream(tarball), path -> true, files::put);
+        
+        assertEquals(2, count);
+        assertEquals(Map.of("src/Foo.java", "class Foo {}", "src/Bar.java", "class Bar {}"), files);
+    }
+    
+    @Test
+    public void rejectsNegativeBase256EntrySizes() throws IOException {
+        byte[] tarball = tarGz(entries("repo/src/Foo.java", "class Foo {}"), true);
+        byte[] tar = gunzip(tarball);
+        tar[124] = (byte) 0xff;
+        
+        IOException e = assertThrows(IOException.class,
+                () -> reader.readTarGz(new ByteArrayInputStream(gzip(tar)), path -> true, (path, content) -> { }));
+        assertEquals("Invalid base-256 tar entry size", e.getMessage());
+    }
+    
+    @Test
+    public void findsTheCommonRootDirectory() {
+        assertEquals("repo/", RepositoryArchiveReader.commonRootDirectory(List.of("repo/a.java", "repo/src/b.java")));
+        assertEquals("", RepositoryArchiveReader.commonRootDirectory(List.of("repo/a.java", "other/b.java")));
+        assertEquals("", RepositoryArchiveReader.commonRootDirectory(List.of("repo/a.java", "b.java")));
+        assertEquals("", RepositoryArchiveReader.commonRootDirectory(List.of("repo/a.java", "repository/b.java")));
+        assertEquals("", RepositoryArchiveReader.commonRootDirectory(List.of()));
+    }
+    
+    @Test
+    public void rejectsUnknownArchiveFormats() throws IOException {
+        Path archive = Files.writeString(temp.resolve("repo.rar"), "not an archive");
+        
+        assertThrows(IllegalArgumentException.class, () -> readFile(archive));
+    }
+    
+    private Map<String, String> readFile(Path archive) throws IOException {
+        Map<String, String> files = new LinkedHashMap<>();
+        reader.readArchiveFile(archive, path -> true, files::put);
+        return files;
+    }
+    
+    private Path writeZip(Map<String, String> entries) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                zip.putNextEntry(new ZipEntry(entry.getKey()));
+                zip.write(entry.getValue().getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+        return Files.write(temp.resolve("repo.zip"), bytes.toByteArray());
+    }
+    
+    private Path writeTarGz(Map<String, String> entries) throws IOException {
+        return Files.write(temp.resolve("repo.tar.gz"), tarGz(entries));
+    }
+    
+    /**
+     * Minimal ustar archive; names ending in "/" become directory entries.
+     */
+    private static byte[] tarGz(Map<String, String> entries) throws IOException {
+        return tarGz(entries, false);
+    }
+    
+    /**
+     * @param base256Sizes write sizes in GNU base-256 form instead of octal digits
+     */
+    private static byte[] tarGz(Map<String, String> entries, boolean base256Sizes) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                byte[] data = entry.getValue().getBytes(StandardCharsets.UTF_8);
+                byte[] header = new byte[512];
+                write(header, 0, entry.getKey());
+                if (base256Sizes) {
+                    header[124] = (byte) 0x80;
+                    for (int i = 0, size = data.length; i < 4; i++, size >>>= 8) {
+                        header[135 - i] = (byte) size;
+                    }
+                } else {
+                    write(header, 124, String.format("%011o", data.length));
+                }
+                header[156] = (byte) (entry.getKey().endsWith("/") ? '5' : '0');
+                write(header, 257, "ustar");
+                gzip.write(header);
+                gzip.write(data);
+                gzip.write(new byte[(512 - data.length % 512) % 512]);
+            }
+            gzip.write(new byte[1024]);
+        }
+        return bytes.toByteArray();
+    }
+    
+    private static byte[] gunzip(byte[] compressed) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return in.readAllBytes();
+        }
+    }
+    
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(data);
+        }
+        return bytes.toByteArray();
+    }
+    
+    private static void write(byte[] header, int offset, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(bytes, 0, header, offset, bytes.length);
+    }
+    
+    private static Map<String, String> entries(String... namesAndContents) {
+        Map<String, String> entries = new LinkedHashMap<>();
+        for (int i = 0; i < namesAndContents.length; i += 2) {
+            entries.put(namesAndContents[i], namesAndContents[i + 1]);
+        }
+        return entries;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,244 @@
+package com.example.coderepoai.service.ingestion;
+
+import com.example.coderepoai.service.github.GitHubRequestScheduler;
+import com.example.coderepoai.service.ingestion.source.SourceFile;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.kohsuke.github.GitHub;
+import org.kohsuke.github.GitHubBuilder;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs tree-mode fetches against a local stand-in for the GitHub API, which the client
+ * reaches through a custom endpoint as github.api-url configures it.
+ */
+public class RepositoryFetcherTest {
+    
+    private static final String REPOSITORY_URL = "https://github.com/acme/widgets";
+    private static final int FETCH_CONCURRENCY = 3;
+    
+    private static final Map<String, String> BLOBS = Map.of(
+            "src/main/java/com/acme/Widget.java", "class Widget {}",
+            "src/main/java/com/acme/Gadget.java", "class Gadget {}",
+            "src/main/resources/application.yml", "widgets:\n  size: 3\n",
+            "web/app.ts", "export const app = 1;",
+            "README.md", "# Widgets",
+            "pom.xml", "<project/>");
+    
+    private HttpServer server;
+    private ExecutorService serverThreads;
+    private ExecutorService ioExecutor;
+    private String apiUrl;
+    
+    private final Queue<String> requests = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger blobsInFlight = new AtomicInteger();
+    private final AtomicInteger maxBlobsInFlight = new AtomicInteger();
+    // Opens once two blob requests overlap, so a sequential fetch shows up as a concurrency of 1
+    private final CountDownLatch overlappingBlobs = new CountDownLatch(2);
+    private final Map<String, Integer> blobStatus = new ConcurrentHashMap<>();
+    
+    @BeforeEach
+    public void startServer() throws IOException {
+        serverThreads = Executors.newFixedThreadPool(8);
+        ioExecutor = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(serverThreads);
+        server.createContext("/", this::handle);
+        server.start();
+        apiUrl = "http://localhost:" + server.getAddress().getPort();
+    }
+    
+    @AfterEach
+    public void stopServer() {
+        server.stop(0);
+        serverThreads.shutdownNow();
+        ioExecutor.shutdownNow();
+    }
+    
+    @Test
+    public void listsTheTreeOnceAndDownloadsTheBlobsInParallel() throws IOException {
+        Map<String, SourceFile> files = new ConcurrentHashMap<>();
+        
+        int fileCount = fetcher().fetchRepositoryFiles(REPOSITORY_URL, null, file -> files.put(file.path(), file));
+        
+        assertEquals(BLOBS.size(), fileCount);
+        assertEquals(BLOBS.size(), files.size());
+        BLOBS.forEach((path, content) -> {
+            assertEquals(content, files.get(path).content());
+            assertEquals(sha(path), files.get(path).blobSha());
+        });
+        
+        List<String> treeRequests = requests.stream().filter(request -> request.contains("/git/trees/")).toList();
+        assertEquals(List.of("/repos/acme/widgets/git/trees/main?recursive=1"), treeRequests);
+        assertTrue(requests.stream().noneMatch(request -> request.contains("/contents")), "no per-directory listing");
+        // Unsupported blobs and directories are never downloaded
+        assertEquals(BLOBS.size(), requests.stream().filter(request -> request.contains("/git/blobs/")).count());
+        
+        assertTrue(maxBlobsInFlight.get() >= 2, "blobs were downloaded one at a time");
+        assertTrue(maxBlobsInFlight.get() <= FETCH_CONCURRENCY, maxBlobsInFlight.get() + " blob downloads in flight");
+    }
+    
+    @Test
+    public void skipsABlobThatCannotBeDownloaded() throws IOException {
+        blobStatus.put(sha("README.md"), 404);
+        Map<String, SourceFile> files = new ConcurrentHashMap<>();
+        
+        int fileCount = fetcher().fetchRepositoryFiles(REPOSITORY_URL, "main", file -> files.put(file.path(), file));
+        
+        assertEquals(BLOBS.size() - 1, fileCount);
+        assertFalse(files.containsKey("README.md"));
+        assertEquals("class Widget {}", files.get("src/main/java/com/acme/Widget.java").content());
+    }
+    
+    @Test
+    public void stopsDownloadingOnceTheConsumerFails() throws IOException {
+        RepositoryFetcher fetcher = fetcher();
+        IllegalStateException cancelled = new IllegalStateException("cancelled");
+        
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> fetcher.fetchRepositoryFiles(REPOSITORY_URL, "main", file -> {
+                    throw cancelled;
+                }));
+        
+        assertSame(cancelled, e);
+        // Only the downloads in flight when the first file was rejected were made
+        long blobRequests = requests.stream().filter(request -> request.contains("/git/blobs/")).count();
+        assertTrue(blobRequests <= FETCH_CONCURRENCY, blobRequests + " blobs downloaded");
+    }
+    
+    private RepositoryFetcher fetcher() throws IOException {
+        GitHub github = new GitHubBuilder().withEndpoint(apiUrl).build();
+        GitHubRequestScheduler scheduler = new GitHubRequestScheduler(github, 100, 0, 0.2, 16);
+        return new RepositoryFetcher(github, scheduler, "tree", FETCH_CONCURRENCY, new RepositoryArchiveReader(), ioExecutor);
+    }
+    
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String query = exchange.getRequestURI().getRawQuery();
+        requests.add(query != null ? path + "?" + query : path);
+        
+        try {
+            if (path.equals("/repos/acme/widgets")) {
+                respond(exchange, 200, repositoryJson());
+            } else if (path.equals("/repos/acme/widgets/git/trees/main")) {
+                respond(exchange, 200, treeJson());
+            } else if (path.startsWith("/repos/acme/widgets/git/blobs/")) {
+                respondWithBlob(exchange, path.substring(path.lastIndexOf('/') + 1));
+            } else {
+                respond(exchange, 404, "{\"message\": \"Not Found\"}");
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+    
+    private void respondWithBlob(HttpExchange exchange, String sha) throws IOException {
+        int inFlight = blobsInFlight.incrementAndGet();
+        maxBlobsInFlight.accumulateAndGet(inFlight, Math::max);
+        try {
+            overlappingBlobs.countDown();
+            overlappingBlobs.await(2, TimeUnit.SECONDS);
+            
+            String path = BLOBS.keySet().stream().filter(candidate -> sha(candidate).equals(sha)).findFirst().orElse(null);
+            int status = blobStatus.getOrDefault(sha, path != null ? 200 : 404);
+            if (status != 200) {
+                respond(exchange, status, "{\"message\": \"Not Found\"}");
+                return;
+            }
+            byte[] content = BLOBS.get(path).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/vnd.github.raw");
+            rateLimitHeaders(exchange);
+            exchange.sendResponseHeaders(200, content.length);
+            exchange.getResponseBody().write(content);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            blobsInFlight.decrementAndGet();
+        }
+    }
+    
+    private void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        rateLimitHeaders(exchange);
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+    }
+    
+    private static void rateLimitHeaders(HttpExchange exchange) {
+        exchange.getResponseHeaders().set("X-RateLimit-Limit", "5000");
+        exchange.getResponseHeaders().set("X-RateLimit-Remaining", "4990");
+        exchange.getResponseHeaders().set("X-RateLimit-Reset", String.valueOf(System.currentTimeMillis() / 1000 + 3600));
+        exchange.getResponseHeaders().set("X-RateLimit-Resource", "core");
+    }
+    
+    private String repositoryJson() {
+        return """
+                {
+                  "id": 186853002,
+                  "name": "widgets",
+                  "full_name": "acme/widgets",
+                  "private": false,
+                  "owner": {"login": "acme", "id": 21031067, "type": "Organization"},
+                  "url": "%1$s/repos/acme/widgets",
+                  "html_url": "https://github.com/acme/widgets",
+                  "default_branch": "main"
+                }
+                """.formatted(apiUrl);
+    }
+    
+    private String treeJson() {
+        StringBuilder entries = new StringBuilder();
+        for (String path : BLOBS.keySet()) {
+            entries.append(treeEntry(path, "blob")).append(",\n");
+        }
+        entries.append(treeEntry("docs/logo.png", "blob")).append(",\n");
+        entries.append(treeEntry("src", "tree"));
+        return """
+                {
+                  "sha": "9fb037999f264ba9a7fc6274d15fa3ae2ab98312",
+                  "url": "%s/repos/acme/widgets/git/trees/9fb037999f264ba9a7fc6274d15fa3ae2ab98312",
+                  "tree": [
+                %s
+                  ],
+                  "truncated": false
+                }
+                """.formatted(apiUrl, entries);
+    }
+    
+    private String treeEntry(String path, String type) {
+        return """
+                {"path": "%1$s", "mode": "%2$s", "type": "%3$s", "sha": "%4$s", "size": 16, "url": "%5$s/repos/acme/widgets/git/%3$ss/%4$s"}\
+                """.formatted(path, type.equals("tree") ? "040000" : "100644", type, sha(path), apiUrl);
+    }
+    
+    /**
+     * A stable fake object ID per path, 40 hex characters like a git SHA-1.
+     */
+    private static String sha(String path) {
+        return String.format("%040x", path.hashCode() & 0xffffffffL);
+    }
+}
\ No newline at end of file
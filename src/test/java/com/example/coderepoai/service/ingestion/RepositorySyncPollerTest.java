@@ -0,0 +1,295 @@
+package com.example.coderepoai.service.ingestion;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RepositorySyncPollerTest {
+    
+    private static final String REPOSITORY = "https://github.com/example/service";
+    private static final String OTHER_REPOSITORY = "https://github.com/example/library";
+    
+    private static final long MIN_INTERVAL = 60;
+    private static final long MAX_INTERVAL = 600;
+    private static final long INITIAL_INTERVAL = 120;
+    
+    private final MutableClock clock = new MutableClock(Instant.parse("2024-01-01T00:00:00Z"));
+    private final StubRefreshService refreshService = new StubRefreshService();
+    private final RepositorySyncPoller poller = new RepositorySyncPoller(refreshService, clock, true,
+            MIN_INTERVAL, MAX_INTERVAL, INITIAL_INTERVAL);
+    
+    @Test
+    public void firstCheckWaitsForTheInitialInterval() {
+        refreshService.index(REPOSITORY, "a1", "a1");
+        
+        poller.pollDueRepositories();
+        clock.advanceSeconds(INITIAL_INTERVAL - 1);
+        poller.pollDueRepositories();
+        assertTrue(refreshService.resolved.isEmpty());
+        
+        clock.advanceSeconds(1);
+        poller.pollDueRepositories();
+        assertEquals(List.of(REPOSITORY), refreshService.resolved);
+    }
+    
+    @Test
+    public void unchangedHeadGrowsTheIntervalByHalf() {
+        refreshService.index(REPOSITORY, "a1", "a1");
+        poller.pollDueRepositories();
+        
+        clock.advanceSeconds(INITIAL_INTERVAL);
+        poller.pollDueRepositories();
+        assertEquals(180, stat(REPOSITORY, "interval_seconds"));
+        assertEquals(0, stat(REPOSITORY, "changes"));
+        assertTrue(refreshService.submitted.isEmpty());
+        
+        // The next check is due only once the grown interval has passed
+        clock.advanceSeconds(179);
+        poller.pollDueRepositories();
+        assertEquals(1, stat(REPOSITORY, "checks"));
+        
+        clock.advanceSeconds(1);
+        poller.pollDueRepositories();
+        assertEquals(2, stat(REPOSITORY, "checks"));
+        assertEquals(270, stat(REPOSITORY, "interval_seconds"));
+    }
+    
+    @Test
+    public void movedHeadHalvesTheIntervalAndSubmitsAScheduledIncrementalRefresh() {
+        refreshService.index(REPOSITORY, "a1", "b2");
+        poller.pollDueRepositories();
+        
+        clock.advanceSeconds(INITIAL_INTERVAL);
+        poller.pollDueRepositories();
+        
+        assertEquals(List.of(new Submission(REPOSITORY, false, RefreshPriority.SCHEDULED)), refreshService.submitted);
+        assertEquals(60, stat(REPOSITORY, "interval_seconds"));
+        assertEquals(1, stat(REPOSITORY, "changes"));
+    }
+    
+    @Test
+    public void intervalStaysWithinTheConfiguredBounds() {
+        refreshService.index(REPOSITORY, "a1", "b2");
+        poller.pollDueRepositories();
+        
+        for (int i = 0; i < 3; i++) {
+            clock.advanceSeconds(stat(REPOSITORY, "interval_seconds"));
+            poller.pollDueRepositories();
+            assertEquals(MIN_INTERVAL, stat(REPOSITORY, "interval_seconds"));
+        }
+        
+        // Grown intervals are not whole seconds, so step just past each one
+        refreshService.heads.put(REPOSITORY, "a1");
+        for (int i = 0; i < 10; i++) {
+            clock.advanceSeconds(stat(REPOSITORY, "interval_seconds") + 1);
+            poller.pollDueRepositories();
+        }
+        assertEquals(13, stat(REPOSITORY, "checks"));
+        assertEquals(MAX_INTERVAL, stat(REPOSITORY, "interval_seconds"));
+    }
+    
+    @Test
+    public void failedCheckBacksOffAndIsCounted() {
+        refreshService.index(REPOSITORY, "a1", "a1");
+        refreshService.failing.add(REPOSITORY);
+        poller.pollDueRepositories();
+        
+        clock.advanceSeconds(INITIAL_INTERVAL);
+        poller.pollDueRepositories();
+        
+        assertEquals(1, stat(REPOSITORY, "failures"));
+        assertEquals(0, stat(REPOSITORY, "changes"));
+        assertEquals(180, stat(REPOSITORY, "interval_seconds"));
+        assertTrue(refreshService.submitted.isEmpty());
+    }
+    
+    @Test
+    public void unknownHeadCountsAsUnchanged() {
+        refreshService.index(REPOSITORY, "a1", null);
+        poller.pollDueRepositories();
+        
+        clock.advanceSeconds(INITIAL_INTERVAL);
+        poller.pollDueRepositories();
+        
+        assertEquals(180, stat(REPOSITORY, "interval_seconds"));
+        assertTrue(refreshService.submitted.isEmpty());
+    }
+    
+    @Test
+    public void repositoryIsNotCheckedWhileItIsRefreshing() {
+        refreshService.index(REPOSITORY, "a1", "b2");
+        refreshService.refreshing.add(REPOSITORY);
+        poller.pollDueRepositories();
+        
+        clock.advanceSeconds(INITIAL_INTERVAL);
+        poller.pollDueRepositories();
+        assertTrue(refreshService.resolved.isEmpty());
+        assertEquals(0, stat(REPOSITORY, "checks"));
+        
+        // Still due once the refresh finishes
+        refreshService.refreshing.clear();
+        poller.pollDueRepositories();
+        assertEquals(1, stat(REPOSITORY, "checks"));
+        assertEquals(1, refreshService.submitted.size());
+    }
+    
+    @Test
+    public void repositoriesAreTrackedIndependently() {
+        refreshService.index(REPOSITORY, "a1", "b2");
+        refreshService.index(OTHER_REPOSITORY, "c3", "c3");
+        poller.pollDueRepositories();
+        
+        clock.advanceSeconds(INITIAL_INTERVAL);
+        poller.pollDueRepositories();
+        
+        assertEquals(60, stat(REPOSITORY, "interval_seconds"));
+        assertEquals(180, stat(OTHER_REPOSITORY, "interval_seconds"));
+        assertEquals(List.of(new Submission(REPOSITORY, false, RefreshPriority.SCHEDULED)), refreshService.submitted);
+    }
+    
+    @Test
+    public void forgetsRepositoriesThatAreNoLongerIndexed() {
+        refreshService.index(REPOSITORY, "a1", "a1");
+        refreshService.index(OTHER_REPOSITORY, "c3", "c3");
+        poller.pollDueRepositories();
+        
+        refreshService.indexed.remove(OTHER_REPOSITORY);
+        poller.pollDueRepositories();
+        
+        assertTrue(repositories().containsKey(REPOSITORY));
+        assertFalse(repositories().containsKey(OTHER_REPOSITORY));
+    }
+    
+    @Test
+    public void disabledPollerDoesNothing() {
+        RepositorySyncPoller disabled = new RepositorySyncPoller(refreshService, clock, false,
+                MIN_INTERVAL, MAX_INTERVAL, INITIAL_INTERVAL);
+        refreshService.index(REPOSITORY, "a1", "b2");
+        
+        disabled.pollDueRepositories();
+        clock.advanceSeconds(MAX_INTERVAL);
+        disabled.pollDueRepositories();
+        
+        assertTrue(refreshService.resolved.isEmpty());
+        assertTrue(refreshService.submitted.isEmpty());
+        assertEquals(false, disabled.getStatistics().get("enabled"));
+    }
+    
+    @Test
+    public void initialIntervalIsClampedToTheBounds() {
+        RepositorySyncPoller eager = new RepositorySyncPoller(refreshService, clock, true,
+                MIN_INTERVAL, MAX_INTERVAL, 5);
+        refreshService.index(REPOSITORY, "a1", "a1");
+        
+        eager.pollDueRepositories();
+        clock.advanceSeconds(MIN_INTERVAL - 1);
+        eager.pollDueRepositories();
+        assertTrue(refreshService.resolved.isEmpty());
+        
+        clock.advanceSeconds(1);
+        eager.pollDueRepositories();
+        assertEquals(List.of(REPOSITORY), refreshService.resolved);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> repositories() {
+        return (Map<String, Object>) poller.getStatistics().get("repositories");
+    }
+    
+    @SuppressWarnings("unchecked")
+    private long stat(String repositoryUrl, String key) {
+        Map<String, Object> repository = (Map<String, Object>) repositories().get(repositoryUrl);
+        return ((Number) repository.get(key)).longValue();
+    }
+    
+    private record Submission(String repositoryUrl, boolean fullRefresh, RefreshPriority priority) {
+    }
+    
+    /**
+     * Serves indexed and head revisions from maps; none of the collaborators are touched.
+     */
+    private static class StubRefreshService extends RefreshService {
+        private final Map<String, String> indexed = new LinkedHashMap<>();
+        private final Map<String, String> heads = new HashMap<>();
+        private final Set<String> refreshing = new HashSet<>();
+        private final Set<String> failing = new HashSet<>();
+        private final List<String> resolved = new ArrayList<>();
+        private final List<Submission> submitted = new ArrayList<>();
+        
+        private StubRefreshService() {
+            super(List.of(), null, null, null, null, null, null, null, null, null);
+        }
+        
+        private void index(String repositoryUrl, String indexedRevision, String headRevision) {
+            indexed.put(repositoryUrl, indexedRevision);
+            heads.put(repositoryUrl, headRevision);
+        }
+        
+        @Override
+        public Map<String, String> getIndexedRevisions() {
+            return new LinkedHashMap<>(indexed);
+        }
+        
+        @Override
+        public boolean isRefreshing(String repositoryUrl) {
+            return refreshing.contains(repositoryUrl);
+        }
+        
+        @Override
+        public String resolveHeadRevision(String repositoryUrl) {
+            resolved.add(repositoryUrl);
+            if (failing.contains(repositoryUrl)) {
+                throw new IllegalStateException("Repository unreachable: " + repositoryUrl);
+            }
+            return heads.get(repositoryUrl);
+        }
+        
+        @Override
+        public RefreshJob submitRefresh(String repositoryUrl, boolean fullRefresh, RefreshPriority priority) {
+            submitted.add(new Submission(repositoryUrl, fullRefresh, priority));
+            return null;
+        }
+    }
+    
+    private static class MutableClock extends Clock {
+        private Instant instant;
+        
+        private MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+        
+        private void advanceSeconds(long seconds) {
+            instant = instant.plus(Duration.ofSeconds(seconds));
+        }
+        
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+        
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+        
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
\ No newline at end of file
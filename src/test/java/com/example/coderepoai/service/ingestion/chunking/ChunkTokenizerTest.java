@@ -0,0 +1,75 @@
+package com.example.coderepoai.service.ingestion.chunking;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ChunkTokenizerTest {
+    
+    private final ChunkTokenizer tokenizer = new ChunkTokenizer("text-embedding-ada-002", "", 512, 64, "");
+    
+    @Test
+    public void leavesTextWithinTheBudgetAlone() {
+        String text = "class Foo {\n}\n";
+        
+        assertEquals(text, tokenizer.truncateToTokens(text, tokenizer.countTokens(text)));
+    }
+    
+    @Test
+    public void cutsAfterTheLastWholeLineAndSaysHowManyLinesAreLeft() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            text.append("int field").append(i).append(" = ").append(i).append(";\n");
+        }
+        int budget = tokenizer.countTokens(text.toString()) / 2;
+        
+        String truncated = tokenizer.truncateToTokens(text.toString(), budget);
+        
+        assertTrue(tokenizer.countTokens(truncated) <= budget);
+        String kept = truncated.substring(0, truncated.indexOf("... ("));
+        assertTrue(text.toString().startsWith(kept));
+        assertTrue(kept.endsWith("\n"));
+        long keptLines = kept.lines().count();
+        assertTrue(keptLines > 0);
+        assertTrue(truncated.endsWith("... (" + (40 - keptLines) + " more lines)\n"));
+    }
+    
+    @Test
+    public void dropsTheMarkerWhenTheBudgetCannotHoldIt() {
+        String text = "a\nb\nc\nd\ne\nf\ng\nh\ni\nj\n";
+        
+        String truncated = tokenizer.truncateToTokens(text, 4);
+        
+        assertTrue(tokenizer.countTokens(truncated) <= 4);
+        assertFalse(truncated.contains("more lines"));
+        assertFalse(truncated.isEmpty());
+        assertTrue(text.startsWith(truncated));
+    }
+    
+    @Test
+    public void cutsAFirstLineThatIsOverTheBudgetOnItsOwn() {
+        String line = "x".repeat(400);
+        String text = line + "\nshort\n";
+        int budget = 40;
+        
+        String truncated = tokenizer.truncateToTokens(text, budget);
+        
+        assertTrue(tokenizer.countTokens(truncated) <= budget);
+        assertTrue(truncated.startsWith("xxxx"));
+        // The rest of the cut line and the line after it
+        assertTrue(truncated.endsWith("\n... (2 more lines)\n"));
+    }
+    
+    @Test
+    public void keepsSurrogatePairsWholeWhenCuttingALine() {
+        String text = "😀".repeat(200);
+        
+        String truncated = tokenizer.truncateToTokens(text, 5);
+        
+        assertTrue(tokenizer.countTokens(truncated) <= 5);
+        assertTrue(text.startsWith(truncated));
+        assertEquals(0, truncated.length() % 2);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,94 @@
+package com.example.coderepoai.service.ingestion.chunking;
+
+import com.example.coderepoai.benchmark.SourceCorpus;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Java chunking throughput on a corpus of Java files: the syntax-tree chunker, and the
+ * block-structure chunker that takes over when a file does not parse. Line indexes are
+ * built once up front, as the chunker receives them. The bytes counter is the rate in
+ * bytes of source per second.
+ * <p>
+ * Run from the project root with
+ * {@code mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ * -Dexec.args="-cp %classpath org.openjdk.jmh.Main JavaAstChunkerBenchmark"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JavaAstChunkerBenchmark {
+    
+    @Param("src/main/java")
+    public String corpus;
+    
+    @Param("512")
+    public int maxTokens;
+    
+    private final List<String> paths = new ArrayList<>();
+    private final List<LineIndex> files = new ArrayList<>();
+    private long bytes;
+    private JavaAstChunker javaAstChunker;
+    private StructuralChunker structuralChunker;
+    
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Bytes {
+        public long bytes;
+        
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+    
+    @Setup
+    public void loadCorpus() {
+        ChunkTokenizer tokenizer = new ChunkTokenizer("text-embedding-ada-002", "", maxTokens, 64, "");
+        javaAstChunker = new JavaAstChunker(tokenizer);
+        structuralChunker = new StructuralChunker(tokenizer, true);
+        
+        SourceCorpus sources = SourceCorpus.load(corpus, "java");
+        for (Map.Entry<String, String> file : sources.files().entrySet()) {
+            paths.add(file.getKey());
+            files.add(new LineIndex(file.getValue(), tokenizer));
+        }
+        bytes = sources.bytes();
+    }
+    
+    @Benchmark
+    public void syntaxTree(Bytes bytes, Blackhole blackhole) {
+        for (LineIndex lines : files) {
+            blackhole.consume(javaAstChunker.chunk(lines, maxTokens));
+        }
+        bytes.bytes += this.bytes;
+    }
+    
+    @Benchmark
+    public void blockStructure(Bytes bytes, Blackhole blackhole) {
+        for (int i = 0; i < files.size(); i++) {
+            blackhole.consume(structuralChunker.chunk(files.get(i), paths.get(i), maxTokens));
+        }
+        bytes.bytes += this.bytes;
+    }
+}
\ No newline at end of file
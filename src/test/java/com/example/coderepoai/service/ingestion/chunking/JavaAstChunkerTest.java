@@ -0,0 +1,207 @@
+package com.example.coderepoai.service.ingestion.chunking;
+
+import com.example.coderepoai.model.ChunkLevel;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class JavaAstChunkerTest {
+    
+    private final ChunkTokenizer tokenizer = new ChunkTokenizer("text-embedding-ada-002", "", 512, 64, "");
+    private final JavaAstChunker chunker = new JavaAstChunker(tokenizer);
+    
+    @Test
+    public void cutsOneChunkPerMemberAndGroupsConsecutiveFields() {
+        String source = """
+                package com.example;
+                
+                public class Counter {
+                    private int count;
+                    private final String name;
+                    
+                    public Counter(String name) {
+                        this.name = name;
+                    }
+                    
+                    public int increment() {
+                        return ++count;
+                    }
+                    
+                    private long created;
+                }
+                """;
+        
+        List<HierarchicalChunk> chunks = chunk(source);
+        String header = "package com.example;\npublic class Counter {\n";
+        
+        assertEquals(ChunkLevel.FILE, chunks.get(0).level());
+        assertEquals(List.of(
+                header + "    private int count;\n    private final String name;\n",
+                header + "    public Counter(String name) {\n        this.name = name;\n    }\n",
+                header + "    public int increment() {\n        return ++count;\n    }\n",
+                header + "    private long created;\n"), memberTexts(chunks));
+        for (HierarchicalChunk chunk : chunks.subList(1, chunks.size())) {
+            assertEquals(ChunkLevel.MEMBER, chunk.level());
+            assertEquals(HierarchicalChunk.FILE_ID, chunk.parentId());
+        }
+    }
+    
+    @Test
+    public void keepsMemberLinesForTheOriginalFile() {
+        String source = "class A {\n    int x;\n\n    void run() {\n    }\n}\n";
+        
+        List<HierarchicalChunk> members = chunk(source).subList(1, 3);
+        
+        assertEquals(2, members.get(0).span().getStartLine());
+        assertEquals(2, members.get(0).span().getEndLine());
+        assertEquals(4, members.get(1).span().getStartLine());
+        assertEquals(5, members.get(1).span().getEndLine());
+    }
+    
+    @Test
+    public void groupsEnumConstantsWithTheFieldsAfterThem() {
+        String source = """
+                enum Color {
+                    RED, GREEN;
+                    
+                    private static final Color DEFAULT = RED;
+                    
+                    Color next() {
+                        return values()[(ordinal() + 1) % values().length];
+                    }
+                }
+                """;
+        
+        List<String> members = memberTexts(chunk(source));
+        
+        assertEquals(2, members.size());
+        assertEquals("enum Color {\n    RED, GREEN;\n\n    private static final Color DEFAULT = RED;\n", members.get(0));
+        assertTrue(members.get(1).contains("Color next()"));
+    }
+    
+    @Test
+    public void outlinesTheFileWithMemberSignatures() {
+        String source = """
+                package com.example;
+                
+                public class Greeter {
+                    private final String greeting = "Hello";
+                    
+                    public String greet(String name) {
+                        return greeting + ", " + name;
+                    }
+                }
+                """;
+        
+        HierarchicalChunk file = chunk(source).get(0);
+        
+        assertEquals(HierarchicalChunk.FILE_ID, file.id());
+        assertNull(file.parentId());
+        assertEquals("""
+                package com.example;
+                public class Greeter {
+                    private final String greeting;
+                    public String greet(String name);
+                }
+                """, file.outline());
+    }
+    
+    @Test
+    public void outlinesNestedTypesWithSeveralChunks() {
+        String source = """
+                class Outer {
+                    void run() {
+                    }
+                    
+                    static class Inner {
+                        int a;
+                        
+                        void b() {
+                        }
+                    }
+                    
+                    static class Leaf {
+                        void only() {
+                        }
+                    }
+                }
+                """;
+        
+        List<HierarchicalChunk> chunks = chunk(source);
+        
+        HierarchicalChunk inner = chunks.stream()
+                .filter(chunk -> chunk.level() == ChunkLevel.TYPE)
+                .findFirst()
+                .orElseThrow();
+        assertEquals("type:Outer.Inner", inner.id());
+        assertEquals(HierarchicalChunk.FILE_ID, inner.parentId());
+        assertTrue(inner.outline().startsWith("class Outer {\nstatic class Inner {\n"));
+        assertEquals(1, chunks.stream().filter(chunk -> chunk.level() == ChunkLevel.TYPE).count());
+        
+        for (HierarchicalChunk chunk : chunks) {
+            if (chunk.level() != ChunkLevel.MEMBER) {
+                continue;
+            }
+            String text = chunk.span().toString();
+            // Members of a type with an outline belong to it, the rest to the file
+            String expectedParent = text.contains("int a;") || text.contains("void b()") ? "type:Outer.Inner" : HierarchicalChunk.FILE_ID;
+            assertEquals(expectedParent, chunk.parentId(), text);
+        }
+        assertEquals("class Outer {\nstatic class Leaf {\n        void only() {\n        }\n", memberTexts(chunks).get(3));
+    }
+    
+    @Test
+    public void keepsATypeWithoutMembersAsOneChunk() {
+        List<String> members = memberTexts(chunk("package p;\n\npublic interface Marker {\n}\n"));
+        
+        assertEquals(List.of("package p;\npublic interface Marker {\n}\n"), members);
+    }
+    
+    @Test
+    public void splitsAMemberOverTheBudgetAtLineBoundaries() {
+        StringBuilder source = new StringBuilder("class Big {\n    void fill() {\n");
+        for (int i = 0; i < 60; i++) {
+            source.append("        values.add(compute(").append(i).append(", offset + ").append(i).append("));\n");
+        }
+        source.append("    }\n}\n");
+        LineIndex lines = new LineIndex(source.toString(), tokenizer);
+        int maxTokens = 128;
+        
+        List<HierarchicalChunk> chunks = chunker.chunk(lines, maxTokens).orElseThrow();
+        List<HierarchicalChunk> members = chunks.subList(1, chunks.size());
+        
+        assertTrue(members.size() > 1);
+        StringBuilder joined = new StringBuilder();
+        for (HierarchicalChunk member : members) {
+            String text = member.span().toString();
+            assertTrue(text.startsWith("class Big {\n"));
+            assertTrue(tokenizer.countTokens(text) <= maxTokens, text);
+            assertTrue(text.endsWith("\n"));
+            joined.append(text.substring("class Big {\n".length()));
+        }
+        assertEquals(source.substring("class Big {\n".length(), source.length() - 2), joined.toString());
+    }
+    
+    @Test
+    public void returnsNothingForSourcesThatDoNotParse() {
+        Optional<List<HierarchicalChunk>> chunks = chunker.chunk(new LineIndex("class Broken {\n    void f( {\n", tokenizer), 512);
+        
+        assertTrue(chunks.isEmpty());
+    }
+    
+    private List<HierarchicalChunk> chunk(String source) {
+        return chunker.chunk(new LineIndex(source, tokenizer), 512).orElseThrow();
+    }
+    
+    private static List<String> memberTexts(List<HierarchicalChunk> chunks) {
+        return chunks.stream()
+                .filter(chunk -> chunk.level() == ChunkLevel.MEMBER)
+                .map(chunk -> chunk.span().toString())
+                .toList();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,99 @@
+package com.example.coderepoai.service.ingestion.chunking;
+
+import com.example.coderepoai.model.SourceSpan;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class LineIndexTest {
+    
+    private final ChunkTokenizer tokenizer = new ChunkTokenizer("text-embedding-ada-002", "", 512, 64, "");
+    
+    @Test
+    public void indexesLinesIncludingTheirNewline() {
+        LineIndex lines = new LineIndex("first\nsecond\n\nlast", tokenizer);
+        
+        assertEquals(4, lines.lineCount());
+        assertEquals(0, lines.lineStart(0));
+        assertEquals(6, lines.lineEnd(0));
+        assertEquals(5, lines.lineContentEnd(0));
+        assertEquals(13, lines.lineStart(2));
+        assertEquals(13, lines.lineContentEnd(2));
+        assertEquals(18, lines.lineEnd(3));
+        assertEquals(18, lines.lineContentEnd(3));
+        assertEquals(0, lines.lineOf(5));
+        assertEquals(1, lines.lineOf(6));
+        assertEquals(3, lines.lineOf(18));
+    }
+    
+    @Test
+    public void indexesEmptyContent() {
+        LineIndex lines = new LineIndex("", tokenizer);
+        
+        assertEquals(0, lines.lineCount());
+        assertEquals(0, lines.byteOffset(0));
+        assertEquals(0, lines.tokens(0, 0));
+    }
+    
+    @Test
+    public void mapsCharacterOffsetsToUtf8ByteOffsets() {
+        // One, two, three and four bytes per character
+        String content = "a = \"é\";\n// 日本語\nString s = \"😀x\";\nend";
+        LineIndex lines = new LineIndex(content, tokenizer);
+        
+        for (int offset = 0; offset <= content.length(); offset++) {
+            if (offset > 0 && Character.isHighSurrogate(content.charAt(offset - 1))) {
+                continue;
+            }
+            int expected = content.substring(0, offset).getBytes(StandardCharsets.UTF_8).length;
+            assertEquals(expected, lines.byteOffset(offset), "offset " + offset);
+        }
+    }
+    
+    @Test
+    public void countsALoneSurrogateAsOneByte() {
+        String content = "x\uD800y\nz";
+        LineIndex lines = new LineIndex(content, tokenizer);
+        
+        assertEquals(content.getBytes(StandardCharsets.UTF_8).length, lines.byteOffset(content.length()));
+        assertEquals(2, lines.byteOffset(2));
+    }
+    
+    @Test
+    public void sumsLineTokens() {
+        String content = "int a = 1;\nString name = \"value\";\n\nreturn a + name.length();\n";
+        LineIndex lines = new LineIndex(content, tokenizer);
+        
+        int total = 0;
+        for (int line = 0; line < lines.lineCount(); line++) {
+            int lineTokens = tokenizer.countTokens(content.substring(lines.lineStart(line), lines.lineEnd(line)));
+            assertEquals(lineTokens, lines.lineTokens(line));
+            total += lineTokens;
+        }
+        assertEquals(total, lines.tokens(0, lines.lineCount()));
+        assertEquals(lines.lineTokens(1) + lines.lineTokens(2), lines.tokens(1, 3));
+    }
+    
+    @Test
+    public void buildsSpansWithOneBasedLines() {
+        String content = "one\ntwo\nthree\nfour\n";
+        LineIndex lines = new LineIndex(content, tokenizer);
+        
+        SourceSpan lineSpan = lines.lineSpan(1, 3);
+        assertEquals("two\nthree\n", lineSpan.toString());
+        assertEquals(2, lineSpan.getStartLine());
+        assertEquals(3, lineSpan.getEndLine());
+        
+        SourceSpan charSpan = lines.charSpan(5, 10);
+        assertEquals("wo\nth", charSpan.toString());
+        assertEquals(2, charSpan.getStartLine());
+        assertEquals(3, charSpan.getEndLine());
+        
+        // A span ending right after a newline ends on that line, not the next
+        SourceSpan wholeLine = lines.charSpan(4, 8);
+        assertEquals(2, wholeLine.getStartLine());
+        assertEquals(2, wholeLine.getEndLine());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,139 @@
+package com.example.coderepoai.service.ingestion.chunking;
+
+import com.example.coderepoai.model.ChunkLevel;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput and boundary accuracy of the structural chunker for the languages it added.
+ * The corpus is generated: top-level definitions of varying length, each under its own
+ * comment and with a brace inside a literal, all small enough to fit a chunk. A chunk is
+ * aligned when it starts at a definition or its comment, so the misaligned counter should
+ * stay at zero. The bytes counter is the rate in bytes of source per second.
+ * <p>
+ * Run from the project root with
+ * {@code mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ * -Dexec.args="-cp %classpath org.openjdk.jmh.Main StructuralChunkerBenchmark"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StructuralChunkerBenchmark {
+    
+    // Definition header, body line, body line with a brace in a literal, and end; # is filled in with a number
+    private static final Map<String, List<String>> TEMPLATES = Map.of(
+            "go", List.of("func f#(x int) int {\n", "\tx = x*3 + #\n", "\tlog.Print(\"{\", x)\n",
+                    "\treturn x\n}\n"),
+            "kt", List.of("fun f#(x: Int): Int {\n", "    println(x * #)\n", "    println(\"{\" + x)\n",
+                    "    return x\n}\n"),
+            "rs", List.of("fn f#(x: i64) -> i64 {\n", "    println!(\"{}\", x * #);\n", "    let open = '{';\n",
+                    "    x\n}\n"),
+            "ts", List.of("export function f#(x: number): number {\n", "    console.log(x * #);\n",
+                    "    console.log(\"{\", x);\n", "    return x;\n}\n"),
+            "cs", List.of("static class C#\n{\n    static int F(int x)\n    {\n", "        Console.WriteLine(x * #);\n",
+                    "        Console.WriteLine(\"{\" + x);\n", "        return x;\n    }\n}\n"),
+            "cpp", List.of("int f#(int x) {\n", "    total += x * #;\n", "    std::puts(\"{\");\n",
+                    "    return x;\n}\n"));
+    
+    @Param({"go", "kt", "rs", "ts", "cs", "cpp"})
+    public String language;
+    
+    @Param("500")
+    public int definitions;
+    
+    @Param("512")
+    public int maxTokens;
+    
+    private StructuralChunker chunker;
+    private String path;
+    private LineIndex lines;
+    // 1-based lines a chunk may start at: each definition's comment and header
+    private final BitSet definitionStarts = new BitSet();
+    
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Bytes {
+        public long bytes;
+        
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+    
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Boundaries {
+        public long chunks;
+        public long misaligned;
+        
+        @Setup(Level.Iteration)
+        public void reset() {
+            chunks = 0;
+            misaligned = 0;
+        }
+    }
+    
+    @Setup
+    public void generateCorpus() {
+        ChunkTokenizer tokenizer = new ChunkTokenizer("text-embedding-ada-002", "", maxTokens, 64, "");
+        chunker = new StructuralChunker(tokenizer, true);
+        path = "bench/generated." + language;
+        
+        List<String> template = TEMPLATES.get(language);
+        Random random = new Random(42);
+        StringBuilder source = new StringBuilder();
+        int line = 1;
+        for (int definition = 0; definition < definitions; definition++) {
+            String number = String.valueOf(definition);
+            StringBuilder block = new StringBuilder();
+            block.append("// Definition ").append(number).append(".\n");
+            block.append(template.get(0).replace("#", number));
+            int bodyLines = 2 + random.nextInt(28);
+            for (int i = 0; i < bodyLines; i++) {
+                block.append(template.get(i % 5 == 4 ? 2 : 1).replace("#", String.valueOf(i)));
+            }
+            block.append(template.get(3)).append('\n');
+            
+            definitionStarts.set(line, line + 2);
+            line += (int) block.chars().filter(ch -> ch == '\n').count();
+            source.append(block);
+        }
+        lines = new LineIndex(source.toString(), tokenizer);
+    }
+    
+    @Benchmark
+    public void chunk(Bytes bytes, Boundaries boundaries) {
+        List<HierarchicalChunk> chunks = chunker.chunk(lines, path, maxTokens).orElseThrow();
+        for (HierarchicalChunk chunk : chunks) {
+            if (chunk.level() != ChunkLevel.MEMBER) {
+                continue;
+            }
+            boundaries.chunks++;
+            if (!definitionStarts.get(chunk.span().getStartLine())) {
+                boundaries.misaligned++;
+            }
+        }
+        bytes.bytes += lines.content().length();
+    }
+}
\ No newline at end of file
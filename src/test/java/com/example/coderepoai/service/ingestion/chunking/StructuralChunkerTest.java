@@ -0,0 +1,198 @@
+package com.example.coderepoai.service.ingestion.chunking;
+
+import com.example.coderepoai.model.ChunkLevel;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StructuralChunkerTest {
+    
+    private final ChunkTokenizer tokenizer = new ChunkTokenizer("text-embedding-ada-002", "", 512, 64, "");
+    private final StructuralChunker chunker = new StructuralChunker(tokenizer, true);
+    
+    @Test
+    public void findsGrammarsByExtension() {
+        assertEquals(BlockGrammar.PYTHON, chunker.grammarFor("scripts/build.py").orElseThrow());
+        assertEquals(BlockGrammar.C, chunker.grammarFor("include/Util.HPP").orElseThrow());
+        assertEquals(BlockGrammar.YAML, chunker.grammarFor("config/application.yml").orElseThrow());
+        assertTrue(chunker.grammarFor("README").isEmpty());
+        assertTrue(chunker.grammarFor("notes.txt").isEmpty());
+        assertTrue(new StructuralChunker(tokenizer, false).grammarFor("build.py").isEmpty());
+    }
+    
+    @Test
+    public void splitsPythonAtTopLevelDefinitionsWithTheirDecorators() {
+        assertSplitsInto("app.py",
+                "@cached\ndef load(path):\n    with open(path) as f:\n        return f.read()\n\n",
+                "class Parser:\n    def __init__(self, text):\n        self.text = text\n\n    def parse(self):\n        return self.text.split()\n\n",
+                "def main():\n    \"\"\"Runs the parser.\n\ndef not_a_definition():\n    \"\"\"\n    print(Parser(load('x')).parse())\n");
+    }
+    
+    @Test
+    public void splitsRubyWithEndStayingInItsBlock() {
+        assertSplitsInto("greeter.rb",
+                "# Greets people.\nclass Greeter\n  def greet(name)\n    \"Hello, #{name}\"\n  end\nend\n\n",
+                "module Util\n  def self.slug(text)\n    text.downcase.gsub(' ', '-')\n  end\nend\n");
+    }
+    
+    @Test
+    public void splitsGoAtFunctionsAndTypesWithTheirComments() {
+        assertSplitsInto("config.go",
+                "// Load reads the file.\nfunc Load(path string) ([]byte, error) {\n\treturn os.ReadFile(path)\n}\n\n",
+                "type Config struct {\n\tName string\n\tPort int\n}\n\n",
+                "func (c *Config) Address() string {\n\treturn fmt.Sprintf(\"%s:%d {\", c.Name, c.Port)\n}\n");
+    }
+    
+    @Test
+    public void splitsRustWithoutMistakingCharLiteralsAndLifetimesForBrackets() {
+        assertSplitsInto("token.rs",
+                "#[derive(Debug, Clone)]\npub struct Token<'a> {\n    text: &'a str,\n    kind: char,\n}\n\n",
+                "impl<'a> Token<'a> {\n    pub fn is_open(&self) -> bool {\n        self.kind == '{'\n    }\n}\n\n",
+                "fn main() {\n    let t = Token { text: \"}\", kind: '}' };\n    println!(\"{:?}\", t);\n}\n");
+    }
+    
+    @Test
+    public void splitsCWithReturnTypesAboveTheNameAndBothPreprocessorBranches() {
+        assertSplitsInto("words.c",
+                "static int\ncount_words(const char *text)\n{\n    int n = 0;\n    while (*text) n += *text++ == ' ';\n    return n;\n}\n\n",
+                "#ifdef _WIN32\nint separator(void) {\n    return '\\\\';\n#else\nint separator(void) {\n    return '/';\n#endif\n}\n\n",
+                "int main(void)\n{\n    printf(\"%d\\n\", count_words(\"a b\"));\n    return 0;\n}\n");
+    }
+    
+    @Test
+    public void splitsJavaScriptFunctionsArrowFunctionsAndClasses() {
+        assertSplitsInto("render.js",
+                "const add = (a, b) => {\n  return a + b;\n};\n\n",
+                "/**\n * Renders a list.\n */\nexport function render(items) {\n  const html = items.map(item => `<li>${item}</li>`);\n  return `<ul>${html.join('')}</ul>`;\n}\n\n",
+                "class Counter {\n  increment() {\n    this.count++;\n  }\n}\n");
+    }
+    
+    @Test
+    public void splitsKotlinWithAnnotationsAttached() {
+        assertSplitsInto("Point.kt",
+                "@JvmStatic\nfun greet(name: String): String {\n    return \"Hello, $name\"\n}\n\n",
+                "data class Point(val x: Int, val y: Int) {\n    fun plus(other: Point) = Point(x + other.x, y + other.y)\n}\n\n",
+                "object Registry {\n    val points = mutableListOf<Point>()\n}\n");
+    }
+    
+    @Test
+    public void splitsSqlAtStatements() {
+        assertSplitsInto("schema.sql",
+                "CREATE TABLE users (\n    id INTEGER PRIMARY KEY,\n    name TEXT NOT NULL\n);\n\n",
+                "-- Everyone called Alice\nSELECT id, name\nFROM users\nWHERE name = 'alice; bob'\nORDER BY id;\n");
+    }
+    
+    @Test
+    public void splitsYamlAtTopLevelKeys() {
+        assertSplitsInto("application.yml",
+                "server:\n  port: 8080\n  host: localhost\n\n",
+                "# Embedded database\ndatabase:\n  url: jdbc:h2:mem:test\n  user: sa\n\n",
+                "logging:\n  level:\n    root: debug\n");
+    }
+    
+    @Test
+    public void splitsJsonAtTheMembersOfItsTopLevelObject() {
+        String name = "{\n  \"name\": \"app\",\n  \"version\": \"1.0.0\",\n";
+        String scripts = "  \"scripts\": {\n    \"build\": \"tsc\",\n    \"test\": \"jest\"\n  },\n";
+        String dependencies = "  \"dependencies\": {\n    \"react\": \"^18.0.0\"\n  }\n}\n";
+        int maxTokens = tokenizer.countTokens(scripts) * 6 / 5;
+        
+        List<String> texts = texts("package.json", name + scripts + dependencies, maxTokens);
+        
+        // The object is one block, so its members are chunked under its first line
+        assertEquals(List.of(name, "{\n" + scripts, "{\n" + dependencies), texts);
+    }
+    
+    @Test
+    public void dividesABlockOverTheBudgetUnderItsHeader() {
+        StringBuilder content = new StringBuilder("class Service:\n");
+        for (int i = 0; i < 6; i++) {
+            content.append("    def handle_").append(i).append("(self, request):\n")
+                    .append("        return self.dispatch(request, ").append(i).append(")\n\n");
+        }
+        int maxTokens = tokenizer.countTokens(content.toString()) / 2;
+        
+        List<HierarchicalChunk> members = members(chunker.chunk(new LineIndex(content.toString(), tokenizer), "service.py", maxTokens)
+                .orElseThrow());
+        
+        assertTrue(members.size() > 1);
+        assertEquals("", members.get(0).span().getPrefix());
+        assertTrue(members.get(0).span().toString().startsWith("class Service:\n    def handle_0("));
+        StringBuilder joined = new StringBuilder();
+        for (int i = 0; i < members.size(); i++) {
+            String text = members.get(i).span().toString();
+            assertTrue(tokenizer.countTokens(text) <= maxTokens, text);
+            if (i > 0) {
+                assertEquals("class Service:\n", members.get(i).span().getPrefix());
+                assertTrue(text.startsWith("class Service:\n    def handle_"), text);
+            }
+            joined.append(text, members.get(i).span().getPrefix().length(), text.length());
+        }
+        assertEquals(content.toString(), joined.toString());
+    }
+    
+    @Test
+    public void closesAChunkBeforeADefinitionOnceHalfFull() {
+        String setup = "import os\nimport sys\n\nDEBUG = os.environ.get('DEBUG') == '1'\nVERBOSE = '-v' in sys.argv\n\n";
+        String run = "def run():\n    print(DEBUG, VERBOSE)\n";
+        // Both fit one chunk, but the setup alone uses more than half of it
+        int maxTokens = tokenizer.countTokens(setup + run);
+        assertTrue(tokenizer.countTokens(setup) > maxTokens / 2);
+        
+        List<String> texts = texts("run.py", setup + run, maxTokens);
+        
+        assertEquals(List.of(setup, run), texts);
+    }
+    
+    @Test
+    public void leavesALineOverTheBudgetForTheCallerWithoutAPrefix() {
+        String longLine = "    VALUES = [" + "1, ".repeat(100) + "1]\n";
+        String content = "class Table:\n" + longLine + "    def size(self):\n        return len(self.VALUES)\n";
+        
+        List<HierarchicalChunk> members = members(chunker.chunk(new LineIndex(content, tokenizer), "table.py", 64).orElseThrow());
+        
+        HierarchicalChunk cut = members.stream()
+                .filter(member -> member.span().toString().contains("VALUES = ["))
+                .findFirst()
+                .orElseThrow();
+        assertEquals("", cut.span().getPrefix());
+        assertEquals(longLine, cut.span().toString());
+    }
+    
+    @Test
+    public void outlinesTheFileWithItsDefinitions() {
+        String content = "import os\n\ndef load(path):\n    return open(path).read()\n\nclass Store:\n    def save(self, data):\n        pass\n";
+        
+        HierarchicalChunk file = chunker.chunk(new LineIndex(content, tokenizer), "store.py", 512).orElseThrow().get(0);
+        
+        assertEquals(ChunkLevel.FILE, file.level());
+        assertEquals("def load(path):\nclass Store:\n    def save(self, data):\n", file.outline());
+    }
+    
+    /**
+     * Chunks the blocks joined, with a budget each block fits but no two adjacent blocks
+     * do, and expects one chunk per block.
+     */
+    private void assertSplitsInto(String filePath, String... blocks) {
+        int largest = 0;
+        for (String block : blocks) {
+            largest = Math.max(largest, tokenizer.countTokens(block));
+        }
+        
+        assertEquals(List.of(blocks), texts(filePath, String.join("", blocks), largest + largest / 5));
+    }
+    
+    private List<String> texts(String filePath, String content, int maxTokens) {
+        return members(chunker.chunk(new LineIndex(content, tokenizer), filePath, maxTokens).orElseThrow()).stream()
+                .map(member -> member.span().toString())
+                .toList();
+    }
+    
+    private static List<HierarchicalChunk> members(List<HierarchicalChunk> chunks) {
+        assertEquals(ChunkLevel.FILE, chunks.get(0).level());
+        return chunks.subList(1, chunks.size());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,267 @@
+package com.example.coderepoai.service.ingestion.lexer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ImportRulesTest {
+    
+    @Test
+    public void java() {
+        LexedSource lexed = lex(LanguageSyntax.JAVA, """
+                package com.example;
+                
+                import java.util.List;
+                import static java.util.Objects.requireNonNull;
+                import java.util.concurrent.*;
+                
+                class Foo {
+                    List<String> names;
+                }
+                """);
+        
+        assertEquals("""
+                package com.example;
+                class Foo {
+                    List<String> names;
+                }
+                """, lexed.content());
+        assertEquals(List.of(
+                new SourceImport("import", "java.util.List"),
+                new SourceImport("import static", "java.util.Objects.requireNonNull"),
+                new SourceImport("import", "java.util.concurrent.*")), lexed.imports());
+        assertArrayEquals(new int[] {1, 7, 8, 9}, lexed.sourceLines());
+    }
+    
+    @Test
+    public void kotlin() {
+        LexedSource lexed = lex(LanguageSyntax.KOTLIN, """
+                import kotlinx.coroutines.flow.Flow
+                import org.example.Service as Backend
+                fun main() = Backend().run()
+                """);
+        
+        assertEquals("fun main() = Backend().run()\n", lexed.content());
+        assertEquals(List.of(
+                new SourceImport("import", "kotlinx.coroutines.flow.Flow"),
+                new SourceImport("import", "org.example.Service")), lexed.imports());
+    }
+    
+    @Test
+    public void javaScriptSingleLineForms() {
+        LexedSource lexed = lex(LanguageSyntax.JAVASCRIPT, """
+                import React, { useState } from 'react';
+                import './styles.css';
+                const path = require("path");
+                export { helper } from './helper';
+                export const answer = 42;
+                """);
+        
+        assertEquals("export const answer = 42;\n", lexed.content());
+        assertEquals(List.of(
+                new SourceImport("import", "react"),
+                new SourceImport("import", "./styles.css"),
+                new SourceImport("require", "path"),
+                new SourceImport("import", "./helper")), lexed.imports());
+    }
+    
+    @Test
+    public void javaScriptImportListOverSeveralLines() {
+        LexedSource lexed = lex(LanguageSyntax.JAVASCRIPT, """
+                import {
+                  a,
+                  b as c,
+                } from './x';
+                function f() {
+                  return a + c;
+                }
+                """);
+        
+        assertEquals("""
+                function f() {
+                  return a + c;
+                }
+                """, lexed.content());
+        assertEquals(List.of(new SourceImport("import", "./x")), lexed.imports());
+        assertArrayEquals(new int[] {5, 6, 7}, lexed.sourceLines());
+    }
+    
+    @Test
+    public void javaScriptModuleOnTheLineAfterFrom() {
+        LexedSource lexed = lex(LanguageSyntax.JAVASCRIPT, """
+                import { a,
+                  b }
+                  from
+                  './x';
+                function f() {
+                  return a + b;
+                }
+                import { c } from
+                  "./y";
+                """);
+        
+        assertEquals("""
+                function f() {
+                  return a + b;
+                }
+                """, lexed.content());
+        assertEquals(List.of(new SourceImport("import", "./x"), new SourceImport("import", "./y")), lexed.imports());
+    }
+    
+    @Test
+    public void javaScriptUnfinishedImportListStopsAtTheFirstLineOfCode() {
+        LexedSource lexed = lex(LanguageSyntax.JAVASCRIPT, """
+                import { a,
+                function f() {
+                  return a;
+                }
+                """);
+        
+        assertEquals("""
+                function f() {
+                  return a;
+                }
+                """, lexed.content());
+        assertEquals(List.of(), lexed.imports());
+    }
+    
+    @Test
+    public void javaScriptFromWithoutAModuleStopsAtTheNextLine() {
+        LexedSource lexed = lex(LanguageSyntax.JAVASCRIPT, """
+                import { a } from
+                const b = a;
+                """);
+        
+        assertEquals("const b = a;\n", lexed.content());
+    }
+    
+    @Test
+    public void typeScriptTypeImportOverSeveralLines() {
+        LexedSource lexed = lex(LanguageSyntax.TYPESCRIPT, """
+                import type {
+                  Request,
+                  Response
+                } from "express";
+                export type Handler = (req: Request, res: Response) => void;
+                """);
+        
+        assertEquals("export type Handler = (req: Request, res: Response) => void;\n", lexed.content());
+        assertEquals(List.of(new SourceImport("import", "express")), lexed.imports());
+    }
+    
+    @Test
+    public void python() {
+        LexedSource lexed = lex(LanguageSyntax.PYTHON, """
+                import os, sys as system
+                from typing import (
+                    List,
+                    Optional,
+                )
+                from collections import OrderedDict, \\
+                    defaultdict
+                def main():
+                    return os.getcwd()
+                """);
+        
+        assertEquals("""
+                def main():
+                    return os.getcwd()
+                """, lexed.content());
+        assertEquals(List.of(
+                new SourceImport("import", "os"),
+                new SourceImport("import", "sys"),
+                new SourceImport("import", "typing"),
+                new SourceImport("import", "collections")), lexed.imports());
+        assertArrayEquals(new int[] {8, 9}, lexed.sourceLines());
+    }
+    
+    @Test
+    public void go() {
+        LexedSource lexed = lex(LanguageSyntax.GO, """
+                package main
+                
+                import "fmt"
+                import (
+                    "os"
+                    str "strings"
+                )
+                
+                func main() {
+                    fmt.Println(str.ToUpper(os.Args[0]))
+                }
+                """);
+        
+        assertEquals("""
+                package main
+                func main() {
+                    fmt.Println(str.ToUpper(os.Args[0]))
+                }
+                """, lexed.content());
+        assertEquals(List.of(
+                new SourceImport("import", "fmt"),
+                new SourceImport("import", "os"),
+                new SourceImport("import", "strings")), lexed.imports());
+    }
+    
+    @Test
+    public void goUnfinishedImportBlockStopsAtTheFirstLineOfCode() {
+        LexedSource lexed = lex(LanguageSyntax.GO, """
+                import (
+                    "os"
+                func main() {
+                }
+                """);
+        
+        assertEquals("""
+                func main() {
+                }
+                """, lexed.content());
+        assertEquals(List.of(new SourceImport("import", "os")), lexed.imports());
+    }
+    
+    @Test
+    public void rust() {
+        LexedSource lexed = lex(LanguageSyntax.RUST, """
+                extern crate serde;
+                use std::collections::HashMap;
+                pub use crate::model::*;
+                use std::io::{
+                    self,
+                    Read,
+                };
+                fn main() {}
+                """);
+        
+        assertEquals("fn main() {}\n", lexed.content());
+        assertEquals(List.of(
+                new SourceImport("crate", "serde"),
+                new SourceImport("use", "std::collections::HashMap"),
+                new SourceImport("use", "crate::model"),
+                new SourceImport("use", "std::io")), lexed.imports());
+    }
+    
+    @Test
+    public void cIncludes() {
+        LexedSource lexed = lex(LanguageSyntax.C, """
+                #include <stdio.h>
+                # include "config.h"
+                #define MAX 10
+                int main(void) { return 0; }
+                """);
+        
+        assertEquals("""
+                #define MAX 10
+                int main(void) { return 0; }
+                """, lexed.content());
+        assertEquals(List.of(
+                new SourceImport("include", "stdio.h"),
+                new SourceImport("include", "config.h")), lexed.imports());
+    }
+    
+    private static LexedSource lex(LanguageSyntax syntax, String source) {
+        return new SourceLexer(syntax).lex(source);
+    }
+}
\ No newline at end of file
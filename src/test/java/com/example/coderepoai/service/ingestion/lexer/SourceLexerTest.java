@@ -0,0 +1,121 @@
+package com.example.coderepoai.service.ingestion.lexer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class SourceLexerTest {
+    
+    private final SourceLexer java = new SourceLexer(LanguageSyntax.JAVA);
+    
+    @Test
+    public void dropsTrailingLineComments() {
+        assertEquals("int a = 1;\nint b = 2;\n", java.lex("int a = 1; // one\nint b = 2;//two\n").content());
+    }
+    
+    @Test
+    public void keepsCodeAroundAnInlineBlockComment() {
+        assertEquals("int a =  1;\nf(a,  b);\n", java.lex("int a = /* one */ 1;\nf(a, /* unused */ b);").content());
+    }
+    
+    @Test
+    public void dropsLinesLeftEmptyByABlockCommentAndMapsTheRest() {
+        LexedSource lexed = java.lex("""
+                /**
+                 * Docs.
+                 */
+                class Foo { /* start
+                   still a comment */ int x;
+                }
+                """);
+        
+        assertEquals("class Foo {\n int x;\n}\n", lexed.content());
+        assertArrayEquals(new int[] {4, 5, 6}, lexed.sourceLines());
+    }
+    
+    @Test
+    public void leavesCommentMarkersInsideStringsAlone() {
+        String source = """
+                String url = "http://example.com"; // link
+                String glob = "src/**/*.java";
+                char slash = '/';
+                String quote = "say \\"/* hi */\\"";
+                """;
+        
+        assertEquals("""
+                String url = "http://example.com";
+                String glob = "src/**/*.java";
+                char slash = '/';
+                String quote = "say \\"/* hi */\\"";
+                """, java.lex(source).content());
+    }
+    
+    @Test
+    public void unterminatedStringEndsWithItsLine() {
+        assertEquals("String s = \"open; // in the string\nint x = 1;\n",
+                java.lex("String s = \"open; // in the string\nint x = 1; // comment\n").content());
+    }
+    
+    @Test
+    public void textBlocksMaySpanLines() {
+        String source = "String sql = \"\"\"\n    -- // not a comment\n    \"\"\"; // comment\n";
+        
+        assertEquals("String sql = \"\"\"\n    -- // not a comment\n    \"\"\";\n", java.lex(source).content());
+    }
+    
+    @Test
+    public void dropsBlankLinesAndTrailingWhitespace() {
+        LexedSource lexed = java.lex("a();   \r\n\r\n\t\nb();\t\r\n");
+        
+        assertEquals("a();\nb();\n", lexed.content());
+        assertArrayEquals(new int[] {1, 4}, lexed.sourceLines());
+    }
+    
+    @Test
+    public void javaScriptTemplateStringsSpanLines() {
+        SourceLexer javascript = new SourceLexer(LanguageSyntax.JAVASCRIPT);
+        
+        assertEquals("const s = `a\n// b\n`;\n", javascript.lex("const s = `a\n// b\n`; // c\n").content());
+    }
+    
+    @Test
+    public void pythonHashCommentsAndTripleQuotes() {
+        SourceLexer python = new SourceLexer(LanguageSyntax.PYTHON);
+        
+        assertEquals("""
+                x = "#1"
+                doc = '''
+                # kept
+                '''
+                """, python.lex("""
+                x = "#1"  # first
+                # whole line
+                doc = '''
+                # kept
+                '''
+                """).content());
+    }
+    
+    @Test
+    public void rustBlockCommentsNest() {
+        SourceLexer rust = new SourceLexer(LanguageSyntax.RUST);
+        
+        assertEquals("fn a() {}\nfn b<'a>(s: &'a str) {}\n",
+                rust.lex("fn a() {} /* outer /* inner */ still outer */\nfn b<'a>(s: &'a str) {}\n").content());
+    }
+    
+    @Test
+    public void yamlHashStartsACommentOnlyAfterWhitespace() {
+        SourceLexer yaml = new SourceLexer(LanguageSyntax.YAML);
+        
+        assertEquals("color: a#b\nurl: x\n", yaml.lex("# heading\ncolor: a#b\nurl: x # trailing\n").content());
+    }
+    
+    @Test
+    public void plainTextKeepsEverythingButBlankLines() {
+        SourceLexer plain = new SourceLexer(LanguageSyntax.PLAIN);
+        
+        assertEquals("// not code\n/* either */\n", plain.lex("// not code\n\n/* either */  \n").content());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,86 @@
+package com.example.coderepoai.service.ingestion.source;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class LocalPathsTest {
+    
+    @TempDir
+    Path temp;
+    
+    private Path root;
+    private Path repository;
+    private Path outside;
+    
+    @BeforeEach
+    public void createDirectories() throws IOException {
+        root = Files.createDirectories(temp.resolve("mirrors")).toRealPath();
+        repository = Files.createDirectories(root.resolve("project"));
+        outside = Files.createDirectories(temp.resolve("secrets")).toRealPath();
+    }
+    
+    @Test
+    public void acceptsPathsAndFileUrisUnderARoot() {
+        LocalPaths localPaths = new LocalPaths(outside + ", " + root);
+        
+        assertEquals(repository, localPaths.toPath(repository.toString()));
+        assertEquals(repository, localPaths.toPath(repository.toUri().toString()));
+        assertEquals(root, localPaths.toPath(root.toString()));
+    }
+    
+    @Test
+    public void rejectsEverythingWhenNoRootIsConfigured() {
+        LocalPaths localPaths = new LocalPaths("");
+        
+        assertNull(localPaths.toPath(repository.toString()));
+        assertNull(localPaths.toPath("/etc"));
+    }
+    
+    @Test
+    public void rejectsPathsOutsideTheRoots() throws IOException {
+        Path sibling = Files.createDirectories(temp.resolve("mirrors-other"));
+        LocalPaths localPaths = new LocalPaths(root.toString());
+        
+        assertNull(localPaths.toPath(outside.toString()));
+        assertNull(localPaths.toPath(outside.toUri().toString()));
+        assertNull(localPaths.toPath("/etc"));
+        // A sibling directory sharing the root's name as a prefix is not under it
+        assertNull(localPaths.toPath(sibling.toString()));
+    }
+    
+    @Test
+    public void rejectsParentSegmentsLeavingTheRoot() {
+        LocalPaths localPaths = new LocalPaths(root.toString());
+        
+        assertNull(localPaths.toPath(root + "/../secrets"));
+        assertNull(localPaths.toPath(repository + "/../../secrets"));
+        assertEquals(repository, localPaths.toPath(root + "/project/../project"));
+    }
+    
+    @Test
+    public void rejectsSymbolicLinksLeavingTheRoot() throws IOException {
+        Path link = Files.createSymbolicLink(root.resolve("escape"), outside);
+        LocalPaths localPaths = new LocalPaths(root.toString());
+        
+        assertNull(localPaths.toPath(link.toString()));
+    }
+    
+    @Test
+    public void ignoresRemoteAndMissingLocations() {
+        LocalPaths localPaths = new LocalPaths(root.toString());
+        
+        assertNull(localPaths.toPath("https://github.com/owner/repo"));
+        assertNull(localPaths.toPath("relative/path"));
+        assertNull(localPaths.toPath(root.resolve("missing").toString()));
+        assertNull(localPaths.toPath("file:not a uri"));
+        assertNull(localPaths.toPath(null));
+    }
+}
\ No newline at end of file
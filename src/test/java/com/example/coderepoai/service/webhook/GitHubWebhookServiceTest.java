@@ -0,0 +1,83 @@
+package com.example.coderepoai.service.webhook;
+
+import com.example.coderepoai.exception.WebhookSignatureException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class GitHubWebhookServiceTest {
+    
+    private static final String SECRET = "It's a Secret to Everybody";
+    private static final byte[] BODY = "Hello, World!".getBytes(StandardCharsets.UTF_8);
+    
+    private final GitHubWebhookService service = service(SECRET, false);
+    
+    @Test
+    public void acceptsTheSignatureOfTheBody() {
+        // Example delivery from GitHub's webhook documentation
+        assertDoesNotThrow(() -> service.verifySignature(BODY,
+                "sha256=757107ea0eb2509fc211221cce984b8a37570b6d7586c22c46f4379c8b043e17"));
+        assertDoesNotThrow(() -> service.verifySignature(BODY, sign(SECRET, BODY)));
+    }
+    
+    @Test
+    public void rejectsASignatureOfAnotherBodyOrSecret() {
+        byte[] tampered = "Hello, World?".getBytes(StandardCharsets.UTF_8);
+        
+        assertRejected("Webhook signature does not match", tampered, sign(SECRET, BODY));
+        assertRejected("Webhook signature does not match", BODY, sign("another secret", BODY));
+        assertRejected("Webhook signature does not match", BODY, "sha256=" + "00".repeat(32));
+    }
+    
+    @Test
+    public void rejectsAMalformedSignature() {
+        assertRejected("Malformed X-Hub-Signature-256 header", BODY, "sha256=not-hex");
+        assertRejected("Malformed X-Hub-Signature-256 header", BODY, "sha256=abc");
+    }
+    
+    @Test
+    public void rejectsAMissingSignature() {
+        assertRejected("Missing X-Hub-Signature-256 header", BODY, null);
+        assertRejected("Missing X-Hub-Signature-256 header", BODY, "");
+        // The SHA-1 header GitHub also sends is not accepted in its place
+        assertRejected("Missing X-Hub-Signature-256 header", BODY, "sha1=01dc10d0c83e72ed246219cdd91669667fe2ca59");
+    }
+    
+    @Test
+    public void unsignedDeliveriesNeedToBeAllowedExplicitly() {
+        assertRejected("Webhook secret is not configured", service("", false), BODY, null);
+        assertDoesNotThrow(() -> service("", true).verifySignature(BODY, null));
+    }
+    
+    private void assertRejected(String message, byte[] body, String signatureHeader) {
+        assertRejected(message, service, body, signatureHeader);
+    }
+    
+    private static void assertRejected(String message, GitHubWebhookService service, byte[] body, String signatureHeader) {
+        WebhookSignatureException e = assertThrows(WebhookSignatureException.class,
+                () -> service.verifySignature(body, signatureHeader));
+        assertEquals(message, e.getMessage());
+    }
+    
+    private static GitHubWebhookService service(String secret, boolean allowUnsigned) {
+        return new GitHubWebhookService(null, null, new ObjectMapper(), secret, allowUnsigned);
+    }
+    
+    private static String sign(String secret, byte[] body) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return "sha256=" + HexFormat.of().formatHex(mac.doFinal(body));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
\ No newline at end of file
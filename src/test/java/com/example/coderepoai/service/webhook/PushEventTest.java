@@ -0,0 +1,128 @@
+package com.example.coderepoai.service.webhook;
+
+import com.example.coderepoai.service.ingestion.PushedChanges;
+import com.example.coderepoai.service.ingestion.source.FileChange;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PushEventTest {
+    
+    private static final String NULL_SHA = "0000000000000000000000000000000000000000";
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    
+    @Test
+    public void readsTheRecordedPushToTheDefaultBranch() throws IOException {
+        PushEvent event = PushEvent.fromPayload(recordedPush());
+        
+        assertEquals("acme/widgets", event.repositoryFullName());
+        assertEquals("refs/heads/main", event.ref());
+        assertTrue(event.isDefaultBranch());
+        assertEquals("6113728f27ae82c7b1a177c8d03f9e96e0adf246", event.before());
+        assertEquals("59b20b8d5c6ff8d09518454d4dd8b7b30f095ab5", event.after());
+        assertFalse(event.forced());
+        assertFalse(event.deleted());
+        assertEquals(2, event.commitCount());
+    }
+    
+    @Test
+    public void fileRemovedAndAddedAgainIsSquashedToModified() throws IOException {
+        PushedChanges changes = PushEvent.fromPayload(recordedPush()).toPushedChanges();
+        
+        assertNotNull(changes);
+        assertEquals("6113728f27ae82c7b1a177c8d03f9e96e0adf246", changes.baseRevision());
+        assertEquals("59b20b8d5c6ff8d09518454d4dd8b7b30f095ab5", changes.headRevision());
+        assertEquals(List.of(
+                new FileChange(FileChange.Type.MODIFIED, "README.md", null),
+                new FileChange(FileChange.Type.MODIFIED, "src/main/java/com/acme/LegacyWidget.java", null),
+                new FileChange(FileChange.Type.MODIFIED, "src/main/java/com/acme/Widget.java", null)), changes.changes());
+    }
+    
+    @Test
+    public void forcedPushHasNoChangeSet() throws IOException {
+        ObjectNode payload = recordedPush();
+        payload.put("forced", true);
+        
+        PushEvent event = PushEvent.fromPayload(payload);
+        
+        assertTrue(event.forced());
+        assertNull(event.toPushedChanges());
+    }
+    
+    @Test
+    public void newBranchHasNoChangeSet() throws IOException {
+        ObjectNode payload = recordedPush();
+        payload.put("ref", "refs/heads/feature/widgets");
+        payload.put("before", NULL_SHA);
+        payload.put("created", true);
+        
+        PushEvent event = PushEvent.fromPayload(payload);
+        
+        assertFalse(event.isDefaultBranch());
+        assertNull(event.toPushedChanges());
+    }
+    
+    @Test
+    public void pushListingTheMaximumOfCommitsHasNoChangeSet() throws IOException {
+        // GitHub stops listing commits at 20, so a push of 20 may have more changes than it shows
+        assertNotNull(PushEvent.fromPayload(withCommits(PushEvent.MAX_PAYLOAD_COMMITS - 1)).toPushedChanges());
+        
+        PushEvent event = PushEvent.fromPayload(withCommits(PushEvent.MAX_PAYLOAD_COMMITS));
+        
+        assertEquals(20, event.commitCount());
+        assertNull(event.toPushedChanges());
+    }
+    
+    @Test
+    public void deletedBranchIsReported() throws IOException {
+        ObjectNode payload = recordedPush();
+        payload.put("after", NULL_SHA);
+        payload.put("deleted", true);
+        payload.putArray("commits");
+        
+        PushEvent event = PushEvent.fromPayload(payload);
+        
+        assertTrue(event.deleted());
+        assertEquals(0, event.commitCount());
+    }
+    
+    @Test
+    public void rejectsPayloadsOfOtherEvents() throws IOException {
+        JsonNode ping = objectMapper.readTree("{\"zen\": \"Keep it logically awesome.\", \"hook_id\": 1}");
+        
+        assertThrows(IllegalArgumentException.class, () -> PushEvent.fromPayload(ping));
+    }
+    
+    /**
+     * @param count commits of the recorded push repeated until there are this many
+     */
+    private ObjectNode withCommits(int count) throws IOException {
+        ObjectNode payload = recordedPush();
+        ArrayNode recorded = (ArrayNode) payload.get("commits");
+        ArrayNode commits = payload.putArray("commits");
+        for (int i = 0; i < count; i++) {
+            commits.add(recorded.get(i % recorded.size()).deepCopy());
+        }
+        return payload;
+    }
+    
+    private ObjectNode recordedPush() throws IOException {
+        try (InputStream in = PushEventTest.class.getResourceAsStream("/webhook/push-event.json")) {
+            return (ObjectNode) objectMapper.readTree(in);
+        }
+    }
+}
\ No newline at end of file